@@ -26,6 +26,7 @@
 
 package org.alfresco.solr;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.unmodifiableList;
 
 import java.io.File;
@@ -231,11 +232,20 @@ public class AlfrescoSolrDataModel implements QueryConstants
     private final Set<QName> crossLocaleSearchProperties = new HashSet<>();
     private final Set<QName> identifierProperties = new HashSet<>();
     private final ThreadPoolExecutor threadPool;
+    private final FieldMappingCache fieldMappingCache = new FieldMappingCache();
 
     public void close() {
         threadPool.shutdown();
     }
 
+    /**
+     * @return the cache of the Alfresco property to schema field mappings, invalidated on each model change.
+     */
+    public FieldMappingCache getFieldMappingCache()
+    {
+        return fieldMappingCache;
+    }
+
     public AlfrescoSolrDataModel()
     {
         tenantService = new SingleTServiceImpl();
@@ -418,6 +428,11 @@ public class AlfrescoSolrDataModel implements QueryConstants
     }
 
     public String getAlfrescoPropertyFromSchemaField(String schemaField)
+    {
+        return fieldMappingCache.get("alfrescoPropertyFromSchemaField", null, schemaField, this::alfrescoPropertyFromSchemaField);
+    }
+
+    private String alfrescoPropertyFromSchemaField(String schemaField)
     {
         int index = schemaField.lastIndexOf("@{");
         if(index == -1)
@@ -1163,8 +1178,11 @@ public class AlfrescoSolrDataModel implements QueryConstants
      */
     public IndexedField getIndexedFieldNamesForProperty(QName propertyQName)
     {
-        // TODO: Cache and throw on model refresh
+        return fieldMappingCache.get("indexedFieldNamesForProperty", null, propertyQName, this::indexedFieldNamesForProperty);
+    }
 
+    private IndexedField indexedFieldNamesForProperty(QName propertyQName)
+    {
         IndexedField indexedField = new IndexedField();
         PropertyDefinition propertyDefinition = getPropertyDefinition(propertyQName);
         if((propertyDefinition == null))
@@ -1368,6 +1386,7 @@ public class AlfrescoSolrDataModel implements QueryConstants
         {
             modelErrors.remove(model.getName());
             dictionaryDAO.putModelIgnoringConstraints(model);
+            fieldMappingCache.invalidate();
             return true;
         }
         else
@@ -1385,6 +1404,7 @@ public class AlfrescoSolrDataModel implements QueryConstants
     {
         modelErrors.remove(getM2Model(modelQName).getName());
         dictionaryDAO.removeModel(modelQName);
+        fieldMappingCache.invalidate();
     }
 
     M2Model getM2Model(QName modelQName)
@@ -1398,6 +1418,7 @@ public class AlfrescoSolrDataModel implements QueryConstants
         {
             cds.afterDictionaryInit();
         }
+        fieldMappingCache.invalidate();
     }
 
     public org.alfresco.repo.search.impl.querymodel.Query parseCMISQueryToAlfrescoAbstractQuery(CMISQueryMode mode, SearchParameters searchParameters,
@@ -1659,6 +1680,12 @@ public class AlfrescoSolrDataModel implements QueryConstants
      * return the stored field associated to potentialProperty parameter
      */
     public String mapStoredProperty(String potentialProperty, SolrQueryRequest req)
+    {
+        return fieldMappingCache.get("mapStoredProperty", req.getSchema(), potentialProperty,
+                property -> mapStoredPropertyNoCache(property, req));
+    }
+
+    private String mapStoredPropertyNoCache(String potentialProperty, SolrQueryRequest req)
     {
         if(potentialProperty.equals("asc") || potentialProperty.equals("desc") || potentialProperty.equals("_docid_"))
         {
@@ -1726,6 +1753,12 @@ public class AlfrescoSolrDataModel implements QueryConstants
     }
 
     public String  mapProperty(String  potentialProperty,  FieldUse fieldUse, SolrQueryRequest req, int position)
+    {
+        return fieldMappingCache.get("mapProperty", req.getSchema(), asList(potentialProperty, fieldUse, position),
+                key -> mapPropertyNoCache(potentialProperty, fieldUse, req, position));
+    }
+
+    private String mapPropertyNoCache(String potentialProperty, FieldUse fieldUse, SolrQueryRequest req, int position)
     {
         if(potentialProperty.equals("asc") || potentialProperty.equals("desc") || potentialProperty.equals("_docid_"))
         {
@@ -0,0 +1,297 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr;
+
+import static java.util.Arrays.asList;
+import static java.util.Arrays.stream;
+import static org.alfresco.repo.search.adaptor.lucene.QueryConstants.FIELD_ACLID;
+import static org.alfresco.repo.search.adaptor.lucene.QueryConstants.FIELD_ANCESTOR;
+import static org.alfresco.repo.search.adaptor.lucene.QueryConstants.FIELD_APATH;
+import static org.alfresco.repo.search.adaptor.lucene.QueryConstants.FIELD_INTXID;
+import static org.alfresco.repo.search.adaptor.lucene.QueryConstants.FIELD_LID;
+import static org.alfresco.repo.search.adaptor.lucene.QueryConstants.FIELD_NPATH;
+import static org.alfresco.repo.search.adaptor.lucene.QueryConstants.FIELD_PATH;
+import static org.alfresco.repo.search.adaptor.lucene.QueryConstants.FIELD_SOLR4_ID;
+import static org.alfresco.solr.utils.Utils.notNullOrEmpty;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.solr.AlfrescoSolrDataModel.TenantDbId;
+import org.alfresco.solr.client.NodeMetaData;
+import org.alfresco.util.Pair;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexableField;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.SchemaField;
+
+/**
+ * Recomputes, without calling the repository, the path related metadata of the descendants of a node whose paths
+ * have changed (e.g. moved or renamed folder).
+ *
+ * The stored PATH, APATH ("F" value) and NPATH ("F" value) of a descendant have one element for each level of its
+ * path, so the position of the parent node in the descendant ancestors chain tells which part of those paths is
+ * relative to the parent. That relative part is then rebased onto the new paths of the parent.
+ *
+ * Only nodes with a single (primary) path can be rebased: the parent must have exactly one path and the descendant
+ * must have exactly one path going through the parent. Any other case (secondary associations, categories,
+ * inconsistent stored values) is reported as not rebaseable and needs to be fetched from the repository.
+ */
+final class CascadePathRebaser
+{
+    /** The stored fields a descendant document needs to be rebased. */
+    static final Set<String> REQUIRED_FIELDS =
+            new HashSet<>(asList(FIELD_SOLR4_ID, FIELD_LID, FIELD_INTXID, FIELD_ACLID, FIELD_PATH, FIELD_APATH, FIELD_NPATH, FIELD_ANCESTOR));
+
+    private static final String FULL_PATH_PREFIX = "F/";
+
+    private final NodeMetaData parent;
+    private final String parentUuid;
+    private final String parentPath;
+    private final List<String> parentAncestorPath;
+    private final List<String> parentNamePath;
+
+    /**
+     * @param schema the core schema.
+     * @return true if the schema stores all the {@link #REQUIRED_FIELDS}. Otherwise (e.g. the noRerank schema, where
+     *         paths and ancestors are only indexed) descendants can't be rebased from the index.
+     */
+    static boolean isSupportedBy(IndexSchema schema)
+    {
+        for (String fieldName : REQUIRED_FIELDS)
+        {
+            SchemaField field = schema.getFieldOrNull(fieldName);
+            if (field == null || !field.stored())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    CascadePathRebaser(NodeMetaData parent)
+    {
+        this.parent = parent;
+        this.parentUuid = parent.getNodeRef() != null ? parent.getNodeRef().getId() : null;
+
+        List<Pair<String, QName>> paths = notNullOrEmpty(parent.getPaths());
+        List<String> ancestorPaths = notNullOrEmpty(parent.getAncestorPaths());
+        List<List<String>> namePaths = notNullOrEmpty(parent.getNamePaths());
+
+        if (paths.size() == 1 && ancestorPaths.size() == 1 && namePaths.size() == 1 && paths.get(0).getFirst() != null)
+        {
+            String path = paths.get(0).getFirst();
+            List<String> ancestorPath = ancestorPathElements(ancestorPaths.get(0));
+            List<String> namePath = namePaths.get(0);
+
+            boolean consistent = pathElements(path).size() == ancestorPath.size() && ancestorPath.size() == namePath.size();
+            this.parentPath = consistent ? path : null;
+            this.parentAncestorPath = consistent ? ancestorPath : null;
+            this.parentNamePath = consistent ? namePath : null;
+        }
+        else
+        {
+            this.parentPath = null;
+            this.parentAncestorPath = null;
+            this.parentNamePath = null;
+        }
+    }
+
+    /**
+     * @return true if the paths of the parent node allow to rebase its descendants, false otherwise.
+     */
+    boolean canRebase()
+    {
+        return parentUuid != null && parentPath != null;
+    }
+
+    /**
+     * Rebases the given descendant document onto the new paths of the parent node.
+     *
+     * @param child the stored fields (at least {@link #REQUIRED_FIELDS}) of the descendant document.
+     * @return the descendant metadata, with the recomputed paths and ancestors, or empty if the descendant cannot be
+     *         rebased locally.
+     */
+    Optional<NodeMetaData> rebase(Document child)
+    {
+        if (!canRebase())
+        {
+            return Optional.empty();
+        }
+
+        String[] paths = child.getValues(FIELD_PATH);
+        List<String> ancestorPath = fullPath(child.getValues(FIELD_APATH));
+        List<String> namePath = fullPath(child.getValues(FIELD_NPATH));
+        if (paths.length != 1 || ancestorPath == null || namePath == null)
+        {
+            return Optional.empty();
+        }
+
+        List<String> path = pathElements(paths[0]);
+        int parentLevel = ancestorPath.indexOf(parentUuid);
+        if (path.size() != ancestorPath.size()
+                || namePath.size() != ancestorPath.size()
+                || parentLevel < 0
+                || parentLevel != ancestorPath.lastIndexOf(parentUuid))
+        {
+            return Optional.empty();
+        }
+
+        // The ancestors below the parent are unchanged: they must be already in the stored ANCESTOR field
+        Map<String, NodeRef> storedAncestors = new HashMap<>();
+        for (String ancestor : child.getValues(FIELD_ANCESTOR))
+        {
+            NodeRef nodeRef = new NodeRef(ancestor);
+            storedAncestors.put(nodeRef.getId(), nodeRef);
+        }
+
+        Set<NodeRef> ancestors = new HashSet<>(notNullOrEmpty(parent.getAncestors()));
+        ancestors.add(parent.getNodeRef());
+        for (String ancestorUuid : ancestorPath.subList(parentLevel + 1, ancestorPath.size()))
+        {
+            NodeRef ancestor = storedAncestors.get(ancestorUuid);
+            if (ancestor == null)
+            {
+                return Optional.empty();
+            }
+            ancestors.add(ancestor);
+        }
+
+        IndexableField txId = child.getField(FIELD_INTXID);
+        IndexableField aclId = child.getField(FIELD_ACLID);
+        String lid = child.get(FIELD_LID);
+        String id = child.get(FIELD_SOLR4_ID);
+        if (txId == null || txId.numericValue() == null || aclId == null || aclId.numericValue() == null || lid == null || id == null)
+        {
+            return Optional.empty();
+        }
+
+        StringBuilder newPath = new StringBuilder(parentPath);
+        path.subList(parentLevel, path.size()).forEach(element -> newPath.append('/').append(element));
+
+        StringBuilder newAncestorPath = new StringBuilder();
+        parentAncestorPath.forEach(element -> newAncestorPath.append('/').append(element));
+        newAncestorPath.append('/').append(parentUuid);
+        ancestorPath.subList(parentLevel + 1, ancestorPath.size()).forEach(element -> newAncestorPath.append('/').append(element));
+
+        List<String> newNamePath = new ArrayList<>(parentNamePath);
+        newNamePath.addAll(namePath.subList(parentLevel, namePath.size()));
+
+        TenantDbId ids = AlfrescoSolrDataModel.decodeNodeDocumentId(id);
+
+        NodeMetaData rebased = new NodeMetaData();
+        rebased.setId(ids.dbId);
+        rebased.setTenantDomain(ids.tenant);
+        rebased.setNodeRef(new NodeRef(lid));
+        rebased.setTxnId(txId.numericValue().longValue());
+        rebased.setAclId(aclId.numericValue().longValue());
+        rebased.setPaths(Collections.singletonList(new Pair<>(newPath.toString(), null)));
+        rebased.setAncestorPaths(Collections.singletonList(newAncestorPath.toString()));
+        rebased.setNamePaths(Collections.singletonList(newNamePath));
+        rebased.setAncestors(ancestors);
+        return Optional.of(rebased);
+    }
+
+    /**
+     * Splits a PATH value in its elements. Namespaces (e.g. {http://www.alfresco.org/model/content/1.0}) contain
+     * slashes, so separators between curly brackets are ignored.
+     */
+    static List<String> pathElements(String path)
+    {
+        List<String> elements = new ArrayList<>();
+        int depth = 0;
+        int start = -1;
+        for (int i = 0; i < path.length(); i++)
+        {
+            char c = path.charAt(i);
+            if (c == '{')
+            {
+                depth++;
+            }
+            else if (c == '}')
+            {
+                depth--;
+            }
+            else if (c == '/' && depth == 0)
+            {
+                if (start >= 0)
+                {
+                    elements.add(path.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+
+        if (start >= 0 && start < path.length())
+        {
+            elements.add(path.substring(start));
+        }
+        return elements;
+    }
+
+    /**
+     * Splits an ancestor path in its elements, the same way APATH and ANAME values are built at indexing time.
+     */
+    static List<String> ancestorPathElements(String ancestorPath)
+    {
+        return stream(ancestorPath.length() > 0 && ancestorPath.startsWith("/")
+                        ? ancestorPath.substring(1).split("/")
+                        : ancestorPath.split("/"))
+                .map(String::trim)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return the elements of the only full ("F") value among the given APATH/NPATH values, null if there isn't
+     *         exactly one.
+     */
+    static List<String> fullPath(String[] values)
+    {
+        List<String> fullPath = null;
+        for (String value : values)
+        {
+            if (value.startsWith(FULL_PATH_PREFIX))
+            {
+                if (fullPath != null)
+                {
+                    return null;
+                }
+                fullPath = asList(value.substring(FULL_PATH_PREFIX.length()).split("/"));
+            }
+        }
+        return fullPath;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+
+/**
+ * Caches the mappings between Alfresco properties and schema fields computed by {@link AlfrescoSolrDataModel}.
+ *
+ * The cached values depend on the dictionary, so the whole cache is versioned: a model change replaces the current
+ * generation with an empty one, atomically. A lookup always reads from and writes to the same generation, so a
+ * value computed against an old dictionary never ends up in the new generation.
+ *
+ * Mappings which also depend on the core schema are kept in a separate scope for each schema instance
+ * (weakly referenced, so a reloaded core doesn't keep the old schema around).
+ *
+ * Each mapping holds at most {@link #MAX_ENTRIES_PER_MAPPING} entries per scope: over that limit values are
+ * computed and not cached (e.g. field names coming from arbitrary user queries).
+ */
+public final class FieldMappingCache
+{
+    static final int MAX_ENTRIES_PER_MAPPING = 10000;
+
+    private volatile Generation current = new Generation(0);
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Returns the cached value of the given mapping, computing (and caching) it if needed.
+     *
+     * @param mapping the mapping name (e.g. the name of the mapping method).
+     * @param scope the object the mapping depends on, other than the dictionary (e.g. the schema), null if none.
+     * @param key the mapping key.
+     * @param loader computes the value when not cached. Null values are never cached.
+     * @return the mapped value.
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> V get(String mapping, Object scope, K key, Function<K, V> loader)
+    {
+        if (key == null)
+        {
+            return loader.apply(null);
+        }
+
+        Counters mappingCounters = counters.computeIfAbsent(mapping, name -> new Counters());
+        Map<Object, Object> entries = current.entries(mapping, scope);
+
+        Object value = entries.get(key);
+        if (value != null)
+        {
+            mappingCounters.hits.increment();
+            return (V) value;
+        }
+
+        mappingCounters.misses.increment();
+        V loaded = loader.apply(key);
+        if (loaded != null && entries.size() < MAX_ENTRIES_PER_MAPPING)
+        {
+            entries.putIfAbsent(key, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Drops all the cached mappings. To be called after each dictionary change.
+     */
+    public synchronized void invalidate()
+    {
+        current = new Generation(current.version + 1);
+        invalidations.increment();
+    }
+
+    public long getVersion()
+    {
+        return current.version;
+    }
+
+    public NamedList<Object> getStatistics()
+    {
+        Generation generation = current;
+
+        NamedList<Object> statistics = new SimpleOrderedMap<>();
+        statistics.add("version", generation.version);
+        statistics.add("invalidations", invalidations.sum());
+
+        long totalHits = 0;
+        long totalLookups = 0;
+        for (Map.Entry<String, Counters> entry : counters.entrySet())
+        {
+            long hits = entry.getValue().hits.sum();
+            long lookups = hits + entry.getValue().misses.sum();
+            totalHits += hits;
+            totalLookups += lookups;
+
+            NamedList<Object> mappingStatistics = new SimpleOrderedMap<>();
+            mappingStatistics.add("lookups", lookups);
+            mappingStatistics.add("hits", hits);
+            mappingStatistics.add("hitratio", hitRatio(hits, lookups));
+            mappingStatistics.add("size", generation.size(entry.getKey()));
+            statistics.add(entry.getKey(), mappingStatistics);
+        }
+
+        statistics.add("lookups", totalLookups);
+        statistics.add("hits", totalHits);
+        statistics.add("hitratio", hitRatio(totalHits, totalLookups));
+        return statistics;
+    }
+
+    private static float hitRatio(long hits, long lookups)
+    {
+        return lookups == 0 ? 0.0f : (float) hits / lookups;
+    }
+
+    private static class Counters
+    {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+    }
+
+    private static class Generation
+    {
+        final long version;
+        final Map<String, Map<Object, Map<Object, Object>>> scopesByMapping = new ConcurrentHashMap<>();
+
+        Generation(long version)
+        {
+            this.version = version;
+        }
+
+        Map<Object, Object> entries(String mapping, Object scope)
+        {
+            return scopesByMapping
+                    .computeIfAbsent(mapping, name -> Collections.synchronizedMap(new WeakHashMap<>()))
+                    .computeIfAbsent(scope, s -> new ConcurrentHashMap<>());
+        }
+
+        int size(String mapping)
+        {
+            Map<Object, Map<Object, Object>> scopes = scopesByMapping.get(mapping);
+            if (scopes == null)
+            {
+                return 0;
+            }
+
+            synchronized (scopes)
+            {
+                return scopes.values().stream().mapToInt(Map::size).sum();
+            }
+        }
+    }
+}
@@ -545,6 +545,10 @@ class HandlerReportHelper
         coreSummary.add("Docs/Tx", srv.getTrackerStats().getTxDocs().getNamedList(detail, hist, values));
         coreSummary.add("Doc Transformation time (ms)", srv.getTrackerStats().getDocTransformationTimes()
                 .getNamedList(detail, hist, values));
+        coreSummary.add("Batch update time (ms)",
+                srv.getTrackerStats().getBatchUpdateTimes().getNamedList(detail, hist, values));
+        coreSummary.add("Docs/Batch update",
+                srv.getTrackerStats().getBatchUpdateDocs().getNamedList(detail, hist, values));
 
         // Model
 
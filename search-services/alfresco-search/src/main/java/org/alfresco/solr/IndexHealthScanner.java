@@ -0,0 +1,523 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.LegacyNumericUtils;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+
+/**
+ * Collects the values of a single valued numeric field (e.g. TXID, ACLTXID, DBID) for the index health reports.
+ *
+ * Values are read straight from the per-segment doc values (segments are scanned in parallel) and collected in a
+ * primitive bitset, together with the values found more than once. The bitset bounds come from the first and last
+ * terms of the (trie) field, so no facet or field cache is involved. When the range is sparse (more 64 bit words
+ * than documents, e.g. DBIDs with large gaps) the values are collected in sorted arrays instead, so the memory
+ * needed is bounded by the number of documents rather than by the range of values.
+ *
+ * The segments of all the scans are executed by the same pool (e.g. the concurrent scans of the slices of an index
+ * check), so at most "parallelism" segments are read at the same time. The progress of the running (or last) scan
+ * is available through {@link #getProgress()}, so that it can be reported back through the admin handler while a
+ * long report is still going on.
+ */
+final class IndexHealthScanner
+{
+    /* Ranges up to this number of 64 bit words (512 KB per bitset) are always collected in bitsets */
+    static final int MIN_DENSE_WORDS = 1 << 16;
+
+    private final ForkJoinPool pool;
+    private volatile Progress progress;
+
+    IndexHealthScanner(int parallelism)
+    {
+        // Workers are started on demand and stop once idle, so an unused scanner doesn't hold any thread
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+
+    /**
+     * Scans the values of the given field.
+     *
+     * @param reader the index reader.
+     * @param field the (single valued, numeric doc values) field.
+     * @param filter when not null, only the documents matching this query are scanned.
+     * @param fromId the lowest value to collect (inclusive).
+     * @param toId the highest value to collect (inclusive).
+     * @return the collected values.
+     */
+    IdScan scan(IndexReader reader, String field, Query filter, long fromId, long toId) throws IOException
+    {
+        Terms terms = MultiFields.getTerms(reader, field);
+        if (terms == null)
+        {
+            return new IdScan(fromId, fromId - 1, 0);
+        }
+
+        IdScan scan = new IdScan(
+                Math.max(fromId, LegacyNumericUtils.getMinLong(terms)),
+                Math.min(toId, LegacyNumericUtils.getMaxLong(terms)),
+                Math.max(reader.maxDoc(), MIN_DENSE_WORDS));
+        if (scan.isEmpty())
+        {
+            return scan;
+        }
+
+        Weight weight = null;
+        if (filter != null)
+        {
+            IndexSearcher searcher = new IndexSearcher(reader);
+            searcher.setQueryCache(null);
+            weight = searcher.createNormalizedWeight(filter, false);
+        }
+
+        List<LeafReaderContext> leaves = reader.leaves();
+        Progress currentProgress = new Progress(field, filter, leaves.size());
+        progress = currentProgress;
+
+        List<Future<Void>> segments = new ArrayList<>(leaves.size());
+        try
+        {
+            for (LeafReaderContext leaf : leaves)
+            {
+                Weight segmentFilter = weight;
+                segments.add(pool.submit(() -> {
+                    scanSegment(leaf, field, segmentFilter, scan, currentProgress);
+                    return null;
+                }));
+            }
+
+            for (Future<Void> segment : segments)
+            {
+                segment.get();
+            }
+            scan.seal();
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scanning " + field, exception);
+        }
+        catch (ExecutionException exception)
+        {
+            Throwable cause = exception.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+        catch (RejectedExecutionException | CancellationException exception)
+        {
+            throw new IOException("Scan of " + field + " stopped: the scanner has been closed", exception);
+        }
+        finally
+        {
+            segments.forEach(segment -> segment.cancel(true));
+            currentProgress.completed = true;
+        }
+        return scan;
+    }
+
+    /**
+     * Stops the scans still running (they fail with an {@link IOException}).
+     */
+    void close()
+    {
+        pool.shutdownNow();
+    }
+
+    /**
+     * @return the highest value of the given (trie) field in the index, null if the field has no values.
+     */
+    static Long lastValue(IndexReader reader, String field) throws IOException
+    {
+        Terms terms = MultiFields.getTerms(reader, field);
+        return terms == null ? null : LegacyNumericUtils.getMaxLong(terms);
+    }
+
+    /**
+     * @return the progress of the running (or last) scan, null if no scan has been executed yet.
+     */
+    NamedList<Object> getProgress()
+    {
+        Progress current = progress;
+        return current == null ? null : current.toNamedList();
+    }
+
+    private static void scanSegment(LeafReaderContext leaf, String field, Weight filter, IdScan scan, Progress progress)
+            throws IOException
+    {
+        LeafReader reader = leaf.reader();
+        NumericDocValues values = DocValues.getNumeric(reader, field);
+        Bits docsWithField = DocValues.getDocsWithField(reader, field);
+        Bits liveDocs = reader.getLiveDocs();
+
+        DocIdSetIterator docs;
+        if (filter == null)
+        {
+            docs = DocIdSetIterator.all(reader.maxDoc());
+        }
+        else
+        {
+            Scorer scorer = filter.scorer(leaf);
+            docs = scorer == null ? null : scorer.iterator();
+        }
+
+        long scannedDocs = 0;
+        if (docs != null)
+        {
+            IdScan.SegmentIds segmentIds = scan.newSegment();
+            for (int doc = docs.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docs.nextDoc())
+            {
+                if ((liveDocs == null || liveDocs.get(doc)) && docsWithField.get(doc))
+                {
+                    segmentIds.add(values.get(doc));
+                    scannedDocs++;
+                }
+            }
+            segmentIds.close();
+        }
+
+        progress.scannedDocs.add(scannedDocs);
+        progress.scannedSegments.incrementAndGet();
+    }
+
+    /**
+     * The values collected by a scan: values out of the scan range are ignored.
+     *
+     * Dense ranges are collected in bitsets (one bit per value of the range). Sparse ranges are collected per segment
+     * in arrays, which are merged into the sorted distinct (and duplicated) values once all the segments have been
+     * scanned ({@link #seal()}).
+     */
+    static final class IdScan
+    {
+        private static final long[] NONE = new long[0];
+
+        private final long minId;
+        private final long maxId;
+
+        /* Dense scans */
+        private final AtomicLongArray seen;
+        private final AtomicLongArray duplicated;
+
+        /* Sparse scans: the values of each scanned segment, then the sorted values once sealed */
+        private final List<long[]> segments;
+        private long[] sortedIds = NONE;
+        private long[] duplicatedIds = NONE;
+
+        /**
+         * @param minId the lowest value to collect (inclusive).
+         * @param maxId the highest value to collect (inclusive).
+         * @param maxDenseWords above this number of 64 bit words the range is considered sparse.
+         */
+        IdScan(long minId, long maxId, long maxDenseWords)
+        {
+            this.minId = minId;
+            this.maxId = maxId;
+
+            long words = maxId < minId ? 0 : ((maxId - minId) >>> 6) + 1;
+            if (words <= Math.min(maxDenseWords, Integer.MAX_VALUE))
+            {
+                this.seen = new AtomicLongArray((int) words);
+                this.duplicated = new AtomicLongArray((int) words);
+                this.segments = null;
+            }
+            else
+            {
+                this.seen = null;
+                this.duplicated = null;
+                this.segments = new ArrayList<>();
+            }
+        }
+
+        boolean isEmpty()
+        {
+            return maxId < minId;
+        }
+
+        boolean isSparse()
+        {
+            return segments != null;
+        }
+
+        /**
+         * @return the collector of the values of a segment, to be closed once the segment has been scanned.
+         */
+        SegmentIds newSegment()
+        {
+            return new SegmentIds();
+        }
+
+        /**
+         * Merges the values collected by the segments of a sparse scan. To be called once all of them are closed.
+         */
+        void seal()
+        {
+            if (!isSparse())
+            {
+                return;
+            }
+
+            long[] all;
+            synchronized (segments)
+            {
+                all = new long[segments.stream().mapToInt(ids -> ids.length).sum()];
+                int length = 0;
+                for (long[] ids : segments)
+                {
+                    System.arraycopy(ids, 0, all, length, ids.length);
+                    length += ids.length;
+                }
+                segments.clear();
+            }
+            Arrays.sort(all);
+
+            int distinct = 0;
+            int duplicates = 0;
+            long[] duplicateIds = new long[all.length];
+            for (int i = 0; i < all.length; i++)
+            {
+                if (distinct > 0 && all[distinct - 1] == all[i])
+                {
+                    if (duplicates == 0 || duplicateIds[duplicates - 1] != all[i])
+                    {
+                        duplicateIds[duplicates++] = all[i];
+                    }
+                }
+                else
+                {
+                    all[distinct++] = all[i];
+                }
+            }
+            sortedIds = Arrays.copyOf(all, distinct);
+            duplicatedIds = Arrays.copyOf(duplicateIds, duplicates);
+        }
+
+        private void add(long id)
+        {
+            int word = (int) ((id - minId) >>> 6);
+            long mask = 1L << (id - minId);
+            if ((seen.get(word) & mask) == 0 && (seen.getAndAccumulate(word, mask, (w, m) -> w | m) & mask) == 0)
+            {
+                return;
+            }
+            if ((duplicated.get(word) & mask) == 0)
+            {
+                duplicated.accumulateAndGet(word, mask, (w, m) -> w | m);
+            }
+        }
+
+        boolean contains(long id)
+        {
+            return isSparse() ? Arrays.binarySearch(sortedIds, id) >= 0 : get(seen, id);
+        }
+
+        boolean isDuplicated(long id)
+        {
+            return isSparse() ? Arrays.binarySearch(duplicatedIds, id) >= 0 : get(duplicated, id);
+        }
+
+        /**
+         * @return the number of distinct values found.
+         */
+        long cardinality()
+        {
+            if (isSparse())
+            {
+                return sortedIds.length;
+            }
+
+            long cardinality = 0;
+            for (int word = 0; word < seen.length(); word++)
+            {
+                cardinality += Long.bitCount(seen.get(word));
+            }
+            return cardinality;
+        }
+
+        /**
+         * @return the highest value found, {@link Long#MIN_VALUE} if nothing has been found.
+         */
+        long lastId()
+        {
+            if (isSparse())
+            {
+                return sortedIds.length == 0 ? Long.MIN_VALUE : sortedIds[sortedIds.length - 1];
+            }
+
+            for (int word = seen.length() - 1; word >= 0; word--)
+            {
+                long bits = seen.get(word);
+                if (bits != 0)
+                {
+                    return minId + ((long) word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+                }
+            }
+            return Long.MIN_VALUE;
+        }
+
+        void forEach(LongConsumer consumer)
+        {
+            if (isSparse())
+            {
+                Arrays.stream(sortedIds).forEach(consumer);
+            }
+            else
+            {
+                forEach(seen, consumer);
+            }
+        }
+
+        void forEachDuplicate(LongConsumer consumer)
+        {
+            if (isSparse())
+            {
+                Arrays.stream(duplicatedIds).forEach(consumer);
+            }
+            else
+            {
+                forEach(duplicated, consumer);
+            }
+        }
+
+        private boolean get(AtomicLongArray bits, long id)
+        {
+            if (id < minId || id > maxId)
+            {
+                return false;
+            }
+            return (bits.get((int) ((id - minId) >>> 6)) & (1L << (id - minId))) != 0;
+        }
+
+        private void forEach(AtomicLongArray bits, LongConsumer consumer)
+        {
+            for (int word = 0; word < bits.length(); word++)
+            {
+                long value = bits.get(word);
+                while (value != 0)
+                {
+                    consumer.accept(minId + ((long) word << 6) + Long.numberOfTrailingZeros(value));
+                    value &= value - 1;
+                }
+            }
+        }
+
+        /**
+         * Collects the values of a segment: dense scans record them straight away, sparse scans once the segment is
+         * closed.
+         */
+        final class SegmentIds
+        {
+            private long[] ids = isSparse() ? new long[1024] : null;
+            private int count;
+
+            void add(long id)
+            {
+                if (id < minId || id > maxId)
+                {
+                    return;
+                }
+
+                if (ids == null)
+                {
+                    IdScan.this.add(id);
+                    return;
+                }
+                if (count == ids.length)
+                {
+                    ids = Arrays.copyOf(ids, count << 1);
+                }
+                ids[count++] = id;
+            }
+
+            void close()
+            {
+                if (ids != null)
+                {
+                    long[] segmentIds = Arrays.copyOf(ids, count);
+                    ids = null;
+                    synchronized (segments)
+                    {
+                        segments.add(segmentIds);
+                    }
+                }
+            }
+        }
+    }
+
+    private static class Progress
+    {
+        final String field;
+        final Query filter;
+        final int segments;
+        final long startTime = System.currentTimeMillis();
+        final AtomicInteger scannedSegments = new AtomicInteger();
+        final LongAdder scannedDocs = new LongAdder();
+        volatile boolean completed;
+
+        Progress(String field, Query filter, int segments)
+        {
+            this.field = field;
+            this.filter = filter;
+            this.segments = segments;
+        }
+
+        NamedList<Object> toNamedList()
+        {
+            NamedList<Object> progress = new SimpleOrderedMap<>();
+            progress.add("Field", filter == null ? field : field + " (" + filter + ")");
+            progress.add("Completed", completed);
+            progress.add("Segments", segments);
+            progress.add("Scanned segments", scannedSegments.get());
+            progress.add("Scanned docs", scannedDocs.sum());
+            progress.add("Elapsed time (ms)", System.currentTimeMillis() - startTime);
+            return progress;
+        }
+    }
+}
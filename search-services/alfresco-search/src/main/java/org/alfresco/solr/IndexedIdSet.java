@@ -0,0 +1,274 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Bits;
+
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.carrotsearch.hppc.cursors.ObjectCursor;
+
+/**
+ * Compact set of the ids (e.g. transaction or ACL change set ids) indexed in a core.
+ * <p>
+ * The ids are split in chunks of 2^16 consecutive values. Each chunk holds either a sorted array of the low bits of
+ * its ids (a few ids) or a bitmap (many ids), and the chunks that are full share a single bitmap. The dense and
+ * mostly contiguous transaction ids therefore take a fraction of a bit each, and lookups neither box the ids
+ * nor search the index.
+ * <p>
+ * The set is thread safe.
+ */
+final class IndexedIdSet
+{
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /* Above this number of ids a chunk bitmap (8KB) is smaller than the array of the ids */
+    private static final int MAX_ARRAY_CARDINALITY = 4096;
+
+    private static final long[] FULL = new long[CHUNK_SIZE / Long.SIZE];
+    static
+    {
+        Arrays.fill(FULL, -1L);
+    }
+
+    private final LongObjectHashMap<Chunk> chunks = new LongObjectHashMap<>();
+    private long size;
+
+    /**
+     * Builds the set of the ids of the given documents, read from the doc values of the given field.
+     *
+     * @param reader the (top level) reader of the index.
+     * @param documents the term identifying the documents holding the ids (e.g. their document type).
+     * @param idField the field holding the id, which must have doc values.
+     */
+    static IndexedIdSet fromDocValues(IndexReader reader, Term documents, String idField) throws IOException
+    {
+        IndexedIdSet ids = new IndexedIdSet();
+        PostingsEnum postings = null;
+        for (LeafReaderContext context : reader.leaves())
+        {
+            LeafReader leafReader = context.reader();
+            Terms terms = leafReader.terms(documents.field());
+            NumericDocValues values = leafReader.getNumericDocValues(idField);
+            if (terms == null || values == null)
+            {
+                continue;
+            }
+
+            TermsEnum termsEnum = terms.iterator();
+            if (termsEnum.seekExact(documents.bytes()))
+            {
+                Bits liveDocs = leafReader.getLiveDocs();
+                postings = termsEnum.postings(postings, PostingsEnum.NONE);
+                for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc())
+                {
+                    if (liveDocs == null || liveDocs.get(doc))
+                    {
+                        ids.add(values.get(doc));
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    synchronized boolean contains(long id)
+    {
+        Chunk chunk = chunks.get(id >> CHUNK_BITS);
+        return chunk != null && chunk.contains((int) (id & CHUNK_MASK));
+    }
+
+    synchronized void add(long id)
+    {
+        long key = id >> CHUNK_BITS;
+        Chunk chunk = chunks.get(key);
+        if (chunk == null)
+        {
+            chunk = new Chunk();
+            chunks.put(key, chunk);
+        }
+        if (chunk.add((int) (id & CHUNK_MASK)))
+        {
+            size++;
+        }
+    }
+
+    synchronized void remove(long id)
+    {
+        long key = id >> CHUNK_BITS;
+        Chunk chunk = chunks.get(key);
+        if (chunk != null && chunk.remove((int) (id & CHUNK_MASK)))
+        {
+            size--;
+            if (chunk.cardinality == 0)
+            {
+                chunks.remove(key);
+            }
+        }
+    }
+
+    synchronized long size()
+    {
+        return size;
+    }
+
+    /**
+     * @return the (approximate) memory used by the set, in bytes.
+     */
+    synchronized long ramBytesUsed()
+    {
+        long bytes = 0;
+        for (ObjectCursor<Chunk> cursor : chunks.values())
+        {
+            bytes += cursor.value.ramBytesUsed();
+        }
+        // Keys and references of the chunks map
+        return bytes + chunks.size() * 2L * Long.BYTES;
+    }
+
+    /*
+    * The ids of a chunk: a sorted array of their low bits while there are a few of them, a bitmap afterwards.
+    */
+
+    private static final class Chunk
+    {
+        private char[] values = new char[4];
+        private long[] bits;
+        private int cardinality;
+
+        boolean contains(int low)
+        {
+            if (bits != null)
+            {
+                return (bits[low >>> 6] & (1L << low)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, (char) low) >= 0;
+        }
+
+        boolean add(int low)
+        {
+            if (bits != null)
+            {
+                int word = low >>> 6;
+                long mask = 1L << low;
+                if ((bits[word] & mask) != 0)
+                {
+                    return false;
+                }
+                bits[word] |= mask;
+                if (++cardinality == CHUNK_SIZE)
+                {
+                    bits = FULL;
+                }
+                return true;
+            }
+
+            int index = Arrays.binarySearch(values, 0, cardinality, (char) low);
+            if (index >= 0)
+            {
+                return false;
+            }
+
+            if (cardinality == MAX_ARRAY_CARDINALITY)
+            {
+                toBitmap();
+                return add(low);
+            }
+
+            index = -index - 1;
+            if (cardinality == values.length)
+            {
+                values = Arrays.copyOf(values, Math.min(values.length * 2, MAX_ARRAY_CARDINALITY));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = (char) low;
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(int low)
+        {
+            if (bits != null)
+            {
+                int word = low >>> 6;
+                long mask = 1L << low;
+                if ((bits[word] & mask) == 0)
+                {
+                    return false;
+                }
+                if (bits == FULL)
+                {
+                    bits = FULL.clone();
+                }
+                bits[word] &= ~mask;
+                cardinality--;
+                return true;
+            }
+
+            int index = Arrays.binarySearch(values, 0, cardinality, (char) low);
+            if (index < 0)
+            {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+            cardinality--;
+            return true;
+        }
+
+        private void toBitmap()
+        {
+            bits = new long[CHUNK_SIZE / Long.SIZE];
+            for (int i = 0; i < cardinality; i++)
+            {
+                bits[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+        }
+
+        long ramBytesUsed()
+        {
+            if (bits == FULL)
+            {
+                return 0;
+            }
+            return bits != null ? (long) bits.length * Long.BYTES : (long) values.length * Character.BYTES;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * Existence checks of indexed terms (e.g. the id or the DBID of a node) made directly against the terms dictionary
+ * of each segment, without going through the query parsing and collection of a search.
+ * <p>
+ * Only live (not deleted) documents are taken into account.
+ */
+final class IndexedTermsProbe
+{
+    private IndexedTermsProbe()
+    {
+    }
+
+    /**
+     * @param reader the (top level) reader to probe.
+     * @param field the indexed field.
+     * @param terms the indexed form of the terms.
+     * @return true if at least one live document of the reader has one of the terms in the field.
+     */
+    static boolean anyExists(IndexReader reader, String field, Collection<BytesRef> terms) throws IOException
+    {
+        if (terms.isEmpty())
+        {
+            return false;
+        }
+
+        // Seeking in order lets the terms enum reuse the blocks it has already loaded
+        List<BytesRef> sortedTerms = new ArrayList<>(terms);
+        sortedTerms.sort(null);
+
+        PostingsEnum postings = null;
+        for (LeafReaderContext context : reader.leaves())
+        {
+            LeafReader leafReader = context.reader();
+            Terms fieldTerms = leafReader.terms(field);
+            if (fieldTerms == null)
+            {
+                continue;
+            }
+
+            Bits liveDocs = leafReader.getLiveDocs();
+            TermsEnum termsEnum = fieldTerms.iterator();
+            for (BytesRef term : sortedTerms)
+            {
+                if (termsEnum.seekExact(term))
+                {
+                    postings = termsEnum.postings(postings, PostingsEnum.NONE);
+                    for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc())
+                    {
+                        if (liveDocs == null || liveDocs.get(doc))
+                        {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
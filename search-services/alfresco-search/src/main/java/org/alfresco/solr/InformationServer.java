@@ -46,6 +46,7 @@ import org.alfresco.solr.client.NodeMetaData;
 import org.alfresco.solr.client.Transaction;
 import org.alfresco.solr.tracker.IndexHealthReport;
 import org.alfresco.solr.tracker.TrackerStats;
+import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.util.NamedList;
 import org.json.JSONException;
 
@@ -156,10 +157,49 @@ public interface InformationServer extends InformationServerCollectionProvider
 
     IndexHealthReport reportIndexTransactions(Long minTxId, IOpenBitSet txIdsInDb, long maxTxId) throws IOException;
 
+    /**
+     * Creates a transactions health report with the index side counts (and duplicated nodes) only: transactions are
+     * then compared one slice at a time with
+     * {@link #reportIndexTransactions(IndexHealthReport, long, long, Long, Long, List)}.
+     */
+    IndexHealthReport newIndexTransactionsReport() throws IOException;
+
+    /**
+     * Compares the transactions found in the repository in the [fromTxId, toTxId] range (and commit time range, if any)
+     * with the ones in the index, adding the differences to the given report.
+     * Different slices of the same report can be compared concurrently.
+     *
+     * @param report the report created by {@link #newIndexTransactionsReport()}.
+     * @param fromTxId the first transaction id of the slice (inclusive).
+     * @param toTxId the last transaction id of the slice (inclusive).
+     * @param fromCommitTime the min commit time (inclusive), null if unbounded.
+     * @param toCommitTime the max commit time (inclusive), null if unbounded.
+     * @param txIdsInDb the ids of the transactions found in the repository in the slice.
+     */
+    void reportIndexTransactions(IndexHealthReport report, long fromTxId, long toTxId,
+                                 Long fromCommitTime, Long toCommitTime, List<Long> txIdsInDb) throws IOException;
+
     List<TenantDbId> getDocsWithUncleanContent() throws IOException;
 
     void updateContent(TenantDbId docRef) throws Exception;
 
+    /**
+     * Fetches the text content of the given document and builds the (partial) document which updates it.
+     * Nothing is indexed by this method: see {@link #indexContent(List)}.
+     *
+     * @param docRef the document whose content needs to be updated.
+     * @return the partial document, null if the content couldn't be fetched (the failure is logged).
+     */
+    SolrInputDocument fetchContent(TenantDbId docRef);
+
+    /**
+     * Indexes the documents built by {@link #fetchContent(TenantDbId)}.
+     *
+     * @param docs the documents built by {@link #fetchContent(TenantDbId)}.
+     * @throws IOException in case of I/O failure.
+     */
+    void indexContent(List<SolrInputDocument> docs) throws IOException;
+
     void addCommonNodeReportInfo(NodeReport nodeReport);
 
     /**
@@ -168,7 +208,18 @@ public interface InformationServer extends InformationServerCollectionProvider
      */
     void addContentOutdatedAndUpdatedCounts(NamedList<Object> ihr);
 
-    IndexHealthReport reportAclTransactionsInIndex(Long minAclTxId, IOpenBitSet aclTxIdsInDb, long maxAclTxId);
+    IndexHealthReport reportAclTransactionsInIndex(Long minAclTxId, IOpenBitSet aclTxIdsInDb, long maxAclTxId) throws IOException;
+
+    /**
+     * ACL change sets counterpart of {@link #newIndexTransactionsReport()}.
+     */
+    IndexHealthReport newAclTransactionsReport();
+
+    /**
+     * ACL change sets counterpart of {@link #reportIndexTransactions(IndexHealthReport, long, long, Long, Long, List)}.
+     */
+    void reportAclTransactionsInIndex(IndexHealthReport report, long fromAclTxId, long toAclTxId,
+                                      Long fromCommitTime, Long toCommitTime, List<Long> aclTxIdsInDb) throws IOException;
 
     int getAclTxDocsSize(String aclTxId, String aclTxCommitTime) throws IOException;
     
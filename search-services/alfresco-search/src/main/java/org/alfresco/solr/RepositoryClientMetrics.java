@@ -0,0 +1,151 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import org.alfresco.solr.client.RepositoryCallListener;
+import org.alfresco.solr.client.SOLRAPIClient;
+import org.apache.solr.core.CloseHook;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.core.SolrInfoMBean;
+import org.apache.solr.metrics.SolrMetricManager;
+
+/**
+ * Records, in a metrics registry, the calls made by the {@link SOLRAPIClient} to each repository endpoint:
+ *
+ * <ul>
+ *     <li>ALFRESCO.repository.&lt;endpoint&gt;.requestTimes: the call latency, from the request to the response release</li>
+ *     <li>ALFRESCO.repository.&lt;endpoint&gt;.totalBytes: the number of response bytes read</li>
+ *     <li>ALFRESCO.repository.&lt;endpoint&gt;.errors: the calls which failed or got an error status</li>
+ * </ul>
+ *
+ * The endpoint is the last part of the repository path (e.g. transactions, nodes, textContent).
+ *
+ * A client is shared by all the cores connected to the same repository, so its calls are recorded in the node
+ * registry (see {@link #register(SolrMetricManager, SOLRAPIClient, SolrCore)}).
+ */
+public class RepositoryClientMetrics implements RepositoryCallListener
+{
+    private static final String REPOSITORY_API_PREFIX = "api/solr/";
+
+    /* The open cores using each client */
+    private static final Map<SOLRAPIClient, Set<SolrCore>> CORES_PER_CLIENT = new IdentityHashMap<>();
+
+    private final SolrMetricManager metricManager;
+    private final String registry;
+    private final Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+
+    public RepositoryClientMetrics(SolrMetricManager metricManager, String registry)
+    {
+        this.metricManager = metricManager;
+        this.registry = registry;
+    }
+
+    /**
+     * Records the calls of the given client in the node registry, on behalf of the given core: the listener is set
+     * by the first core using the client, and removed once all the cores using it have been closed.
+     *
+     * @param metricManager the metric manager of the core container.
+     * @param client the (shared) repository client.
+     * @param core the core using the client.
+     */
+    public static void register(SolrMetricManager metricManager, SOLRAPIClient client, SolrCore core)
+    {
+        synchronized (CORES_PER_CLIENT)
+        {
+            Set<SolrCore> cores = CORES_PER_CLIENT.computeIfAbsent(client, key -> Collections.newSetFromMap(new IdentityHashMap<>()));
+            if (cores.isEmpty())
+            {
+                client.setCallListener(new RepositoryClientMetrics(metricManager, SolrMetricManager.getRegistryName(SolrInfoMBean.Group.node)));
+            }
+            cores.add(core);
+        }
+
+        core.addCloseHook(new CloseHook()
+        {
+            @Override
+            public void preClose(SolrCore core)
+            {
+            }
+
+            @Override
+            public void postClose(SolrCore core)
+            {
+                unregister(client, core);
+            }
+        });
+    }
+
+    private static void unregister(SOLRAPIClient client, SolrCore core)
+    {
+        synchronized (CORES_PER_CLIENT)
+        {
+            Set<SolrCore> cores = CORES_PER_CLIENT.get(client);
+            if (cores != null && cores.remove(core) && cores.isEmpty())
+            {
+                CORES_PER_CLIENT.remove(client);
+                client.setCallListener(null);
+            }
+        }
+    }
+
+    @Override
+    public void onCall(String endpoint, long elapsedNanos, long bytes, boolean failed)
+    {
+        EndpointMetrics metrics = endpoints.computeIfAbsent(endpoint, EndpointMetrics::new);
+        metrics.requestTimes.update(elapsedNanos, TimeUnit.NANOSECONDS);
+        metrics.totalBytes.inc(bytes);
+        if (failed)
+        {
+            metrics.errors.mark();
+        }
+    }
+
+    private class EndpointMetrics
+    {
+        private final Timer requestTimes;
+        private final Counter totalBytes;
+        private final Meter errors;
+
+        private EndpointMetrics(String endpoint)
+        {
+            String name = endpoint.startsWith(REPOSITORY_API_PREFIX) ? endpoint.substring(REPOSITORY_API_PREFIX.length()) : endpoint;
+            requestTimes = metricManager.timer(registry, "requestTimes", "ALFRESCO", "repository", name);
+            totalBytes = metricManager.counter(registry, "totalBytes", "ALFRESCO", "repository", name);
+            errors = metricManager.meter(registry, "errors", "ALFRESCO", "repository", name);
+        }
+    }
+}
@@ -89,6 +89,7 @@ import static org.alfresco.service.cmr.security.AuthorityType.GUEST;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
@@ -113,18 +114,29 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.function.LongPredicate;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 import java.util.zip.GZIPInputStream;
 
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.LongHashSet;
 import com.carrotsearch.hppc.cursors.LongCursor;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.Lists;
 
 import org.alfresco.httpclient.AuthenticationException;
 import org.alfresco.model.ContentModel;
@@ -165,8 +177,10 @@ import org.alfresco.solr.client.StringPropertyValue;
 import org.alfresco.solr.client.Transaction;
 import org.alfresco.solr.config.ConfigUtil;
 import org.alfresco.solr.logging.Log;
+import org.alfresco.solr.query.DocValuesCache;
 import org.alfresco.solr.tracker.IndexHealthReport;
 import org.alfresco.solr.tracker.TrackerStats;
+import org.alfresco.solr.utils.TextContentBuffer;
 import org.alfresco.solr.utils.Utils;
 import org.alfresco.util.ISO9075;
 import org.alfresco.util.Pair;
@@ -192,8 +206,8 @@ import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
-import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.common.SolrDocument;
@@ -205,9 +219,11 @@ import org.apache.solr.common.params.FacetParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.core.CloseHook;
 import org.apache.solr.core.IndexDeletionPolicyWrapper;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.core.SolrInfoMBean;
+import org.apache.solr.metrics.SolrCoreMetricManager;
 import org.apache.solr.request.LocalSolrQueryRequest;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.request.SolrRequestHandler;
@@ -230,7 +246,6 @@ import org.apache.solr.util.ConcurrentLRUCache;
 import org.apache.solr.util.RefCounted;
 import org.json.JSONException;
 import org.springframework.extensions.surf.util.I18NUtil;
-import org.springframework.util.FileCopyUtils;
 
 /**
  * This is the Apache Solr implementation of the information server (index).
@@ -372,10 +387,6 @@ public class SolrInformationServer implements InformationServer
     public static final String SOLR_PORT = "solr.port";
     public static final String SOLR_BASEURL = "solr.baseurl";
 
-    /* 4096 is 2 to the power of (6*2), and we do this because the precision step for the long is 6,
-     * and the transactions are long
-     */
-    private static final int BATCH_FACET_TXS = 4096;
     private static final String FINGERPRINT_FIELD = "MINHASH";
     /** Shared property to determine if the cascade tracking is enabled. */
     public static final String CASCADE_TRACKER_ENABLED = "alfresco.cascade.tracker.enabled";
@@ -406,6 +417,20 @@ public class SolrInformationServer implements InformationServer
     private final boolean fingerprintHasBeenEnabledOnThisInstance;
     private final int contentStreamLimit;
 
+    // Bulk cascade: descendants metadata is fetched in batches of node ids, a bounded number of batches at a time
+    private final boolean bulkCascadeEnabled;
+    private final int cascadeNodeBatchSize;
+    private final ForkJoinPool cascadeFetchPool;
+
+    // Local cascade: descendants paths are recomputed from the index, the repository is only a fallback
+    private final boolean localCascadeEnabled;
+
+    // Index health reports: id fields are scanned from doc values, segments in parallel
+    private final IndexHealthScanner healthScanner;
+
+    /** The time spent getting, decoding and fingerprinting the text content of a property. */
+    private Timer contentTransformTimes = new Timer();
+
     private long cleanContentLastPurged;
 
     // Metadata pulling control
@@ -420,8 +445,9 @@ public class SolrInformationServer implements InformationServer
     private final ReentrantReadWriteLock commitAndRollbackLock = new ReentrantReadWriteLock();
     private final String hostName;
     private final Properties props;
-    private final LRU txnIdCache = new LRU(250000);
-    private final LRU aclChangeSetCache = new LRU(250000);
+    /* The transactions and ACL change sets in the index (or being indexed), loaded on first use */
+    private final AtomicReference<IndexedIdSet> indexedTxnIds = new AtomicReference<>();
+    private final AtomicReference<IndexedIdSet> indexedAclChangeSetIds = new AtomicReference<>();
     private final Map<Long, Long> cleanContentCache = Collections.synchronizedMap(new LRU(250000));
     private final LRU cleanCascadeCache = new LRU(250000);
 
@@ -605,6 +631,42 @@ public class SolrInformationServer implements InformationServer
 
         contentStreamLimit = Integer.parseInt(coreConfiguration.getProperty("alfresco.contentStreamLimit", "10000000"));
 
+        bulkCascadeEnabled = Boolean.parseBoolean(coreConfiguration.getProperty("alfresco.cascade.tracker.bulk.enabled", "false"));
+        cascadeNodeBatchSize = Integer.parseInt(coreConfiguration.getProperty("alfresco.cascade.tracker.bulk.nodeBatchSize", "1000"));
+        cascadeFetchPool = bulkCascadeEnabled
+                ? new ForkJoinPool(Integer.parseInt(coreConfiguration.getProperty("alfresco.cascade.tracker.bulk.maxParallelism", "4")))
+                : null;
+        LOGGER.info(
+                "Bulk cascade update has been {} on this instance.",
+                bulkCascadeEnabled ? "enabled" : "disabled");
+
+        boolean localCascadeRequested = Boolean.parseBoolean(coreConfiguration.getProperty("alfresco.cascade.tracker.local.enabled", "false"));
+        localCascadeEnabled = localCascadeRequested && CascadePathRebaser.isSupportedBy(core.getLatestSchema());
+        if (localCascadeRequested && !localCascadeEnabled)
+        {
+            LOGGER.warn("Local (index based) cascade update needs the paths and ancestors to be stored (see the rerank schema) " +
+                    "but the schema of this core doesn't store all of {}: the setting will be ignored.", CascadePathRebaser.REQUIRED_FIELDS);
+        }
+        LOGGER.info(
+                "Local (index based) cascade update has been {} on this instance.",
+                localCascadeEnabled ? "enabled" : "disabled");
+
+        healthScanner = new IndexHealthScanner(Integer.parseInt(coreConfiguration.getProperty("alfresco.report.maxParallelism", "4")));
+        core.addCloseHook(new CloseHook()
+        {
+            @Override
+            public void preClose(SolrCore core)
+            {
+                healthScanner.close();
+                ofNullable(cascadeFetchPool).ifPresent(ForkJoinPool::shutdownNow);
+            }
+
+            @Override
+            public void postClose(SolrCore core)
+            {
+            }
+        });
+
         props = AlfrescoSolrDataModel.getCommonConfig();
         hostName = ConfigUtil.locateProperty(SOLR_HOST, props.getProperty(SOLR_HOST));
 
@@ -615,6 +677,43 @@ public class SolrInformationServer implements InformationServer
         LOGGER.info(
                 "Date fields destructuring has been {} on this instance.",
                 dateFieldDestructuringHasBeenEnabledOnThisInstance ? "enabled" : "disabled");
+
+        registerMetrics();
+    }
+
+    /**
+     * Registers, in the core metrics registry, the memory used by the {@link DocValuesCache} of this core
+     * and the distribution of the content transformation times.
+     */
+    private void registerMetrics()
+    {
+        SolrCoreMetricManager coreMetricManager = core.getCoreMetricManager();
+        if (coreMetricManager == null || core.getCoreContainer() == null)
+        {
+            return;
+        }
+
+        contentTransformTimes = core.getCoreContainer().getMetricManager().timer(
+                coreMetricManager.getRegistryName(), "transformTimes", "ALFRESCO", "content");
+
+        Gauge<Long> ramBytesUsed = () -> {
+            RefCounted<SolrIndexSearcher> refCounted = core.isClosed() ? null : core.getRegisteredSearcher();
+            if (refCounted == null)
+            {
+                return 0L;
+            }
+
+            try
+            {
+                return DocValuesCache.of(refCounted.get()).ramBytesUsed();
+            }
+            finally
+            {
+                refCounted.decref();
+            }
+        };
+        core.getCoreContainer().getMetricManager().registerGauge(
+                coreMetricManager.getRegistryName(), ramBytesUsed, true, "ramBytesUsed", "ALFRESCO", "docValuesCache");
     }
 
     @Override
@@ -738,7 +837,24 @@ public class SolrInformationServer implements InformationServer
     }
 
     @Override
-    public IndexHealthReport reportIndexTransactions(Long minTxId, IOpenBitSet txIdsInDb, long maxTxId)
+    public IndexHealthReport reportIndexTransactions(Long minTxId, IOpenBitSet txIdsInDb, long maxTxId) throws IOException
+    {
+        IndexHealthReport report = newIndexTransactionsReport();
+        if (minTxId != null)
+        {
+            reportTransactionInfo(
+                    transactionReporter(report),
+                    minTxId, maxTxId, null, null,
+                    txIdsInDb::get,
+                    LongStream.rangeClosed(minTxId, maxTxId).filter(txIdsInDb::get),
+                    FIELD_TXID, FIELD_TXCOMMITTIME);
+        }
+        report.setDbTransactionCount(txIdsInDb.cardinality());
+        return report;
+    }
+
+    @Override
+    public IndexHealthReport newIndexTransactionsReport() throws IOException
     {
         try (SolrQueryRequest request = newSolrQueryRequest())
         {
@@ -746,49 +862,21 @@ public class SolrInformationServer implements InformationServer
 
             // TX
             IndexHealthReport report = new IndexHealthReport(this);
-            TransactionInfoReporter txReporter = new TransactionInfoReporter(report)
-            {
-                @Override
-                void reportIdInIndexButNotInDb(long txid)
-                {
-                    report.setTxInIndexButNotInDb(txid);
-                }
-
-                @Override
-                void reportIdInDbButNotInIndex(long id)
-                {
-                    report.setMissingTxFromIndex(id);
-                }
-
-                @Override
-                void reportDuplicatedIdInIndex(long id)
-                {
-                    report.setDuplicatedTxInIndex(id);
-                }
-
-                @Override
-                void reportUniqueIdsInIndex(long count)
-                {
-                    report.setUniqueTransactionDocsInIndex(count);
-                }
-            };
-            reportTransactionInfo(txReporter, minTxId, maxTxId, txIdsInDb, request, FIELD_TXID);
             long transactionDocsInIndex = getSafeCount(docTypeCounts, DOC_TYPE_TX);
             report.setTransactionDocsInIndex(transactionDocsInIndex);
-            report.setDbTransactionCount(txIdsInDb.cardinality());
 
             // NODE
-            setDuplicates(report, request, DOC_TYPE_NODE, IndexHealthReport::setDuplicatedLeafInIndex);
+            setDuplicates(report, DOC_TYPE_NODE, IndexHealthReport::setDuplicatedLeafInIndex);
             long leafDocCountInIndex = getSafeCount(docTypeCounts, DOC_TYPE_NODE);
             report.setLeafDocCountInIndex(leafDocCountInIndex);
 
             // ERROR
-            setDuplicates(report, request, DOC_TYPE_ERROR_NODE, IndexHealthReport::setDuplicatedErrorInIndex);
+            setDuplicates(report, DOC_TYPE_ERROR_NODE, IndexHealthReport::setDuplicatedErrorInIndex);
             long errorCount = getSafeCount(docTypeCounts, DOC_TYPE_ERROR_NODE);
             report.setErrorDocCountInIndex(errorCount);
 
             // UNINDEXED
-            setDuplicates(report, request, DOC_TYPE_UNINDEXED_NODE, IndexHealthReport::setDuplicatedUnindexedInIndex);
+            setDuplicates(report, DOC_TYPE_UNINDEXED_NODE, IndexHealthReport::setDuplicatedUnindexedInIndex);
             long unindexedDocCountInIndex = getSafeCount(docTypeCounts, DOC_TYPE_UNINDEXED_NODE);
             report.setUnindexedDocCountInIndex(unindexedDocCountInIndex);
             return report;
@@ -796,46 +884,131 @@ public class SolrInformationServer implements InformationServer
     }
 
     @Override
-    public IndexHealthReport reportAclTransactionsInIndex(Long minAclTxId, IOpenBitSet aclTxIdsInDb, long maxAclTxId)
+    public void reportIndexTransactions(IndexHealthReport report, long fromTxId, long toTxId,
+                                        Long fromCommitTime, Long toCommitTime, List<Long> txIdsInDb) throws IOException
+    {
+        Set<Long> dbIds = new HashSet<>(txIdsInDb);
+        reportTransactionInfo(
+                transactionReporter(report),
+                fromTxId, toTxId, fromCommitTime, toCommitTime,
+                dbIds::contains,
+                txIdsInDb.stream().mapToLong(Long::longValue),
+                FIELD_TXID, FIELD_TXCOMMITTIME);
+
+        synchronized (report)
+        {
+            report.setDbTransactionCount(report.getDbTransactionCount() + dbIds.size());
+        }
+    }
+
+    @Override
+    public IndexHealthReport reportAclTransactionsInIndex(Long minAclTxId, IOpenBitSet aclTxIdsInDb, long maxAclTxId) throws IOException
+    {
+        IndexHealthReport report = newAclTransactionsReport();
+        if (minAclTxId != null)
+        {
+            reportTransactionInfo(
+                    aclTransactionReporter(report),
+                    minAclTxId, maxAclTxId, null, null,
+                    aclTxIdsInDb::get,
+                    LongStream.rangeClosed(minAclTxId, maxAclTxId).filter(aclTxIdsInDb::get),
+                    FIELD_ACLTXID, FIELD_ACLTXCOMMITTIME);
+        }
+        report.setDbAclTransactionCount(aclTxIdsInDb.cardinality());
+        return report;
+    }
+
+    @Override
+    public IndexHealthReport newAclTransactionsReport()
     {
         try (SolrQueryRequest request = newSolrQueryRequest())
         {
             NamedList<Integer> docTypeCounts = this.getFacets(request, "*:*", FIELD_DOC_TYPE, 0);
             IndexHealthReport report = new IndexHealthReport(this);
-            TransactionInfoReporter aclTxReporter = new TransactionInfoReporter(report)
-            {
-                @Override
-                void reportIdInIndexButNotInDb(long txid)
-                {
-                    report.setAclTxInIndexButNotInDb(txid);
-                }
-
-                @Override
-                void reportIdInDbButNotInIndex(long id)
-                {
-                    report.setMissingAclTxFromIndex(id);
-                }
-
-                @Override
-                void reportDuplicatedIdInIndex(long id)
-                {
-                    report.setDuplicatedAclTxInIndex(id);
-                }
-
-                @Override
-                void reportUniqueIdsInIndex(long count)
-                {
-                    report.setUniqueAclTransactionDocsInIndex(count);
-                }
-            };
-            reportTransactionInfo(aclTxReporter, minAclTxId, maxAclTxId, aclTxIdsInDb, request, FIELD_ACLTXID);
             long aclTransactionDocsInIndex = getSafeCount(docTypeCounts, DOC_TYPE_ACL_TX);
             report.setAclTransactionDocsInIndex(aclTransactionDocsInIndex);
-            report.setDbAclTransactionCount(aclTxIdsInDb.cardinality());
             return report;
         }
     }
 
+    @Override
+    public void reportAclTransactionsInIndex(IndexHealthReport report, long fromAclTxId, long toAclTxId,
+                                             Long fromCommitTime, Long toCommitTime, List<Long> aclTxIdsInDb) throws IOException
+    {
+        Set<Long> dbIds = new HashSet<>(aclTxIdsInDb);
+        reportTransactionInfo(
+                aclTransactionReporter(report),
+                fromAclTxId, toAclTxId, fromCommitTime, toCommitTime,
+                dbIds::contains,
+                aclTxIdsInDb.stream().mapToLong(Long::longValue),
+                FIELD_ACLTXID, FIELD_ACLTXCOMMITTIME);
+
+        synchronized (report)
+        {
+            report.setDbAclTransactionCount(report.getDbAclTransactionCount() + dbIds.size());
+        }
+    }
+
+    private TransactionInfoReporter transactionReporter(IndexHealthReport report)
+    {
+        return new TransactionInfoReporter(report)
+        {
+            @Override
+            void reportIdInIndexButNotInDb(long txid)
+            {
+                report.setTxInIndexButNotInDb(txid);
+            }
+
+            @Override
+            void reportIdInDbButNotInIndex(long id)
+            {
+                report.setMissingTxFromIndex(id);
+            }
+
+            @Override
+            void reportDuplicatedIdInIndex(long id)
+            {
+                report.setDuplicatedTxInIndex(id);
+            }
+
+            @Override
+            void reportUniqueIdsInIndex(long count)
+            {
+                report.setUniqueTransactionDocsInIndex(report.getUniqueTransactionDocsInIndex() + count);
+            }
+        };
+    }
+
+    private TransactionInfoReporter aclTransactionReporter(IndexHealthReport report)
+    {
+        return new TransactionInfoReporter(report)
+        {
+            @Override
+            void reportIdInIndexButNotInDb(long txid)
+            {
+                report.setAclTxInIndexButNotInDb(txid);
+            }
+
+            @Override
+            void reportIdInDbButNotInIndex(long id)
+            {
+                report.setMissingAclTxFromIndex(id);
+            }
+
+            @Override
+            void reportDuplicatedIdInIndex(long id)
+            {
+                report.setDuplicatedAclTxInIndex(id);
+            }
+
+            @Override
+            void reportUniqueIdsInIndex(long count)
+            {
+                report.setUniqueAclTransactionDocsInIndex(report.getUniqueAclTransactionDocsInIndex() + count);
+            }
+        };
+    }
+
     @Override
     public List<TenantDbId> getDocsWithUncleanContent() throws IOException
     {
@@ -1118,6 +1291,7 @@ public class SolrInformationServer implements InformationServer
     public void deleteByAclChangeSetId(Long aclChangeSetId) throws IOException
     {
         deleteById(FIELD_INACLTXID, aclChangeSetId);
+        ofNullable(indexedAclChangeSetIds.get()).ifPresent(ids -> ids.remove(aclChangeSetId));
     }
 
     @Override
@@ -1138,6 +1312,7 @@ public class SolrInformationServer implements InformationServer
     {
         isIdIndexCache.clear();
         deleteById(FIELD_INTXID, transactionId);
+        ofNullable(indexedTxnIds.get()).ifPresent(ids -> ids.remove(transactionId));
     }
 
     @Override
@@ -1215,6 +1390,23 @@ public class SolrInformationServer implements InformationServer
                 {
                     coreSummary.add("/alfrescoPathCache", infoMBean.getStatistics());
                 }
+
+                if (key.equals("alfrescoAclIdCache"))
+                {
+                    coreSummary.add("/alfrescoAclIdCache", infoMBean.getStatistics());
+                }
+
+                if (key.equals("alfrescoAclFilterCache"))
+                {
+                    coreSummary.add("/alfrescoAclFilterCache", infoMBean.getStatistics());
+                }
+            }
+            coreSummary.add("/alfrescoFieldMappingCache", dataModel.getFieldMappingCache().getStatistics());
+
+            NamedList<Object> healthScanProgress = healthScanner.getProgress();
+            if (healthScanProgress != null)
+            {
+                coreSummary.add("Index Health Scan", healthScanProgress);
             }
 
             // Adds detailed stats for each registered searcher
@@ -1231,6 +1423,7 @@ public class SolrInformationServer implements InformationServer
             coreSummary.add("Number of Searchers", searchers.size());
             // This is zero for Solr4, whereas we had some local caches before
             coreSummary.add("Total Searcher Cache (GB)", 0);
+            coreSummary.add("DocValues Cache (bytes)", DocValuesCache.of(solrIndexSearcher).ramBytesUsed());
 
             IndexDeletionPolicyWrapper delPolicy = core.getDeletionPolicy();
             IndexCommit indexCommit = delPolicy.getLatestCommit();
@@ -1551,6 +1744,7 @@ public class SolrInformationServer implements InformationServer
             cmd.overwrite = overwrite;
             cmd.solrDoc = aclTx;
             processor.processAdd(cmd);
+            ofNullable(indexedAclChangeSetIds.get()).ifPresent(ids -> ids.add(changeSet.getId()));
 
             putAclTransactionState(processor, request, changeSet);
         }
@@ -1817,19 +2011,17 @@ public class SolrInformationServer implements InformationServer
 
         List<NodeMetaData> allNodeMetaDatas = new ArrayList<>();
 
+        if (bulkCascadeEnabled)
+        {
+            fetchNodesMetaDataInBatches(parentNodesId, this::cascadeParentsParameters, allNodeMetaDatas::addAll);
+            return allNodeMetaDatas;
+        }
+
         for (Long parentNodeId : parentNodesId)
         {
-            NodeMetaDataParameters nmdp = new NodeMetaDataParameters();
+            NodeMetaDataParameters nmdp = cascadeParentsParameters();
             nmdp.setFromNodeId(parentNodeId);
             nmdp.setToNodeId(parentNodeId);
-            nmdp.setIncludeAclId(true);
-            nmdp.setIncludeChildAssociations(false);
-            nmdp.setIncludeChildIds(true);
-            nmdp.setIncludeOwner(false);
-            nmdp.setIncludeParentAssociations(false);
-            nmdp.setIncludePaths(true);
-            nmdp.setIncludeProperties(false);
-            nmdp.setIncludeTxnId(true);
             nmdp.setMaxResults(1);
             // Gets only one
             Optional<Collection<NodeMetaData>> nodeMetaDatas = getNodesMetaDataFromRepository(nmdp);
@@ -1839,6 +2031,20 @@ public class SolrInformationServer implements InformationServer
         return allNodeMetaDatas;
     }
 
+    private NodeMetaDataParameters cascadeParentsParameters()
+    {
+        NodeMetaDataParameters nmdp = new NodeMetaDataParameters();
+        nmdp.setIncludeAclId(true);
+        nmdp.setIncludeChildAssociations(false);
+        nmdp.setIncludeChildIds(true);
+        nmdp.setIncludeOwner(false);
+        nmdp.setIncludeParentAssociations(false);
+        nmdp.setIncludePaths(true);
+        nmdp.setIncludeProperties(false);
+        nmdp.setIncludeTxnId(true);
+        return nmdp;
+    }
+
     @Override
     public void cascadeNodes(List<NodeMetaData> nodeMetaDatas, boolean overwrite) throws IOException, JSONException
     {
@@ -1871,14 +2077,21 @@ public class SolrInformationServer implements InformationServer
 
     @Override
     public void updateContent(TenantDbId docRef) throws Exception
+    {
+        SolrInputDocument doc = fetchContent(docRef);
+        if (doc != null)
+        {
+            indexContent(Collections.singletonList(doc));
+        }
+    }
+
+    @Override
+    public SolrInputDocument fetchContent(TenantDbId docRef)
     {
         LOGGER.debug("Text content of Document DBID={} is going to be updated.", docRef.dbId);
 
-        UpdateRequestProcessor processor = null;
-        try (SolrQueryRequest request = newSolrQueryRequest())
+        try
         {
-            processor = this.core.getUpdateProcessingChain(null).createProcessor(request, newSolrQueryResponse());
-
             SolrInputDocument doc = new PartialSolrInputDocument();
             doc.removeField(FIELD_DBID);
             doc.addField(FIELD_DBID, docRef.dbId);
@@ -1892,8 +2105,6 @@ public class SolrInformationServer implements InformationServer
                 addContentToDoc(docRef, doc, docRef.dbId);
             }
 
-            LOGGER.debug("Text content of Document DBID={} has been updated (not yet indexed)", docRef.dbId);
-
             final Long latestAppliedVersionId =
                         ofNullable(docRef.optionalBag.get(LATEST_APPLIED_CONTENT_VERSION_ID))
                                 .map(String.class::cast)
@@ -1902,26 +2113,53 @@ public class SolrInformationServer implements InformationServer
 
             markAsContentInSynch(doc, latestAppliedVersionId);
 
-            // Add to index
-            AddUpdateCommand addDocCmd = new AddUpdateCommand(request);
-            addDocCmd.overwrite = true;
-            addDocCmd.solrDoc = doc;
-
-            processor.processAdd(addDocCmd);
-
             LOGGER.debug(
-                    "Text content of Document DBID={} has been marked as updated (latest content version ID = {})",
+                    "Text content of Document DBID={} has been updated (not yet indexed, latest content version ID = {})",
                     docRef.dbId,
                     (latestAppliedVersionId == CONTENT_UPDATED_MARKER ? "N.A." : latestAppliedVersionId));
+            return doc;
         }
         catch (Exception exception)
         {
             LOGGER.error("Unable to update the text content of node {}. See the stacktrace below for further details.", docRef.dbId, exception);
+            return null;
+        }
+    }
+
+    @Override
+    public void indexContent(List<SolrInputDocument> docs) throws IOException
+    {
+        long start = System.nanoTime();
+        UpdateRequestProcessor processor = null;
+        try (SolrQueryRequest request = newSolrQueryRequest())
+        {
+            processor = this.core.getUpdateProcessingChain(null).createProcessor(request, newSolrQueryResponse());
+
+            for (SolrInputDocument doc : docs)
+            {
+                Object dbId = doc.getFieldValue(FIELD_DBID);
+                try
+                {
+                    AddUpdateCommand addDocCmd = new AddUpdateCommand(request);
+                    addDocCmd.overwrite = true;
+                    addDocCmd.solrDoc = doc;
+
+                    processor.processAdd(addDocCmd);
+
+                    LOGGER.debug("Text content of Document DBID={} has been marked as updated.", dbId);
+                }
+                catch (Exception exception)
+                {
+                    LOGGER.error("Unable to update the text content of node {}. See the stacktrace below for further details.", dbId, exception);
+                }
+            }
         }
         finally
         {
             if(processor != null) {processor.finish();}
         }
+
+        trackerStats.addBatchUpdate(docs.size(), System.nanoTime() - start);
     }
 
 
@@ -2020,7 +2258,12 @@ public class SolrInformationServer implements InformationServer
                     // Using exception for flow handling to jump to single node processing.
                     throw new Exception("Error loading node metadata from repository for bulk delete.");
                 }
-                
+
+                // Error and unindexed docs are removed with a single delete before sending the whole batch
+                List<AddUpdateCommand> addDocCmds = new ArrayList<>();
+                List<String> errorDocIds = new ArrayList<>();
+                List<Long> unindexedNodeIds = new ArrayList<>();
+
                 NEXT_NODE:
                 for (NodeMetaData nodeMetaData : nodesMetaDataFromRepository.get())
                 {
@@ -2056,11 +2299,12 @@ public class SolrInformationServer implements InformationServer
                         boolean isIndexed = Boolean.parseBoolean(pValue.getValue());
                         if (!isIndexed)
                         {
-                            deleteNode(processor, request, node);
+                            errorDocIds.add(PREFIX_ERROR + node.getId());
+                            unindexedNodeIds.add(node.getId());
                             addDocCmd.solrDoc = basicDocument(nodeMetaData, DOC_TYPE_UNINDEXED_NODE, SolrInputDocument::new);
                             if (recordUnindexedNodes)
                             {
-                                processor.processAdd(addDocCmd);
+                                addDocCmds.add(addDocCmd);
                             }
 
                             this.trackerStats.addNodeTime(System.nanoTime() - start);
@@ -2069,15 +2313,17 @@ public class SolrInformationServer implements InformationServer
                     }
 
                     // Make sure any unindexed or error doc is removed.
-                    deleteErrorNode(processor, request, node);
+                    errorDocIds.add(PREFIX_ERROR + node.getId());
 
                     addDocCmd.solrDoc =
                             populateWithMetadata(basicDocument(nodeMetaData, DOC_TYPE_NODE, PartialSolrInputDocument::new),
                                     nodeMetaData, nmdp);
-                    processor.processAdd(addDocCmd);
+                    addDocCmds.add(addDocCmd);
 
                     this.trackerStats.addNodeTime(System.nanoTime() - start);
                 }
+
+                processUpdateBatch(processor, request, errorDocIds, unindexedNodeIds, addDocCmds);
             }
         }
         catch (Exception e)
@@ -2382,10 +2628,40 @@ public class SolrInformationServer implements InformationServer
         }
     }
 
+    /**
+     * Sends a batch of updates through the given processor: a single (conditional) delete for all the error docs and
+     * the unindexed nodes of the batch, followed by the add commands.
+     * The delete needs to go first, as the add commands can replace the docs it removes.
+     */
+    void processUpdateBatch(UpdateRequestProcessor processor, SolrQueryRequest request,
+            List<String> errorDocIds, List<Long> deletedNodeIds, List<AddUpdateCommand> addDocCmds) throws IOException
+    {
+        long start = System.nanoTime();
+
+        if (anyDocumentExists(FIELD_SOLR4_ID, errorDocIds) || anyDocumentExists(FIELD_DBID, deletedNodeIds))
+        {
+            String query = Stream.of(
+                        cloud.getQuery(FIELD_SOLR4_ID, OR, errorDocIds),
+                        cloud.getQuery(FIELD_DBID, OR, deletedNodeIds))
+                    .filter(q -> !q.isEmpty())
+                    .collect(Collectors.joining(OR));
+            DeleteUpdateCommand delDocCmd = new DeleteUpdateCommand(request);
+            delDocCmd.setQuery(query);
+            processor.processDelete(delDocCmd);
+        }
+
+        for (AddUpdateCommand addDocCmd : addDocCmds)
+        {
+            processor.processAdd(addDocCmd);
+        }
+
+        this.trackerStats.addBatchUpdate(addDocCmds.size(), System.nanoTime() - start);
+    }
+
     private void deleteErrorNode(UpdateRequestProcessor processor, SolrQueryRequest request, Node node) throws IOException
     {
         String errorDocId = PREFIX_ERROR + node.getId();
-        if (getDocListSize(FIELD_SOLR4_ID + ":" + errorDocId) > 0)
+        if (anyDocumentExists(FIELD_SOLR4_ID, Collections.singletonList(errorDocId)))
         {
             DeleteUpdateCommand delErrorDocCmd = new DeleteUpdateCommand(request);
             delErrorDocCmd.setId(errorDocId);
@@ -2395,7 +2671,7 @@ public class SolrInformationServer implements InformationServer
 
     private void deleteNode(UpdateRequestProcessor processor, SolrQueryRequest request, long dbid) throws IOException
     {
-        if (getDocListSize(FIELD_DBID + ":" + dbid) > 0)
+        if (anyDocumentExists(FIELD_DBID, Collections.singletonList(dbid)))
         {
             DeleteUpdateCommand delDocCmd = new DeleteUpdateCommand(request);
             delDocCmd.setQuery(FIELD_DBID + ":" + dbid);
@@ -2403,6 +2679,39 @@ public class SolrInformationServer implements InformationServer
         }
     }
 
+    /**
+     * Checks whether a document with one of the given values exists, probing the terms dictionary of the segments of
+     * the current searcher instead of running a search: this is done for every indexed node.
+     * Like a search, it doesn't see the documents that haven't been committed yet.
+     */
+    boolean anyDocumentExists(String field, Collection<?> values) throws IOException
+    {
+        if (values.isEmpty())
+        {
+            return false;
+        }
+
+        RefCounted<SolrIndexSearcher> refCounted = null;
+        try
+        {
+            refCounted = core.getSearcher();
+            SolrIndexSearcher searcher = refCounted.get();
+            FieldType fieldType = searcher.getSchema().getField(field).getType();
+            List<BytesRef> terms = new ArrayList<>(values.size());
+            for (Object value : values)
+            {
+                BytesRefBuilder bytesRefBuilder = new BytesRefBuilder();
+                fieldType.readableToIndexed(value.toString(), bytesRefBuilder);
+                terms.add(bytesRefBuilder.toBytesRef());
+            }
+            return IndexedTermsProbe.anyExists(searcher.getIndexReader(), field, terms);
+        }
+        finally
+        {
+            ofNullable(refCounted).ifPresent(RefCounted::decref);
+        }
+    }
+
     private void deleteNode(UpdateRequestProcessor processor, SolrQueryRequest request, Node node) throws IOException
     {
         LOGGER.debug("Node {} is being deleted", node.getId());
@@ -2632,13 +2941,13 @@ public class SolrInformationServer implements InformationServer
     }
 
     /**
-     * Extracts the text content from the given API response.
+     * Extracts the text content from the given API response, decoding it straight into the given buffer.
      *
      * @param response the API (GetTextContent) response.
-     * @return the text content from the given API response.
+     * @param buffer the buffer where the text content is appended.
      * @throws IOException in case of I/O failure.
      */
-    private String textContentFrom(GetTextContentResponse response) throws IOException
+    private void textContentFrom(GetTextContentResponse response, TextContentBuffer buffer) throws IOException
     {
         try (final InputStream ris = ofNullable(response.getContentEncoding())
                 .map(c -> c.equals("gzip")).orElse(false)?
@@ -2646,10 +2955,8 @@ public class SolrInformationServer implements InformationServer
         {
             if (ris != null)
             {
-                byte[] bytes = FileCopyUtils.copyToByteArray(new BoundedInputStream(ris, contentStreamLimit));
-                return new String(bytes, StandardCharsets.UTF_8);
+                buffer.append(new InputStreamReader(new BoundedInputStream(ris, contentStreamLimit), StandardCharsets.UTF_8));
             }
-            return "";
         }
         finally
         {
@@ -2671,31 +2978,40 @@ public class SolrInformationServer implements InformationServer
             addContentPropertyMetadata(doc, propertyQName, AlfrescoSolrDataModel.SpecializedFieldType.TRANSFORMATION_EXCEPTION, response);
             addContentPropertyMetadata(doc, propertyQName, AlfrescoSolrDataModel.SpecializedFieldType.TRANSFORMATION_TIME, response);
 
-            final String textContent = textContentFrom(response);
-
-            if (fingerprintHasBeenEnabledOnThisInstance && !textContent.isBlank()) {
-                Analyzer analyzer = core.getLatestSchema().getFieldType("min_hash").getIndexAnalyzer();
-                TokenStream ts = analyzer.tokenStream("dummy_field", textContent);
-                CharTermAttribute termAttribute = ts.getAttribute(CharTermAttribute.class);
-                ts.reset();
-                while (ts.incrementToken()) {
-                    StringBuilder tokenBuff = new StringBuilder();
-                    char[] buff = termAttribute.buffer();
+            // The stored value is "\u0000" + language + "\u0000" + text: the text is decoded right after the prefix
+            final TextContentBuffer textContent = TextContentBuffer.forCurrentThread().append("\u0000" + languageFrom(locale) + "\u0000");
+            try {
+                final int textContentStart = textContent.length();
+                textContentFrom(response, textContent);
+
+                if (fingerprintHasBeenEnabledOnThisInstance && !textContent.isBlank(textContentStart)) {
+                    Analyzer analyzer = core.getLatestSchema().getFieldType("min_hash").getIndexAnalyzer();
+                    TokenStream ts = analyzer.tokenStream("dummy_field", textContent.reader(textContentStart));
+                    CharTermAttribute termAttribute = ts.getAttribute(CharTermAttribute.class);
+                    ts.reset();
+                    while (ts.incrementToken()) {
+                        StringBuilder tokenBuff = new StringBuilder();
+                        char[] buff = termAttribute.buffer();
+
+                        for (int i = 0; i < termAttribute.length(); i++) {
+                            tokenBuff.append(Integer.toHexString(buff[i]));
+                        }
+                        doc.addField(FINGERPRINT_FIELD, tokenBuff.toString());
 
-                    for (int i = 0; i < termAttribute.length(); i++) {
-                        tokenBuff.append(Integer.toHexString(buff[i]));
                     }
-                    doc.addField(FINGERPRINT_FIELD, tokenBuff.toString());
-
+                    ts.end();
+                    ts.close();
                 }
-                ts.end();
-                ts.close();
-            }
 
-            this.getTrackerStats().addDocTransformationTime(System.nanoTime() - start);
+                long transformationTime = System.nanoTime() - start;
+                this.getTrackerStats().addDocTransformationTime(transformationTime);
+                contentTransformTimes.update(transformationTime, TimeUnit.NANOSECONDS);
 
-            String storedField = dataModel.getStoredContentField(propertyQName);
-            doc.setField(storedField, "\u0000" + languageFrom(locale) + "\u0000" + textContent);
+                String storedField = dataModel.getStoredContentField(propertyQName);
+                doc.setField(storedField, textContent.toString());
+            } finally {
+                textContent.release();
+            }
 
             dataModel.getIndexedFieldNamesForProperty(propertyQName)
                     .getFields()
@@ -2854,6 +3170,7 @@ public class SolrInformationServer implements InformationServer
 
             cmd.solrDoc = input;
             processor.processAdd(cmd);
+            ofNullable(indexedTxnIds.get()).ifPresent(ids -> ids.add(info.getId()));
 
             putTransactionState(processor, request, info);
         }
@@ -3001,25 +3318,25 @@ public class SolrInformationServer implements InformationServer
     @Override
     public boolean txnInIndex(long txnId, boolean populateCache) throws IOException
     {
-        return isInIndex(txnId, txnIdCache, FIELD_TXID, populateCache, core);
+        return isInIndex(txnId, indexedTxnIds, DOC_TYPE_TX, FIELD_TXID, populateCache);
     }
 
     @Override
     public boolean aclChangeSetInIndex(long changeSetId, boolean populateCache) throws IOException
     {
-        return isInIndex(changeSetId, aclChangeSetCache, FIELD_ACLTXID, populateCache, core);
+        return isInIndex(changeSetId, indexedAclChangeSetIds, DOC_TYPE_ACL_TX, FIELD_ACLTXID, populateCache);
     }
 
     @Override
     public void clearProcessedTransactions()
     {
-        this.txnIdCache.clear();
+        this.indexedTxnIds.set(null);
     }
 
     @Override
     public void clearProcessedAclChangeSets()
     {
-        this.aclChangeSetCache.clear();
+        this.indexedAclChangeSetIds.set(null);
     }
 
     @Override
@@ -3044,6 +3361,10 @@ public class SolrInformationServer implements InformationServer
                 {
                     processor = this.core.getUpdateProcessingChain(null).createProcessor(request, newSolrQueryResponse());
                     processor.processRollback(new RollbackUpdateCommand(request));
+
+                    // The uncommitted transactions and change sets are gone: reload them from the index on next use
+                    indexedTxnIds.set(null);
+                    indexedAclChangeSetIds.set(null);
                 }
                 finally
                 {
@@ -3255,33 +3576,55 @@ public class SolrInformationServer implements InformationServer
                 .orElse(0);
     }
 
-    private boolean isInIndex(long id, LRU cache, String fieldName, boolean populateCache, SolrCore core) throws IOException
+    private boolean isInIndex(long id, AtomicReference<IndexedIdSet> indexedIds, String docType, String fieldName,
+            boolean populateCache) throws IOException
     {
-        if(cache.containsKey(id))
+        IndexedIdSet ids = getIndexedIds(indexedIds, docType, fieldName);
+        if (ids.contains(id))
         {
             return true;
         }
-        else
+        if (populateCache)
         {
-            RefCounted<SolrIndexSearcher> refCounted = null;
-            try
+            ids.add(id); // Safe to add this here because we reset this on rollback.
+        }
+        return false;
+    }
+
+    /**
+     * Returns the ids of the given document type, reading them from the doc values of the current searcher the first
+     * time (and after a rollback): from then on the set is kept up to date as the documents are indexed and deleted.
+     */
+    private IndexedIdSet getIndexedIds(AtomicReference<IndexedIdSet> indexedIds, String docType, String fieldName)
+            throws IOException
+    {
+        IndexedIdSet ids = indexedIds.get();
+        if (ids == null)
+        {
+            synchronized (indexedIds)
             {
-                if(populateCache)
+                ids = indexedIds.get();
+                if (ids == null)
                 {
-                    cache.put(id, null); // Safe to add this here because we reset this on rollback.
+                    RefCounted<SolrIndexSearcher> refCounted = null;
+                    try
+                    {
+                        long start = System.nanoTime();
+                        refCounted = core.getSearcher();
+                        ids = IndexedIdSet.fromDocValues(refCounted.get().getIndexReader(),
+                                new Term(FIELD_DOC_TYPE, docType), fieldName);
+                        indexedIds.set(ids);
+                        LOGGER.info("[CORE {}] Loaded {} {} ids in {} ms ({} bytes)", core.getName(), ids.size(), fieldName,
+                                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), ids.ramBytesUsed());
+                    }
+                    finally
+                    {
+                        ofNullable(refCounted).ifPresent(RefCounted::decref);
+                    }
                 }
-                refCounted = core.getSearcher();
-                SolrIndexSearcher searcher = refCounted.get();
-                FieldType fieldType = searcher.getSchema().getField(fieldName).getType();
-                TermQuery q = new TermQuery(new Term(fieldName, fieldType.readableToIndexed(Long.toString(id))));
-                TopDocs topDocs = searcher.search(q, 1);
-                return topDocs.totalHits > 0;
-            }
-            finally
-            {
-                ofNullable(refCounted).ifPresent(RefCounted::decref);
             }
         }
+        return ids;
     }
 
     private SolrDocumentList executeQueryRequest(SolrQueryRequest request, SolrQueryResponse response, SolrRequestHandler handler)
@@ -3424,6 +3767,11 @@ public class SolrInformationServer implements InformationServer
         IntArrayList docList;
         Set<Long> childIds = new HashSet<>();
 
+        // Descendants are rebased from their indexed paths when possible, the others are fetched from the repository
+        CascadePathRebaser rebaser = localCascadeEnabled ? new CascadePathRebaser(parentNodeMetaData) : null;
+        boolean rebaseLocally = rebaser != null && rebaser.canRebase();
+        int rebased = 0;
+
         try
         {
             refCounted = core.getSearcher();
@@ -3440,7 +3788,20 @@ public class SolrInformationServer implements InformationServer
             for(int i=0; i<size; i++)
             {
                 int docId = docList.get(i);
-                Document document = searcher.doc(docId, REQUEST_ONLY_ID_FIELD);
+                Document document = searcher.doc(docId, rebaseLocally ? CascadePathRebaser.REQUIRED_FIELDS : REQUEST_ONLY_ID_FIELD);
+                if (rebaseLocally)
+                {
+                    Optional<NodeMetaData> child = rebaser.rebase(document);
+                    if (child.isPresent())
+                    {
+                        if (cascadeUpdateChild(parentNodeMetaData, child.get(), overwrite, request, processor))
+                        {
+                            rebased++;
+                        }
+                        continue;
+                    }
+                }
+
                 IndexableField indexableField = document.getField(FIELD_SOLR4_ID);
                 String id = indexableField.stringValue();
                 TenantDbId ids = AlfrescoSolrDataModel.decodeNodeDocumentId(id);
@@ -3452,56 +3813,185 @@ public class SolrInformationServer implements InformationServer
             ofNullable(refCounted).ifPresent(RefCounted::decref);
         }
 
+        if (rebaseLocally)
+        {
+            LOGGER.debug("Cascade update of node {}: {} descendants rebased locally, {} to be fetched from the repository.",
+                    parentNodeMetaData.getId(), rebased, childIds.size());
+        }
+
+        if (childIds.isEmpty())
+        {
+            return;
+        }
+
+        if (bulkCascadeEnabled)
+        {
+            cascadeUpdateChildrenInBatches(parentNodeMetaData, childIds, overwrite, request, processor);
+            return;
+        }
+
         for (Long childId : childIds)
         {
-            NodeMetaDataParameters nmdp = new NodeMetaDataParameters();
+            NodeMetaDataParameters nmdp = cascadeChildrenParameters();
             nmdp.setFromNodeId(childId);
             nmdp.setToNodeId(childId);
-            nmdp.setIncludeAclId(true);
-            nmdp.setIncludeAspects(false);
-            nmdp.setIncludeChildAssociations(false);
-            nmdp.setIncludeChildIds(true);
-            nmdp.setIncludeNodeRef(true);
-            nmdp.setIncludeOwner(false);
-            nmdp.setIncludeParentAssociations(false);
-
-            // We only care about the path and ancestors (which is included) for this case
-            nmdp.setIncludePaths(true);
-            nmdp.setIncludeProperties(false);
-            nmdp.setIncludeType(true);
-            nmdp.setIncludeTxnId(true);
             nmdp.setMaxResults(1);
             // Gets only one
             Optional<Collection<NodeMetaData>> nodeMetaDatas = getNodesMetaDataFromRepository(nmdp);
 
             if (nodeMetaDatas.isPresent() && !nodeMetaDatas.get().isEmpty())
             {
-                NodeMetaData nodeMetaData = nodeMetaDatas.get().iterator().next();
+                cascadeUpdateChild(parentNodeMetaData, nodeMetaDatas.get().iterator().next(), overwrite, request, processor);
+            }
+        }
+    }
 
-                // Only cascade update nods we know can not have changed and must be in this shard
-                // Node in the current TX will be explicitly updated in the outer loop
-                // We do not bring in changes from the future as nodes may switch shards and we do not want the logic here.
-                if (nodeMetaData.getTxnId() < parentNodeMetaData.getTxnId())
+    /**
+     * Fetches the metadata of the given children in batches (see {@link #fetchNodesMetaDataInBatches}) and sends
+     * each fetched batch to the index.
+     */
+    void cascadeUpdateChildrenInBatches(
+            NodeMetaData parentNodeMetaData,
+            Collection<Long> childIds,
+            boolean overwrite,
+            SolrQueryRequest request,
+            UpdateRequestProcessor processor) throws IOException
+    {
+        fetchNodesMetaDataInBatches(childIds, this::cascadeChildrenParameters, nodeMetaDatas -> {
+            long start = System.nanoTime();
+            int updated = 0;
+            for (NodeMetaData nodeMetaData : nodeMetaDatas)
+            {
+                if (cascadeUpdateChild(parentNodeMetaData, nodeMetaData, overwrite, request, processor))
                 {
-                    LOGGER.debug("Cascade update child doc {}", childId);
+                    updated++;
+                }
+            }
+            trackerStats.addBatchUpdate(updated, System.nanoTime() - start);
+        });
+    }
 
-                    SolrInputDocument document = basicDocument(nodeMetaData, DOC_TYPE_NODE, PartialSolrInputDocument::new);
+    private NodeMetaDataParameters cascadeChildrenParameters()
+    {
+        NodeMetaDataParameters nmdp = new NodeMetaDataParameters();
+        nmdp.setIncludeAclId(true);
+        nmdp.setIncludeAspects(false);
+        nmdp.setIncludeChildAssociations(false);
+        nmdp.setIncludeChildIds(true);
+        nmdp.setIncludeNodeRef(true);
+        nmdp.setIncludeOwner(false);
+        nmdp.setIncludeParentAssociations(false);
 
-                    AddUpdateCommand addDocCmd = new AddUpdateCommand(request);
-                    addDocCmd.overwrite = overwrite;
-                    addDocCmd.solrDoc = document;
-                    if (cascadeTrackingEnabled())
-                    {
-                        updatePathRelatedFields(nodeMetaData, document);
-                        updateNamePathRelatedFields(nodeMetaData, document);
-                        updateAncestorRelatedFields(nodeMetaData, document);
-                    }
-                        processor.processAdd(addDocCmd);
-                }
+        // We only care about the path and ancestors (which is included) for this case
+        nmdp.setIncludePaths(true);
+        nmdp.setIncludeProperties(false);
+        nmdp.setIncludeType(true);
+        nmdp.setIncludeTxnId(true);
+        return nmdp;
+    }
+
+    /**
+     * @return true if the child document has been sent to the index, false if it has been skipped.
+     */
+    private boolean cascadeUpdateChild(
+            NodeMetaData parentNodeMetaData,
+            NodeMetaData nodeMetaData,
+            boolean overwrite,
+            SolrQueryRequest request,
+            UpdateRequestProcessor processor) throws IOException
+    {
+        // Only cascade update nods we know can not have changed and must be in this shard
+        // Node in the current TX will be explicitly updated in the outer loop
+        // We do not bring in changes from the future as nodes may switch shards and we do not want the logic here.
+        if (nodeMetaData.getTxnId() >= parentNodeMetaData.getTxnId())
+        {
+            return false;
+        }
+
+        LOGGER.debug("Cascade update child doc {}", nodeMetaData.getId());
+
+        SolrInputDocument document = basicDocument(nodeMetaData, DOC_TYPE_NODE, PartialSolrInputDocument::new);
+
+        AddUpdateCommand addDocCmd = new AddUpdateCommand(request);
+        addDocCmd.overwrite = overwrite;
+        addDocCmd.solrDoc = document;
+        if (cascadeTrackingEnabled())
+        {
+            updatePathRelatedFields(nodeMetaData, document);
+            updateNamePathRelatedFields(nodeMetaData, document);
+            updateAncestorRelatedFields(nodeMetaData, document);
+        }
+        processor.processAdd(addDocCmd);
+        return true;
+    }
+
+    /**
+     * Fetches from the repository the metadata of the given nodes, paging the identifiers in batches of
+     * cascadeNodeBatchSize. Up to maxParallelism batches are fetched concurrently; the fetched batches are passed to
+     * the consumer, on the calling thread, before fetching the next ones, so the metadata held in memory is bounded.
+     * A failing batch fails the whole fetch (IOException), so the caller can retry it.
+     */
+    void fetchNodesMetaDataInBatches(
+            Collection<Long> nodeIds,
+            Supplier<NodeMetaDataParameters> parametersFactory,
+            NodeMetaDataConsumer consumer) throws IOException
+    {
+        List<List<Long>> batches = Lists.partition(new ArrayList<>(nodeIds), cascadeNodeBatchSize);
+        for (List<List<Long>> wave : Lists.partition(batches, cascadeFetchPool.getParallelism()))
+        {
+            List<Collection<NodeMetaData>> fetched;
+            try
+            {
+                fetched = cascadeFetchPool.submit(() ->
+                        wave.parallelStream()
+                                .map(batch -> {
+                                    NodeMetaDataParameters nmdp = parametersFactory.get();
+                                    nmdp.setNodeIds(batch);
+                                    nmdp.setMaxResults(Integer.MAX_VALUE);
+                                    return fetchNodesMetaData(nmdp);
+                                })
+                                .collect(Collectors.toList())
+                ).get();
+            }
+            catch (InterruptedException exception)
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException(exception);
+            }
+            catch (ExecutionException exception)
+            {
+                throw new IOException("Unable to get nodes metadata from repository.", exception.getCause());
+            }
+
+            for (Collection<NodeMetaData> nodeMetaDatas : fetched)
+            {
+                consumer.accept(nodeMetaDatas);
             }
         }
     }
 
+    /*
+     * Unlike getNodesMetaDataFromRepository, failures are not swallowed: they are rethrown wrapped in a
+     * CompletionException, so they can cross the fetch pool.
+     */
+    private Collection<NodeMetaData> fetchNodesMetaData(NodeMetaDataParameters parameters)
+    {
+        try
+        {
+            return notNullOrEmpty(repositoryClient.getNodesMetaData(parameters));
+        }
+        catch (AuthenticationException | IOException exception)
+        {
+            throw new CompletionException(exception);
+        }
+    }
+
+    @FunctionalInterface
+    interface NodeMetaDataConsumer
+    {
+        void accept(Collection<NodeMetaData> nodeMetaDatas) throws IOException;
+    }
+
     private long topNodeId(SolrQuery.ORDER order)
     {
         final String sortDir = order.name();
@@ -3554,77 +4044,83 @@ public class SolrInformationServer implements InformationServer
         }
     }
 
-    private void reportTransactionInfo(TransactionInfoReporter reporter, Long minId, long maxId, IOpenBitSet idsInDb,
-                                       SolrQueryRequest request, String field)
+    /**
+     * Compares the ids in the [fromId, toId] range found in the db with the ones in the index.
+     * Ids in the db are reported as missing up to the last one found in the index (the following ones could
+     * simply not have been tracked yet).
+     */
+    private void reportTransactionInfo(TransactionInfoReporter reporter, long fromId, long toId,
+                                       Long fromCommitTime, Long toCommitTime,
+                                       LongPredicate isInDb, LongStream idsInDb,
+                                       String field, String commitTimeField) throws IOException
     {
-        if (minId != null)
+        BooleanQuery.Builder filter = new BooleanQuery.Builder()
+                .add(rangeQuery(field, fromId, toId), BooleanClause.Occur.FILTER);
+        if (fromCommitTime != null || toCommitTime != null)
         {
-            IOpenBitSet idsInIndex = this.getOpenBitSetInstance();
-            long batchStartId = minId;
-            long batchEndId = Math.min(batchStartId + BATCH_FACET_TXS, maxId);
-
-            // Continues as long as the batch does not pass the maximum
-            while (batchStartId <= maxId)
-            {
-                long iterationStart = batchStartId;
-                NamedList<Integer> idCounts = this.getFacets(request,
-                        field + ":[" + batchStartId + " TO " + batchEndId + "]",
-                        field, 1); // Min count of 1 ensures that the id returned is in the index
-                for (Map.Entry<String, Integer> idCount : idCounts)
-                {
-                    long idInIndex = Long.parseLong(idCount.getKey());
-
-                    // Only looks at facet values that fit the query
-                    if (batchStartId <= idInIndex && idInIndex <= batchEndId)
-                    {
-                        idsInIndex.set(idInIndex);
-
-                        // The sequence of ids in the index could look like this: 1, 2, 5, 7...
-                        for (long id = iterationStart; id <= idInIndex; id++)
-                        {
-                            if (id == idInIndex)
-                            {
-                                iterationStart = idInIndex + 1;
+            filter.add(rangeQuery(commitTimeField, fromCommitTime, toCommitTime), BooleanClause.Occur.FILTER);
+        }
 
-                                if (!idsInDb.get(id))
-                                {
-                                    reporter.reportIdInIndexButNotInDb(id);
-                                }
-                            }
-                            else if (idsInDb.get(id))
-                            {
-                                reporter.reportIdInDbButNotInIndex(id);
-                            }
-                        }
+        IndexHealthScanner.IdScan idsInIndex = scanIndex(field, filter.build(), fromId, toId);
+        long lastIdInIndex = lastIndexedValue(field);
 
-                        if (idCount.getValue() > 1)
-                        {
-                            reporter.reportDuplicatedIdInIndex(idInIndex);
-                        }
-                    }
-                    else
-                    {
-                        break;
-                    }
+        synchronized (reporter.report)
+        {
+            idsInIndex.forEach(id -> {
+                if (!isInDb.test(id))
+                {
+                    reporter.reportIdInIndexButNotInDb(id);
                 }
+            });
+            idsInIndex.forEachDuplicate(reporter::reportDuplicatedIdInIndex);
+            idsInDb.filter(id -> id <= lastIdInIndex && !idsInIndex.contains(id))
+                    .forEach(reporter::reportIdInDbButNotInIndex);
+            reporter.reportUniqueIdsInIndex(idsInIndex.cardinality());
+        }
+    }
 
-                batchStartId = batchEndId + 1;
-                batchEndId = Math.min(batchStartId + BATCH_FACET_TXS, maxId);
-            }
+    private Query rangeQuery(String field, Long from, Long to)
+    {
+        SchemaField schemaField = core.getLatestSchema().getField(field);
+        return schemaField.getType().getRangeQuery(
+                null,
+                schemaField,
+                from == null ? null : String.valueOf(from),
+                to == null ? null : String.valueOf(to),
+                true,
+                true);
+    }
 
-            reporter.reportUniqueIdsInIndex(idsInIndex.cardinality());
+    private void setDuplicates(IndexHealthReport report, String docType, SetDuplicatesCommand cmd) throws IOException
+    {
+        IndexHealthScanner.IdScan dbIds = scanIndex(FIELD_DBID, new TermQuery(new Term(FIELD_DOC_TYPE, docType)), Long.MIN_VALUE, Long.MAX_VALUE);
+        dbIds.forEachDuplicate(duplicatedDbId -> cmd.execute(report, duplicatedDbId));
+    }
+
+    private IndexHealthScanner.IdScan scanIndex(String field, Query filter, long fromId, long toId) throws IOException
+    {
+        RefCounted<SolrIndexSearcher> refCounted = core.getSearcher();
+        try
+        {
+            return healthScanner.scan(refCounted.get().getIndexReader(), field, filter, fromId, toId);
+        }
+        finally
+        {
+            refCounted.decref();
         }
     }
 
-    private void setDuplicates(IndexHealthReport report, SolrQueryRequest request, String docType,
-                               SetDuplicatesCommand cmd)
+    private long lastIndexedValue(String field) throws IOException
     {
-        // A mincount of 2 checks for duplicates in solr
-        NamedList<Integer> dbIdCounts = getFacets(request, FIELD_DOC_TYPE + ":" + docType, FIELD_DBID, 2);
-        for (Map.Entry<String, Integer> dbId : dbIdCounts)
+        RefCounted<SolrIndexSearcher> refCounted = core.getSearcher();
+        try
+        {
+            Long lastValue = IndexHealthScanner.lastValue(refCounted.get().getIndexReader(), field);
+            return lastValue == null ? Long.MIN_VALUE : lastValue;
+        }
+        finally
         {
-            long duplicatedDbId = Long.parseLong(dbId.getKey());
-            cmd.execute(report, duplicatedDbId);
+            refCounted.decref();
         }
     }
 
@@ -0,0 +1,107 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.cache;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.alfresco.solr.query.AbstractAuthoritySetQuery;
+import org.alfresco.solr.query.AclIdSetKey;
+import org.alfresco.solr.query.AclSegmentKey;
+import org.alfresco.solr.query.HybridBitSet;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.solr.search.CacheRegenerator;
+import org.apache.solr.search.SolrCache;
+import org.apache.solr.search.SolrIndexSearcher;
+
+public class AclFilterCacheRegenerator implements CacheRegenerator
+{
+    /* The segment keys of the searcher being warmed, computed once per regeneration */
+    private volatile SearcherSegmentKeys searcherSegmentKeys;
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    public boolean regenerateItem(SolrIndexSearcher newSearcher, SolrCache newCache,
+                SolrCache oldCache, Object oldKey, Object oldVal) throws IOException
+    {
+        if (oldKey instanceof AclSegmentKey)
+        {
+            // Segments are immutable: the filter of a segment which is still part of the new searcher is still valid,
+            // unless the ACL documents changed the ACL ids the authorities resolve to.
+            // Filters of new segments are computed (and cached) on demand.
+            AclSegmentKey key = (AclSegmentKey) oldKey;
+            if (segmentKeys(newSearcher).contains(key.getSegmentKey()) && sameAclSet(key, newSearcher))
+            {
+                newCache.put(key, oldVal);
+            }
+        }
+        return true;
+    }
+
+    /*
+     * The ACL id set is looked up in (or added to) the ACL id cache of the new searcher, so it is resolved once
+     * for all the segments.
+     */
+    private static boolean sameAclSet(AclSegmentKey key, SolrIndexSearcher newSearcher) throws IOException
+    {
+        AclIdSetKey aclIdSetKey = key.getAclIdSetKey();
+        HybridBitSet aclSet = AbstractAuthoritySetQuery.getACLSet(aclIdSetKey.getAuthorities(), aclIdSetKey.getField(), newSearcher);
+        return aclSet.fingerprint() == key.getAclSetFingerprint();
+    }
+
+    private Set<Object> segmentKeys(SolrIndexSearcher searcher)
+    {
+        SearcherSegmentKeys current = searcherSegmentKeys;
+        if (current == null || current.searcher.get() != searcher)
+        {
+            current = new SearcherSegmentKeys(searcher);
+            searcherSegmentKeys = current;
+        }
+        return current.segmentKeys;
+    }
+
+    /*
+     * The segment keys of a searcher. The searcher is weakly referenced, so it isn't retained once closed.
+     */
+    private static final class SearcherSegmentKeys
+    {
+        private final WeakReference<SolrIndexSearcher> searcher;
+        private final Set<Object> segmentKeys = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private SearcherSegmentKeys(SolrIndexSearcher searcher)
+        {
+            this.searcher = new WeakReference<>(searcher);
+            for (LeafReaderContext context : searcher.getTopReaderContext().leaves())
+            {
+                segmentKeys.add(context.reader().getCoreCacheKey());
+            }
+        }
+    }
+}
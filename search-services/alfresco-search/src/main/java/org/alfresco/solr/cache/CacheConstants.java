@@ -45,4 +45,6 @@ public class CacheConstants
     public final static String ALFRESCO_READER_CACHE = "alfrescoReaderCache";
     public final static String ALFRESCO_DENIED_CACHE = "alfrescoDeniedCache";
     public final static String ALFRESCO_PATH_CACHE = "alfrescoPathCache";
+    public final static String ALFRESCO_ACL_ID_CACHE = "alfrescoAclIdCache";
+    public final static String ALFRESCO_ACL_FILTER_CACHE = "alfrescoAclFilterCache";
 }
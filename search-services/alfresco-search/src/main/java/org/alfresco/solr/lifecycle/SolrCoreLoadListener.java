@@ -41,6 +41,7 @@ import java.util.function.Predicate;
 import org.alfresco.opencmis.dictionary.CMISStrictDictionaryService;
 import org.alfresco.solr.AlfrescoCoreAdminHandler;
 import org.alfresco.solr.AlfrescoSolrDataModel;
+import org.alfresco.solr.RepositoryClientMetrics;
 import org.alfresco.solr.SolrInformationServer;
 import org.alfresco.solr.SolrKeyResourceLoader;
 import org.alfresco.solr.client.SOLRAPIClient;
@@ -65,6 +66,8 @@ import org.apache.solr.core.PluginInfo;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.core.SolrResourceLoader;
 import org.apache.solr.handler.ReplicationHandler;
+import org.apache.solr.metrics.SolrCoreMetricManager;
+import org.apache.solr.metrics.SolrMetricProducer;
 import org.apache.solr.request.SolrRequestHandler;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.slf4j.Logger;
@@ -80,6 +83,9 @@ public class SolrCoreLoadListener extends AbstractSolrEventListener
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(SolrCoreLoadListener.class);
 
+    private static final String ACL_TRACKER_SHARED_FEED = "alfresco.acl.tracker.sharedFeed";
+    private static final String METADATA_TRACKER_SHARED_FEED = "alfresco.metadata.tracker.sharedFeed";
+
     /**
      * Builds a new listener instance with the given {@link SolrCore} (event source).
      *
@@ -121,6 +127,7 @@ public class SolrCoreLoadListener extends AbstractSolrEventListener
                 clientFactory.getSOLRAPIClient(coreProperties, keyResourceLoader,
                     AlfrescoSolrDataModel.getInstance().getDictionaryService(CMISStrictDictionaryService.DEFAULT),
                     AlfrescoSolrDataModel.getInstance().getNamespaceDAO());
+        RepositoryClientMetrics.register(coreContainer.getMetricManager(), repositoryClient, core);
 
         SolrInformationServer informationServer = new SolrInformationServer(admin, core, repositoryClient);
         coreProperties.putAll(informationServer.getProps());
@@ -192,6 +199,7 @@ public class SolrCoreLoadListener extends AbstractSolrEventListener
 
             ShardStatePublisher statePublisher = new ShardStatePublisher(false, coreProperties, repositoryClient, core.getName(), informationServer);
             trackerRegistry.register(core.getName(), statePublisher);
+            initializeMetrics(core, statePublisher);
             scheduler.schedule(statePublisher, core.getName(), coreProperties);
             trackers.add(statePublisher);
 
@@ -207,6 +215,7 @@ public class SolrCoreLoadListener extends AbstractSolrEventListener
 
             ShardStatePublisher statePublisher = new ShardStatePublisher(false, coreProperties, repositoryClient, core.getName(), informationServer);
             trackerRegistry.register(core.getName(), statePublisher);
+            initializeMetrics(core, statePublisher);
             scheduler.schedule(statePublisher, core.getName(), coreProperties);
             trackers.add(statePublisher);
 
@@ -221,6 +230,7 @@ public class SolrCoreLoadListener extends AbstractSolrEventListener
 
         CommitTracker commitTracker = new CommitTracker(coreProperties, repositoryClient, core.getName(), informationServer, trackers);
         trackerRegistry.register(core.getName(), commitTracker);
+        initializeMetrics(core, commitTracker);
         scheduler.schedule(commitTracker, core.getName(), coreProperties);
 
         LOGGER.info("Tracker {}, instance {}, belonging to Core {}, instance {} has been registered and scheduled.",
@@ -240,13 +250,12 @@ public class SolrCoreLoadListener extends AbstractSolrEventListener
                                                 SOLRAPIClient repositoryClient,
                                                 SolrInformationServer srv)
     {
-        AclTracker aclTracker =
-                registerAndSchedule(
-                        new AclTracker(props, repositoryClient, core.getName(), srv),
-                        core,
-                        props,
-                        trackerRegistry,
-                        scheduler);
+        AclTracker aclTracker = new AclTracker(props, repositoryClient, core.getName(), srv);
+        if (Boolean.parseBoolean(props.getProperty(ACL_TRACKER_SHARED_FEED, "false")))
+        {
+            aclTracker.setAclFeed(trackerRegistry.getAclFeed(repositoryClient));
+        }
+        registerAndSchedule(aclTracker, core, props, trackerRegistry, scheduler);
 
         ContentTracker contentTracker =
                 registerAndSchedule(
@@ -256,13 +265,12 @@ public class SolrCoreLoadListener extends AbstractSolrEventListener
                         trackerRegistry,
                         scheduler);
 
-        MetadataTracker metadataTracker =
-                registerAndSchedule(
-                    new MetadataTracker(props, repositoryClient, core.getName(), srv, true),
-                        core,
-                        props,
-                        trackerRegistry,
-                        scheduler);
+        MetadataTracker metadataTracker = new MetadataTracker(props, repositoryClient, core.getName(), srv, true);
+        if (Boolean.parseBoolean(props.getProperty(METADATA_TRACKER_SHARED_FEED, "false")))
+        {
+            metadataTracker.setNodeFeed(trackerRegistry.getNodeFeed(repositoryClient));
+        }
+        registerAndSchedule(metadataTracker, core, props, trackerRegistry, scheduler);
 
         ShardStatePublisher coreStateTracker =
                 registerAndSchedule(
@@ -311,7 +319,10 @@ public class SolrCoreLoadListener extends AbstractSolrEventListener
     private <T extends Tracker> T registerAndSchedule(T tracker, SolrCore core, Properties properties, TrackerRegistry registry, SolrTrackerScheduler scheduler)
     {
         registry.register(core.getName(), tracker);
+        initializeMetrics(core, tracker);
         scheduler.schedule(tracker, core.getName(), properties);
+        scheduler.getAdaptiveSchedule(core.getName(), tracker)
+                .ifPresent(schedule -> initializeMetrics(core, schedule, tracker.getType()));
 
         LOGGER.info("Tracker {}, instance {}, belonging to Core {}, instance {} has been registered and scheduled.",
                 tracker.getClass().getSimpleName(),
@@ -322,6 +333,39 @@ public class SolrCoreLoadListener extends AbstractSolrEventListener
         return tracker;
     }
 
+    /**
+     * Registers the metrics of the tracker in the owning core registry, under the ALFRESCO.tracker.&lt;type&gt; path.
+     *
+     * @param core the owning core.
+     * @param tracker the tracker instance.
+     */
+    private void initializeMetrics(SolrCore core, Tracker tracker)
+    {
+        if (tracker instanceof SolrMetricProducer)
+        {
+            initializeMetrics(core, (SolrMetricProducer) tracker, tracker.getType());
+        }
+    }
+
+    /**
+     * Registers the metrics of a tracker companion (e.g. its adaptive schedule) under the same path of the tracker.
+     *
+     * @param core the owning core.
+     * @param producer the metrics producer.
+     * @param type the tracker type.
+     */
+    private void initializeMetrics(SolrCore core, SolrMetricProducer producer, Tracker.Type type)
+    {
+        SolrCoreMetricManager coreMetricManager = core.getCoreMetricManager();
+        if (coreMetricManager != null && core.getCoreContainer() != null)
+        {
+            producer.initializeMetrics(
+                    core.getCoreContainer().getMetricManager(),
+                    coreMetricManager.getRegistryName(),
+                    type.name().toLowerCase());
+        }
+    }
+
     private void createModelTracker(String coreName,
                                     TrackerRegistry trackerRegistry,
                                     Properties props,
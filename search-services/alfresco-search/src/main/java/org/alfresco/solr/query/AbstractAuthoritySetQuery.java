@@ -31,6 +31,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.alfresco.repo.search.adaptor.lucene.QueryConstants;
+import org.alfresco.solr.cache.CacheConstants;
+import org.alfresco.solr.query.QueryPhaseTimings.Phase;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.NumericDocValues;
@@ -92,28 +94,52 @@ public abstract class AbstractAuthoritySetQuery extends Query
 
 
     /*
-    *  This method collects the bitset of documents that match the authorities.
+    *  This method returns the set of ACL ids that match the authorities.
+    *  The set is cached per searcher (and regenerated on warming), keyed by the normalized authorities, so the
+    *  same authorities don't need to be resolved again for every query.
     */
 
-    protected HybridBitSet getACLSet(String[] auths, String field, SolrIndexSearcher searcher) throws IOException
+    public static HybridBitSet getACLSet(String[] auths, String field, SolrIndexSearcher searcher) throws IOException
     {
-        /*
-        * Build a query that matches the authorities with a field in the ACL records in the index.
-        */
+        try (QueryPhaseTimings.Split split = QueryPhaseTimings.current().start(Phase.ACL_SET))
+        {
+            AclIdSetKey key = new AclIdSetKey(field, auths);
+            HybridBitSet aclSet = (HybridBitSet) searcher.cacheLookup(CacheConstants.ALFRESCO_ACL_ID_CACHE, key);
+            if (aclSet == null)
+            {
+                aclSet = collectACLSet(key, searcher);
+                searcher.cacheInsert(CacheConstants.ALFRESCO_ACL_ID_CACHE, key, aclSet);
+            }
+            return aclSet;
+        }
+    }
 
+    /*
+    * Build a query that matches the authorities with a field in the ACL records in the index.
+    */
+
+    protected static Query getACLQuery(String[] auths, String field)
+    {
     	BooleanQuery.Builder queryBuilder = new BooleanQuery.Builder();
         for(String current : auths)
         {
         	queryBuilder.add(new TermQuery(new Term(field, current)), BooleanClause.Occur.SHOULD);
         }
+        return queryBuilder.build();
+    }
 
+    /*
+    *  This method collects the ACL ids of the ACL records that match the authorities.
+    */
 
+    public static HybridBitSet collectACLSet(AclIdSetKey key, SolrIndexSearcher searcher) throws IOException
+    {
         /*
         *   Collect a docset containing the ACL records that match the query.
         *   This query will be in the filter cache. Ideally it would remain cached throughout the users session.
         */
 
-        DocSet docSet = searcher.getDocSet(queryBuilder.build());
+        DocSet docSet = searcher.getDocSet(getACLQuery(key.getAuthorities(), key.getField()));
 
         DocIterator iterator = docSet.iterator();
         if(!iterator.hasNext())
@@ -121,18 +147,19 @@ public abstract class AbstractAuthoritySetQuery extends Query
             return new EmptyHybridBitSet();
         }
 
-        //TODO : makes this configurable. For some systems this is huge and for others not big enough.
-        HybridBitSet hybridBitSet = new HybridBitSet(60000000);
-
         /*
         * Collect the ACLID's from the matching acl records.
         * This is done in a separate step so the initial ACL query can be cached in the FilterCache
         * The initial ACL query may be expensive if the number of authorities is very large.
         */
 
+        long[] aclIds = new long[docSet.size()];
+        int aclCount = 0;
+
+        DocValuesCache docValuesCache = DocValuesCache.of(searcher);
         List<LeafReaderContext> leaves = searcher.getTopReaderContext().leaves();
         LeafReaderContext context = leaves.get(0);
-        NumericDocValues aclValues = DocValuesCache.getNumericDocValues(QueryConstants.FIELD_ACLID, context.reader());
+        NumericDocValues aclValues = docValuesCache.getNumericDocValues(QueryConstants.FIELD_ACLID, context.reader());
         LeafReader reader = context.reader();
         int ceil = reader.maxDoc();
         int base = 0;
@@ -148,22 +175,30 @@ public abstract class AbstractAuthoritySetQuery extends Query
                     reader = context.reader();
                     base = context.docBase;
                     ceil = base+reader.maxDoc();
-                    aclValues = DocValuesCache.getNumericDocValues(QueryConstants.FIELD_ACLID, reader);
+                    aclValues = docValuesCache.getNumericDocValues(QueryConstants.FIELD_ACLID, reader);
                 }
                 while(doc >= ceil);
             }
 
             if(aclValues != null) {
-                long aclId = aclValues.get(doc - base);
-                hybridBitSet.set(aclId);
+                aclIds[aclCount++] = aclValues.get(doc - base);
             }
         }
 
-        return hybridBitSet;
+        return HybridBitSet.of(aclIds, aclCount);
     }
 
+    /*
+    *  This method builds a filter of the documents with an ACL matching the authorities.
+    *  Segments are immutable, so the bitset of each segment is cached keyed by the segment core key: after a commit
+    *  only the new segments need to be scanned. As the ACL ids matching the authorities may change with any commit,
+    *  the key also holds the fingerprint of the ACL id set, so that bitsets computed from other ACL ids are not used.
+    *  The returned filter shares the cached bitsets: they are copied only if the filter is combined with another one.
+    */
+
     protected BitsFilter getACLFilter(String[] auths, String field, SolrIndexSearcher searcher) throws IOException
     {
+        AclIdSetKey aclIdSetKey = new AclIdSetKey(field, auths);
         HybridBitSet aclBits = getACLSet(auths, field, searcher);
         List<LeafReaderContext> leaves = searcher.getTopReaderContext().leaves();
         List<FixedBitSet> bitSets = new ArrayList<FixedBitSet>(leaves.size());
@@ -171,22 +206,38 @@ public abstract class AbstractAuthoritySetQuery extends Query
         for(LeafReaderContext readerContext :  leaves)
         {
         	LeafReader reader = readerContext.reader();
-            int maxDoc = reader.maxDoc();
-            FixedBitSet bits = new FixedBitSet(maxDoc);
+            AclSegmentKey key = new AclSegmentKey(aclIdSetKey, aclBits.fingerprint(), reader.getCoreCacheKey());
+            FixedBitSet bits = (FixedBitSet) searcher.cacheLookup(CacheConstants.ALFRESCO_ACL_FILTER_CACHE, key);
+            if (bits == null)
+            {
+                bits = getACLBits(aclBits, reader, DocValuesCache.of(searcher));
+                searcher.cacheInsert(CacheConstants.ALFRESCO_ACL_FILTER_CACHE, key, bits);
+            }
             bitSets.add(bits);
+        }
 
-            NumericDocValues fieldValues = DocValuesCache.getNumericDocValues(QueryConstants.FIELD_ACLID, reader);
-            if (fieldValues != null) {
-                for (int i = 0; i < maxDoc; i++) {
-                    long aclID = fieldValues.get(i);
-                    if (aclBits.get(aclID)) {
-                        bits.set(i);
-                    }
+        return BitsFilter.shared(bitSets);
+    }
+
+    private static FixedBitSet getACLBits(HybridBitSet aclBits, LeafReader reader, DocValuesCache docValuesCache) throws IOException
+    {
+        int maxDoc = reader.maxDoc();
+        FixedBitSet bits = new FixedBitSet(maxDoc);
+        if (aclBits instanceof EmptyHybridBitSet)
+        {
+            return bits;
+        }
+
+        NumericDocValues fieldValues = docValuesCache.getNumericDocValues(QueryConstants.FIELD_ACLID, reader);
+        if (fieldValues != null) {
+            for (int i = 0; i < maxDoc; i++) {
+                long aclID = fieldValues.get(i);
+                if (aclBits.get(aclID)) {
+                    bits.set(i);
                 }
             }
         }
-
-        return new BitsFilter(bitSets);
+        return bits;
     }
 
 }
@@ -49,6 +49,7 @@ import org.alfresco.service.cmr.security.AuthorityType;
 import org.alfresco.service.namespace.NamespaceService;
 import org.alfresco.solr.AlfrescoSolrDataModel;
 import org.alfresco.solr.AlfrescoSolrDataModel.FieldUse;
+import org.alfresco.solr.query.QueryPhaseTimings.Phase;
 import org.alfresco.util.Pair;
 import org.apache.commons.io.IOUtils;
 import org.apache.solr.common.params.CommonParams;
@@ -489,7 +490,11 @@ public abstract class AbstractQParser extends QParser implements QueryConstants
         	if (searchTerm != null)
         	{
         		searchParameters.setSearchTerm(searchTerm);
-        		List<DetectedLanguage> detetcted = detectLanguage(searchTerm);
+        		List<DetectedLanguage> detetcted;
+        		try (QueryPhaseTimings.Split split = QueryPhaseTimings.of(req).start(Phase.LOCALE_DETECTION))
+        		{
+        			detetcted = detectLanguage(searchTerm);
+        		}
         		if((detetcted != null) && (detetcted.size() > 0))
         		{
         			Locale detectedLocale = Locale.forLanguageTag(detetcted.get(0).getLangCode());
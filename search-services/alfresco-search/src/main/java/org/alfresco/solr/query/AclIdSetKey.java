@@ -0,0 +1,88 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.query;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+
+/**
+ * Key of the ACL id sets cached per searcher (see {@link org.alfresco.solr.cache.CacheConstants#ALFRESCO_ACL_ID_CACHE}).
+ *
+ * The authorities are normalized (sorted, without duplicates) so that the same set of authorities is
+ * associated with the same entry regardless of the order they have been sent by the repository.
+ */
+public final class AclIdSetKey
+{
+    private final String field;
+    private final String[] authorities;
+    private final int hashCode;
+
+    /**
+     * @param field the ACL document field the authorities are matched against (e.g. READER or DENIED).
+     * @param authorities the authorities.
+     */
+    public AclIdSetKey(String field, String[] authorities)
+    {
+        this.field = field;
+        this.authorities = new TreeSet<>(Arrays.asList(authorities)).toArray(new String[0]);
+        this.hashCode = 31 * field.hashCode() + Arrays.hashCode(this.authorities);
+    }
+
+    public String getField()
+    {
+        return field;
+    }
+
+    public String[] getAuthorities()
+    {
+        return authorities.clone();
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (!(o instanceof AclIdSetKey)) return false;
+
+        AclIdSetKey that = (AclIdSetKey) o;
+        return hashCode == that.hashCode
+                && field.equals(that.field)
+                && Arrays.equals(authorities, that.authorities);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hashCode;
+    }
+
+    @Override
+    public String toString()
+    {
+        return field + ":" + String.join(",", authorities);
+    }
+}
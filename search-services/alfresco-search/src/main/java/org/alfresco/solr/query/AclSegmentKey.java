@@ -0,0 +1,94 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.query;
+
+/**
+ * Key of the per segment ACL filters cached per searcher
+ * (see {@link org.alfresco.solr.cache.CacheConstants#ALFRESCO_ACL_FILTER_CACHE}).
+ *
+ * Segments are immutable, so the documents of a segment matching a set of authorities can be reused by the next
+ * searchers as long as the segment (identified by its core cache key) is part of them and the authorities still
+ * resolve to the same ACL ids: the ACL documents live in other segments, so the fingerprint of the ACL id set
+ * (see {@link HybridBitSet#fingerprint()}) is part of the key.
+ */
+public final class AclSegmentKey
+{
+    private final AclIdSetKey aclIdSetKey;
+    private final long aclSetFingerprint;
+    private final Object segmentKey;
+
+    /**
+     * @param aclIdSetKey the authorities (and field) the filter is about.
+     * @param aclSetFingerprint the fingerprint of the ACL ids the authorities resolve to.
+     * @param segmentKey the core cache key of the segment.
+     */
+    public AclSegmentKey(AclIdSetKey aclIdSetKey, long aclSetFingerprint, Object segmentKey)
+    {
+        this.aclIdSetKey = aclIdSetKey;
+        this.aclSetFingerprint = aclSetFingerprint;
+        this.segmentKey = segmentKey;
+    }
+
+    public AclIdSetKey getAclIdSetKey()
+    {
+        return aclIdSetKey;
+    }
+
+    public long getAclSetFingerprint()
+    {
+        return aclSetFingerprint;
+    }
+
+    public Object getSegmentKey()
+    {
+        return segmentKey;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (!(o instanceof AclSegmentKey)) return false;
+
+        AclSegmentKey that = (AclSegmentKey) o;
+        return segmentKey == that.segmentKey
+                && aclSetFingerprint == that.aclSetFingerprint
+                && aclIdSetKey.equals(that.aclIdSetKey);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * (31 * aclIdSetKey.hashCode() + Long.hashCode(aclSetFingerprint)) + System.identityHashCode(segmentKey);
+    }
+
+    @Override
+    public String toString()
+    {
+        return aclIdSetKey + "#" + Long.toHexString(aclSetFingerprint) + "@" + segmentKey;
+    }
+}
@@ -29,6 +29,7 @@ package org.alfresco.solr.query;
 import org.alfresco.repo.search.impl.parsers.FTSQueryParser.RerankPhase;
 import org.alfresco.service.cmr.search.SearchParameters;
 import org.alfresco.solr.AlfrescoSolrDataModel;
+import org.alfresco.solr.query.QueryPhaseTimings.Phase;
 import org.alfresco.util.Pair;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -110,7 +111,11 @@ public class AlfrescoFTSQParserPlugin extends QParserPlugin
             {
                 Pair<SearchParameters, Boolean> searchParametersAndFilter = getSearchParameters();
 
-                Query query = AlfrescoSolrDataModel.getInstance().getFTSQuery(searchParametersAndFilter, req, rerankPhase);
+                Query query;
+                try (QueryPhaseTimings.Split split = QueryPhaseTimings.of(req).start(Phase.QUERY_PARSING))
+                {
+                    query = AlfrescoSolrDataModel.getInstance().getFTSQuery(searchParametersAndFilter, req, rerankPhase);
+                }
                 if(log.isDebugEnabled())
                 {
                     log.debug("AFTS QP query as lucene:\t    "+query);
@@ -26,10 +26,14 @@
 
 package org.alfresco.solr.query;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.solr.search.BitsFilteredDocIdSet;
 import org.apache.solr.search.Filter;
 import org.apache.lucene.util.BitDocIdSet;
@@ -39,16 +43,36 @@ import org.apache.lucene.util.FixedBitSet;
 
 /*
 * A segment level Lucene Filter where each segment is backed by a FixedBitSet.
+* The bitsets of a filter built with {@link #shared(List)} belong to someone else (e.g. a cache): they are never
+* modified, {@link #or(BitsFilter)} and {@link #and(BitsFilter)} copy them on the first write.
 */
 
 public class BitsFilter extends Filter {
 
     private final List<FixedBitSet> bitSets;
 
+    /* The bitsets (by segment) which are not owned by this filter and must be copied before being modified */
+    private final boolean[] shared;
+
     public BitsFilter(List<FixedBitSet> bitSets)
+    {
+        this(bitSets, false);
+    }
+
+    private BitsFilter(List<FixedBitSet> bitSets, boolean shared)
     {
         if (bitSets == null) throw new IllegalStateException("bitSets cannot be null");
-        this.bitSets = bitSets;
+        this.bitSets = shared ? new ArrayList<>(bitSets) : bitSets;
+        this.shared = new boolean[bitSets.size()];
+        Arrays.fill(this.shared, shared);
+    }
+
+    /**
+     * Builds a filter on top of bitsets owned by someone else: they are read, never modified.
+     */
+    public static BitsFilter shared(List<FixedBitSet> bitSets)
+    {
+        return new BitsFilter(bitSets, true);
     }
 
     public void or(BitsFilter bitsFilter)
@@ -56,9 +80,11 @@ public class BitsFilter extends Filter {
         List<FixedBitSet> andSets = bitsFilter.bitSets;
         for(int i=0; i<bitSets.size(); i++)
         {
-            FixedBitSet a = bitSets.get(i);
             FixedBitSet b = andSets.get(i);
-            a.or(b);
+            if (b.nextSetBit(0) != DocIdSetIterator.NO_MORE_DOCS)
+            {
+                writable(i).or(b);
+            }
         }
     }
 
@@ -69,13 +95,34 @@ public class BitsFilter extends Filter {
         {
             FixedBitSet a = bitSets.get(i);
             FixedBitSet b = andSets.get(i);
-            a.and(b);
+            if (a.nextSetBit(0) != DocIdSetIterator.NO_MORE_DOCS)
+            {
+                writable(i).and(b);
+            }
         }
     }
 
+    /**
+     * @return the bitsets of this filter, by segment. They must not be modified.
+     */
     public List<FixedBitSet> getBitSets()
     {
-        return this.bitSets;
+        return Collections.unmodifiableList(this.bitSets);
+    }
+
+    /*
+     * Returns the bitset of the given segment, copying it first if it is shared.
+     */
+    private FixedBitSet writable(int index)
+    {
+        FixedBitSet bits = bitSets.get(index);
+        if (shared[index])
+        {
+            bits = bits.clone();
+            bitSets.set(index, bits);
+            shared[index] = false;
+        }
+        return bits;
     }
 
     public String toString(String s) {
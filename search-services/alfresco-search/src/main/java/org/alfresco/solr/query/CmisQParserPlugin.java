@@ -34,6 +34,7 @@ import org.alfresco.repo.search.impl.querymodel.impl.functions.PropertyAccessor;
 import org.alfresco.repo.search.impl.querymodel.impl.functions.Score;
 import org.alfresco.service.cmr.search.SearchParameters;
 import org.alfresco.solr.AlfrescoSolrDataModel;
+import org.alfresco.solr.query.QueryPhaseTimings.Phase;
 import org.alfresco.util.Pair;
 import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
 import org.apache.lucene.queryparser.classic.ParseException;
@@ -101,8 +102,11 @@ public class CmisQParserPlugin extends QParserPlugin
                 CmisVersion cmisVersion = (cmisVersionString == null ? CmisVersion.CMIS_1_0 : CmisVersion.valueOf(cmisVersionString));
 
                 String altDic = this.params.get(SearchParameters.ALTERNATIVE_DICTIONARY);
-                org.alfresco.repo.search.impl.querymodel.Query queryModelQuery
-                = AlfrescoSolrDataModel.getInstance().parseCMISQueryToAlfrescoAbstractQuery(CMISQueryMode.CMS_WITH_ALFRESCO_EXTENSIONS, searchParameters, req, altDic, cmisVersion);
+                org.alfresco.repo.search.impl.querymodel.Query queryModelQuery;
+                try (QueryPhaseTimings.Split split = QueryPhaseTimings.of(req).start(Phase.QUERY_PARSING))
+                {
+                    queryModelQuery = AlfrescoSolrDataModel.getInstance().parseCMISQueryToAlfrescoAbstractQuery(CMISQueryMode.CMS_WITH_ALFRESCO_EXTENSIONS, searchParameters, req, altDic, cmisVersion);
+                }
 
                 // build the sort param and update the params on the request if required .....
 
@@ -188,7 +192,11 @@ public class CmisQParserPlugin extends QParserPlugin
                     this.params = newParams;
                 }
 
-                Query query = AlfrescoSolrDataModel.getInstance().getCMISQuery(CMISQueryMode.CMS_WITH_ALFRESCO_EXTENSIONS, searchParametersAndFilter, req, queryModelQuery, cmisVersion, altDic);
+                Query query;
+                try (QueryPhaseTimings.Split split = QueryPhaseTimings.of(req).start(Phase.QUERY_PARSING))
+                {
+                    query = AlfrescoSolrDataModel.getInstance().getCMISQuery(CMISQueryMode.CMS_WITH_ALFRESCO_EXTENSIONS, searchParametersAndFilter, req, queryModelQuery, cmisVersion, altDic);
+                }
                 if(log.isDebugEnabled())
                 {
                     log.debug("AFTS QP query as lucene:\t    "+query);
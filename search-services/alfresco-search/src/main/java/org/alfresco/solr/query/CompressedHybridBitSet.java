@@ -0,0 +1,214 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.query;
+
+import java.util.Arrays;
+
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * An immutable, compressed {@link HybridBitSet} built from a fixed set of ids.
+ *
+ * The ids are split in chunks of 2^16 values (the high bits select the chunk, the low bits the position within it),
+ * in the same spirit of Roaring bitmaps: sparse chunks are stored as sorted arrays, dense chunks as plain bitmaps.
+ * The memory used is then proportional to the number of ids rather than to the highest id, which is what makes these
+ * sets cheap enough to be kept in a searcher cache.
+ *
+ * As instances are shared between queries, {@link #set(long)} is not supported.
+ */
+public class CompressedHybridBitSet extends HybridBitSet implements Accountable
+{
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    /* Above this cardinality a sorted char array takes more space than a bitmap (1024 longs) */
+    private static final int MAX_ARRAY_CARDINALITY = 4096;
+    private static final int BITMAP_WORDS = (1 << CHUNK_BITS) / Long.SIZE;
+
+    /* Chunks are looked up by position (rather than with a binary search) when their keys are at least this dense */
+    private static final int DIRECT_INDEX_MAX_KEYS_PER_CHUNK = 8;
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(CompressedHybridBitSet.class);
+
+    private final long[] keys;
+    private final Object[] chunks;
+
+    /* When not null, the chunk with key k is at directChunks[k - minKey] */
+    private final Object[] directChunks;
+    private final long minKey;
+    private final int cardinality;
+    private final long ramBytesUsed;
+
+    /**
+     * Builds the set from the first length values of the given array (which is sorted in place).
+     * Values don't need to be unique.
+     *
+     * @param ids the ids that will be part of the set.
+     * @param length the number of valid entries in the ids array.
+     */
+    public CompressedHybridBitSet(long[] ids, int length)
+    {
+        Arrays.sort(ids, 0, length);
+
+        int unique = 0;
+        int chunkCount = 0;
+        for (int i = 0; i < length; i++)
+        {
+            if (unique == 0 || ids[i] != ids[unique - 1])
+            {
+                if (unique == 0 || chunkKey(ids[i]) != chunkKey(ids[unique - 1]))
+                {
+                    chunkCount++;
+                }
+                ids[unique++] = ids[i];
+            }
+        }
+
+        this.keys = new long[chunkCount];
+        this.chunks = new Object[chunkCount];
+        this.cardinality = unique;
+
+        long ramBytes = BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(keys) + RamUsageEstimator.shallowSizeOf(chunks);
+        int chunk = 0;
+        int start = 0;
+        while (start < unique)
+        {
+            long key = chunkKey(ids[start]);
+            int end = start + 1;
+            while (end < unique && chunkKey(ids[end]) == key)
+            {
+                end++;
+            }
+
+            keys[chunk] = key;
+            if (end - start > MAX_ARRAY_CARDINALITY)
+            {
+                long[] bitmap = new long[BITMAP_WORDS];
+                for (int i = start; i < end; i++)
+                {
+                    int low = chunkPosition(ids[i]);
+                    bitmap[low >>> 6] |= 1L << low;
+                }
+                chunks[chunk] = bitmap;
+                ramBytes += RamUsageEstimator.sizeOf(bitmap);
+            }
+            else
+            {
+                char[] positions = new char[end - start];
+                for (int i = start; i < end; i++)
+                {
+                    positions[i - start] = (char) chunkPosition(ids[i]);
+                }
+                chunks[chunk] = positions;
+                ramBytes += RamUsageEstimator.sizeOf(positions);
+            }
+
+            chunk++;
+            start = end;
+        }
+
+        long keyRange = chunkCount == 0 ? 0 : keys[chunkCount - 1] - keys[0] + 1;
+        if (chunkCount > 0 && keyRange <= (long) chunkCount * DIRECT_INDEX_MAX_KEYS_PER_CHUNK)
+        {
+            this.minKey = keys[0];
+            this.directChunks = new Object[(int) keyRange];
+            for (int i = 0; i < chunkCount; i++)
+            {
+                directChunks[(int) (keys[i] - minKey)] = chunks[i];
+            }
+            ramBytes += RamUsageEstimator.shallowSizeOf(directChunks);
+        }
+        else
+        {
+            this.minKey = 0;
+            this.directChunks = null;
+        }
+        this.ramBytesUsed = ramBytes;
+    }
+
+    @Override
+    public void set(long bit)
+    {
+        throw new UnsupportedOperationException("CompressedHybridBitSet is immutable.");
+    }
+
+    @Override
+    public boolean get(long bit)
+    {
+        Object values;
+        if (directChunks != null)
+        {
+            long index = chunkKey(bit) - minKey;
+            if (index < 0 || index >= directChunks.length || (values = directChunks[(int) index]) == null)
+            {
+                return false;
+            }
+        }
+        else
+        {
+            int chunk = Arrays.binarySearch(keys, chunkKey(bit));
+            if (chunk < 0)
+            {
+                return false;
+            }
+            values = chunks[chunk];
+        }
+
+        int low = chunkPosition(bit);
+        if (values instanceof char[])
+        {
+            return Arrays.binarySearch((char[]) values, (char) low) >= 0;
+        }
+        return (((long[]) values)[low >>> 6] & (1L << low)) != 0;
+    }
+
+    /**
+     * @return the number of ids in this set.
+     */
+    public int cardinality()
+    {
+        return cardinality;
+    }
+
+    @Override
+    public long ramBytesUsed()
+    {
+        return ramBytesUsed;
+    }
+
+    private static long chunkKey(long bit)
+    {
+        // Arithmetic shift so that the order of the keys follows the (signed) order of the ids
+        return bit >> CHUNK_BITS;
+    }
+
+    private static int chunkPosition(long bit)
+    {
+        return (int) (bit & CHUNK_MASK);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.query;
+
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * An immutable {@link HybridBitSet} backed by a bitmap covering exactly the range of ids it has been built from.
+ *
+ * This is the fastest representation and the one used when ids are dense enough for the bitmap to be
+ * comparable in size with the other representations.
+ */
+public class DenseHybridBitSet extends HybridBitSet implements Accountable
+{
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(DenseHybridBitSet.class);
+
+    private final FixedBitSet bits;
+    private final long min;
+    private final long max;
+
+    /**
+     * @param ids the ids that will be part of the set.
+     * @param length the number of valid entries in the ids array.
+     * @param min the minimum id in the array.
+     * @param max the maximum id in the array, max - min must be lower than {@link Integer#MAX_VALUE}.
+     */
+    public DenseHybridBitSet(long[] ids, int length, long min, long max)
+    {
+        this.min = min;
+        this.max = max;
+        this.bits = new FixedBitSet(Math.toIntExact(max - min + 1));
+        for (int i = 0; i < length; i++)
+        {
+            bits.set((int) (ids[i] - min));
+        }
+    }
+
+    @Override
+    public void set(long bit)
+    {
+        throw new UnsupportedOperationException("DenseHybridBitSet is immutable.");
+    }
+
+    @Override
+    public boolean get(long bit)
+    {
+        return bit >= min && bit <= max && bits.get((int) (bit - min));
+    }
+
+    /**
+     * @return the number of ids in this set.
+     */
+    public int cardinality()
+    {
+        return bits.cardinality();
+    }
+
+    @Override
+    public long ramBytesUsed()
+    {
+        return BASE_RAM_BYTES_USED + bits.ramBytesUsed();
+    }
+}
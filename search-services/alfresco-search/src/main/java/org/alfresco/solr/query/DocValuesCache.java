@@ -27,117 +27,246 @@
 package org.alfresco.solr.query;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.packed.PackedInts;
+import org.apache.solr.core.CloseHook;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.search.SolrIndexSearcher;
 
 
 /**
- * The DocValuesCache is an in-memory uncompressed numeric DocValues cache. It is designed to provide the fastest
+ * The DocValuesCache is an in-memory numeric DocValues cache. It is designed to provide the fastest
  * possible access to numeric docValues. The DocValuesCache can be used instead of the Direct DocValues format which also
  * provides uncompressed in-memory docValues. The DocValuesCache can be used in situations when it is not
  * practical to re-index to use Direct docValues.
+ *
+ * There is one cache per core (see {@link #of(SolrIndexSearcher)}), so the segments of the searchers of a core
+ * share it and its memory is accounted to that core only; the cache is released when the core is closed.
+ * Values are cached per segment (keyed by the segment core key) and dropped as soon as the segment core is closed.
+ * Lookups don't lock, and different segments/fields can be loaded concurrently. Values are stored with the
+ * number of bits needed by the (max - min) range of the field in the segment; the memory used is reported
+ * through {@link Accountable}.
  **/
 
-public class DocValuesCache
+public class DocValuesCache implements Accountable
 {
-    private static Map<String, WeakHashMap<Object, NumericDocValues>> cache = new HashMap<String, WeakHashMap<Object, NumericDocValues>>();
+    /* The cache of each open core */
+    private static final Map<SolrCore, DocValuesCache> CACHES = new ConcurrentHashMap<>();
 
-    public static synchronized NumericDocValues getNumericDocValues(String field, LeafReader reader) throws IOException
+    /* Segment core key -> field -> values */
+    private final Map<Object, Map<String, CachedValues>> segments = new ConcurrentHashMap<>();
+    private final AtomicLong ramBytesUsed = new AtomicLong();
+
+    /**
+     * @return the cache of the core owning the given searcher.
+     */
+    public static DocValuesCache of(SolrIndexSearcher searcher)
     {
-        WeakHashMap<Object, NumericDocValues> fieldCache = cache.get(field);
+        return CACHES.computeIfAbsent(searcher.getCore(), core -> {
+            core.addCloseHook(new CloseHook()
+            {
+                @Override
+                public void preClose(SolrCore core)
+                {
+                }
+
+                @Override
+                public void postClose(SolrCore core)
+                {
+                    CACHES.remove(core);
+                }
+            });
+            return new DocValuesCache();
+        });
+    }
 
-        if(fieldCache == null)
+    /**
+     * @return the cached values of the given field in the given segment, null if the segment has no values.
+     */
+    public NumericDocValues getNumericDocValues(String field, LeafReader reader) throws IOException
+    {
+        return get(field, reader);
+    }
+
+    NumericDocValues get(String field, LeafReader reader) throws IOException
+    {
+        Object coreKey = reader.getCoreCacheKey();
+        Map<String, CachedValues> fields = segments.get(coreKey);
+        if (fields == null)
         {
-            fieldCache = new WeakHashMap<Object, NumericDocValues>();
-            cache.put(field, fieldCache);
+            fields = addSegment(coreKey, reader);
         }
 
-        Object cacheKey = reader.getCoreCacheKey();
-        NumericDocValues cachedValues = fieldCache.get(cacheKey);
-
-        if(cachedValues == null)
+        CachedValues cachedValues = fields.get(field);
+        if (cachedValues == null)
         {
-            NumericDocValues fieldValues = reader.getNumericDocValues(field);
-            if(fieldValues == null)
+            CachedValues newValues = new CachedValues(coreKey, fields);
+            cachedValues = fields.putIfAbsent(field, newValues);
+            if (cachedValues == null)
             {
-                return null;
+                cachedValues = newValues;
             }
-            else
-            {
-                int maxDoc = reader.maxDoc();
-                boolean longs = false;
-                int[] intValues = new int[maxDoc]; //Always start off with an int array.
-                SettableDocValues settableValues = new IntValues(intValues);
+        }
+        return cachedValues.get(field, reader);
+    }
 
-                for(int i=0; i<maxDoc; i++)
-                {
-                    long value = fieldValues.get(i);
-                    if(value > Integer.MAX_VALUE && !longs)
-                    {
-                        longs = true;
-                        settableValues = new LongValues(intValues);
-                    }
-
-                    settableValues.set(i, value);
-                }
-                fieldCache.put(cacheKey, settableValues);
-                return settableValues;
-            }
+    @Override
+    public long ramBytesUsed()
+    {
+        return ramBytesUsed.get();
+    }
+
+    /**
+     * @return the number of segments with cached values.
+     */
+    public int size()
+    {
+        return segments.size();
+    }
+
+    private Map<String, CachedValues> addSegment(Object coreKey, LeafReader reader)
+    {
+        Map<String, CachedValues> fields = new ConcurrentHashMap<>();
+        Map<String, CachedValues> existing = segments.putIfAbsent(coreKey, fields);
+        if (existing != null)
+        {
+            return existing;
         }
-        else
+
+        try
         {
-            return cachedValues;
+            reader.addCoreClosedListener(this::onSegmentClosed);
         }
+        catch (RuntimeException exception)
+        {
+            segments.remove(coreKey);
+            throw exception;
+        }
+        return fields;
     }
 
-    private static abstract class SettableDocValues extends NumericDocValues
+    private void onSegmentClosed(Object coreKey)
     {
-        public abstract void set(int index, long value);
+        Map<String, CachedValues> fields = segments.remove(coreKey);
+        if (fields != null)
+        {
+            for (CachedValues values : fields.values())
+            {
+                values.release();
+            }
+        }
     }
 
-    private static class IntValues extends SettableDocValues
+    /**
+     * The values of a field in a segment, loaded once on first access.
+     * Loading and releasing are serialized and the bytes are accounted only while the segment is still registered,
+     * so the values loaded while their segment is being closed are never left in the accounting.
+     */
+    private class CachedValues
     {
-        private int[] values;
+        private final Object coreKey;
+        private final Map<String, CachedValues> segmentFields;
+        private volatile boolean loaded;
+        private boolean released;
+        private NumericDocValues values;
+        private long bytes;
 
-        public IntValues(int[] values)
+        CachedValues(Object coreKey, Map<String, CachedValues> segmentFields)
         {
-            this.values = values;
+            this.coreKey = coreKey;
+            this.segmentFields = segmentFields;
         }
 
-        public void set(int index, long value)
+        NumericDocValues get(String field, LeafReader reader) throws IOException
         {
-            this.values[index] = (int)value;
+            if (!loaded)
+            {
+                load(field, reader);
+            }
+            return values;
         }
 
-        public long get(int index) {
-            return values[index];
+        private synchronized void load(String field, LeafReader reader) throws IOException
+        {
+            if (loaded)
+            {
+                return;
+            }
+
+            NumericDocValues fieldValues = reader.getNumericDocValues(field);
+            if (fieldValues != null)
+            {
+                PackedValues packedValues = PackedValues.of(fieldValues, reader.maxDoc());
+                values = packedValues;
+                if (!released && segments.get(coreKey) == segmentFields)
+                {
+                    bytes = packedValues.ramBytesUsed();
+                    ramBytesUsed.addAndGet(bytes);
+                }
+            }
+            loaded = true;
+        }
+
+        private synchronized void release()
+        {
+            released = true;
+            ramBytesUsed.addAndGet(-bytes);
+            bytes = 0;
         }
     }
 
-    private static class LongValues extends SettableDocValues
+    private static class PackedValues extends NumericDocValues implements Accountable
     {
-        private long[] values;
+        private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(PackedValues.class);
+
+        private final PackedInts.Mutable values;
+        private final long min;
+
+        private PackedValues(PackedInts.Mutable values, long min)
+        {
+            this.values = values;
+            this.min = min;
+        }
 
-        public LongValues(int[] ivalues)
+        static PackedValues of(NumericDocValues fieldValues, int maxDoc)
         {
-            values = new long[ivalues.length];
-            for(int i=0; i< ivalues.length; i++) {
-                values[i] = ivalues[i];
+            long min = maxDoc == 0 ? 0 : Long.MAX_VALUE;
+            long max = maxDoc == 0 ? 0 : Long.MIN_VALUE;
+            for (int i = 0; i < maxDoc; i++)
+            {
+                long value = fieldValues.get(i);
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+
+            // A negative range means the difference overflows: all the 64 bits are needed
+            long range = max - min;
+            int bitsPerValue = range < 0 ? 64 : PackedInts.unsignedBitsRequired(range);
+            PackedInts.Mutable values = PackedInts.getMutable(maxDoc, bitsPerValue, PackedInts.FAST);
+            for (int i = 0; i < maxDoc; i++)
+            {
+                values.set(i, fieldValues.get(i) - min);
             }
+            return new PackedValues(values, min);
         }
 
-        public void set(int index, long value)
+        @Override
+        public long get(int docID)
         {
-            this.values[index] = value;
+            return min + values.get(docID);
         }
 
-        public long get(int index)
+        @Override
+        public long ramBytesUsed()
         {
-            return values[index];
+            return BASE_RAM_BYTES_USED + values.ramBytesUsed();
         }
     }
-}
\ No newline at end of file
+}
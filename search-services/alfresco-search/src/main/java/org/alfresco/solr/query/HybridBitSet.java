@@ -26,22 +26,34 @@
 
 package org.alfresco.solr.query;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Arrays;
 
 import org.apache.lucene.util.FixedBitSet;
 
 /**
 *  The HybridBitSet is a random access (doesn't support iteration) BitSet implementation that uses a FixedBitSet for the first N bits
-*  and a HashSet for higher bits. This is designed to provide a balance between the high performance of FixedBitSet and
-*  the efficient sparse behavior of a HashSet.
+*  and a primitive hash set for higher bits. This is designed to provide a balance between the high performance of FixedBitSet and
+*  the efficient sparse behavior of a hash set.
+*
+*  Sets of a known content should be built with {@link #of(long[], int)}, which picks the representation (see subclasses)
+*  from the actual range and number of ids.
 **/
 
 public class HybridBitSet
 {
+    /* A bitmap is used when the range of the ids is smaller than this, regardless of the number of ids (8KB) */
+    private static final long DENSE_MIN_RANGE = 1L << 16;
+
+    /* Above this average number of bits per id a bitmap is larger than a sparse set (which takes 128 to 256 bits per id) */
+    private static final long DENSE_MAX_BITS_PER_ID = 256;
+
+    /* Above this number of ids the chunked representation is used, as it takes a fraction of the memory of a sparse set */
+    private static final int SPARSE_MAX_CARDINALITY = 1 << 16;
+
     private FixedBitSet bits;
-    private Set<Long> set = new HashSet<Long>();
+    private SparseHybridBitSet set;
     private int maxBit;
+    private long fingerprint;
 
     public HybridBitSet()
     {
@@ -54,27 +66,127 @@ public class HybridBitSet
         this.maxBit = maxBit;
     }
 
+    /**
+     * Builds an immutable set containing the first length ids of the given array (which may be reordered).
+     * The representation depends on the ids:
+     * <ul>
+     *     <li>a bitmap over the ids range ({@link DenseHybridBitSet}) when ids are dense enough,</li>
+     *     <li>an open addressing hash set ({@link SparseHybridBitSet}) for a few ids spread over a large range,</li>
+     *     <li>a chunked bitmap ({@link CompressedHybridBitSet}) for many ids spread over a large range.</li>
+     * </ul>
+     *
+     * @param ids the ids that will be part of the set.
+     * @param length the number of valid entries in the ids array.
+     */
+    public static HybridBitSet of(long[] ids, int length)
+    {
+        if (length == 0)
+        {
+            return new EmptyHybridBitSet();
+        }
+
+        long fingerprint = fingerprint(ids, length);
+        HybridBitSet set = create(ids, length);
+        set.fingerprint = fingerprint;
+        return set;
+    }
+
+    private static HybridBitSet create(long[] ids, int length)
+    {
+
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < length; i++)
+        {
+            min = Math.min(min, ids[i]);
+            max = Math.max(max, ids[i]);
+        }
+
+        // Overflows (negative ranges) mean a range way too large for a bitmap
+        long range = max - min + 1;
+        if (range > 0 && range < Integer.MAX_VALUE
+                && (range <= DENSE_MIN_RANGE || range / length <= DENSE_MAX_BITS_PER_ID))
+        {
+            return new DenseHybridBitSet(ids, length, min, max);
+        }
+        else if (length <= SPARSE_MAX_CARDINALITY)
+        {
+            SparseHybridBitSet sparse = new SparseHybridBitSet(length);
+            for (int i = 0; i < length; i++)
+            {
+                sparse.set(ids[i]);
+            }
+            return sparse;
+        }
+        else
+        {
+            return new CompressedHybridBitSet(ids, length);
+        }
+    }
+
+    /*
+     * A hash of the (sorted, unique) ids, so that sets with the same content have the same fingerprint regardless
+     * of the order of the ids or of the representation picked. The ids are sorted in place.
+     */
+    private static long fingerprint(long[] ids, int length)
+    {
+        Arrays.sort(ids, 0, length);
+        long hash = 0;
+        int unique = 0;
+        for (int i = 0; i < length; i++)
+        {
+            if (i == 0 || ids[i] != ids[i - 1])
+            {
+                hash = mix(hash + ids[i]);
+                unique++;
+            }
+        }
+        return mix(hash ^ unique);
+    }
+
+    /* The splitmix64 finalizer */
+    private static long mix(long value)
+    {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * A hash of the content of the set, for sets built with {@link #of(long[], int)}: two sets with the same ids
+     * have the same fingerprint, sets with different ids have a different one (but for hash collisions).
+     * This is 0 for an empty set, and is not maintained by {@link #set(long)}.
+     */
+    public long fingerprint()
+    {
+        return fingerprint;
+    }
+
     public void set(long bit)
     {
-        if(bit < maxBit)
+        if(bit >= 0 && bit < maxBit)
         {
             bits.set((int)bit);
         }
         else
         {
-            set.add((long)bit);
+            if (set == null)
+            {
+                set = new SparseHybridBitSet();
+            }
+            set.set(bit);
         }
     }
 
     public boolean get(long bit)
     {
-        if(bit < maxBit)
+        if(bit >= 0 && bit < maxBit)
         {
             return bits.get((int)bit);
         }
         else
         {
-            return set.contains((long)bit);
+            return set != null && set.get(bit);
         }
     }
 }
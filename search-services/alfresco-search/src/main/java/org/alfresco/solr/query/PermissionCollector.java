@@ -0,0 +1,154 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.query;
+
+import java.io.IOException;
+
+import org.alfresco.repo.search.adaptor.lucene.QueryConstants;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.solr.search.DelegatingCollector;
+import org.apache.solr.search.DocSet;
+
+/**
+ * Post filter applying the ACL rules of the AUTHSET ({@link SolrAuthoritySetQuery}) and DENYSET
+ * ({@link SolrDenySetQuery}) queries.
+ * <p>
+ * A document is collected when none of the user authorities is denied by its ACL and it is readable, either through
+ * its ACL or because the user owns it. When a request has both queries their collectors are fused with
+ * {@link #and(PermissionCollector)}, so the ACL id of each document is read once and checked against all the sets
+ * instead of going through a chain of collectors.
+ */
+class PermissionCollector extends DelegatingCollector
+{
+    private static final HybridBitSet NONE = new EmptyHybridBitSet();
+
+    private final DocValuesCache docValuesCache;
+
+    /* True when reading isn't restricted by the ACL (e.g. a DENYSET only collector) */
+    private final boolean readAll;
+    private final HybridBitSet readerAclIds;
+
+    /* Top level doc ids of the documents owned by the user, null when the user doesn't own any document */
+    private final DocSet ownedDocs;
+
+    /* True when owners can read their documents whatever the ACL */
+    private final boolean ownerReadAll;
+    private final HybridBitSet ownerAclIds;
+
+    private final HybridBitSet deniedAclIds;
+
+    private NumericDocValues aclIds;
+
+    private PermissionCollector(DocValuesCache docValuesCache, boolean readAll, HybridBitSet readerAclIds,
+            DocSet ownedDocs, boolean ownerReadAll, HybridBitSet ownerAclIds, HybridBitSet deniedAclIds)
+    {
+        this.docValuesCache = docValuesCache;
+        this.readAll = readAll;
+        this.readerAclIds = readerAclIds;
+        this.ownedDocs = ownedDocs;
+        this.ownerReadAll = ownerReadAll;
+        this.ownerAclIds = ownerAclIds;
+        this.deniedAclIds = deniedAclIds;
+    }
+
+    /**
+     * @param docValuesCache the cache of the ACL ids of the documents.
+     * @param readerAclIds the ACLs granting read to one of the user authorities.
+     * @param ownedDocs the top level doc ids of the documents owned by the user, null if there aren't any.
+     * @param ownerAclIds the ACLs granting read to the owner, null when owners can read all their documents.
+     */
+    static PermissionCollector readers(DocValuesCache docValuesCache, HybridBitSet readerAclIds, DocSet ownedDocs,
+            HybridBitSet ownerAclIds)
+    {
+        return new PermissionCollector(docValuesCache, false, readerAclIds, ownedDocs, ownerAclIds == null,
+                ownerAclIds == null ? NONE : ownerAclIds, NONE);
+    }
+
+    /**
+     * @param docValuesCache the cache of the ACL ids of the documents.
+     * @param deniedAclIds the ACLs denying read to one of the user authorities.
+     */
+    static PermissionCollector denied(DocValuesCache docValuesCache, HybridBitSet deniedAclIds)
+    {
+        return new PermissionCollector(docValuesCache, true, NONE, null, false, NONE, deniedAclIds);
+    }
+
+    /**
+     * Combines the rules of two collectors, which must not have been used yet.
+     *
+     * @return a collector accepting the documents accepted by both collectors, or null if their rules can't be
+     *         combined (e.g. they both restrict reading).
+     */
+    PermissionCollector and(PermissionCollector other)
+    {
+        if ((!readAll && !other.readAll) || (denies() && other.denies()))
+        {
+            return null;
+        }
+
+        PermissionCollector readers = readAll ? other : this;
+        PermissionCollector denied = denies() ? this : other;
+        return new PermissionCollector(docValuesCache, readers.readAll, readers.readerAclIds, readers.ownedDocs,
+                readers.ownerReadAll, readers.ownerAclIds, denied.deniedAclIds);
+    }
+
+    private boolean denies()
+    {
+        return deniedAclIds != NONE;
+    }
+
+    public boolean acceptsDocsOutOfOrder()
+    {
+        return false;
+    }
+
+    protected void doSetNextReader(LeafReaderContext context) throws IOException
+    {
+        super.doSetNextReader(context);
+        this.aclIds = docValuesCache.getNumericDocValues(QueryConstants.FIELD_ACLID, context.reader());
+    }
+
+    /*
+    * The ACL sets are all looked up and combined with non short-circuit operators, so the only branches left are on
+    * the outcome and on the (more expensive) owned documents lookup, which is done only for documents that aren't
+    * readable through their ACL.
+    */
+
+    public void collect(int doc) throws IOException
+    {
+        long aclId = aclIds.get(doc);
+        boolean allowed = !deniedAclIds.get(aclId);
+        boolean readable = allowed & (readAll | readerAclIds.get(aclId));
+        boolean ownerReadable = allowed & (ownedDocs != null) & (ownerReadAll | ownerAclIds.get(aclId));
+
+        if (readable || (ownerReadable && ownedDocs.exists(docBase + doc)))
+        {
+            super.collect(doc);
+        }
+    }
+}
@@ -33,6 +33,7 @@ import java.util.Comparator;
 import java.util.List;
 
 import org.alfresco.solr.ContextAwareQuery;
+import org.alfresco.solr.query.QueryPhaseTimings.Phase;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
@@ -126,7 +127,7 @@ public class PostFilterQuery extends Query implements PostFilter
         {
             DelegatingCollector delegatingCollector = postFilter.getFilterCollector(searcher);
             if(!(delegatingCollector instanceof AllAccessCollector)) {
-                delegatingCollectors.add(delegatingCollector);
+                addCollector(delegatingCollectors, delegatingCollector);
             }
         }
 
@@ -134,14 +135,35 @@ public class PostFilterQuery extends Query implements PostFilter
         {
             return new AllAccessCollector();
         }
-        else if(delegatingCollectors.size() == 1)
-        {
-            return delegatingCollectors.get(0);
-        }
-        else
+
+        DelegatingCollector delegatingCollector = delegatingCollectors.size() == 1
+                ? delegatingCollectors.get(0)
+                : new WrapperCollector(delegatingCollectors);
+        QueryPhaseTimings timings = QueryPhaseTimings.current();
+        return timings.isEnabled() ? new TimedCollector(delegatingCollector, timings) : delegatingCollector;
+    }
+
+    /*
+    * Adjacent permission collectors (e.g. DENYSET and AUTHSET) are fused, so that the ACL rules are applied
+    * in a single pass instead of chaining the collectors.
+    */
+
+    private static void addCollector(List<DelegatingCollector> delegatingCollectors, DelegatingCollector delegatingCollector)
+    {
+        int last = delegatingCollectors.size() - 1;
+        if (last >= 0
+                && delegatingCollector instanceof PermissionCollector
+                && delegatingCollectors.get(last) instanceof PermissionCollector)
         {
-            return new WrapperCollector(delegatingCollectors);
+            PermissionCollector previous = (PermissionCollector) delegatingCollectors.get(last);
+            PermissionCollector fused = previous.and((PermissionCollector) delegatingCollector);
+            if (fused != null)
+            {
+                delegatingCollectors.set(last, fused);
+                return;
+            }
         }
+        delegatingCollectors.add(delegatingCollector);
     }
 
     private static class WrapperCollector extends DelegatingCollector
@@ -190,6 +212,58 @@ public class PostFilterQuery extends Query implements PostFilter
         }
     }
 
+    /*
+    * Measures the time spent by the post filter collectors, the downstream collectors excluded: as in the
+    * WrapperCollector, the filters end in a sink and only the documents reaching it are passed downstream.
+    */
+    private static class TimedCollector extends DelegatingCollector
+    {
+        private final DelegatingCollector innerDelegate;
+        private final CollectorSink sink = new CollectorSink();
+        private final QueryPhaseTimings timings;
+        private long elapsedNanos;
+
+        TimedCollector(DelegatingCollector innerDelegate, QueryPhaseTimings timings)
+        {
+            this.innerDelegate = innerDelegate;
+            this.timings = timings;
+            innerDelegate.setLastDelegate(sink);
+        }
+
+        public void setScorer(Scorer scorer) throws IOException
+        {
+            super.setScorer(scorer);
+            innerDelegate.setScorer(scorer);
+        }
+
+        protected void doSetNextReader(LeafReaderContext context) throws IOException
+        {
+            super.doSetNextReader(context);
+            long start = System.nanoTime();
+            innerDelegate.getLeafCollector(context);
+            elapsedNanos += System.nanoTime() - start;
+        }
+
+        public void collect(int doc) throws IOException
+        {
+            long start = System.nanoTime();
+            innerDelegate.collect(doc);
+            elapsedNanos += System.nanoTime() - start;
+            if(sink.doc == doc) {
+                sink.doc = -1;
+                super.collect(doc);
+            }
+        }
+
+        public void finish() throws IOException
+        {
+            long start = System.nanoTime();
+            innerDelegate.finish();
+            timings.add(Phase.POST_FILTER, elapsedNanos + System.nanoTime() - start);
+            super.finish();
+        }
+    }
+
     private static class CollectorSink extends DelegatingCollector
     {
         public int doc = -1;
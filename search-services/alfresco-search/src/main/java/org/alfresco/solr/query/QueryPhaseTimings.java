@@ -0,0 +1,223 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.query;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Timer;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.metrics.SolrMetricManager;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrRequestInfo;
+
+/**
+ * Collects, for a single request, the time spent in the Alfresco specific query phases.
+ *
+ * The timings are only collected when they have been enabled for the request (see {@link #enable(SolrQueryRequest)}),
+ * otherwise {@link #of(SolrQueryRequest)} and {@link #current()} return a disabled instance which doesn't measure
+ * anything, so instrumented code doesn't need any check:
+ *
+ * <pre>
+ * try (QueryPhaseTimings.Split split = QueryPhaseTimings.current().start(Phase.ACL_SET))
+ * {
+ *     ...
+ * }
+ * </pre>
+ *
+ * Phases can be nested: the time of each phase includes the time of the phases nested in it.
+ */
+public class QueryPhaseTimings
+{
+    /** The Alfresco query phases. */
+    public enum Phase
+    {
+        /** Parsing of the JSON request body. */
+        JSON_PARSING("jsonParsing"),
+        /** Query locale detection. */
+        LOCALE_DETECTION("localeDetection"),
+        /** Translation of the AFTS/CMIS query to a Lucene query. */
+        QUERY_PARSING("queryParsing"),
+        /** Resolution of the ACL ids matching the authorities. */
+        ACL_SET("aclSet"),
+        /** Filtering of the matching documents by the post filter (permission) collectors. */
+        POST_FILTER("postFilter"),
+        /**
+         * Mapping of the Solr fields to the Alfresco properties in the returned documents.
+         * It happens while the response is written, so it is only reported by the phase timers.
+         */
+        FIELD_MAPPING("fieldMapping");
+
+        private final String key;
+
+        Phase(String key)
+        {
+            this.key = key;
+        }
+
+        public String getKey()
+        {
+            return key;
+        }
+    }
+
+    /** A running measurement, which is added to its phase when closed. */
+    @FunctionalInterface
+    public interface Split extends AutoCloseable
+    {
+        @Override
+        void close();
+    }
+
+    private static final String CONTEXT_KEY = QueryPhaseTimings.class.getName();
+    private static final Split NOOP_SPLIT = () -> {};
+    private static final QueryPhaseTimings DISABLED = new QueryPhaseTimings()
+    {
+        @Override
+        public Split start(Phase phase)
+        {
+            return NOOP_SPLIT;
+        }
+
+        @Override
+        public boolean isEnabled()
+        {
+            return false;
+        }
+    };
+
+    private final long[] elapsedNanos = new long[Phase.values().length];
+    private final int[] counts = new int[Phase.values().length];
+
+    QueryPhaseTimings()
+    {
+    }
+
+    /**
+     * Enables the collection of the phase timings for the given request.
+     *
+     * @param req the request.
+     * @return the timings of the request.
+     */
+    public static QueryPhaseTimings enable(SolrQueryRequest req)
+    {
+        return (QueryPhaseTimings) req.getContext().computeIfAbsent(CONTEXT_KEY, key -> new QueryPhaseTimings());
+    }
+
+    /**
+     * @param req the request, can be null.
+     * @return the timings of the request, or a disabled instance if they haven't been enabled.
+     */
+    public static QueryPhaseTimings of(SolrQueryRequest req)
+    {
+        Object timings = req == null ? null : req.getContext().get(CONTEXT_KEY);
+        return timings == null ? DISABLED : (QueryPhaseTimings) timings;
+    }
+
+    /**
+     * @return the timings of the request executed by the current thread, or a disabled instance if there's no
+     *         request or the timings haven't been enabled.
+     */
+    public static QueryPhaseTimings current()
+    {
+        SolrRequestInfo info = SolrRequestInfo.getRequestInfo();
+        return info == null ? DISABLED : of(info.getReq());
+    }
+
+    /**
+     * Creates, in the given registry, one timer per phase.
+     *
+     * @return the timers, which can be passed to {@link #updateTimers(Map)}.
+     */
+    public static Map<Phase, Timer> registerTimers(SolrMetricManager manager, String registry, String... path)
+    {
+        Map<Phase, Timer> timers = new EnumMap<>(Phase.class);
+        for (Phase phase : Phase.values())
+        {
+            timers.put(phase, manager.timer(registry, phase.getKey(), path));
+        }
+        return timers;
+    }
+
+    public boolean isEnabled()
+    {
+        return true;
+    }
+
+    /**
+     * Starts measuring the given phase.
+     *
+     * @return the split which must be closed at the end of the phase.
+     */
+    public Split start(Phase phase)
+    {
+        long start = System.nanoTime();
+        return () -> add(phase, System.nanoTime() - start);
+    }
+
+    synchronized void add(Phase phase, long nanos)
+    {
+        elapsedNanos[phase.ordinal()] += nanos;
+        counts[phase.ordinal()]++;
+    }
+
+    /**
+     * Records, in the given timers, the total time of each phase executed by the request.
+     */
+    public synchronized void updateTimers(Map<Phase, Timer> timers)
+    {
+        for (Phase phase : Phase.values())
+        {
+            Timer timer = timers.get(phase);
+            if (counts[phase.ordinal()] > 0 && timer != null)
+            {
+                timer.update(elapsedNanos[phase.ordinal()], TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * @return the time (in milliseconds) and the number of executions of each phase executed by the request.
+     */
+    public synchronized NamedList<Object> asNamedList()
+    {
+        NamedList<Object> timings = new SimpleOrderedMap<>();
+        for (Phase phase : Phase.values())
+        {
+            if (counts[phase.ordinal()] > 0)
+            {
+                NamedList<Object> phaseTimings = new SimpleOrderedMap<>();
+                phaseTimings.add("time", elapsedNanos[phase.ordinal()] / 1_000_000d);
+                phaseTimings.add("count", counts[phase.ordinal()]);
+                timings.add(phase.getKey(), phaseTimings);
+            }
+        }
+        return timings;
+    }
+}
@@ -37,21 +37,19 @@ import org.alfresco.service.cmr.security.AuthorityType;
 import org.alfresco.service.cmr.security.PermissionService;
 import org.alfresco.solr.data.GlobalReaders;
 import org.apache.lucene.index.LeafReaderContext;
-import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.BooleanQuery.Builder;
-import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.IndexSearcher;
-import org.apache.lucene.search.LeafCollector;
 import org.apache.lucene.search.MatchAllDocsQuery;
-import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.util.FixedBitSet;
 import org.apache.solr.search.DelegatingCollector;
+import org.apache.solr.search.DocIterator;
+import org.apache.solr.search.DocSet;
 import org.apache.solr.search.PostFilter;
 import org.apache.solr.search.SolrIndexSearcher;
 
@@ -99,7 +97,15 @@ public class SolrAuthoritySetQuery extends AbstractAuthoritySetQuery implements
         }
 
         BitsFilter readFilter  = getACLFilter(auths, QueryConstants.FIELD_READER, solrIndexSearcher);
-        BitsFilter ownerFilter = getOwnerFilter(auths, solrIndexSearcher);
+        DocSet ownedDocs = getOwnedDocs(auths, solrIndexSearcher);
+
+        if (ownedDocs == null)
+        {
+            // Nothing owned: the owner rules can't add anything to the readable documents
+            return new ConstantScoreQuery(readFilter).createWeight(searcher, needsScores);
+        }
+
+        BitsFilter ownerFilter = getOwnerFilter(ownedDocs, solrIndexSearcher);
 
         if (globalReaders.contains(PermissionService.OWNER_AUTHORITY))
         {
@@ -127,7 +133,7 @@ public class SolrAuthoritySetQuery extends AbstractAuthoritySetQuery implements
     *  collector. This filtering process is where the ACL logic is applied.
     *
     *  The getFilterCollector method sets up the data structures needed to apply the acl rules.
-    *  These data structures are then passed to the access control collectors.
+    *  These data structures are then passed to the PermissionCollector.
     *
     */
 
@@ -169,20 +175,21 @@ public class SolrAuthoritySetQuery extends AbstractAuthoritySetQuery implements
             HybridBitSet aclSet = getACLSet(auths, QueryConstants.FIELD_READER, solrIndexSearcher);
 
             /*
-            * Collect the documents that the user owns.
+            * Collect the documents that the user owns (from the filter cache).
+            * If the user doesn't own anything the owner rules are skipped altogether.
             */
 
-            BitsFilter ownerFilter = getOwnerFilter(auths, solrIndexSearcher);
+            DocSet ownedDocs = getOwnedDocs(auths, solrIndexSearcher);
 
-            if (globalReaders.contains(PermissionService.OWNER_AUTHORITY))
+            if (ownedDocs == null || globalReaders.contains(PermissionService.OWNER_AUTHORITY))
             {
-                return new AccessControlCollector(aclSet, ownerFilter);
+                return PermissionCollector.readers(DocValuesCache.of(solrIndexSearcher), aclSet, ownedDocs, null);
             }
             else
             {
                 String[] ownerAuth = {PermissionService.OWNER_AUTHORITY};
                 HybridBitSet ownerAclSet = getACLSet(ownerAuth, QueryConstants.FIELD_READER, solrIndexSearcher);
-                return new AccessControlCollectorWithoutOwnerRead(aclSet, ownerAclSet, ownerFilter);
+                return PermissionCollector.readers(DocValuesCache.of(solrIndexSearcher), aclSet, ownedDocs, ownerAclSet);
             }
         }
         catch(Exception e)
@@ -229,144 +236,54 @@ public class SolrAuthoritySetQuery extends AbstractAuthoritySetQuery implements
         return stringBuilder.toString();
     }
 
-    private BitsFilter getOwnerFilter(String[] auths, SolrIndexSearcher searcher) throws IOException
+    /*
+    *  Returns the documents owned by the user authorities, null if there aren't any.
+    *  The query is executed through the filter cache, which keeps a sparse representation when few documents match.
+    */
+
+    DocSet getOwnedDocs(String[] auths, SolrIndexSearcher searcher) throws IOException
     {
         Builder builder = new BooleanQuery.Builder();
+        boolean hasUsers = false;
         for(String current : auths)
         {
             if (AuthorityType.getAuthorityType(current) == AuthorityType.USER)
             {
             	builder.add(new TermQuery(new Term(QueryConstants.FIELD_OWNER, current)), BooleanClause.Occur.SHOULD);
+            	hasUsers = true;
             }
         }
 
-        BitsFilterCollector collector = new BitsFilterCollector(searcher.getTopReaderContext().leaves().size());
-        searcher.search(builder.build(), collector);
-        return collector.getBitsFilter();
-    }
-
-    class BitsFilterCollector implements Collector, LeafCollector
-    {
-        private List<FixedBitSet> sets;
-        private FixedBitSet set;
-
-        public BitsFilterCollector(int leafCount)
-        {
-            this.sets = new ArrayList<FixedBitSet>(leafCount);
-        }
-
-        public BitsFilter getBitsFilter() {
-            return new BitsFilter(sets);
-        }
-
-        public boolean acceptsDocsOutOfOrder() {
-            return false;
-        }
-
-        public void setScorer(Scorer scorer) {
-
-        }
-
-        public void collect(int doc) {
-            set.set(doc);
-        }
-
-		@Override
-		public LeafCollector getLeafCollector(LeafReaderContext context)
-				throws IOException {
-			   set = new FixedBitSet(context.reader().maxDoc());
-	            sets.add(set);
-			return this;
-		}
-
-		@Override
-		public boolean needsScores() {
-			// TODO Auto-generated method stub
-			return false;
-		}
-    }
-
-
-    /*
-    *  The AccessControlCollector applies that ACL logic given aclIds and ownerFilter
-    */
-
-    class AccessControlCollector extends DelegatingCollector
-    {
-        private HybridBitSet aclIds;
-        private NumericDocValues fieldValues;
-        private BitsFilter ownerFilter;
-        private FixedBitSet ownerDocs;
-
-        public AccessControlCollector(HybridBitSet aclIds, BitsFilter ownerFilter)
-        {
-            this.aclIds=aclIds;
-            this.ownerFilter = ownerFilter;
-        }
-
-        public boolean acceptsDocsOutOfOrder()
-        {
-            return false;
-        }
-
-        public void doSetNextReader(LeafReaderContext context) throws IOException
+        if (!hasUsers)
         {
-        	super.doSetNextReader(context);
-            this.fieldValues = DocValuesCache.getNumericDocValues(QueryConstants.FIELD_ACLID, context.reader());
-            this.ownerDocs = ownerFilter.getBitSets().get(context.ord);
+            return null;
         }
 
-        /*
-        * The collect method is applied to each document that matches the
-        * query. The document's aclId must be in the set of aclId's passed into the collector,
-        * or the documents id must be in the ownerDocs.
-        */
-
-        public void collect(int doc) throws IOException
-        {
-            long aclId = this.fieldValues.get(doc);
-
-            if(aclIds.get(aclId) || ownerDocs.get(doc))
-            {
-                super.collect(doc);
-            }
-        }
+        DocSet ownedDocs = searcher.getDocSet(builder.build());
+        return ownedDocs.size() == 0 ? null : ownedDocs;
     }
 
-    class AccessControlCollectorWithoutOwnerRead extends DelegatingCollector
+    BitsFilter getOwnerFilter(DocSet ownedDocs, SolrIndexSearcher searcher)
     {
-        private HybridBitSet aclIds;
-        private HybridBitSet ownerAclIds;
-        private NumericDocValues fieldValues;
-        private BitsFilter ownerFilter;
-        private FixedBitSet ownerDocs;
-        public AccessControlCollectorWithoutOwnerRead(HybridBitSet aclIds, HybridBitSet ownerAclIds, BitsFilter ownerFilter)
-        {
-            this.aclIds=aclIds;
-            this.ownerAclIds = ownerAclIds;
-            this.ownerFilter = ownerFilter;
-        }
-
-        public boolean acceptsDocsOutOfOrder()
-        {
-            return false;
-        }
-
-        public void doSetNextReader(LeafReaderContext context) throws IOException
+        List<LeafReaderContext> leaves = searcher.getTopReaderContext().leaves();
+        List<FixedBitSet> sets = new ArrayList<FixedBitSet>(leaves.size());
+        for (LeafReaderContext context : leaves)
         {
-        	super.doSetNextReader(context);
-            this.fieldValues = DocValuesCache.getNumericDocValues(QueryConstants.FIELD_ACLID, context.reader());
-            this.ownerDocs = ownerFilter.getBitSets().get(context.ord);
+            sets.add(new FixedBitSet(context.reader().maxDoc()));
         }
 
-        public void collect(int doc) throws IOException
+        int ord = 0;
+        LeafReaderContext context = leaves.get(0);
+        for (DocIterator iterator = ownedDocs.iterator(); iterator.hasNext(); )
         {
-            long aclId = this.fieldValues.get(doc);
-            if(aclIds.get(aclId) || (ownerDocs.get(doc) && ownerAclIds.get(aclId)))
+            int doc = iterator.nextDoc();
+            while (doc >= context.docBase + context.reader().maxDoc())
             {
-                super.collect(doc);
+                context = leaves.get(++ord);
             }
+            sets.get(ord).set(doc - context.docBase);
         }
+        return new BitsFilter(sets);
     }
 
 }
@@ -29,8 +29,6 @@ package org.alfresco.solr.query;
 import java.io.IOException;
 
 import org.alfresco.repo.search.adaptor.lucene.QueryConstants;
-import org.apache.lucene.index.LeafReaderContext;
-import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Weight;
@@ -103,7 +101,7 @@ public class SolrDenySetQuery extends AbstractAuthoritySetQuery implements PostF
             }
             else
             {
-                return new AccessControlCollector(denySet);
+                return PermissionCollector.denied(DocValuesCache.of((SolrIndexSearcher) searcher), denySet);
             }
         }
         catch(Exception e)
@@ -120,37 +118,4 @@ public class SolrDenySetQuery extends AbstractAuthoritySetQuery implements PostF
         stringBuilder.append(authorities);
         return stringBuilder.toString();
     }
-
-    class AccessControlCollector extends DelegatingCollector
-    {
-        private HybridBitSet aclIds;
-        private NumericDocValues fieldValues;
-
-        public AccessControlCollector(HybridBitSet aclIds)
-        {
-            this.aclIds=aclIds;
-        }
-
-        public boolean acceptsDocsOutOfOrder() 
-        {
-            return false;
-        }
-
-        public void doSetNextReader(LeafReaderContext context) throws IOException 
-        {
-        	super.doSetNextReader(context);
-            this.fieldValues = DocValuesCache.getNumericDocValues(QueryConstants.FIELD_ACLID, context.reader());
-        }
-
-        public void collect(int doc) throws IOException{
-        	
-        		long aclId = this.fieldValues.get(doc);
-
-        		if(!aclIds.get(aclId))
-        		{
-        			super.collect(doc);
-        		}
-        	
-        }
-    }
 }
@@ -88,10 +88,11 @@ public class SolrDenySetScorer2 extends AbstractSolrCachingScorer
          
             if(aclsFound.size() > 0)
             {
+                DocValuesCache docValuesCache = DocValuesCache.of(searcher);
                 for(LeafReaderContext readerContext : searcher.getSlowAtomicReader().leaves() )
                 {
                     int maxDoc = readerContext.reader().maxDoc();
-                    NumericDocValues fieldValues = DocValuesCache.getNumericDocValues(QueryConstants.FIELD_ACLID, readerContext.reader());
+                    NumericDocValues fieldValues = docValuesCache.getNumericDocValues(QueryConstants.FIELD_ACLID, readerContext.reader());
                     if(fieldValues != null)
                     {
                         for(int i = 0; i < maxDoc; i++)
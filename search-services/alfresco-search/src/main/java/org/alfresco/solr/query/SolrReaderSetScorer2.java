@@ -27,24 +27,17 @@
 package org.alfresco.solr.query;
 
 import java.io.IOException;
-import java.util.HashSet;
 
 import org.alfresco.repo.search.adaptor.lucene.QueryConstants;
 import org.alfresco.solr.cache.CacheConstants;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.NumericDocValues;
-import org.apache.lucene.index.Term;
-import org.apache.lucene.search.BooleanClause.Occur;
-import org.apache.lucene.search.BooleanQuery;
-import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.util.FixedBitSet;
 import org.apache.solr.search.BitDocSet;
-import org.apache.solr.search.DocIterator;
 import org.apache.solr.search.DocSet;
 import org.apache.solr.search.SolrIndexSearcher;
-import org.apache.solr.search.WrappedQuery;
 
 public class SolrReaderSetScorer2 extends AbstractSolrCachingScorer
 {
@@ -65,40 +58,23 @@ public class SolrReaderSetScorer2 extends AbstractSolrCachingScorer
 
             readableDocSet = new BitDocSet(new FixedBitSet(searcher.maxDoc()));
 
-            BooleanQuery.Builder bQuery = new BooleanQuery.Builder();
-            for(String current : auths)
-            {
-                bQuery.add(new TermQuery(new Term(QueryConstants.FIELD_READER, current)), Occur.SHOULD);
-            }
-            WrappedQuery wrapped = new WrappedQuery(bQuery.build());
-            wrapped.setCache(false);
+            // The ACL ids are shared with the authority and deny set queries (see AbstractAuthoritySetQuery)
+            HybridBitSet aclsFound = AbstractAuthoritySetQuery.getACLSet(auths, QueryConstants.FIELD_READER, searcher);
+            DocSet aclDocs = searcher.getDocSet(AbstractAuthoritySetQuery.getACLQuery(auths, QueryConstants.FIELD_READER));
 
-            DocSet aclDocs = searcher.getDocSet(wrapped);
-            
-            HashSet<Long> aclsFound = new HashSet<Long>(aclDocs.size());
-            NumericDocValues aclDocValues = searcher.getSlowAtomicReader().getNumericDocValues(QueryConstants.FIELD_ACLID);
-           
-            for (DocIterator it = aclDocs.iterator(); it.hasNext(); /**/)
-            {
-                int docID = it.nextDoc();
-                // Obtain the ACL ID for this ACL doc.
-                long aclID = aclDocValues.get(docID);
-                aclsFound.add(getLong(aclID));
-            }
-         
-            if(aclsFound.size() > 0)
+            if(!(aclsFound instanceof EmptyHybridBitSet))
             {
+                DocValuesCache docValuesCache = DocValuesCache.of(searcher);
                 for(LeafReaderContext readerContext : searcher.getSlowAtomicReader().leaves() )
                 {
                     int maxDoc = readerContext.reader().maxDoc();
-                    NumericDocValues fieldValues = DocValuesCache.getNumericDocValues(QueryConstants.FIELD_ACLID, readerContext.reader());
+                    NumericDocValues fieldValues = docValuesCache.getNumericDocValues(QueryConstants.FIELD_ACLID, readerContext.reader());
                     if(fieldValues != null)
                     {
                         for(int i = 0; i < maxDoc ; i++)
                         {
                             long aclID = fieldValues.get(i);
-                            Long key = getLong(aclID);
-                            if(aclsFound.contains(key))
+                            if(aclsFound.get(aclID))
                             {
                                 readableDocSet.add(readerContext.docBase + i);
                             }
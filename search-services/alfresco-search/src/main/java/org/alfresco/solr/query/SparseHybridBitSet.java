@@ -0,0 +1,90 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.query;
+
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+
+import com.carrotsearch.hppc.LongHashSet;
+
+/**
+ * A {@link HybridBitSet} backed by a primitive open addressing hash set of longs.
+ *
+ * This is the representation used for a small number of ids spread over a large range, where a bitmap would
+ * waste memory. Unlike a {@link java.util.HashSet} of {@link Long} there is no boxing on lookups.
+ */
+public class SparseHybridBitSet extends HybridBitSet implements Accountable
+{
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(SparseHybridBitSet.class)
+            + RamUsageEstimator.shallowSizeOfInstance(LongHashSet.class);
+
+    private static final int DEFAULT_EXPECTED_SIZE = 16;
+
+    /* Lower than the hppc default (0.75): shorter probe sequences, as lookups are on the post filter hot path */
+    private static final double LOAD_FACTOR = 0.5;
+
+    private final LongHashSet set;
+
+    public SparseHybridBitSet()
+    {
+        this(DEFAULT_EXPECTED_SIZE);
+    }
+
+    /**
+     * @param expectedSize the number of ids expected in the set, used to size the table so that it doesn't need to grow.
+     */
+    public SparseHybridBitSet(int expectedSize)
+    {
+        this.set = new LongHashSet(expectedSize, LOAD_FACTOR);
+    }
+
+    @Override
+    public void set(long bit)
+    {
+        set.add(bit);
+    }
+
+    @Override
+    public boolean get(long bit)
+    {
+        return set.contains(bit);
+    }
+
+    /**
+     * @return the number of ids in this set.
+     */
+    public int cardinality()
+    {
+        return set.size();
+    }
+
+    @Override
+    public long ramBytesUsed()
+    {
+        return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(set.keys);
+    }
+}
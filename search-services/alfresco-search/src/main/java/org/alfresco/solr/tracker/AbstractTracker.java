@@ -31,11 +31,21 @@ import static java.util.Optional.ofNullable;
 import static org.alfresco.repo.index.shard.ShardMethodEnum.DB_ID;
 import static org.alfresco.solr.tracker.DocRouterFactory.SHARD_KEY_KEY;
 
+import java.io.IOException;
 import java.net.ConnectException;
 import java.net.SocketTimeoutException;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Timer;
 
 import org.alfresco.opencmis.dictionary.CMISStrictDictionaryService;
 import org.alfresco.repo.dictionary.NamespaceDAO;
@@ -52,6 +62,8 @@ import org.alfresco.solr.NodeReport;
 import org.alfresco.solr.TrackerState;
 import org.alfresco.solr.client.SOLRAPIClient;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.solr.metrics.SolrMetricManager;
+import org.apache.solr.metrics.SolrMetricProducer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -60,7 +72,7 @@ import org.slf4j.LoggerFactory;
  * 
  * @author Matt Ward
  */
-public abstract class AbstractTracker implements Tracker
+public abstract class AbstractTracker implements Tracker, SolrMetricProducer
 {
     static final long TIME_STEP_32_DAYS_IN_MS = 1000 * 60 * 60 * 24 * 32L;
     static final long TIME_STEP_1_HR_IN_MS = 60 * 60 * 1000L;
@@ -91,6 +103,18 @@ public abstract class AbstractTracker implements Tracker
     protected final Type type;
     protected final String trackerId;
 
+    /** The duration of the tracking cycles: a detached timer until the metrics are initialised. */
+    private volatile Timer cycleTimes = new Timer();
+
+    /** True if the current (or last) tracking cycle found some work: see {@link #hasFoundWork()}. */
+    private volatile boolean foundWork;
+
+    /** True if the current (or last) tracking cycle left some work behind: see {@link #hasRemainingWork()}. */
+    private volatile boolean remainingWork;
+
+    /** The time (in ms) the current (or last) tracking cycle started, after its time window has been computed. */
+    private volatile long cycleStartTime;
+
     DocRouter docRouter;
 
     /**
@@ -206,6 +230,8 @@ public abstract class AbstractTracker implements Tracker
         if(getRunLock().availablePermits() == 0)
         {
             LOGGER.info("[{} / {} / {}] Tracker already registered.", coreName, trackerId, iterationId);
+            foundWork = false;
+            remainingWork = false;
             return;
         }
 
@@ -237,6 +263,10 @@ public abstract class AbstractTracker implements Tracker
 
             infoSrv.registerTrackerThread();
 
+            long cycleStart = System.nanoTime();
+            cycleStartTime = System.currentTimeMillis();
+            foundWork = false;
+            remainingWork = false;
             try
             {
                 doTrack(iterationId);
@@ -259,6 +289,7 @@ public abstract class AbstractTracker implements Tracker
                     LOGGER.error("[{} / {} / {}] Tracking failure. See the stacktrace below for further details.", coreName, trackerId, iterationId, t);
                 }
             }
+            cycleTimes.update(System.nanoTime() - cycleStart, TimeUnit.NANOSECONDS);
         }
         catch (Exception exception)
         {
@@ -297,7 +328,61 @@ public abstract class AbstractTracker implements Tracker
     {
         return this.rollback;
     }
+
+    @Override
+    public boolean hasRemainingWork()
+    {
+        return remainingWork && !rollback && !shutdown;
+    }
+
+    @Override
+    public boolean hasFoundWork()
+    {
+        return foundWork;
+    }
+
+    /**
+     * Subclasses call this method at the end of the tracking cycle, with whether it indexed something: the
+     * repository is active, so the adaptive scheduling doesn't back off.
+     *
+     * @param foundWork true if the current cycle found some work.
+     */
+    protected void setFoundWork(boolean foundWork)
+    {
+        this.foundWork = foundWork;
+    }
+
+    /**
+     * Subclasses call this method when the tracking cycle stopped at one of its limits with work left behind:
+     * the adaptive scheduling re-runs the tracker without waiting for its next scheduled time.
+     *
+     * @param remainingWork true if the current cycle left some work behind.
+     */
+    protected void setRemainingWork(boolean remainingWork)
+    {
+        this.remainingWork = remainingWork;
+    }
     
+    /**
+     * Subclasses call this method at the end of the tracking cycle, with whether it stopped at its time window, i.e.
+     * at a change committed after {@link TrackerState#getTimeToStopIndexing()} (alfresco.lag before the start of the
+     * cycle). The repository is active, so the adaptive scheduling doesn't back off. However, the change is recent
+     * rather than a backlog: the tracker is only re-run immediately if the cycle lasted longer than the lag, otherwise
+     * the next cycle would stop at the same change.
+     *
+     * @param stopped true if the current cycle stopped at its time window.
+     * @param state the tracker state of the cycle.
+     */
+    protected void setStoppedAtTimeWindow(boolean stopped, TrackerState state)
+    {
+        if (stopped && state != null)
+        {
+            long lag = cycleStartTime - state.getTimeToStopIndexing();
+            setFoundWork(true);
+            setRemainingWork(System.currentTimeMillis() - cycleStartTime > lag);
+        }
+    }
+
     public Throwable getRollbackCausedBy()
     {
         return this.rollbackCausedBy;
@@ -376,6 +461,36 @@ public abstract class AbstractTracker implements Tracker
      */
     public abstract Semaphore getRunLock();
 
+    /**
+     * Registers the metrics of this tracker (ALFRESCO.tracker.&lt;scope&gt;.*) in the given registry.
+     * Subclasses which expose additional metrics must call this method.
+     */
+    @Override
+    public void initializeMetrics(SolrMetricManager manager, String registry, String scope)
+    {
+        cycleTimes = manager.timer(registry, "cycleTimes", "ALFRESCO", "tracker", scope);
+    }
+
+    /**
+     * Registers a tracker gauge, replacing the one registered by a previous instance (e.g. before a core reload).
+     */
+    protected void registerGauge(SolrMetricManager manager, String registry, String scope, String name, Gauge<?> gauge)
+    {
+        manager.registerGauge(registry, gauge, true, name, "ALFRESCO", "tracker", scope);
+    }
+
+    /**
+     * Returns how far, in milliseconds, the index is behind the repository according to the given commit times
+     * of the current tracker state (0 if the state hasn't been initialised yet).
+     */
+    long lag(ToLongFunction<TrackerState> lastCommitTimeOnServer, ToLongFunction<TrackerState> lastIndexedCommitTime)
+    {
+        TrackerState current = state;
+        return current == null
+                ? 0
+                : Math.max(0, lastCommitTimeOnServer.applyAsLong(current) - lastIndexedCommitTime.applyAsLong(current));
+    }
+
     public Properties getProps()
     {
         return props;
@@ -449,6 +564,98 @@ public abstract class AbstractTracker implements Tracker
         return nodeReport;
     }
 
+    /**
+     * Runs an index check on consecutive slices of the [firstId, lastId] id range, concurrently, with at most
+     * "maxParallelism" slices in flight: each slice is fetched from the repository and compared with the index as
+     * soon as it is available, so nothing is accumulated for the whole range.
+     *
+     * @param firstId the first id to check.
+     * @param lastId the last id to check.
+     * @param sliceSize the number of ids in a slice.
+     * @param executor the executor running the slice checks.
+     * @param maxParallelism the max number of slices checked at the same time.
+     * @param check the check executed on each [fromId, toId] slice.
+     */
+    void checkIndexInSlices(long firstId, long lastId, int sliceSize, ExecutorService executor, int maxParallelism,
+                            SliceCheck check) throws IOException
+    {
+        if (lastId < firstId)
+        {
+            return;
+        }
+
+        long slices = (lastId - firstId) / sliceSize + 1;
+        CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+        long submitted = 0;
+        long completed = 0;
+        try
+        {
+            for (long fromId = firstId; fromId <= lastId; fromId += sliceSize)
+            {
+                if (submitted - completed >= maxParallelism)
+                {
+                    completionService.take().get();
+                    logCheckIndexProgress(++completed, slices);
+                }
+
+                long sliceFromId = fromId;
+                long sliceToId = Math.min(lastId, fromId + sliceSize - 1);
+                completionService.submit(() -> {
+                    check.check(sliceFromId, sliceToId);
+                    return null;
+                });
+                submitted++;
+            }
+
+            while (completed < submitted)
+            {
+                completionService.take().get();
+                logCheckIndexProgress(++completed, slices);
+            }
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Index check interrupted", exception);
+        }
+        catch (ExecutionException exception)
+        {
+            Throwable cause = exception.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            else if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    static boolean isInTimeRange(long commitTime, Long fromTime, Long toTime)
+    {
+        return (fromTime == null || commitTime >= fromTime) && (toTime == null || commitTime <= toTime);
+    }
+
+    private void logCheckIndexProgress(long completed, long slices)
+    {
+        if (completed == slices || completed * 10 / slices != (completed - 1) * 10 / slices)
+        {
+            LOGGER.info("{}-[CORE {}] {} index check: {} of {} slices checked",
+                    Thread.currentThread().getId(), coreName, type, completed, slices);
+        }
+    }
+
+    /**
+     * The index check executed on each slice by {@link #checkIndexInSlices(long, long, int, ExecutorService, int, SliceCheck)}.
+     */
+    @FunctionalInterface
+    interface SliceCheck
+    {
+        void check(long fromId, long toId) throws Exception;
+    }
+
     /**
      * Returns the {@link DocRouter} instance in use on this node.
      *
@@ -57,6 +57,7 @@ import org.alfresco.solr.client.AclChangeSet;
 import org.alfresco.solr.client.AclChangeSets;
 import org.alfresco.solr.client.AclReaders;
 import org.alfresco.solr.client.SOLRAPIClient;
+import org.apache.solr.metrics.SolrMetricManager;
 import org.json.JSONException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -97,6 +98,9 @@ public class AclTracker extends ActivatableTracker
     private ConcurrentLinkedQueue<Long> aclsToPurge = new ConcurrentLinkedQueue<>();
     private DocRouter docRouter;
 
+    /* The feed shared with the other cores tracking the same repository, null when the ACLs are fetched directly */
+    private volatile SharedAclFeed aclFeed;
+
     private ForkJoinPool forkJoinPool;
 
     // Share run and write locks across all AclTracker threads
@@ -146,6 +150,30 @@ public class AclTracker extends ActivatableTracker
         WRITE_LOCK_BY_CORE.put(coreName, new Semaphore(1, true));
     }
 
+    /**
+     * Fetches the ACLs and their readers through the given shared feed (if not null) instead of directly.
+     */
+    public void setAclFeed(SharedAclFeed aclFeed)
+    {
+        if (aclFeed != null)
+        {
+            aclFeed.subscribe();
+        }
+        this.aclFeed = aclFeed;
+    }
+
+    @Override
+    public void shutdown()
+    {
+        super.shutdown();
+        SharedAclFeed feed = aclFeed;
+        if (feed != null)
+        {
+            aclFeed = null;
+            feed.unsubscribe();
+        }
+    }
+
     @Override
     protected void doTrack(String iterationId) throws Throwable
     {
@@ -173,6 +201,24 @@ public class AclTracker extends ActivatableTracker
                 aclsToPurge.size() > 0;
     }
 
+    /**
+     * Registers, in addition to the common tracker metrics, the size of the maintenance queues and the lag
+     * (in milliseconds) between the last ACL change set seen on the repository and the last indexed one.
+     */
+    @Override
+    public void initializeMetrics(SolrMetricManager manager, String registry, String scope)
+    {
+        super.initializeMetrics(manager, registry, scope);
+        registerGauge(manager, registry, scope, "aclChangeSetsToReindex", aclChangeSetsToReindex::size);
+        registerGauge(manager, registry, scope, "aclChangeSetsToIndex", aclChangeSetsToIndex::size);
+        registerGauge(manager, registry, scope, "aclChangeSetsToPurge", aclChangeSetsToPurge::size);
+        registerGauge(manager, registry, scope, "aclsToReindex", aclsToReindex::size);
+        registerGauge(manager, registry, scope, "aclsToIndex", aclsToIndex::size);
+        registerGauge(manager, registry, scope, "aclsToPurge", aclsToPurge::size);
+        registerGauge(manager, registry, scope, "lag",
+                () -> lag(TrackerState::getLastChangeSetCommitTimeOnServer, TrackerState::getLastIndexedChangeSetCommitTime));
+    }
+
     protected void indexAclChangeSets() throws AuthenticationException, IOException, JSONException
     {
         boolean requiresCommit = false;
@@ -571,11 +617,41 @@ public class AclTracker extends ActivatableTracker
 
     public IndexHealthReport checkIndex(Long toAclTx, Long fromTime, Long toTime)
                 throws AuthenticationException, IOException, JSONException
-    {   
-        // DB ACL TX Count
-        long firstChangeSetCommitTimex = 0;
+    {
         AclChangeSets firstChangeSets = client.getAclChangeSets(null, 0L,
                 null, INITIAL_MAX_ACL_CHANGE_SET_ID, 1);
+        Long maxChangeSetIdInRepo = firstChangeSets.getMaxChangeSetId();
+        if (maxChangeSetIdInRepo == null)
+        {
+            return checkIndexSequentially(toAclTx, fromTime, toTime, firstChangeSets);
+        }
+
+        // A slice is never larger than a page of change sets, so it is fetched with a single call
+        long lastAclTxId = toAclTx == null ? maxChangeSetIdInRepo : Math.min(toAclTx, maxChangeSetIdInRepo);
+        IndexHealthReport report = infoSrv.newAclTransactionsReport();
+        checkIndexInSlices(0, lastAclTxId, maxNumberOfAclChangeSets, forkJoinPool, aclTrackerParallelism,
+                (fromAclTxId, toAclTxId) -> {
+                    List<Long> aclTxIdsInDb =
+                            client.getAclChangeSets(fromTime, fromAclTxId, toTime == null ? null : toTime + 1, toAclTxId + 1, maxNumberOfAclChangeSets)
+                                    .getAclChangeSets()
+                                    .stream()
+                                    .filter(changeSet -> isInTimeRange(changeSet.getCommitTimeMs(), fromTime, toTime))
+                                    .map(AclChangeSet::getId)
+                                    .collect(Collectors.toList());
+                    infoSrv.reportAclTransactionsInIndex(report, fromAclTxId, toAclTxId, fromTime, toTime, aclTxIdsInDb);
+                });
+        return report;
+    }
+
+    /**
+     * Index check for repositories which don't return the max change set id: change sets are paged sequentially
+     * and compared with the index once collected.
+     */
+    private IndexHealthReport checkIndexSequentially(Long toAclTx, Long fromTime, Long toTime, AclChangeSets firstChangeSets)
+                throws AuthenticationException, IOException, JSONException
+    {
+        // DB ACL TX Count
+        long firstChangeSetCommitTimex = 0;
         if(firstChangeSets.getAclChangeSets().size() > 0)
         {
             AclChangeSet firstChangeSet = firstChangeSets.getAclChangeSets().get(0);
@@ -696,6 +772,7 @@ public class AclTracker extends ActivatableTracker
         BoundedDeque<AclChangeSet> changeSetsFound = new BoundedDeque<>(ACL_CHANGE_SETS_FOUND_QUEUE_SIZE);
         long totalAclCount = 0;
         int aclCount;
+        boolean beyondTimeToStopIndexing = false;
         
         LOGGER.info("{}-[CORE {}] <init> Tracking ACLs", Thread.currentThread().getId(), coreName);
         
@@ -742,6 +819,7 @@ public class AclTracker extends ActivatableTracker
                         .stream()
                         .anyMatch(changeSet -> changeSet.getCommitTimeMs() > state.getTimeToStopIndexing()))
                 {
+                    beyondTimeToStopIndexing = true;
                     break;
                 }
 
@@ -756,6 +834,7 @@ public class AclTracker extends ActivatableTracker
                 for (List<AclChangeSet> changeSetBatch : changeSetBatches)
                 {
                     aclCount = indexBatchOfChangeSets(changeSetBatch);
+                    totalAclCount += aclCount;
                     // Update last committed transactions
                     setLastChangeSetIdAndCommitTimeInTrackerState(changeSetBatch, state);
                     indexAclChangeSetAfterWorker(changeSetBatch, state);
@@ -778,6 +857,8 @@ public class AclTracker extends ActivatableTracker
         }
         while ((aclChangeSets.getAclChangeSets().size() > 0));
         
+        setFoundWork(totalAclCount > 0);
+        setStoppedAtTimeWindow(beyondTimeToStopIndexing, state);
         LOGGER.info("{}-[CORE {}] <end> Tracked {} ACLs", Thread.currentThread().getId(), coreName, totalAclCount);
         
     }
@@ -858,7 +939,10 @@ public class AclTracker extends ActivatableTracker
                 .filter(set -> set.getAclCount() > 0)
                 .collect(Collectors.toList());
 
-        List<Acl> acls = client.getAcls(nonEmptyChangeSets, null, Integer.MAX_VALUE);
+        SharedAclFeed feed = aclFeed;
+        List<Acl> acls = feed != null
+                ? feed.getAcls(nonEmptyChangeSets)
+                : client.getAcls(nonEmptyChangeSets, null, Integer.MAX_VALUE);
         
         if (LOGGER.isDebugEnabled())
         {
@@ -895,7 +979,8 @@ public class AclTracker extends ActivatableTracker
             List<Acl> filteredAcls = filterAcls(acls);
             if(filteredAcls.size() > 0)
             {
-                List<AclReaders> readers = client.getAclReaders(filteredAcls);
+                SharedAclFeed feed = aclFeed;
+                List<AclReaders> readers = feed != null ? feed.getAclReaders(filteredAcls) : client.getAclReaders(filteredAcls);
                 indexAcl(readers, true);
             }
         }
@@ -0,0 +1,198 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.tracker;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import org.apache.solr.metrics.SolrMetricManager;
+import org.apache.solr.metrics.SolrMetricProducer;
+
+/**
+ * The adaptive scheduling policy of a {@link Tracker}, applied by the {@link TrackerJob} on each tick of the
+ * tracker trigger:
+ *
+ * <ul>
+ *     <li>while the tracker reports remaining work (see {@link Tracker#hasRemainingWork()}) it is re-run immediately,
+ *     without waiting for the next tick, up to {@link #MAX_RERUNS_PER_TICK} times and for one tick interval at
+ *     most: the next tick picks up what is left;</li>
+ *     <li>when a tracking cycle finds nothing (see {@link Tracker#hasFoundWork()}), the next cycles are delayed with
+ *     an exponential backoff: the ticks falling in the backoff period are skipped. The backoff starts from the
+ *     interval between two ticks and doubles on each idle cycle, up to a maximum delay (by default a few tick
+ *     intervals, so a quiet core still picks up new changes within a minute with the default cron).</li>
+ * </ul>
+ *
+ * The content and cascade trackers index what the metadata tracker has indexed: their schedules follow the one
+ * of the metadata tracker of the same core (see {@link #setFollowers(List)}), so they stop backing off as soon as
+ * the metadata tracker finds work.
+ *
+ * A tracker waiting for a rollback is never re-run: the {@link CommitTracker} would undo its additional work. Its
+ * backoff is reset instead, so tracking resumes on the first tick after the rollback.
+ */
+public class AdaptiveTrackerSchedule implements SolrMetricProducer
+{
+    /** The maximum number of immediate re-runs of the tracker on a single tick. */
+    static final int MAX_RERUNS_PER_TICK = 10;
+
+    private final long minBackoff;
+    private final long maxBackoff;
+    private final LongSupplier clock;
+
+    /* The current backoff (0 if the last cycle found some work) and the time before which the ticks are skipped. */
+    private volatile long backoff;
+    private volatile long nextRunTime;
+
+    /* The schedules of the trackers indexing what this tracker finds */
+    private volatile List<AdaptiveTrackerSchedule> followers = Collections.emptyList();
+
+    /* The scheduling decisions: detached counters until the metrics are initialised. */
+    private volatile Counter reruns = new Counter();
+    private volatile Counter skippedRuns = new Counter();
+
+    /**
+     * Builds a new adaptive schedule.
+     *
+     * @param minBackoff the backoff applied after the first idle cycle (i.e. the interval between two ticks), in ms.
+     * @param maxBackoff the maximum backoff, in ms.
+     */
+    AdaptiveTrackerSchedule(long minBackoff, long maxBackoff)
+    {
+        this(minBackoff, maxBackoff, System::currentTimeMillis);
+    }
+
+    /* The clock (in ms) bounds the time spent re-running the tracker on a tick */
+    AdaptiveTrackerSchedule(long minBackoff, long maxBackoff, LongSupplier clock)
+    {
+        this.minBackoff = Math.max(0, minBackoff);
+        this.maxBackoff = Math.max(this.minBackoff, maxBackoff);
+        this.clock = clock;
+    }
+
+    /**
+     * Runs the tracker, unless the given tick falls in the current backoff period, then re-runs it as long as it
+     * reports remaining work, within the limits of a tick.
+     *
+     * @param tracker the scheduled tracker.
+     * @param fireTime the scheduled time of the current tick, in milliseconds.
+     */
+    void run(Tracker tracker, long fireTime)
+    {
+        if (fireTime < nextRunTime)
+        {
+            skippedRuns.inc();
+            return;
+        }
+
+        long start = clock.getAsLong();
+        tracker.track();
+
+        boolean workFound = tracker.hasFoundWork();
+        int tickReruns = 0;
+        while (tracker.hasRemainingWork() && !tracker.getRollback() && !tracker.isAlreadyInShutDownMode()
+                && tickReruns < MAX_RERUNS_PER_TICK && (minBackoff == 0 || clock.getAsLong() - start < minBackoff))
+        {
+            tickReruns++;
+            reruns.inc();
+            tracker.track();
+        }
+
+        if (workFound || tracker.hasRemainingWork() || tracker.getRollback())
+        {
+            resetBackoff();
+        }
+        else
+        {
+            backoff = backoff == 0 ? minBackoff : Math.min(backoff * 2, maxBackoff);
+            nextRunTime = fireTime + backoff;
+        }
+
+        if (workFound)
+        {
+            followers.forEach(AdaptiveTrackerSchedule::resetBackoff);
+        }
+    }
+
+    /**
+     * Resets the backoff: the tracker runs on the next tick.
+     */
+    void resetBackoff()
+    {
+        backoff = 0;
+        nextRunTime = 0;
+    }
+
+    /**
+     * Sets the schedules of the trackers indexing what this tracker finds: their backoff is reset whenever this
+     * tracker finds some work.
+     *
+     * @param followers the schedules following this one.
+     */
+    void setFollowers(List<AdaptiveTrackerSchedule> followers)
+    {
+        this.followers = followers;
+    }
+
+    /**
+     * Returns the current backoff, in milliseconds: 0 if the last cycle found some work.
+     *
+     * @return the current backoff, in milliseconds.
+     */
+    public long getBackoff()
+    {
+        return backoff;
+    }
+
+    long getMaxBackoff()
+    {
+        return maxBackoff;
+    }
+
+    /**
+     * Registers the number of immediate re-runs, the number of ticks skipped because of the backoff, and the
+     * current backoff (in milliseconds) under the tracker path.
+     */
+    @Override
+    public void initializeMetrics(SolrMetricManager manager, String registry, String scope)
+    {
+        reruns = manager.counter(registry, "adaptiveReruns", "ALFRESCO", "tracker", scope);
+        skippedRuns = manager.counter(registry, "adaptiveSkippedRuns", "ALFRESCO", "tracker", scope);
+        manager.registerGauge(registry, (Gauge<Long>) this::getBackoff, true, "adaptiveBackoff", "ALFRESCO", "tracker", scope);
+    }
+
+    long getReruns()
+    {
+        return reruns.getCount();
+    }
+
+    long getSkippedRuns()
+    {
+        return skippedRuns.getCount();
+    }
+}
@@ -196,7 +196,7 @@ public class CascadeTracker extends ActivatableTracker
                 }
 
                 if(txBatch.size() == 0) {
-                    return;
+                    break;
                 }
 
                 ArrayList<Long> txIds = new ArrayList<>();
@@ -258,6 +258,7 @@ public class CascadeTracker extends ActivatableTracker
             }
         } while(txBatch.size() > 0);
 
+        setFoundWork(totalUpdatedDocs > 0);
         LOGGER.info("{}-[CORE {}] Updated {} DOCs", Thread.currentThread().getId(), coreName, totalUpdatedDocs);
 
     }
@@ -35,10 +35,13 @@ import java.util.Optional;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import com.codahale.metrics.Timer;
 import org.alfresco.solr.InformationServer;
 import org.alfresco.solr.client.SOLRAPIClient;
+import org.apache.solr.metrics.SolrMetricManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,6 +62,15 @@ public class CommitTracker extends AbstractTracker
     private Optional<CascadeTracker> cascadeTracker = empty();
     private AtomicInteger rollbackCount = new AtomicInteger(0);
 
+    /** The duration of the hard commits. */
+    private volatile Timer commitTimes = new Timer();
+
+    /**
+     * The duration of the commits which also opened a new searcher.
+     * Note the searcher warming happens asynchronously: its duration is reported by the Solr searcher metrics.
+     */
+    private volatile Timer searcherOpenTimes = new Timer();
+
     protected final static Logger LOGGER = LoggerFactory.getLogger(CommitTracker.class);
     
     // Share run and write locks across all CommitTracker threads
@@ -128,6 +140,15 @@ public class CommitTracker extends AbstractTracker
         aclTracker.maintenance();
     }
 
+    @Override
+    public void initializeMetrics(SolrMetricManager manager, String registry, String scope)
+    {
+        super.initializeMetrics(manager, registry, scope);
+        commitTimes = manager.timer(registry, "commitTimes", "ALFRESCO", "tracker", scope);
+        searcherOpenTimes = manager.timer(registry, "searcherOpenTimes", "ALFRESCO", "tracker", scope);
+        registerGauge(manager, registry, scope, "rollbacks", rollbackCount::get);
+    }
+
     @Override
     protected void doTrack(String iterationId) throws Throwable
     {
@@ -186,10 +207,14 @@ public class CommitTracker extends AbstractTracker
 
             if (metadataTracker.isEnabled() && aclTracker.isEnabled())
             {
+                long commitStart = System.nanoTime();
                 boolean searcherOpened = infoSrv.commit(openSearcherNeeded);
+                long commitTime = System.nanoTime() - commitStart;
+                commitTimes.update(commitTime, TimeUnit.NANOSECONDS);
                 lastCommit = currentTime;
                 if(searcherOpened)
                 {
+                    searcherOpenTimes.update(commitTime, TimeUnit.NANOSECONDS);
                     lastSearcherOpened = currentTime;
                 }
             }
@@ -30,16 +30,28 @@ import com.google.common.collect.Lists;
 import org.alfresco.solr.AlfrescoSolrDataModel.TenantDbId;
 import org.alfresco.solr.InformationServer;
 import org.alfresco.solr.client.SOLRAPIClient;
+import org.alfresco.util.TraceableThreadFactory;
+import org.apache.solr.common.SolrInputDocument;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.alfresco.solr.utils.Utils.notNullOrEmpty;
 
@@ -54,9 +66,21 @@ public class ContentTracker extends ActivatableTracker
     protected final static Logger LOGGER = LoggerFactory.getLogger(ContentTracker.class);
 
     private static final int DEFAULT_CONTENT_TRACKER_MAX_PARALLELISM = 32;
+    private static final int DEFAULT_CONTENT_READ_BATCH_SIZE = 100;
+    private static final int DEFAULT_CONTENT_TRACKER_ASYNC_MAX_CONCURRENT_FETCHES = 64;
+    private static final long CONTENT_FETCH_THREAD_KEEP_ALIVE_SECONDS = 60;
 
     private int contentTrackerParallelism;
     private int contentUpdateBatchSize;
+    private int contentReadBatchSize;
+
+    /*
+     * Async mode: the text content is fetched by a dedicated (I/O) pool, up to maxConcurrentFetches at a time,
+     * while the tracker thread indexes the fetched documents as soon as they are available.
+     */
+    private boolean asyncEnabled;
+    private int maxConcurrentFetches;
+    private ThreadPoolExecutor contentFetchExecutor;
     
     // Share run and write locks across all ContentTracker threads
     private static final Map<String, Semaphore> RUN_LOCK_BY_CORE = new ConcurrentHashMap<>();
@@ -83,11 +107,39 @@ public class ContentTracker extends ActivatableTracker
         contentUpdateBatchSize = Integer.parseInt(p.getProperty("alfresco.contentUpdateBatchSize",
                 String.valueOf(DEFAULT_CONTENT_UPDATE_BATCH_SIZE)));
 
+        contentReadBatchSize = Integer.parseInt(p.getProperty("alfresco.contentReadBatchSize",
+                String.valueOf(DEFAULT_CONTENT_READ_BATCH_SIZE)));
+
         contentTrackerParallelism = Integer.parseInt(p.getProperty("alfresco.content.tracker.maxParallelism",
                 String.valueOf(DEFAULT_CONTENT_TRACKER_MAX_PARALLELISM)));
 
         forkJoinPool = new ForkJoinPool(contentTrackerParallelism);
 
+        asyncEnabled = Boolean.parseBoolean(p.getProperty("alfresco.content.tracker.async.enabled", "false"));
+        maxConcurrentFetches = Integer.parseInt(p.getProperty("alfresco.content.tracker.async.maxConcurrentFetches",
+                String.valueOf(DEFAULT_CONTENT_TRACKER_ASYNC_MAX_CONCURRENT_FETCHES)));
+        if (maxConcurrentFetches <= 0)
+        {
+            LOGGER.warn("{}-[CORE {}] Invalid alfresco.content.tracker.async.maxConcurrentFetches value ({}), it must be "
+                    + "greater than zero: content will be fetched one document at a time.",
+                    Thread.currentThread().getId(), coreName, maxConcurrentFetches);
+            maxConcurrentFetches = 1;
+        }
+        if (asyncEnabled)
+        {
+            TraceableThreadFactory threadFactory = new TraceableThreadFactory();
+            threadFactory.setThreadDaemon(true);
+            threadFactory.setNamePrefix("SolrTrackingPool-" + coreName + "-ContentFetch-");
+
+            // Idle threads are released between tracking cycles
+            contentFetchExecutor = new ThreadPoolExecutor(maxConcurrentFetches, maxConcurrentFetches,
+                    CONTENT_FETCH_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+            contentFetchExecutor.allowCoreThreadTimeOut(true);
+
+            LOGGER.info("{}-[CORE {}] Content tracker async mode enabled, max concurrent fetches = {}",
+                    Thread.currentThread().getId(), coreName, maxConcurrentFetches);
+        }
+
         RUN_LOCK_BY_CORE.put(coreName, new Semaphore(1, true));
         WRITE_LOCK_BY_CORE.put(coreName, new Semaphore(1, true));
     }
@@ -123,14 +175,7 @@ public class ContentTracker extends ActivatableTracker
                     List<List<TenantDbId>> docBatches = Lists.partition(docs, contentUpdateBatchSize);
                     for (List<TenantDbId> batch : docBatches)
                     {
-                        Integer processedDocuments = forkJoinPool.submit(() ->
-                                // Parallel task here, for example
-                                batch.parallelStream().map(doc -> {
-                                    ContentIndexWorkerRunnable ciwr = new ContentIndexWorkerRunnable(doc, infoSrv);
-                                    ciwr.run();
-                                    return 1;
-                                }).reduce(0, Integer::sum)
-                        ).get();
+                        int processedDocuments = asyncEnabled ? updateContentAsync(batch) : updateContent(batch);
 
                         long endElapsed = System.nanoTime();
                         trackerStats.addElapsedContentTime(processedDocuments, endElapsed - startElapsed);
@@ -147,6 +192,7 @@ public class ContentTracker extends ActivatableTracker
                 }
             }
 
+            setFoundWork(totalDocs > 0);
             LOGGER.info("{}-[CORE {}] Total number of docs with content updated: {} ", Thread.currentThread().getId(), coreName, totalDocs);
 
         }
@@ -156,46 +202,120 @@ public class ContentTracker extends ActivatableTracker
         }
     }
 
-    public boolean hasMaintenance()
+    /**
+     * Updates the content of the given documents in chunks of contentReadBatchSize: the content of each chunk is
+     * fetched in parallel, then the whole chunk is sent to the index through a single update processor.
+     *
+     * @param docs the documents whose content needs to be updated.
+     * @return the number of processed documents.
+     */
+    int updateContent(List<TenantDbId> docs) throws Exception
     {
-        return false;
+        int processedDocuments = 0;
+        for (List<TenantDbId> chunk : Lists.partition(docs, contentReadBatchSize))
+        {
+            checkShutdown();
+
+            List<SolrInputDocument> fetched = forkJoinPool.submit(() ->
+                    chunk.parallelStream()
+                            .map(infoSrv::fetchContent)
+                            .filter(Objects::nonNull)
+                            .collect(Collectors.toList())
+            ).get();
+
+            if (!fetched.isEmpty())
+            {
+                infoSrv.indexContent(fetched);
+            }
+            processedDocuments += chunk.size();
+        }
+        return processedDocuments;
     }
 
-    public void maintenance()
+    /**
+     * Updates the content of the given documents fetching it asynchronously.
+     * At most maxConcurrentFetches fetches are in flight; new fetches are submitted only once the completed ones
+     * have been indexed, so the fetched content waiting for indexing is bounded as well (backpressure).
+     *
+     * @param docs the documents whose content needs to be updated.
+     * @return the number of processed documents.
+     */
+    int updateContentAsync(List<TenantDbId> docs) throws Exception
     {
-        // Nothing to be done here
+        CompletionService<SolrInputDocument> fetches = new ExecutorCompletionService<>(contentFetchExecutor);
+        List<Future<SolrInputDocument>> inFlight = new ArrayList<>();
+        Iterator<TenantDbId> pending = docs.iterator();
+        int processedDocuments = 0;
+
+        try
+        {
+            while (pending.hasNext() || !inFlight.isEmpty())
+            {
+                checkShutdown();
+
+                while (pending.hasNext() && inFlight.size() < maxConcurrentFetches)
+                {
+                    TenantDbId doc = pending.next();
+                    inFlight.add(fetches.submit(() -> infoSrv.fetchContent(doc)));
+                }
+
+                // Waits for the first completed fetch, then takes all the others which are already available
+                List<SolrInputDocument> fetched = new ArrayList<>();
+                Future<SolrInputDocument> completed = fetches.take();
+                do
+                {
+                    inFlight.remove(completed);
+                    processedDocuments++;
+                    SolrInputDocument doc = completed.get();
+                    if (doc != null)
+                    {
+                        fetched.add(doc);
+                    }
+                }
+                while ((completed = fetches.poll()) != null);
+
+                if (!fetched.isEmpty())
+                {
+                    infoSrv.indexContent(fetched);
+                }
+            }
+        }
+        finally
+        {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+
+        return processedDocuments;
     }
 
-    public void invalidateState()
+    int getMaxConcurrentFetches()
     {
-        super.invalidateState();
-        this.infoSrv.setCleanContentTxnFloor(-1);
+        return maxConcurrentFetches;
     }
 
-    class ContentIndexWorkerRunnable extends AbstractWorker
+    @Override
+    public void shutdown()
     {
-        InformationServer infoServer;
-        TenantDbId docRef;
-
-        ContentIndexWorkerRunnable(TenantDbId doc, InformationServer infoServer)
+        super.shutdown();
+        if (contentFetchExecutor != null)
         {
-            this.docRef = doc;
-            this.infoServer = infoServer;
+            contentFetchExecutor.shutdownNow();
         }
+    }
 
-        @Override
-        protected void doWork() throws Exception
-        {
-            checkShutdown();
+    public boolean hasMaintenance()
+    {
+        return false;
+    }
 
-            infoServer.updateContent(docRef);
-        }
-        
-        @Override
-        protected void onFail(Throwable failCausedBy)
-        {
-            // This will be redone in future tracking operations
-            LOGGER.warn("Content tracker failed due to {}", failCausedBy.getMessage(), failCausedBy);
-        }
+    public void maintenance()
+    {
+        // Nothing to be done here
+    }
+
+    public void invalidateState()
+    {
+        super.invalidateState();
+        this.infoSrv.setCleanContentTxnFloor(-1);
     }
 }
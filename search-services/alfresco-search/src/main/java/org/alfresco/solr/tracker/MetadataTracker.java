@@ -29,7 +29,9 @@ package org.alfresco.solr.tracker;
 import com.google.common.collect.Lists;
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.httpclient.AuthenticationException;
+import org.alfresco.service.namespace.QName;
 import org.alfresco.solr.BoundedDeque;
+import org.alfresco.solr.IndexTrackingShutdownException;
 import org.alfresco.solr.InformationServer;
 import org.alfresco.solr.NodeReport;
 import org.alfresco.solr.TrackerState;
@@ -41,7 +43,9 @@ import org.alfresco.solr.client.SOLRAPIClient;
 import org.alfresco.solr.client.Transaction;
 import org.alfresco.solr.client.Transactions;
 import org.alfresco.util.Pair;
+import org.alfresco.util.TraceableThreadFactory;
 import org.apache.commons.codec.EncoderException;
+import org.apache.solr.metrics.SolrMetricManager;
 import org.json.JSONException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,15 +57,23 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+import static java.util.Optional.ofNullable;
 import static org.alfresco.repo.index.shard.ShardMethodEnum.DB_ID_RANGE;
 
 /*
@@ -80,6 +92,8 @@ public class MetadataTracker extends ActivatableTracker
     private static final String DEFAULT_INITIAL_TRANSACTION_RANGE = "0-2000";
     private static final long DEFAULT_METADATA_TRACKER_TIMESTEP = TIME_STEP_1_HR_IN_MS;
     private static final long INITIAL_MAX_TXN_ID = 2000L;
+    private static final int DEFAULT_PIPELINE_QUEUE_SIZE = 4;
+    private static final long PIPELINE_POLL_TIMEOUT_MS = 100L;
 
     private int matadataTrackerParallelism;
     private int transactionDocsBatchSize;
@@ -87,6 +101,15 @@ public class MetadataTracker extends ActivatableTracker
     private int maxNumberOfTransactions;
     private long timeStep;
 
+    /**
+     * When enabled, transaction paging, node fetching and indexing are executed in separate pipeline stages.
+     * See {@link #trackTransactionsPipelined()}.
+     */
+    private boolean pipelineEnabled;
+
+    /** Max number of transaction batches waiting between two stages of the pipeline. */
+    private int pipelineQueueSize;
+
     private final ConcurrentLinkedQueue<Long> transactionsToReindex = new ConcurrentLinkedQueue<>();
     private final ConcurrentLinkedQueue<Long> transactionsToIndex = new ConcurrentLinkedQueue<>();
     private final ConcurrentLinkedQueue<Long> transactionsToPurge = new ConcurrentLinkedQueue<>();
@@ -100,6 +123,13 @@ public class MetadataTracker extends ActivatableTracker
 
     private ForkJoinPool forkJoinPool;
 
+    /* The feed shared with the other cores tracking the same repository, null when the nodes are fetched directly */
+    private SharedNodeFeed nodeFeed;
+
+    /* The shard property the tracker is subscribed to the feed with, as the feed shares the nodes per shard property */
+    private Optional<QName> nodeFeedShardProperty = Optional.empty();
+    private final Object nodeFeedLock = new Object();
+
     // Share run and write locks across all MetadataTracker threads
     private static final Map<String, Semaphore> RUN_LOCK_BY_CORE = new ConcurrentHashMap<>();
     private static final Map<String, Semaphore> WRITE_LOCK_BY_CORE = new ConcurrentHashMap<>();
@@ -173,6 +203,10 @@ public class MetadataTracker extends ActivatableTracker
         timeStep = Long.parseLong(p.getProperty("alfresco.metadata.tracker.timestep",
                 String.valueOf(DEFAULT_METADATA_TRACKER_TIMESTEP)));
 
+        pipelineEnabled = Boolean.parseBoolean(p.getProperty("alfresco.metadata.tracker.pipeline.enabled", "false"));
+        pipelineQueueSize = Math.max(1, Integer.parseInt(p.getProperty("alfresco.metadata.tracker.pipeline.queueSize",
+                String.valueOf(DEFAULT_PIPELINE_QUEUE_SIZE))));
+
         String[] minTxninitialRangeString =
                 p.getProperty("solr.initial.transaction.range", DEFAULT_INITIAL_TRANSACTION_RANGE)
                         .split("-");
@@ -232,6 +266,53 @@ public class MetadataTracker extends ActivatableTracker
         super(Tracker.Type.METADATA);
     }
 
+    /**
+     * Fetches the nodes of the tracked transactions through the given shared feed (if not null) instead of directly.
+     */
+    public void setNodeFeed(SharedNodeFeed nodeFeed)
+    {
+        synchronized (nodeFeedLock)
+        {
+            if (nodeFeed != null)
+            {
+                nodeFeed.subscribe(storeRef, shardProperty.orElse(null));
+                nodeFeedShardProperty = shardProperty;
+            }
+            this.nodeFeed = nodeFeed;
+        }
+    }
+
+    @Override
+    public void shutdown()
+    {
+        super.shutdown();
+        synchronized (nodeFeedLock)
+        {
+            if (nodeFeed != null)
+            {
+                nodeFeed.unsubscribe(storeRef, nodeFeedShardProperty.orElse(null));
+                nodeFeed = null;
+            }
+        }
+    }
+
+    /**
+     * @return the shared node feed (null if none), once subscribed with the current shard property.
+     */
+    private SharedNodeFeed getNodeFeed()
+    {
+        synchronized (nodeFeedLock)
+        {
+            if (nodeFeed != null && !nodeFeedShardProperty.equals(shardProperty))
+            {
+                nodeFeed.unsubscribe(storeRef, nodeFeedShardProperty.orElse(null));
+                nodeFeedShardProperty = shardProperty;
+                nodeFeed.subscribe(storeRef, nodeFeedShardProperty.orElse(null));
+            }
+            return nodeFeed;
+        }
+    }
+
     @Override
     protected void doTrack(String iterationId)
             throws AuthenticationException, IOException, JSONException {
@@ -269,6 +350,25 @@ public class MetadataTracker extends ActivatableTracker
                 queriesToReindex.size() > 0;
     }
 
+    /**
+     * Registers, in addition to the common tracker metrics, the size of the maintenance queues and the lag
+     * (in milliseconds) between the last transaction seen on the repository and the last indexed transaction.
+     */
+    @Override
+    public void initializeMetrics(SolrMetricManager manager, String registry, String scope)
+    {
+        super.initializeMetrics(manager, registry, scope);
+        registerGauge(manager, registry, scope, "transactionsToReindex", transactionsToReindex::size);
+        registerGauge(manager, registry, scope, "transactionsToIndex", transactionsToIndex::size);
+        registerGauge(manager, registry, scope, "transactionsToPurge", transactionsToPurge::size);
+        registerGauge(manager, registry, scope, "nodesToReindex", nodesToReindex::size);
+        registerGauge(manager, registry, scope, "nodesToIndex", nodesToIndex::size);
+        registerGauge(manager, registry, scope, "nodesToPurge", nodesToPurge::size);
+        registerGauge(manager, registry, scope, "queriesToReindex", queriesToReindex::size);
+        registerGauge(manager, registry, scope, "lag",
+                () -> lag(TrackerState::getLastTxCommitTimeOnServer, TrackerState::getLastIndexedTxCommitTime));
+    }
+
     private void trackRepository() throws IOException, AuthenticationException, JSONException
     {
         checkShutdown();
@@ -781,9 +881,10 @@ public class MetadataTracker extends ActivatableTracker
      *
      * @param fromCommitTime Starting commit time to get transactions from Repository
      * @param txnsFound List of transactions previously found
+     * @param endTime The time to stop indexing
      * @return List of transactions to be indexed
      */
-    private Transactions getDBIDRangeTransactions(Long fromCommitTime, BoundedDeque<Transaction> txnsFound)
+    private Transactions getDBIDRangeTransactions(Long fromCommitTime, BoundedDeque<Transaction> txnsFound, long endTime)
             throws NoSuchMethodException, AuthenticationException, IOException, JSONException, EncoderException
     {
         boolean shardOutOfRange = false;
@@ -822,7 +923,7 @@ public class MetadataTracker extends ActivatableTracker
         }
 
         Transactions transactions = getSomeTransactions(txnsFound, fromCommitTime, timeStep, maxNumberOfTransactions,
-                                           state.getTimeToStopIndexing());
+                                           endTime);
 
 
         // When transactions are out of Shard range, only the latest transaction needs to be indexed
@@ -841,7 +942,7 @@ public class MetadataTracker extends ActivatableTracker
         return transactions;
     }
 
-    private boolean isTransactionIndexed(Transaction transaction)
+    private boolean isTransactionIndexed(Transaction transaction, TrackerState state)
     {
         try
         {
@@ -874,11 +975,18 @@ public class MetadataTracker extends ActivatableTracker
      */
     protected void trackTransactions() throws IOException, JSONException
     {
+        if (pipelineEnabled)
+        {
+            trackTransactionsPipelined();
+            return;
+        }
+
         long startElapsed = System.nanoTime();
 
         Transactions transactions;
         BoundedDeque<Transaction> txnsFound = new BoundedDeque<>(METADATA_TRANSACTIONS_FOUND_QUEUE_SIZE);
         int totalUpdatedDocs = 0;
+        boolean beyondTimeToStopIndexing = false;
 
         LOGGER.info("{}-[CORE {}] Starting metadata tracker execution", Thread.currentThread().getId(), coreName);
 
@@ -903,61 +1011,17 @@ public class MetadataTracker extends ActivatableTracker
                         state.getLastIndexedTxCommitTime() == 0 ? state.getLastGoodTxCommitTimeInIndex()
                                 : state.getLastIndexedTxCommitTime());
 
-                // Get transaction list to be indexed
-                if (docRouter instanceof DBIDRangeRouter && txIntervalCommitTimeServiceAvailable)
-                {
-                    transactions = getDBIDRangeTransactions(fromCommitTime, txnsFound);
-                }
-                else
-                {
-                    transactions = getSomeTransactions(txnsFound, fromCommitTime, timeStep, maxNumberOfTransactions,
-                            state.getTimeToStopIndexing());
-                }
-
-
-                if (transactions.getTransactions().size() > 0)
-                {
-                    LOGGER.info("{}-[CORE {}] Found {} transactions after lastTxCommitTime {}, transactions from {} to {}",
-                            Thread.currentThread().getId(),
-                            coreName,
-                            transactions.getTransactions().size(),
-                            fromCommitTime,
-                            transactions.getTransactions().get(0),
-                            transactions.getTransactions().get(transactions.getTransactions().size() - 1));
-                }
-                else
-                {
-                    LOGGER.info("{}-[CORE {}] No transaction found after lastTxCommitTime {}",
-                            Thread.currentThread().getId(),
-                            coreName,
-                            ((txnsFound.size() > 0) ? txnsFound.getLast().getCommitTimeMs()
-                                    : state.getLastIndexedTxCommitTime()));
-                }
+                transactions = getNextTransactions(txnsFound, fromCommitTime, state);
 
                 // Make sure we do not go ahead of where we started - we will check the holes here
                 // correctly next time
-                if (transactions.getTransactions()
-                        .stream()
-                        .anyMatch(transaction -> transaction.getCommitTimeMs() > state.getTimeToStopIndexing()))
+                if (isBeyondTimeToStopIndexing(transactions, state))
                 {
+                    beyondTimeToStopIndexing = true;
                     break;
                 }
 
-                long transaction_number = transactions.getTransactions().size();
-                final AtomicInteger counter = new AtomicInteger();
-                Collection<List<Transaction>> txBatches = transactions.getTransactions().stream()
-                        .peek(txnsFound::add)
-                        .filter(this::isTransactionIndexed)
-                        .peek(transaction -> {
-                            if (LOGGER.isTraceEnabled())
-                            {
-                                LOGGER.trace("{}-[CORE {}] Tracking {} Transactions. Current Transaction Id to be indexed: {}",
-                                        Thread.currentThread().getId(), coreName, transaction_number, transaction.getId());
-                            }
-                        })
-                        .collect(Collectors.groupingBy(transaction -> counter.getAndAdd(
-                                (int) (transaction.getDeletes() + transaction.getUpdates())) / transactionDocsBatchSize))
-                        .values();
+                Collection<List<Transaction>> txBatches = getTransactionBatches(transactions, txnsFound, state);
 
                 // Index batches of transactions and the nodes updated or deleted within the transaction
                 for (List<Transaction> batch : txBatches)
@@ -991,9 +1055,340 @@ public class MetadataTracker extends ActivatableTracker
         }
         while ((transactions.getTransactions().size() > 0));
 
+        setFoundWork(totalUpdatedDocs > 0);
+        setStoppedAtTimeWindow(beyondTimeToStopIndexing, state);
+        LOGGER.info("{}-[CORE {}] Tracked {} DOCs", Thread.currentThread().getId(), coreName, totalUpdatedDocs);
+    }
+
+    /**
+     * Pipelined version of {@link #trackTransactions()}, enabled with "alfresco.metadata.tracker.pipeline.enabled".
+     *
+     * The tracking is split in three stages connected by bounded queues, so the repository round-trips for the next
+     * batches overlap with the indexing of the current one:
+     *
+     * <ol>
+     *     <li>Paging: gets the transactions from the repository and groups them in batches of "transactionDocsBatchSize" size</li>
+     *     <li>Prefetch: gets the nodes updated or deleted within each batch of transactions</li>
+     *     <li>Indexing: indexes the prefetched nodes and then the transactions</li>
+     * </ol>
+     *
+     * Only the indexing stage (running in the tracker thread) writes to the index and the tracker state, holding the
+     * write lock for each batch. As every stage consumes its input in order, transactions are indexed in commit time
+     * order like in the sequential mode.
+     * When the tracker state is invalidated (i.e. the {@link CommitTracker} performed a rollback) or a rollback is
+     * requested by a failed worker, the pipeline is stopped and the next cycle restarts from the state in the index.
+     *
+     * @throws IOException
+     */
+    private void trackTransactionsPipelined() throws IOException
+    {
+        long startElapsed = System.nanoTime();
+        int totalUpdatedDocs = 0;
+
+        LOGGER.info("{}-[CORE {}] Starting pipelined metadata tracker execution", Thread.currentThread().getId(), coreName);
+
+        final TrackerState pipelineState = getTrackerState();
+        this.state = pipelineState;
+
+        BlockingQueue<TransactionBatch> transactionBatches = new ArrayBlockingQueue<>(pipelineQueueSize);
+        BlockingQueue<TransactionBatch> prefetchedBatches = new ArrayBlockingQueue<>(pipelineQueueSize);
+        AtomicBoolean stopped = new AtomicBoolean(false);
+        AtomicBoolean beyondTimeToStopIndexing = new AtomicBoolean(false);
+
+        TraceableThreadFactory threadFactory = new TraceableThreadFactory();
+        threadFactory.setThreadDaemon(true);
+        threadFactory.setNamePrefix("SolrTrackingPool-" + coreName + "-MetadataTrackerPipeline-");
+        ExecutorService stages = Executors.newFixedThreadPool(2, threadFactory);
+
+        try
+        {
+            stages.execute(() -> pageTransactions(pipelineState, transactionBatches, stopped, beyondTimeToStopIndexing));
+            stages.execute(() -> prefetchNodes(transactionBatches, prefetchedBatches, stopped));
+
+            while (true)
+            {
+                TransactionBatch batch = prefetchedBatches.take();
+                if (batch.failure instanceof IndexTrackingShutdownException)
+                {
+                    throw (IndexTrackingShutdownException) batch.failure;
+                }
+                if (batch.failure != null)
+                {
+                    throw new IOException(batch.failure);
+                }
+                if (batch.isEndOfStream())
+                {
+                    break;
+                }
+
+                checkShutdown();
+                getWriteLock().acquire();
+                try
+                {
+                    if (this.state != pipelineState || getRollback())
+                    {
+                        LOGGER.info("{}-[CORE {}] Tracker state has been reset, stopping metadata tracker pipeline",
+                                Thread.currentThread().getId(), coreName);
+                        break;
+                    }
+
+                    // Index nodes contained in the transactions
+                    int docCount = indexNodeBatches(batch.nodes);
+                    totalUpdatedDocs += docCount;
+
+                    // Index the transactions
+                    indexTransactionsAfterWorker(batch.transactions);
+                    ofNullable(batch.page).ifPresent(this::setLastTxCommitTimeAndTxIdInTrackerState);
+
+                    long endElapsed = System.nanoTime();
+                    trackerStats.addElapsedNodeTime(docCount, endElapsed - startElapsed);
+                    startElapsed = endElapsed;
+                }
+                finally
+                {
+                    getWriteLock().release();
+                }
+            }
+        }
+        catch (InterruptedException | ExecutionException e)
+        {
+            throw new IOException(e);
+        }
+        finally
+        {
+            stopped.set(true);
+            stages.shutdownNow();
+        }
+
+        setFoundWork(totalUpdatedDocs > 0);
+        setStoppedAtTimeWindow(beyondTimeToStopIndexing.get(), pipelineState);
         LOGGER.info("{}-[CORE {}] Tracked {} DOCs", Thread.currentThread().getId(), coreName, totalUpdatedDocs);
     }
 
+    /**
+     * Paging stage of the pipeline: gets the transactions from the repository and sends them, grouped in batches,
+     * to the prefetch stage. Flags beyondTimeToStopIndexing when it stops at the time window of the indexing.
+     */
+    private void pageTransactions(TrackerState pipelineState, BlockingQueue<TransactionBatch> output,
+                AtomicBoolean stopped, AtomicBoolean beyondTimeToStopIndexing)
+    {
+        TransactionBatch last = TransactionBatch.END_OF_STREAM;
+        try
+        {
+            BoundedDeque<Transaction> txnsFound = new BoundedDeque<>(METADATA_TRANSACTIONS_FOUND_QUEUE_SIZE);
+            Transactions transactions;
+            do
+            {
+                checkShutdown();
+
+                Long fromCommitTime = getTxFromCommitTime(txnsFound,
+                        pipelineState.getLastIndexedTxCommitTime() == 0 ? pipelineState.getLastGoodTxCommitTimeInIndex()
+                                : pipelineState.getLastIndexedTxCommitTime());
+
+                transactions = getNextTransactions(txnsFound, fromCommitTime, pipelineState);
+                if (isBeyondTimeToStopIndexing(transactions, pipelineState))
+                {
+                    beyondTimeToStopIndexing.set(true);
+                    break;
+                }
+
+                List<List<Transaction>> txBatches = new ArrayList<>(getTransactionBatches(transactions, txnsFound, pipelineState));
+                if (txBatches.isEmpty())
+                {
+                    // Nothing to be indexed, but the tracker state still needs to be updated
+                    offer(output, new TransactionBatch(new ArrayList<>(), transactions), stopped);
+                }
+                for (int i = 0; i < txBatches.size(); i++)
+                {
+                    offer(output, new TransactionBatch(txBatches.get(i), i == txBatches.size() - 1 ? transactions : null), stopped);
+                }
+            }
+            while (!stopped.get() && transactions.getTransactions().size() > 0);
+        }
+        catch (Throwable t)
+        {
+            last = TransactionBatch.failed(t);
+        }
+        finally
+        {
+            offerLast(output, last, stopped);
+        }
+    }
+
+    /**
+     * Prefetch stage of the pipeline: gets the nodes of each transaction batch from the repository and sends the
+     * batch to the indexing stage.
+     */
+    private void prefetchNodes(BlockingQueue<TransactionBatch> input, BlockingQueue<TransactionBatch> output, AtomicBoolean stopped)
+    {
+        TransactionBatch last = TransactionBatch.END_OF_STREAM;
+        try
+        {
+            TransactionBatch batch;
+            while ((batch = poll(input, stopped)) != null)
+            {
+                if (batch.isEndOfStream())
+                {
+                    last = batch;
+                    break;
+                }
+
+                batch.nodes = getNodesForTransactions(batch.transactions);
+                offer(output, batch, stopped);
+            }
+        }
+        catch (Throwable t)
+        {
+            last = TransactionBatch.failed(t);
+        }
+        finally
+        {
+            offerLast(output, last, stopped);
+        }
+    }
+
+    private static <T> void offer(BlockingQueue<T> queue, T element, AtomicBoolean stopped) throws InterruptedException
+    {
+        while (!stopped.get())
+        {
+            if (queue.offer(element, PIPELINE_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS))
+            {
+                return;
+            }
+        }
+    }
+
+    private static <T> T poll(BlockingQueue<T> queue, AtomicBoolean stopped) throws InterruptedException
+    {
+        while (!stopped.get())
+        {
+            T element = queue.poll(PIPELINE_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            if (element != null)
+            {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    private static <T> void offerLast(BlockingQueue<T> queue, T element, AtomicBoolean stopped)
+    {
+        try
+        {
+            offer(queue, element, stopped);
+        }
+        catch (InterruptedException e)
+        {
+            // The pipeline has been stopped, nobody is waiting for this element
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A batch of transactions flowing through the stages of the pipeline.
+     * A batch without transactions marks the end of the stream, optionally caused by a failure in a previous stage.
+     */
+    private static class TransactionBatch
+    {
+        static final TransactionBatch END_OF_STREAM = new TransactionBatch(null, null);
+
+        final List<Transaction> transactions;
+
+        /** The page of transactions this batch belongs to, set only in the last batch of each page. */
+        final Transactions page;
+
+        List<Node> nodes = Collections.emptyList();
+
+        Throwable failure;
+
+        TransactionBatch(List<Transaction> transactions, Transactions page)
+        {
+            this.transactions = transactions;
+            this.page = page;
+        }
+
+        static TransactionBatch failed(Throwable failure)
+        {
+            TransactionBatch batch = new TransactionBatch(null, null);
+            batch.failure = failure;
+            return batch;
+        }
+
+        boolean isEndOfStream()
+        {
+            return transactions == null;
+        }
+    }
+
+    /**
+     * Gets the next page of transactions to be indexed from the repository.
+     */
+    private Transactions getNextTransactions(BoundedDeque<Transaction> txnsFound, Long fromCommitTime, TrackerState state)
+            throws AuthenticationException, IOException, JSONException, EncoderException, NoSuchMethodException
+    {
+        Transactions transactions;
+        if (docRouter instanceof DBIDRangeRouter && txIntervalCommitTimeServiceAvailable)
+        {
+            transactions = getDBIDRangeTransactions(fromCommitTime, txnsFound, state.getTimeToStopIndexing());
+        }
+        else
+        {
+            transactions = getSomeTransactions(txnsFound, fromCommitTime, timeStep, maxNumberOfTransactions,
+                    state.getTimeToStopIndexing());
+        }
+
+        if (transactions.getTransactions().size() > 0)
+        {
+            LOGGER.info("{}-[CORE {}] Found {} transactions after lastTxCommitTime {}, transactions from {} to {}",
+                    Thread.currentThread().getId(),
+                    coreName,
+                    transactions.getTransactions().size(),
+                    fromCommitTime,
+                    transactions.getTransactions().get(0),
+                    transactions.getTransactions().get(transactions.getTransactions().size() - 1));
+        }
+        else
+        {
+            LOGGER.info("{}-[CORE {}] No transaction found after lastTxCommitTime {}",
+                    Thread.currentThread().getId(),
+                    coreName,
+                    ((txnsFound.size() > 0) ? txnsFound.getLast().getCommitTimeMs()
+                            : state.getLastIndexedTxCommitTime()));
+        }
+        return transactions;
+    }
+
+    private boolean isBeyondTimeToStopIndexing(Transactions transactions, TrackerState state)
+    {
+        return transactions.getTransactions()
+                .stream()
+                .anyMatch(transaction -> transaction.getCommitTimeMs() > state.getTimeToStopIndexing());
+    }
+
+    /**
+     * Groups the transactions not yet indexed in batches of "transactionDocsBatchSize" updated or deleted nodes.
+     * All the transactions are added to txnsFound in order to avoid processing them again in the next iteration.
+     */
+    private Collection<List<Transaction>> getTransactionBatches(Transactions transactions,
+                BoundedDeque<Transaction> txnsFound, TrackerState state)
+    {
+        long transaction_number = transactions.getTransactions().size();
+        final AtomicInteger counter = new AtomicInteger();
+        return transactions.getTransactions().stream()
+                .peek(txnsFound::add)
+                .filter(transaction -> isTransactionIndexed(transaction, state))
+                .peek(transaction -> {
+                    if (LOGGER.isTraceEnabled())
+                    {
+                        LOGGER.trace("{}-[CORE {}] Tracking {} Transactions. Current Transaction Id to be indexed: {}",
+                                Thread.currentThread().getId(), coreName, transaction_number, transaction.getId());
+                    }
+                })
+                .collect(Collectors.groupingBy(transaction -> counter.getAndAdd(
+                        (int) (transaction.getDeletes() + transaction.getUpdates())) / transactionDocsBatchSize))
+                .values();
+    }
+
     /**
      * Update latest transaction indexed in MetadataTracker state
      * @param transactions List of transactions indexed
@@ -1054,7 +1449,18 @@ public class MetadataTracker extends ActivatableTracker
     private int indexBatchOfTransactions(List<Transaction> txBatch)
             throws AuthenticationException, IOException, JSONException, ExecutionException, InterruptedException 
     {
-        
+        return indexNodeBatches(getNodesForTransactions(txBatch));
+    }
+
+    /**
+     * Gets the nodes updated or deleted by a batch of transactions.
+     *
+     * @param txBatch Batch of transactions
+     * @return the nodes that have been modified by the transactions (empty if the batch contains no modifications)
+     */
+    private List<Node> getNodesForTransactions(List<Transaction> txBatch)
+            throws AuthenticationException, IOException, JSONException
+    {
         // Skip transactions without modifications (updates, deletes)
         ArrayList<Long> txIds = new ArrayList<>();
         for (Transaction tx : txBatch)
@@ -1068,7 +1474,7 @@ public class MetadataTracker extends ActivatableTracker
         // Skip getting nodes when no transactions left
         if (txIds.size() == 0)
         {
-            return 0;
+            return Collections.emptyList();
         }
         
         // Get Nodes Id properties for every transaction
@@ -1080,7 +1486,8 @@ public class MetadataTracker extends ActivatableTracker
         shardProperty.ifPresent(gnp::setShardProperty);
 
         gnp.setCoreName(coreName);
-        List<Node> nodes = client.getNodes(gnp, Integer.MAX_VALUE);
+        SharedNodeFeed feed = getNodeFeed();
+        List<Node> nodes = feed != null ? feed.getNodes(gnp) : client.getNodes(gnp, Integer.MAX_VALUE);
 
         if (LOGGER.isDebugEnabled())
         {
@@ -1088,6 +1495,22 @@ public class MetadataTracker extends ActivatableTracker
                     Thread.currentThread().getId(), coreName, nodes.size(), txIds);
         }
 
+        return nodes;
+    }
+
+    /**
+     * Indexes the given nodes, using the tracker fork-join pool.
+     *
+     * @param nodes the nodes to be indexed, grouped in batches of "nodeBatchSize" size.
+     * @return Number of nodes indexed
+     */
+    private int indexNodeBatches(List<Node> nodes) throws ExecutionException, InterruptedException
+    {
+        if (nodes.isEmpty())
+        {
+            return 0;
+        }
+
         // Group the nodes in batches of nodeBatchSize (or less)
         List<List<Node>> nodeBatches = Lists.partition(nodes, nodeBatchSize);
 
@@ -1239,10 +1662,40 @@ public class MetadataTracker extends ActivatableTracker
     public IndexHealthReport checkIndex(Long toTx, Long fromTime, Long toTime)
                 throws IOException, AuthenticationException, JSONException, EncoderException, NoSuchMethodException
     {
-        // DB TX Count
-        long firstTransactionCommitTime = 0;
         Transactions firstTransactions = client.getTransactions(null, 0L,
                 null, INITIAL_MAX_TXN_ID, 1);
+        Long maxTxnIdInRepo = firstTransactions.getMaxTxnId();
+        if (maxTxnIdInRepo == null)
+        {
+            return checkIndexSequentially(toTx, fromTime, toTime, firstTransactions);
+        }
+
+        // A slice is never larger than a page of transactions, so it is fetched with a single call
+        long lastTxId = toTx == null ? maxTxnIdInRepo : Math.min(toTx, maxTxnIdInRepo);
+        IndexHealthReport report = infoSrv.newIndexTransactionsReport();
+        checkIndexInSlices(0, lastTxId, maxNumberOfTransactions, forkJoinPool, matadataTrackerParallelism,
+                (fromTxId, toTxId) -> {
+                    List<Long> txIdsInDb =
+                            client.getTransactions(fromTime, fromTxId, toTime == null ? null : toTime + 1, toTxId + 1, maxNumberOfTransactions)
+                                    .getTransactions()
+                                    .stream()
+                                    .filter(tx -> isInTimeRange(tx.getCommitTimeMs(), fromTime, toTime))
+                                    .map(Transaction::getId)
+                                    .collect(Collectors.toList());
+                    infoSrv.reportIndexTransactions(report, fromTxId, toTxId, fromTime, toTime, txIdsInDb);
+                });
+        return report;
+    }
+
+    /**
+     * Index check for repositories which don't return the max transaction id: transactions are paged sequentially
+     * and compared with the index once collected.
+     */
+    private IndexHealthReport checkIndexSequentially(Long toTx, Long fromTime, Long toTime, Transactions firstTransactions)
+                throws IOException, AuthenticationException, JSONException, EncoderException, NoSuchMethodException
+    {
+        // DB TX Count
+        long firstTransactionCommitTime = 0;
         if(firstTransactions.getTransactions().size() > 0)
         {
             Transaction firstTransaction = firstTransactions.getTransactions().get(0);
@@ -0,0 +1,139 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.tracker;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.alfresco.httpclient.AuthenticationException;
+import org.alfresco.solr.client.Acl;
+import org.alfresco.solr.client.AclChangeSet;
+import org.alfresco.solr.client.AclReaders;
+import org.alfresco.solr.client.SOLRAPIClient;
+import org.json.JSONException;
+
+/**
+ * Node level feed of the ACLs of a repository, shared by the ACL trackers of the cores (shards) of the node which
+ * track that repository: most routers index every ACL in every shard, so they would all fetch the same data.
+ * <p>
+ * The ACLs of a change set and the readers of an ACL are fetched once, by the first tracker asking for them, and
+ * kept until each subscribed tracker has read them (see {@link SharedEntries}). The readers of the ACLs routed to
+ * other shards only are never read by every tracker: they are evicted when the feed is full.
+ * <p>
+ * The readers are kept per ACL and change set, as an ACL changed in a later change set has different readers.
+ *
+ * @see TrackerRegistry#getAclFeed(SOLRAPIClient)
+ */
+public class SharedAclFeed
+{
+    /* The maximum number of change sets and of ACL readers kept for the trackers which haven't read them yet */
+    private static final int MAX_ENTRIES = 10_000;
+
+    /* How long a tracker waits for the data fetched by another one */
+    private static final long MAX_WAIT_MILLIS = 120_000;
+
+    private final SOLRAPIClient client;
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final SharedEntries<Long, List<Acl>> changeSetAcls =
+            new SharedEntries<>(subscribers::get, MAX_ENTRIES, MAX_WAIT_MILLIS);
+    private final SharedEntries<Acl, AclReaders> aclReaders =
+            new SharedEntries<>(subscribers::get, MAX_ENTRIES, MAX_WAIT_MILLIS);
+
+    public SharedAclFeed(SOLRAPIClient client)
+    {
+        this.client = client;
+    }
+
+    /**
+     * Registers a tracker reading from this feed.
+     */
+    public void subscribe()
+    {
+        subscribers.incrementAndGet();
+    }
+
+    public void unsubscribe()
+    {
+        subscribers.decrementAndGet();
+    }
+
+    /**
+     * @return the ACLs of the given change sets, as {@link SOLRAPIClient#getAcls(List, Long, int)} with no limit.
+     */
+    public List<Acl> getAcls(List<AclChangeSet> changeSets) throws AuthenticationException, IOException, JSONException
+    {
+        List<Long> ids = changeSets.stream().map(AclChangeSet::getId).collect(Collectors.toList());
+        List<List<Acl>> acls = changeSetAcls.get(ids, missingIds -> {
+            Set<Long> missing = Set.copyOf(missingIds);
+            List<AclChangeSet> missingChangeSets = changeSets.stream()
+                    .filter(changeSet -> missing.contains(changeSet.getId()))
+                    .collect(Collectors.toList());
+
+            Map<Long, List<Acl>> fetched = new HashMap<>();
+            missingIds.forEach(id -> fetched.put(id, new ArrayList<>()));
+            for (Acl acl : client.getAcls(missingChangeSets, null, Integer.MAX_VALUE))
+            {
+                fetched.computeIfAbsent(acl.getAclChangeSetId(), id -> new ArrayList<>()).add(acl);
+            }
+            return fetched;
+        });
+        return acls.stream().flatMap(List::stream).collect(Collectors.toList());
+    }
+
+    /**
+     * @return the readers of the given ACLs, as {@link SOLRAPIClient#getAclReaders(List)}.
+     */
+    public List<AclReaders> getAclReaders(List<Acl> acls) throws AuthenticationException, IOException, JSONException
+    {
+        return aclReaders.get(new ArrayList<>(new LinkedHashSet<>(acls)), missingAcls -> {
+            // The repository returns the readers by ACL id only
+            Map<Long, AclReaders> readersById = new HashMap<>();
+            for (AclReaders readers : client.getAclReaders(missingAcls))
+            {
+                readersById.put(readers.getId(), readers);
+            }
+
+            Map<Acl, AclReaders> fetched = new HashMap<>();
+            for (Acl acl : missingAcls)
+            {
+                AclReaders readers = readersById.get(acl.getId());
+                if (readers != null)
+                {
+                    fetched.put(acl, readers);
+                }
+            }
+            return fetched;
+        });
+    }
+}
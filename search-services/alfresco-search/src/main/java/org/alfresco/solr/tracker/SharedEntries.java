@@ -0,0 +1,208 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.tracker;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+
+import org.alfresco.httpclient.AuthenticationException;
+import org.json.JSONException;
+
+/**
+ * Values fetched from the repository on behalf of several trackers (one per core) which all need them, keyed by id:
+ * the backing store of the node level feeds ({@link SharedAclFeed}, {@link SharedNodeFeed}).
+ * <p>
+ * A value is fetched once, by the first tracker asking for it; the trackers asking for it meanwhile wait for that
+ * fetch, for a bounded time. It is then kept until each subscribed tracker has read it, or until there are too many
+ * values, as a tracker may never read some of them (e.g. those it had already indexed). Values being fetched are
+ * never evicted.
+ *
+ * @param <K> the type of the ids.
+ * @param <V> the type of the values.
+ */
+class SharedEntries<K, V>
+{
+    @FunctionalInterface
+    interface Fetcher<K, V>
+    {
+        /**
+         * @return the values of the given ids, ids without values may be missing.
+         */
+        Map<K, V> fetch(List<K> ids) throws AuthenticationException, IOException, JSONException;
+    }
+
+    private static class Entry<K, V>
+    {
+        private final K id;
+        private final CompletableFuture<V> value = new CompletableFuture<>();
+        private int remainingReads;
+
+        Entry(K id, int remainingReads)
+        {
+            this.id = id;
+            this.remainingReads = remainingReads;
+        }
+    }
+
+    private final IntSupplier subscribers;
+    private final int maxEntries;
+    private final long maxWaitMillis;
+
+    /* The values being fetched or waiting to be read by the subscribers, in fetch order */
+    private final LinkedHashMap<K, Entry<K, V>> entries = new LinkedHashMap<>();
+
+    /**
+     * @param subscribers the number of trackers reading the values.
+     * @param maxEntries the maximum number of values kept for the trackers which haven't read them yet.
+     * @param maxWaitMillis how long a tracker waits for the values fetched by another one before failing its run.
+     */
+    SharedEntries(IntSupplier subscribers, int maxEntries, long maxWaitMillis)
+    {
+        this.subscribers = subscribers;
+        this.maxEntries = maxEntries;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * @return the values of the given ids, in the same order, skipping those without values.
+     */
+    List<V> get(List<K> ids, Fetcher<K, V> fetcher) throws AuthenticationException, IOException, JSONException
+    {
+        List<Entry<K, V>> requested = new ArrayList<>(ids.size());
+        List<Entry<K, V>> missing = new ArrayList<>();
+        synchronized (this)
+        {
+            for (K id : ids)
+            {
+                Entry<K, V> entry = entries.get(id);
+                if (entry == null)
+                {
+                    entry = new Entry<>(id, subscribers.getAsInt());
+                    entries.put(id, entry);
+                    missing.add(entry);
+                }
+                requested.add(entry);
+            }
+            evict();
+        }
+
+        if (!missing.isEmpty())
+        {
+            fetch(missing, fetcher);
+        }
+
+        List<V> values = new ArrayList<>(requested.size());
+        for (Entry<K, V> entry : requested)
+        {
+            V value = await(entry);
+            if (value != null)
+            {
+                values.add(value);
+            }
+            synchronized (this)
+            {
+                if (--entry.remainingReads <= 0)
+                {
+                    entries.remove(entry.id, entry);
+                }
+            }
+        }
+        return values;
+    }
+
+    synchronized int size()
+    {
+        return entries.size();
+    }
+
+    private void fetch(List<Entry<K, V>> missing, Fetcher<K, V> fetcher)
+            throws AuthenticationException, IOException, JSONException
+    {
+        try
+        {
+            Map<K, V> values = fetcher.fetch(missing.stream().map(entry -> entry.id).collect(Collectors.toList()));
+            missing.forEach(entry -> entry.value.complete(values.get(entry.id)));
+        }
+        catch (Throwable e)
+        {
+            // Whatever went wrong, the waiting trackers fail as well: they'll retry (and fetch again) on their next run
+            synchronized (this)
+            {
+                missing.forEach(entry -> entries.remove(entry.id, entry));
+            }
+            missing.forEach(entry -> entry.value.completeExceptionally(e));
+            throw e;
+        }
+    }
+
+    private V await(Entry<K, V> entry) throws IOException
+    {
+        try
+        {
+            return entry.value.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for " + entry.id + " to be fetched", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new IOException("Failed to fetch " + entry.id, e.getCause());
+        }
+        catch (TimeoutException e)
+        {
+            throw new IOException("Timed out after " + maxWaitMillis + " ms waiting for " + entry.id + " to be fetched", e);
+        }
+    }
+
+    /*
+    * Drops the oldest values already fetched beyond the maximum size.
+    */
+
+    private void evict()
+    {
+        Iterator<Entry<K, V>> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext())
+        {
+            if (iterator.next().value.isDone())
+            {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.tracker;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.alfresco.httpclient.AuthenticationException;
+import org.alfresco.solr.client.GetNodesParameters;
+import org.alfresco.solr.client.Node;
+import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.solr.client.SOLRAPIClient;
+import org.json.JSONException;
+
+/**
+ * Node level feed of the nodes of the transactions of a repository, shared by the metadata trackers of the cores
+ * (shards) of the node which track that repository: each one would otherwise fetch all the nodes of each transaction
+ * and then keep only those routed to its shard.
+ * <p>
+ * The nodes of a transaction are fetched once, by the first tracker asking for them, and kept until each subscribed
+ * tracker has read them (see {@link SharedEntries}). They are fetched unfiltered, so each tracker still routes them
+ * with its own router, and keeps its own state and rollbacks.
+ * <p>
+ * The trackers share the nodes fetched with the same store and shard property only, as the repository includes the
+ * value of that property in the nodes: they subscribe with the store and shard property they fetch the nodes with, so
+ * that the nodes are kept until the trackers sharing them (only) have read them.
+ *
+ * @see TrackerRegistry#getNodeFeed(SOLRAPIClient)
+ */
+public class SharedNodeFeed
+{
+    /* The maximum number of transactions kept for the trackers which haven't read their nodes yet, per channel */
+    private static final int MAX_ENTRIES = 2_000;
+
+    /* How long a tracker waits for the nodes fetched by another one */
+    private static final long MAX_WAIT_MILLIS = 120_000;
+
+    /* The nodes fetched with a store and shard property, and the trackers reading them */
+    private static class Channel
+    {
+        private final AtomicInteger subscribers = new AtomicInteger();
+        private final SharedEntries<Long, List<Node>> transactionNodes =
+                new SharedEntries<>(subscribers::get, MAX_ENTRIES, MAX_WAIT_MILLIS);
+    }
+
+    private final SOLRAPIClient client;
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+
+    public SharedNodeFeed(SOLRAPIClient client)
+    {
+        this.client = client;
+    }
+
+    /**
+     * Registers a tracker reading from this feed.
+     *
+     * @param store the store the tracker fetches the nodes of.
+     * @param shardProperty the shard property the tracker fetches the nodes with, null if none.
+     */
+    public void subscribe(StoreRef store, QName shardProperty)
+    {
+        channel(store, shardProperty).subscribers.incrementAndGet();
+    }
+
+    public void unsubscribe(StoreRef store, QName shardProperty)
+    {
+        channel(store, shardProperty).subscribers.decrementAndGet();
+    }
+
+    /**
+     * @param parameters the store, the shard property and the ids of the transactions to get the nodes of.
+     * @return the nodes of the transactions, as {@link SOLRAPIClient#getNodes(GetNodesParameters, int)} with no limit.
+     */
+    public List<Node> getNodes(GetNodesParameters parameters) throws AuthenticationException, IOException, JSONException
+    {
+        StoreRef store = new StoreRef(parameters.getStoreProtocol(), parameters.getStoreIdentifier());
+        SharedEntries<Long, List<Node>> entries = channel(store, parameters.getShardProperty()).transactionNodes;
+
+        List<List<Node>> nodes = entries.get(parameters.getTransactionIds(), missingIds -> {
+            GetNodesParameters missing = new GetNodesParameters();
+            missing.setTransactionIds(missingIds);
+            missing.setStoreProtocol(parameters.getStoreProtocol());
+            missing.setStoreIdentifier(parameters.getStoreIdentifier());
+            missing.setShardProperty(parameters.getShardProperty());
+            missing.setCoreName(parameters.getCoreName());
+
+            Map<Long, List<Node>> fetched = new HashMap<>();
+            missingIds.forEach(id -> fetched.put(id, new ArrayList<>()));
+            for (Node node : client.getNodes(missing, Integer.MAX_VALUE))
+            {
+                fetched.computeIfAbsent(node.getTxnId(), id -> new ArrayList<>()).add(node);
+            }
+            return fetched;
+        });
+        return nodes.stream().flatMap(List::stream).collect(Collectors.toList());
+    }
+
+    private Channel channel(StoreRef store, QName shardProperty)
+    {
+        return channels.computeIfAbsent(store + "|" + shardProperty, key -> new Channel());
+    }
+}
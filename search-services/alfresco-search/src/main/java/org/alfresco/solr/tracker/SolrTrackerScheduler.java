@@ -26,8 +26,14 @@
 
 package org.alfresco.solr.tracker;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
 
 import org.alfresco.solr.AlfrescoCoreAdminHandler;
 import org.quartz.CronScheduleBuilder;
@@ -52,6 +58,23 @@ public class SolrTrackerScheduler
 {
     private static final String DEFAULT_CRON = "0/10 * * * * ? *";
     public static final String SOLR_JOB_GROUP = "Solr";
+
+    /** Enables the adaptive scheduling (see {@link AdaptiveTrackerSchedule}) of the indexing trackers. */
+    static final String ADAPTIVE_SCHEDULING = "alfresco.tracker.adaptiveScheduling";
+
+    /** The maximum delay between two cycles of an idle tracker, in ms: by default a few intervals of its cron. */
+    static final String ADAPTIVE_MAX_BACKOFF = "alfresco.tracker.adaptiveScheduling.maxBackoff";
+
+    /* The default maximum backoff, in intervals of the tracker cron: 1 minute with the default cron */
+    private static final int DEFAULT_MAX_BACKOFF_INTERVALS = 6;
+
+    /*
+     * The trackers which are scheduled adaptively: the other trackers (commit, model and node state publisher)
+     * have a fixed cost and/or their own timing, so they always run on their cron.
+     */
+    private static final Set<Tracker.Type> ADAPTIVE_TRACKERS =
+            EnumSet.of(Tracker.Type.ACL, Tracker.Type.METADATA, Tracker.Type.CONTENT, Tracker.Type.CASCADE);
+
     protected final static Logger log = LoggerFactory.getLogger(SolrTrackerScheduler.class);
     protected Scheduler scheduler;
 
@@ -141,8 +164,18 @@ public class SolrTrackerScheduler
                 break;
             }
             trigger = TriggerBuilder.newTrigger().withIdentity(jobName, SOLR_JOB_GROUP).withSchedule(CronScheduleBuilder.cronSchedule(cron)).build();
-            log.info("Scheduling job " + jobName);
-            scheduler.scheduleJob(job, trigger);
+            if (ADAPTIVE_TRACKERS.contains(tracker.getType()) && Boolean.parseBoolean(props.getProperty(ADAPTIVE_SCHEDULING, "false")))
+            {
+                job.getJobDataMap().put(TrackerJob.JOBDATA_SCHEDULE_KEY, newAdaptiveSchedule(trigger, props));
+                log.info("Scheduling job " + jobName + " (adaptive)");
+                scheduler.scheduleJob(job, trigger);
+                linkAdaptiveSchedules(coreName);
+            }
+            else
+            {
+                log.info("Scheduling job " + jobName);
+                scheduler.scheduleJob(job, trigger);
+            }
         }
         catch (SchedulerException e)
         {   
@@ -150,6 +183,87 @@ public class SolrTrackerScheduler
         }
     }
 
+    /*
+     * The backoff of an idle tracker starts from the interval between two fires of its trigger (so the first idle
+     * cycle doesn't skip any tick) and is capped to a few intervals, unless a maximum backoff is configured: a
+     * maximum backoff shorter than two intervals never skips a tick.
+     */
+    private AdaptiveTrackerSchedule newAdaptiveSchedule(Trigger trigger, Properties props)
+    {
+        Date next = trigger.getFireTimeAfter(new Date());
+        Date following = next == null ? null : trigger.getFireTimeAfter(next);
+        long interval = following == null ? 0 : following.getTime() - next.getTime();
+
+        String maxBackoff = props.getProperty(ADAPTIVE_MAX_BACKOFF, "").trim();
+        return new AdaptiveTrackerSchedule(interval,
+                maxBackoff.isEmpty() ? DEFAULT_MAX_BACKOFF_INTERVALS * interval : Long.parseLong(maxBackoff));
+    }
+
+    /*
+     * The content and cascade trackers index what the metadata tracker of the same core has indexed: their
+     * schedules follow the metadata one, so that they don't keep backing off while new nodes are being indexed.
+     * The trackers of a core may be scheduled in any order, so the links are set again on each adaptive schedule.
+     */
+    private void linkAdaptiveSchedules(String coreName) throws SchedulerException
+    {
+        AdaptiveTrackerSchedule metadataSchedule = null;
+        List<AdaptiveTrackerSchedule> followers = new ArrayList<>();
+        for (JobKey key : scheduler.getJobKeys(GroupMatcher.jobGroupEquals(SOLR_JOB_GROUP)))
+        {
+            JobDetail detail = scheduler.getJobDetail(key);
+            if (detail == null)
+            {
+                continue;
+            }
+
+            Tracker tracker = (Tracker) detail.getJobDataMap().get(TrackerJob.JOBDATA_TRACKER_KEY);
+            AdaptiveTrackerSchedule schedule = (AdaptiveTrackerSchedule) detail.getJobDataMap().get(TrackerJob.JOBDATA_SCHEDULE_KEY);
+            if (tracker == null || schedule == null || !key.getName().equals(getJobName(tracker, coreName)))
+            {
+                continue;
+            }
+
+            if (tracker.getType() == Tracker.Type.METADATA)
+            {
+                metadataSchedule = schedule;
+            }
+            else if (tracker.getType() == Tracker.Type.CONTENT || tracker.getType() == Tracker.Type.CASCADE)
+            {
+                followers.add(schedule);
+            }
+        }
+
+        if (metadataSchedule != null)
+        {
+            metadataSchedule.setFollowers(followers);
+        }
+    }
+
+    /**
+     * Returns the adaptive schedule of the given tracker instance, if it has been scheduled adaptively.
+     *
+     * @param coreName the core name.
+     * @param tracker Specific instance of a tracker
+     * @return the adaptive schedule of the tracker, empty if the tracker runs on its cron (or it isn't scheduled).
+     */
+    public Optional<AdaptiveTrackerSchedule> getAdaptiveSchedule(String coreName, Tracker tracker)
+    {
+        String jobName = this.getJobName(tracker, coreName);
+        try
+        {
+            JobDetail detail = this.scheduler.getJobDetail(new JobKey(jobName, SOLR_JOB_GROUP));
+            if (detail != null && detail.getJobDataMap().get(TrackerJob.JOBDATA_TRACKER_KEY) == tracker)
+            {
+                return Optional.ofNullable((AdaptiveTrackerSchedule) detail.getJobDataMap().get(TrackerJob.JOBDATA_SCHEDULE_KEY));
+            }
+        }
+        catch (SchedulerException e)
+        {
+            log.error("Unable to get the tracker job " + jobName, e);
+        }
+        return Optional.empty();
+    }
+
     protected String getJobName(Tracker tracker, String coreName)
     {
         return tracker.getClass().getSimpleName() + "-" + coreName;
@@ -60,6 +60,29 @@ public interface Tracker
     TrackerState getTrackerState();
     
     Type getType();
+
+    /**
+     * Returns true if the last tracking cycle stopped at one of its limits (e.g. the time window of the indexing)
+     * with work left behind, so another cycle can be started immediately (see {@link AdaptiveTrackerSchedule}).
+     * Trackers that don't report their progress are never re-run before their next scheduled time.
+     *
+     * @return true if the tracker should be re-run immediately, false otherwise.
+     */
+    default boolean hasRemainingWork()
+    {
+        return false;
+    }
+
+    /**
+     * Returns true if the last tracking cycle indexed something: the repository is active, so the
+     * {@link AdaptiveTrackerSchedule} doesn't back off before the next cycle.
+     *
+     * @return true if the last tracking cycle found work, false otherwise.
+     */
+    default boolean hasFoundWork()
+    {
+        return hasRemainingWork();
+    }
     
     enum Type
     {
@@ -40,12 +40,15 @@ import org.slf4j.LoggerFactory;
  * Concurrent execution is disallowed, as no parallel work can be done when 
  * indexing contents from the repository.
  * 
+ * When the job has an {@link AdaptiveTrackerSchedule}, the tracker is run (or re-run, or skipped) according to it.
+ * 
  * @author Matt Ward
  */
 @DisallowConcurrentExecution
 public class TrackerJob implements Job
 {
     public static final String JOBDATA_TRACKER_KEY = "TRACKER";
+    public static final String JOBDATA_SCHEDULE_KEY = "SCHEDULE";
     protected final static Logger log = LoggerFactory.getLogger(TrackerJob.class);
 
 
@@ -57,7 +60,15 @@ public class TrackerJob implements Job
     public void execute(JobExecutionContext jec) throws JobExecutionException
     {
         Tracker tracker = getTracker(jec);
-        tracker.track();
+        AdaptiveTrackerSchedule schedule = (AdaptiveTrackerSchedule) jec.getJobDetail().getJobDataMap().get(JOBDATA_SCHEDULE_KEY);
+        if (schedule == null)
+        {
+            tracker.track();
+        }
+        else
+        {
+            schedule.run(tracker, jec.getScheduledFireTime().getTime());
+        }
     }
 
     /**
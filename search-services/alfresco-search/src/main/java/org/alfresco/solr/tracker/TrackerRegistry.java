@@ -32,6 +32,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.alfresco.solr.client.SOLRAPIClient;
+
 /**
  * Registry of trackers for an AdminHandler
  * @author Ahmed Owian
@@ -48,6 +50,13 @@ public class TrackerRegistry
      * There is one ModelTracker per Alfresco data schema/repository, and it has no dependency on cores.
      */
     private volatile ModelTracker modelTracker;
+
+    /*
+     * There is one shared ACL feed and one shared node feed per repository (i.e. per client, as clients are pooled
+     * per repository).
+     */
+    private Map<SOLRAPIClient, SharedAclFeed> aclFeeds = new ConcurrentHashMap<>();
+    private Map<SOLRAPIClient, SharedNodeFeed> nodeFeeds = new ConcurrentHashMap<>();
     
     public Set<String> getCoreNames()
     {
@@ -103,4 +112,20 @@ public class TrackerRegistry
     {
         this.modelTracker = modelTracker;
     }
+
+    /**
+     * @return the ACL feed shared by the cores tracking the repository of the given client.
+     */
+    public SharedAclFeed getAclFeed(SOLRAPIClient client)
+    {
+        return aclFeeds.computeIfAbsent(client, SharedAclFeed::new);
+    }
+
+    /**
+     * @return the node feed shared by the cores tracking the repository of the given client.
+     */
+    public SharedNodeFeed getNodeFeed(SOLRAPIClient client)
+    {
+        return nodeFeeds.computeIfAbsent(client, SharedNodeFeed::new);
+    }
 }
@@ -27,6 +27,8 @@
 package org.alfresco.solr.transformer;
 
 import org.alfresco.solr.AlfrescoSolrDataModel;
+import org.alfresco.solr.query.QueryPhaseTimings;
+import org.alfresco.solr.query.QueryPhaseTimings.Phase;
 import org.apache.lucene.index.IndexableField;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.response.DocsStreamer;
@@ -53,10 +55,19 @@ public class AlfrescoFieldMapperTransformer extends DocTransformer
 
     private ResultContext context;
     private SolrReturnFields solrReturnFields;
+    private QueryPhaseTimings timings = QueryPhaseTimings.of(null);
 
-    @SuppressWarnings("unchecked")
     @Override
     public void transform(SolrDocument doc, int docid, float score)
+    {
+        try (QueryPhaseTimings.Split split = timings.start(Phase.FIELD_MAPPING))
+        {
+            mapFields(doc);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mapFields(SolrDocument doc)
     {
         Collection<String> fieldNames = new ArrayList<>(doc.getFieldNames());
         solrReturnFields = new SolrReturnFields(context.getRequest().getParams().get("originalFl"), context.getRequest());
@@ -103,6 +114,7 @@ public class AlfrescoFieldMapperTransformer extends DocTransformer
     public void setContext( ResultContext context )
     {
         this.context = context;
+        this.timings = QueryPhaseTimings.of(context.getRequest());
     }
 
     private boolean isRequestedField(String fieldName)
@@ -28,10 +28,18 @@ package org.alfresco.solr.transformer;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.alfresco.solr.AlfrescoSolrDataModel;
 import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
@@ -40,10 +48,19 @@ import org.apache.solr.common.SolrDocument;
 import org.apache.solr.response.ResultContext;
 import org.apache.solr.response.transform.DocTransformer;
 import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.SolrIndexSearcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Adds to the returned documents the doc values of every schema field having them, mapped to the Alfresco property
+ * names.
+ *
+ * The fields (with their doc values type and Alfresco name) are resolved once per request, in {@link #setContext},
+ * while the doc values are read from the segment (leaf) the document belongs to. The output is the same as reading
+ * them from the merged (slow) reader: fields are added whatever fl requests; single valued
+ * sorted fields are skipped when the document has no value, multi valued fields are added as (possibly empty) lists.
+ *
  * @author Andy
  *
  */
@@ -51,6 +68,12 @@ public class DocValueDocTransformer extends DocTransformer
 {
     protected final static Logger log = LoggerFactory.getLogger(DocValueDocTransformer.class);
 
+    private List<DocValueField> fields = Collections.emptyList();
+    private List<LeafReaderContext> leaves = Collections.emptyList();
+
+    // Doc values of the fields, lazily loaded, for each leaf: [leaf][field]
+    private Object[][] leafDocValues;
+
     /* (non-Javadoc)
      * @see org.apache.solr.response.transform.DocTransformer#getName()
      */
@@ -64,6 +87,11 @@ public class DocValueDocTransformer extends DocTransformer
     public void setContext( ResultContext context ) 
     {
         this.context = context;
+
+        SolrIndexSearcher searcher = context.getSearcher();
+        this.fields = docValueFields(searcher);
+        this.leaves = searcher.getTopReaderContext().leaves();
+        this.leafDocValues = new Object[leaves.size()][];
     }
     
     
@@ -73,117 +101,188 @@ public class DocValueDocTransformer extends DocTransformer
     @Override
     public void transform(SolrDocument doc, int docid, float score) throws IOException
     {
-        for(String fieldName :context.getSearcher().getFieldNames())
+        if (fields.isEmpty())
+        {
+            return;
+        }
+
+        int leafIndex = ReaderUtil.subIndex(docid, leaves);
+        LeafReaderContext leaf = leaves.get(leafIndex);
+        int leafDocId = docid - leaf.docBase;
+
+        if (leafDocValues[leafIndex] == null)
+        {
+            leafDocValues[leafIndex] = new Object[fields.size()];
+        }
+        Object[] docValues = leafDocValues[leafIndex];
+
+        for (int i = 0; i < fields.size(); i++)
         {
-            SchemaField schemaField = context.getSearcher().getSchema().getFieldOrNull(fieldName);
-            if(schemaField != null)
+            DocValueField field = fields.get(i);
+
+            if (docValues[i] == null)
             {
-                if(schemaField.hasDocValues())
-                {
-                    SortedDocValues sortedDocValues = context.getSearcher().getSlowAtomicReader().getSortedDocValues(fieldName);
-                    if(sortedDocValues != null)
-                    {
-                        int ordinal = sortedDocValues.getOrd(docid);
-                        if(ordinal > -1)
-                        {
-                            doc.removeFields(fieldName);
-                            String alfrescoFieldName = AlfrescoSolrDataModel.getInstance().getAlfrescoPropertyFromSchemaField(fieldName);
-                            doc.removeFields(alfrescoFieldName);
-                            doc.addField(alfrescoFieldName, schemaField.getType().toObject(schemaField, sortedDocValues.lookupOrd(ordinal)));
-                        }
-                    }
-                    
-                    SortedSetDocValues sortedSetDocValues = context.getSearcher().getSlowAtomicReader().getSortedSetDocValues(fieldName);
-                    if(sortedSetDocValues != null)
+                // Segments without the field get empty doc values, as in the merged reader
+                docValues[i] = field.docValues(leaf.reader());
+            }
+            field.addValues(doc, docValues[i], leafDocId);
+        }
+    }
+
+    /**
+     * Resolves the fields with doc values which need to be added to the returned documents.
+     */
+    private static List<DocValueField> docValueFields(SolrIndexSearcher searcher)
+    {
+        List<DocValueField> fields = new ArrayList<>();
+        AlfrescoSolrDataModel dataModel = AlfrescoSolrDataModel.getInstance();
+
+        for (FieldInfo fieldInfo : searcher.getSlowAtomicReader().getFieldInfos())
+        {
+            SchemaField schemaField = searcher.getSchema().getFieldOrNull(fieldInfo.name);
+            if (schemaField == null || !schemaField.hasDocValues() || fieldInfo.getDocValuesType() == DocValuesType.NONE)
+            {
+                continue;
+            }
+
+            boolean numeric = schemaField.getType().getNumericType() != null;
+            DocValuesType type = fieldInfo.getDocValuesType();
+            if ((type == DocValuesType.NUMERIC || type == DocValuesType.SORTED_NUMERIC) && !numeric)
+            {
+                continue;
+            }
+
+            String alfrescoName = dataModel.getAlfrescoPropertyFromSchemaField(fieldInfo.name);
+            fields.add(new DocValueField(fieldInfo.name, alfrescoName, schemaField, type));
+        }
+
+        return fields;
+    }
+
+    /**
+     * A field with doc values, resolved once per request.
+     */
+    private static class DocValueField
+    {
+        final String name;
+        final String alfrescoName;
+        final SchemaField schemaField;
+        final DocValuesType type;
+
+        DocValueField(String name, String alfrescoName, SchemaField schemaField, DocValuesType type)
+        {
+            this.name = name;
+            this.alfrescoName = alfrescoName;
+            this.schemaField = schemaField;
+            this.type = type;
+        }
+
+        /**
+         * @return the doc values of the field in the given segment, empty if the segment doesn't have the field.
+         */
+        Object docValues(LeafReader reader) throws IOException
+        {
+            switch (type)
+            {
+                case SORTED:
+                    return DocValues.getSorted(reader, name);
+                case SORTED_SET:
+                    return DocValues.getSortedSet(reader, name);
+                case BINARY:
+                    return DocValues.getBinary(reader, name);
+                case NUMERIC:
+                    return DocValues.getNumeric(reader, name);
+                case SORTED_NUMERIC:
+                    return DocValues.getSortedNumeric(reader, name);
+                default:
+                    return null;
+            }
+        }
+
+        void addValues(SolrDocument doc, Object docValues, int docId)
+        {
+            switch (type)
+            {
+                case SORTED:
+                    SortedDocValues sortedDocValues = (SortedDocValues) docValues;
+                    int ordinal = sortedDocValues.getOrd(docId);
+                    if (ordinal > -1)
                     {
-                        ArrayList<Object> newValues = new ArrayList<Object>();
-                        sortedSetDocValues.setDocument(docid);
-                        long ordinal;
-                        while ( (ordinal = sortedSetDocValues.nextOrd()) !=  SortedSetDocValues.NO_MORE_ORDS)
-                        {
-                            newValues.add(schemaField.getType().toObject(schemaField, sortedSetDocValues.lookupOrd(ordinal)));       
-                        }
-                        doc.removeFields(fieldName);
-                        String alfrescoFieldName = AlfrescoSolrDataModel.getInstance().getAlfrescoPropertyFromSchemaField(fieldName);
-                        doc.removeFields(alfrescoFieldName);
-                        doc.addField(alfrescoFieldName, newValues);
+                        removeFields(doc);
+                        doc.addField(alfrescoName, schemaField.getType().toObject(schemaField, sortedDocValues.lookupOrd(ordinal)));
                     }
-                    
-                    
-                    BinaryDocValues binaryDocValues = context.getSearcher().getSlowAtomicReader().getBinaryDocValues(fieldName);
-                    if(binaryDocValues != null)
+                    break;
+                case SORTED_SET:
+                    SortedSetDocValues sortedSetDocValues = (SortedSetDocValues) docValues;
+                    ArrayList<Object> newValues = new ArrayList<>();
+                    sortedSetDocValues.setDocument(docId);
+                    long ord;
+                    while ((ord = sortedSetDocValues.nextOrd()) != SortedSetDocValues.NO_MORE_ORDS)
                     {
-                        doc.removeFields(fieldName);
-                        String alfrescoFieldName = AlfrescoSolrDataModel.getInstance().getAlfrescoPropertyFromSchemaField(fieldName);
-                        doc.removeFields(alfrescoFieldName);
-                        doc.addField(alfrescoFieldName, schemaField.getType().toObject(schemaField, binaryDocValues.get(docid)));
+                        newValues.add(schemaField.getType().toObject(schemaField, sortedSetDocValues.lookupOrd(ord)));
                     }
-                    
-                    if(schemaField.getType().getNumericType() != null)
+                    removeFields(doc);
+                    doc.addField(alfrescoName, newValues);
+                    break;
+                case BINARY:
+                    BinaryDocValues binaryDocValues = (BinaryDocValues) docValues;
+                    removeFields(doc);
+                    doc.addField(alfrescoName, schemaField.getType().toObject(schemaField, binaryDocValues.get(docId)));
+                    break;
+                case NUMERIC:
+                    removeFields(doc);
+                    doc.addField(alfrescoName, numericValue(((NumericDocValues) docValues).get(docId)));
+                    break;
+                case SORTED_NUMERIC:
+                    SortedNumericDocValues sortedNumericDocValues = (SortedNumericDocValues) docValues;
+                    sortedNumericDocValues.setDocument(docId);
+                    ArrayList<Object> numericValues = new ArrayList<>(sortedNumericDocValues.count());
+                    for (int i = 0; i < sortedNumericDocValues.count(); i++)
                     {
-                        NumericDocValues numericDocValues = context.getSearcher().getSlowAtomicReader().getNumericDocValues(fieldName);
-                        if(numericDocValues != null)
-                        {
-                            doc.removeFields(fieldName);
-                            String alfrescoFieldName = AlfrescoSolrDataModel.getInstance().getAlfrescoPropertyFromSchemaField(fieldName);
-                            doc.removeFields(alfrescoFieldName);
-                            switch(schemaField.getType().getNumericType())
-                            {
-                            case DOUBLE:
-                                doc.addField(alfrescoFieldName,  Double.longBitsToDouble(numericDocValues.get(docid)));
-                                break;
-                            case FLOAT:
-                                doc.addField(alfrescoFieldName,  Float.intBitsToFloat((int) numericDocValues.get(docid)));
-                                break;
-                            case INT:
-                                doc.addField(alfrescoFieldName, (int) numericDocValues.get(docid));
-                                break;
-                            case LONG:
-                                doc.addField(alfrescoFieldName, numericDocValues.get(docid));
-                                break;
-                            }
-                        }
-                        
-                        SortedNumericDocValues sortedNumericDocValues = context.getSearcher().getSlowAtomicReader().getSortedNumericDocValues(fieldName);
-                        if(sortedNumericDocValues != null)
-                        {
-                            sortedNumericDocValues.setDocument(docid);
-                            doc.removeFields(fieldName);
-                            String alfrescoFieldName = AlfrescoSolrDataModel.getInstance().getAlfrescoPropertyFromSchemaField(fieldName);
-                            doc.removeFields(alfrescoFieldName);
-                            ArrayList<Object> newValues = new ArrayList<Object>(sortedNumericDocValues.count()); 
-                            if(sortedNumericDocValues.count() > 0)
-                            {
-                               
-                                for(int i = 0; i < sortedNumericDocValues.count(); i++)
-                                {
-                                    switch(schemaField.getType().getNumericType())
-                                    {
-                                        case DOUBLE:
-                                            newValues.add(NumericUtils.sortableLongToDouble(sortedNumericDocValues.valueAt(i)));
-                                            break;
-                                        case FLOAT:
-                                            newValues.add(NumericUtils.sortableIntToFloat((int)sortedNumericDocValues.valueAt(i)));
-                                            break;
-                                        case INT:
-                                            newValues.add((int)sortedNumericDocValues.valueAt(i));
-                                            break;
-                                        case LONG:
-                                            newValues.add(sortedNumericDocValues.valueAt(i));
-                                            break;
-                                          
-                                    }
-                                }
-                            }
-                            doc.addField(alfrescoFieldName, newValues);
-                            
-                        }
+                        numericValues.add(sortableNumericValue(sortedNumericDocValues.valueAt(i)));
                     }
-                }
+                    removeFields(doc);
+                    doc.addField(alfrescoName, numericValues);
+                    break;
+                default:
+                    break;
             }
         }
-        
-    }
 
-    
+        private void removeFields(SolrDocument doc)
+        {
+            doc.removeFields(name);
+            doc.removeFields(alfrescoName);
+        }
+
+        private Object numericValue(long value)
+        {
+            switch (schemaField.getType().getNumericType())
+            {
+                case DOUBLE:
+                    return Double.longBitsToDouble(value);
+                case FLOAT:
+                    return Float.intBitsToFloat((int) value);
+                case INT:
+                    return (int) value;
+                default:
+                    return value;
+            }
+        }
+
+        private Object sortableNumericValue(long value)
+        {
+            switch (schemaField.getType().getNumericType())
+            {
+                case DOUBLE:
+                    return NumericUtils.sortableLongToDouble(value);
+                case FLOAT:
+                    return NumericUtils.sortableIntToFloat((int) value);
+                case INT:
+                    return (int) value;
+                default:
+                    return value;
+            }
+        }
+    }
 }
@@ -0,0 +1,180 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.utils;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A reusable, per-thread char buffer where the text content of a document is decoded.
+ *
+ * The content is read from the transformation response straight into the buffer, so the only copy of the text
+ * allocated per document is the final (stored field) String. The buffer grows as needed (its size is bounded by the
+ * content stream limit) and it is then reused by the next documents indexed by the same thread. Buffers grown above
+ * {@link #MAX_RETAINED_CAPACITY} by a large document are dropped by {@link #release()}, so a thread doesn't keep
+ * holding the memory needed by its largest document.
+ */
+public final class TextContentBuffer
+{
+    private static final int INITIAL_CAPACITY = 8192;
+
+    /* The largest buffer (in chars) kept for the next documents once released */
+    static final int MAX_RETAINED_CAPACITY = 1 << 20;
+
+    private static final ThreadLocal<TextContentBuffer> BUFFERS = ThreadLocal.withInitial(TextContentBuffer::new);
+
+    private char[] chars = new char[INITIAL_CAPACITY];
+    private int length;
+
+    TextContentBuffer()
+    {
+    }
+
+    /**
+     * Returns the (empty) buffer of the calling thread.
+     * The returned instance must not be shared with other threads or kept after the document has been processed.
+     *
+     * @return the (empty) buffer of the calling thread.
+     */
+    public static TextContentBuffer forCurrentThread()
+    {
+        TextContentBuffer buffer = BUFFERS.get();
+        buffer.length = 0;
+        return buffer;
+    }
+
+    /**
+     * Empties the buffer once the document has been processed. If a large document made it grow above
+     * {@link #MAX_RETAINED_CAPACITY} the chars are dropped, and the next document starts again from a small buffer.
+     */
+    public void release()
+    {
+        length = 0;
+        if (chars.length > MAX_RETAINED_CAPACITY)
+        {
+            chars = new char[INITIAL_CAPACITY];
+        }
+    }
+
+    /**
+     * @return the number of chars the buffer can hold without growing.
+     */
+    int capacity()
+    {
+        return chars.length;
+    }
+
+    /**
+     * Appends the given text.
+     *
+     * @param text the text to append.
+     * @return this buffer.
+     */
+    public TextContentBuffer append(String text)
+    {
+        ensureCapacity(length + text.length());
+        text.getChars(0, text.length(), chars, length);
+        length += text.length();
+        return this;
+    }
+
+    /**
+     * Appends the whole content of the given reader.
+     *
+     * @param reader the reader (not closed by this method).
+     * @return this buffer.
+     * @throws IOException in case of I/O failure.
+     */
+    public TextContentBuffer append(Reader reader) throws IOException
+    {
+        int read;
+        do
+        {
+            if (length == chars.length)
+            {
+                ensureCapacity(length + 1);
+            }
+            read = reader.read(chars, length, chars.length - length);
+            if (read > 0)
+            {
+                length += read;
+            }
+        }
+        while (read != -1);
+        return this;
+    }
+
+    /**
+     * @return the number of chars in the buffer.
+     */
+    public int length()
+    {
+        return length;
+    }
+
+    /**
+     * @param from the index of the first char to check.
+     * @return true if the chars from the given index are all whitespaces (or there are none).
+     */
+    public boolean isBlank(int from)
+    {
+        for (int i = from; i < length; i++)
+        {
+            if (!Character.isWhitespace(chars[i]))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param from the index of the first char to read.
+     * @return a reader over the chars of the buffer from the given index (not copied).
+     */
+    public Reader reader(int from)
+    {
+        return new CharArrayReader(chars, from, length - from);
+    }
+
+    @Override
+    public String toString()
+    {
+        return new String(chars, 0, length);
+    }
+
+    private void ensureCapacity(int capacity)
+    {
+        if (capacity > chars.length)
+        {
+            char[] newChars = new char[Math.max(capacity, chars.length << 1)];
+            System.arraycopy(chars, 0, newChars, 0, length);
+            chars = newChars;
+        }
+    }
+}
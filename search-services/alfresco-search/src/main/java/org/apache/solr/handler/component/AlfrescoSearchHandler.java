@@ -45,9 +45,12 @@ import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import com.codahale.metrics.Timer;
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.solr.AlfrescoSolrDataModel;
 import org.alfresco.solr.query.AbstractQParser;
+import org.alfresco.solr.query.QueryPhaseTimings;
+import org.alfresco.solr.query.QueryPhaseTimings.Phase;
 import org.apache.cxf.transport.http.auth.HttpAuthHeader;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.ExitableDirectoryReader;
@@ -69,7 +72,9 @@ import org.apache.solr.core.PluginInfo;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.handler.RequestHandlerBase;
 import org.apache.solr.handler.component.FacetComponent.FacetContext;
+import org.apache.solr.metrics.SolrMetricManager;
 import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrQueryRequestBase;
 import org.apache.solr.response.BasicResultContext;
 import org.apache.solr.response.ResultContext;
 import org.apache.solr.response.SolrQueryResponse;
@@ -109,6 +114,13 @@ public class AlfrescoSearchHandler extends RequestHandlerBase implements
 	private PluginInfo shfInfo;
 	private SolrCore core;
 
+	/**
+	 * When enabled (alfresco.query.phaseMetrics core property), the time spent in the Alfresco query phases by each
+	 * request is recorded in the phase timers of this handler.
+	 */
+	private boolean phaseMetricsEnabled;
+	private volatile Map<Phase, Timer> phaseTimers = Collections.emptyMap();
+
 	protected List<String> getDefaultComponents() {
 		ArrayList<String> names = new ArrayList<>(8);
 		names.add(QueryComponent.COMPONENT_NAME);
@@ -144,6 +156,8 @@ public class AlfrescoSearchHandler extends RequestHandlerBase implements
 	@SuppressWarnings("unchecked")
 	public void inform(SolrCore core) {
 		this.core = core;
+		this.phaseMetricsEnabled = Boolean.parseBoolean(
+				core.getCoreDescriptor().getCoreProperty("alfresco.query.phaseMetrics", "false"));
 		Set<String> missing = new HashSet<>();
 		List<String> c = (List<String>) initArgs.get(INIT_COMPONENTS);
 		missing.addAll(core.getSearchComponents().checkContains(c));
@@ -177,6 +191,35 @@ public class AlfrescoSearchHandler extends RequestHandlerBase implements
 
 	}
 
+	@Override
+	public void initializeMetrics(SolrMetricManager manager, String registryName, String scope) {
+		super.initializeMetrics(manager, registryName, scope);
+		phaseTimers = QueryPhaseTimings.registerTimers(manager, registryName, getCategory().toString(), scope, "alfrescoPhases");
+	}
+
+	/**
+	 * Enables the Alfresco query phase timings if they have been requested (debug=timing, debug=true or
+	 * debugQuery=true) or if the phase metrics are enabled. In the latter case the timers are updated when the
+	 * request is closed, so the phases executed while writing the response (e.g. field mapping) are included.
+	 */
+	private QueryPhaseTimings enablePhaseTimings(SolrQueryRequest req) {
+		SolrParams params = req.getParams();
+		boolean timingRequested = params.getBool(CommonParams.DEBUG_QUERY, false)
+				|| Stream.of(ofNullable(params.getParams(CommonParams.DEBUG)).orElse(new String[0]))
+						.anyMatch(debug -> CommonParams.TIMING.equals(debug) || "true".equals(debug) || "all".equals(debug));
+
+		if (!timingRequested && !phaseMetricsEnabled) {
+			return QueryPhaseTimings.of(req);
+		}
+
+		QueryPhaseTimings timings = QueryPhaseTimings.enable(req);
+		if (phaseMetricsEnabled && req instanceof SolrQueryRequestBase) {
+			Map<Phase, Timer> timers = phaseTimers;
+			((SolrQueryRequestBase) req).addCloseHook(() -> timings.updateTimers(timers));
+		}
+		return timings;
+	}
+
 	private void initComponents() {
 		Object declaredComponents = initArgs.get(INIT_COMPONENTS);
 		List<String> first = (List<String>) initArgs.get(INIT_FIRST_COMPONENTS);
@@ -314,7 +357,10 @@ public class AlfrescoSearchHandler extends RequestHandlerBase implements
 	@Override
 	public void handleRequestBody(SolrQueryRequest req, SolrQueryResponse rsp)
 			throws Exception {
-		readJsonIntoContent(req);
+		QueryPhaseTimings phaseTimings = enablePhaseTimings(req);
+		try (QueryPhaseTimings.Split split = phaseTimings.start(Phase.JSON_PARSING)) {
+			readJsonIntoContent(req);
+		}
 
 
 		List<SearchComponent> components = getComponents();
@@ -388,6 +434,7 @@ public class AlfrescoSearchHandler extends RequestHandlerBase implements
 					// add the timing info
 					if (rb.isDebugTimings()) {
 						rb.addDebugInfo("timing", timer.asNamedList());
+						rb.addDebugInfo("alfrescoTiming", phaseTimings.asNamedList());
 					}
 				}
 			} catch (ExitableDirectoryReader.ExitingReaderException ex) {
@@ -0,0 +1,229 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr;
+
+import static java.util.Arrays.asList;
+import static org.alfresco.repo.search.adaptor.lucene.QueryConstants.FIELD_ACLID;
+import static org.alfresco.repo.search.adaptor.lucene.QueryConstants.FIELD_ANCESTOR;
+import static org.alfresco.repo.search.adaptor.lucene.QueryConstants.FIELD_APATH;
+import static org.alfresco.repo.search.adaptor.lucene.QueryConstants.FIELD_INTXID;
+import static org.alfresco.repo.search.adaptor.lucene.QueryConstants.FIELD_LID;
+import static org.alfresco.repo.search.adaptor.lucene.QueryConstants.FIELD_NPATH;
+import static org.alfresco.repo.search.adaptor.lucene.QueryConstants.FIELD_PATH;
+import static org.alfresco.repo.search.adaptor.lucene.QueryConstants.FIELD_SOLR4_ID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.solr.client.NodeMetaData;
+import org.alfresco.util.Pair;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.SchemaField;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CascadePathRebaser}.
+ */
+public class CascadePathRebaserTest
+{
+    private static final String APP = "{http://www.alfresco.org/model/application/1.0}";
+    private static final String CM = "{http://www.alfresco.org/model/content/1.0}";
+
+    private final NodeRef root = nodeRef("root");
+    private final NodeRef companyHome = nodeRef("companyHome");
+    private final NodeRef folderA = nodeRef("folderA");
+    private final NodeRef folderB = nodeRef("folderB");
+    private final NodeRef subFolder = nodeRef("subFolder");
+    private final NodeRef document = nodeRef("document");
+
+    /** folderA, moved from /Company Home/folderA to /Company Home/folderB/folderA */
+    private NodeMetaData movedFolder;
+
+    @Before
+    public void setUp()
+    {
+        movedFolder = new NodeMetaData();
+        movedFolder.setId(2L);
+        movedFolder.setTxnId(100L);
+        movedFolder.setNodeRef(folderA);
+        movedFolder.setPaths(Collections.singletonList(new Pair<>("/" + APP + "company_home/" + CM + "folderB/" + CM + "folderA", null)));
+        movedFolder.setAncestorPaths(Collections.singletonList("/root/companyHome/folderB"));
+        movedFolder.setNamePaths(Collections.singletonList(asList("Company Home", "folderB", "folderA")));
+        movedFolder.setAncestors(new HashSet<>(asList(root, companyHome, folderB)));
+    }
+
+    @Test
+    public void descendantIsRebasedOntoTheNewParentPaths()
+    {
+        CascadePathRebaser rebaser = new CascadePathRebaser(movedFolder);
+        assertTrue(rebaser.canRebase());
+
+        Optional<NodeMetaData> rebased = rebaser.rebase(indexedDocument());
+
+        assertTrue(rebased.isPresent());
+        NodeMetaData metadata = rebased.get();
+        assertEquals(5L, metadata.getId());
+        assertEquals(document, metadata.getNodeRef());
+        assertEquals(50L, metadata.getTxnId());
+        assertEquals(7L, metadata.getAclId());
+        assertEquals(
+                "/" + APP + "company_home/" + CM + "folderB/" + CM + "folderA/" + CM + "subFolder/" + CM + "document.pdf",
+                metadata.getPaths().get(0).getFirst());
+        assertEquals(
+                Collections.singletonList("/root/companyHome/folderB/folderA/subFolder"),
+                metadata.getAncestorPaths());
+        assertEquals(
+                Collections.singletonList(asList("Company Home", "folderB", "folderA", "subFolder", "document.pdf")),
+                metadata.getNamePaths());
+        assertEquals(
+                new HashSet<>(asList(root, companyHome, folderB, folderA, subFolder)),
+                metadata.getAncestors());
+    }
+
+    @Test
+    public void descendantWithSecondaryPathsIsNotRebased()
+    {
+        Document indexed = indexedDocument();
+        indexed.add(new StoredField(FIELD_PATH, "/" + APP + "company_home/" + CM + "other/" + CM + "document.pdf"));
+
+        assertFalse(new CascadePathRebaser(movedFolder).rebase(indexed).isPresent());
+    }
+
+    @Test
+    public void descendantWithInconsistentPathsIsNotRebased()
+    {
+        Document indexed = new Document();
+        indexedDocument().getFields().stream()
+                .filter(field -> !field.name().equals(FIELD_NPATH))
+                .forEach(indexed::add);
+        indexed.add(new StoredField(FIELD_NPATH, "F/Company Home/folderA/document.pdf"));
+
+        assertFalse(new CascadePathRebaser(movedFolder).rebase(indexed).isPresent());
+    }
+
+    @Test
+    public void parentWithSecondaryPathsCannotRebase()
+    {
+        movedFolder.setPaths(asList(
+                new Pair<>("/" + APP + "company_home/" + CM + "folderB/" + CM + "folderA", null),
+                new Pair<>("/" + APP + "company_home/" + CM + "folderC/" + CM + "folderA", null)));
+        movedFolder.setAncestorPaths(asList("/root/companyHome/folderB", "/root/companyHome/folderC"));
+
+        CascadePathRebaser rebaser = new CascadePathRebaser(movedFolder);
+
+        assertFalse(rebaser.canRebase());
+        assertFalse(rebaser.rebase(indexedDocument()).isPresent());
+    }
+
+    @Test
+    public void pathElementsIgnoreSlashesInNamespaces()
+    {
+        List<String> elements = CascadePathRebaser.pathElements("/" + APP + "company_home/" + CM + "folderA");
+
+        assertEquals(asList(APP + "company_home", CM + "folderA"), elements);
+    }
+
+    @Test
+    public void schemaStoringTheRequiredFieldsIsSupported()
+    {
+        assertTrue(CascadePathRebaser.isSupportedBy(schema(null)));
+    }
+
+    @Test
+    public void schemaOnlyIndexingThePathsIsNotSupported()
+    {
+        // As in the noRerank schema
+        assertFalse(CascadePathRebaser.isSupportedBy(schema(FIELD_PATH)));
+        assertFalse(CascadePathRebaser.isSupportedBy(schema(FIELD_ANCESTOR)));
+    }
+
+    @Test
+    public void schemaWithoutARequiredFieldIsNotSupported()
+    {
+        IndexSchema schema = mock(IndexSchema.class);
+        when(schema.getFieldOrNull(anyString())).thenReturn(null);
+
+        assertFalse(CascadePathRebaser.isSupportedBy(schema));
+    }
+
+    /**
+     * @param notStored the field which is not stored, null if all of them are.
+     * @return a schema defining all the required fields.
+     */
+    private IndexSchema schema(String notStored)
+    {
+        IndexSchema schema = mock(IndexSchema.class);
+        for (String fieldName : CascadePathRebaser.REQUIRED_FIELDS)
+        {
+            SchemaField field = mock(SchemaField.class);
+            when(field.stored()).thenReturn(!fieldName.equals(notStored));
+            when(schema.getFieldOrNull(fieldName)).thenReturn(field);
+        }
+        return schema;
+    }
+
+    /**
+     * @return the stored fields of /Company Home/folderA/subFolder/document.pdf, as indexed before the move.
+     */
+    private Document indexedDocument()
+    {
+        Document indexed = new Document();
+        indexed.add(new StoredField(FIELD_SOLR4_ID, AlfrescoSolrDataModel.getNodeDocumentId(null, 5L)));
+        indexed.add(new StoredField(FIELD_LID, document.toString()));
+        indexed.add(new StoredField(FIELD_INTXID, 50L));
+        indexed.add(new StoredField(FIELD_ACLID, 7L));
+        indexed.add(new StoredField(FIELD_PATH, "/" + APP + "company_home/" + CM + "folderA/" + CM + "subFolder/" + CM + "document.pdf"));
+        indexed.add(new StoredField(FIELD_APATH, "0/root"));
+        indexed.add(new StoredField(FIELD_APATH, "3/root/companyHome/folderA/subFolder"));
+        indexed.add(new StoredField(FIELD_APATH, "F/root/companyHome/folderA/subFolder"));
+        indexed.add(new StoredField(FIELD_NPATH, "0/Company Home"));
+        indexed.add(new StoredField(FIELD_NPATH, "F/Company Home/folderA/subFolder/document.pdf"));
+        for (NodeRef ancestor : asList(root, companyHome, folderA, subFolder))
+        {
+            indexed.add(new StoredField(FIELD_ANCESTOR, ancestor.toString()));
+        }
+        return indexed;
+    }
+
+    private static NodeRef nodeRef(String id)
+    {
+        return new NodeRef(StoreRef.STORE_REF_WORKSPACE_SPACESSTORE, id);
+    }
+}
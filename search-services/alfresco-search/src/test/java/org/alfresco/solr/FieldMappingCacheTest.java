@@ -0,0 +1,109 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.apache.solr.common.util.NamedList;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link FieldMappingCache}.
+ */
+public class FieldMappingCacheTest
+{
+    private FieldMappingCache cache;
+    private AtomicInteger loads;
+    private Function<String, String> loader;
+
+    @Before
+    public void setUp()
+    {
+        cache = new FieldMappingCache();
+        loads = new AtomicInteger();
+        loader = key -> {
+            loads.incrementAndGet();
+            return key.startsWith("unknown") ? null : key.toUpperCase();
+        };
+    }
+
+    @Test
+    public void cachedValueIsLoadedOnce()
+    {
+        assertEquals("CM:NAME", cache.get("mapping", null, "cm:name", loader));
+        assertEquals("CM:NAME", cache.get("mapping", null, "cm:name", loader));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void nullValuesAreNotCached()
+    {
+        assertNull(cache.get("mapping", null, "unknown:name", loader));
+        assertNull(cache.get("mapping", null, "unknown:name", loader));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void scopesAndMappingsAreSeparated()
+    {
+        Object schema = new Object();
+        cache.get("mapping", null, "cm:name", loader);
+        cache.get("mapping", schema, "cm:name", loader);
+        cache.get("anotherMapping", null, "cm:name", loader);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void invalidateDropsAllTheCachedValues()
+    {
+        cache.get("mapping", null, "cm:name", loader);
+        cache.invalidate();
+        cache.get("mapping", null, "cm:name", loader);
+
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.getVersion());
+    }
+
+    @Test
+    public void statisticsReportHitRatio()
+    {
+        cache.get("mapping", null, "cm:name", loader);
+        cache.get("mapping", null, "cm:name", loader);
+
+        NamedList<Object> statistics = cache.getStatistics();
+        NamedList<?> mapping = (NamedList<?>) statistics.get("mapping");
+        assertEquals(2L, mapping.get("lookups"));
+        assertEquals(1L, mapping.get("hits"));
+        assertEquals(0.5f, mapping.get("hitratio"));
+        assertEquals(1, mapping.get("size"));
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LegacyLongField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.LegacyNumericRangeQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link IndexHealthScanner}.
+ */
+public class IndexHealthScannerTest
+{
+    private Directory directory;
+    private DirectoryReader reader;
+    private IndexHealthScanner scanner;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        directory = new RAMDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(null)))
+        {
+            // Several segments, the same id can be in more than one of them
+            for (long[] segment : new long[][] { { 1, 2, 5 }, { 5, 7, 100 }, { 8, 9 } })
+            {
+                for (long id : segment)
+                {
+                    writer.addDocument(document("Node", id));
+                }
+                writer.commit();
+            }
+            writer.addDocument(document("ErrorNode", 2));
+            writer.addDocument(document("ErrorNode", 3));
+            writer.addDocument(document("ErrorNode", 3));
+
+            writer.addDocument(document("Node", 9));
+            writer.deleteDocuments(new Term("DBID", "9"));
+            writer.addDocument(document("Node", 9));
+        }
+        reader = DirectoryReader.open(directory);
+        scanner = new IndexHealthScanner(2);
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        scanner.close();
+        reader.close();
+        directory.close();
+    }
+
+    @Test
+    public void collectsValuesAndDuplicatesOfTheFilteredDocuments() throws IOException
+    {
+        IndexHealthScanner.IdScan scan = scanner.scan(reader, "ID", new TermQuery(new Term("DOC_TYPE", "Node")), Long.MIN_VALUE, Long.MAX_VALUE);
+
+        assertEquals(asList(1L, 2L, 5L, 7L, 8L, 9L, 100L), values(scan, false));
+        assertEquals(asList(5L), values(scan, true));
+        assertEquals(7, scan.cardinality());
+        assertEquals(100, scan.lastId());
+        assertFalse(scan.contains(3));
+    }
+
+    @Test
+    public void ignoresValuesOutOfRange() throws IOException
+    {
+        IndexHealthScanner.IdScan scan = scanner.scan(reader, "ID", null, 3, 8);
+
+        assertEquals(asList(3L, 5L, 7L, 8L), values(scan, false));
+        assertEquals(asList(3L, 5L), values(scan, true));
+        assertEquals(8, scan.lastId());
+        assertTrue(scan.isDuplicated(3));
+    }
+
+    @Test
+    public void scansOnlyTheDocumentsMatchingTheFilter() throws IOException
+    {
+        IndexHealthScanner.IdScan scan = scanner.scan(reader, "ID",
+                LegacyNumericRangeQuery.newLongRange("ID", 5L, 9L, true, true), 5, 9);
+
+        assertEquals(asList(5L, 7L, 8L, 9L), values(scan, false));
+        assertEquals(5L, (long) scanner.getProgress().get("Scanned docs"));
+        assertEquals(100L, (long) IndexHealthScanner.lastValue(reader, "ID"));
+    }
+
+    @Test
+    public void emptyScanOnMissingField() throws IOException
+    {
+        IndexHealthScanner.IdScan scan = scanner.scan(reader, "TXID", null, 0, 1000);
+
+        assertTrue(scan.isEmpty());
+        assertEquals(0, scan.cardinality());
+        assertEquals(Long.MIN_VALUE, scan.lastId());
+    }
+
+    @Test
+    public void sparseRangeIsNotCollectedInBitsets() throws IOException
+    {
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(null)))
+        {
+            writer.addDocument(document("Node", 1L << 40));
+            writer.commit();
+            writer.addDocument(document("Node", 1L << 40));
+        }
+        reader.close();
+        reader = DirectoryReader.open(directory);
+
+        IndexHealthScanner.IdScan scan = scanner.scan(reader, "ID", new TermQuery(new Term("DOC_TYPE", "Node")), Long.MIN_VALUE, Long.MAX_VALUE);
+
+        assertTrue(scan.isSparse());
+        assertEquals(asList(1L, 2L, 5L, 7L, 8L, 9L, 100L, 1L << 40), values(scan, false));
+        assertEquals(asList(5L, 1L << 40), values(scan, true));
+        assertEquals(8, scan.cardinality());
+        assertEquals(1L << 40, scan.lastId());
+        assertTrue(scan.contains(100));
+        assertFalse(scan.contains(3));
+        assertTrue(scan.isDuplicated(1L << 40));
+        assertFalse(scan.isDuplicated(100));
+    }
+
+    @Test
+    public void denseAndSparseScansAgree()
+    {
+        IndexHealthScanner.IdScan dense = new IndexHealthScanner.IdScan(10, 200, Long.MAX_VALUE);
+        IndexHealthScanner.IdScan sparse = new IndexHealthScanner.IdScan(10, 200, 0);
+        for (IndexHealthScanner.IdScan scan : asList(dense, sparse))
+        {
+            IndexHealthScanner.IdScan.SegmentIds first = scan.newSegment();
+            for (long id : new long[] { 150, 10, 5, 150, 64, 150 })
+            {
+                first.add(id);
+            }
+            first.close();
+            IndexHealthScanner.IdScan.SegmentIds second = scan.newSegment();
+            for (long id : new long[] { 200, 64, 201, 11 })
+            {
+                second.add(id);
+            }
+            second.close();
+            scan.seal();
+        }
+
+        assertFalse(dense.isSparse());
+        assertTrue(sparse.isSparse());
+        assertEquals(asList(10L, 11L, 64L, 150L, 200L), values(sparse, false));
+        assertEquals(asList(64L, 150L), values(sparse, true));
+        assertEquals(values(dense, false), values(sparse, false));
+        assertEquals(values(dense, true), values(sparse, true));
+        assertEquals(dense.cardinality(), sparse.cardinality());
+        assertEquals(dense.lastId(), sparse.lastId());
+    }
+
+    @Test
+    public void concurrentSliceScansMatchAFullScan() throws Exception
+    {
+        List<Long> values = Collections.synchronizedList(new ArrayList<>());
+        List<Long> duplicates = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try
+        {
+            List<Future<?>> slices = new ArrayList<>();
+            for (long[] slice : new long[][] { { 0, 3 }, { 4, 7 }, { 8, 200 } })
+            {
+                slices.add(executor.submit(() -> {
+                    IndexHealthScanner.IdScan scan = scanner.scan(reader, "ID",
+                            LegacyNumericRangeQuery.newLongRange("ID", slice[0], slice[1], true, true), slice[0], slice[1]);
+                    values.addAll(values(scan, false));
+                    duplicates.addAll(values(scan, true));
+                    return null;
+                }));
+            }
+            for (Future<?> slice : slices)
+            {
+                slice.get();
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        IndexHealthScanner.IdScan fullScan = scanner.scan(reader, "ID", null, Long.MIN_VALUE, Long.MAX_VALUE);
+        Collections.sort(values);
+        Collections.sort(duplicates);
+        assertEquals(values(fullScan, false), values);
+        assertEquals(values(fullScan, true), duplicates);
+    }
+
+    @Test(expected = IOException.class)
+    public void closedScannerFailsTheScan() throws IOException
+    {
+        scanner.close();
+
+        scanner.scan(reader, "ID", null, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Test
+    public void progressIsReported() throws IOException
+    {
+        scanner.scan(reader, "ID", null, Long.MIN_VALUE, Long.MAX_VALUE);
+
+        assertEquals(true, scanner.getProgress().get("Completed"));
+        assertEquals((long) reader.numDocs(), scanner.getProgress().get("Scanned docs"));
+    }
+
+    private static List<Long> values(IndexHealthScanner.IdScan scan, boolean duplicates)
+    {
+        List<Long> values = new ArrayList<>();
+        if (duplicates)
+        {
+            scan.forEachDuplicate(values::add);
+        }
+        else
+        {
+            scan.forEach(values::add);
+        }
+        return values;
+    }
+
+    private static Document document(String docType, long id)
+    {
+        Document document = new Document();
+        document.add(new StringField("DOC_TYPE", docType, Field.Store.NO));
+        document.add(new StringField("DBID", Long.toString(id), Field.Store.NO));
+        document.add(new LegacyLongField("ID", id, Field.Store.NO));
+        document.add(new NumericDocValuesField("ID", id));
+        return document;
+    }
+}
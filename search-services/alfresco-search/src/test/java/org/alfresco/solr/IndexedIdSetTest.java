@@ -0,0 +1,143 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link IndexedIdSet}.
+ */
+public class IndexedIdSetTest
+{
+    @Test
+    public void denseIds_useFullChunks()
+    {
+        IndexedIdSet ids = new IndexedIdSet();
+        for (long id = 1; id <= 1_000_000; id++)
+        {
+            ids.add(id);
+        }
+
+        assertEquals(1_000_000, ids.size());
+        assertTrue(ids.contains(1) && ids.contains(65536) && ids.contains(1_000_000));
+        assertFalse(ids.contains(0) || ids.contains(1_000_001));
+        // Only the first and last chunks aren't full
+        assertTrue(ids.ramBytesUsed() < 20_000);
+
+        ids.remove(70_000);
+        assertFalse(ids.contains(70_000));
+        assertTrue(ids.contains(70_001));
+        assertEquals(999_999, ids.size());
+    }
+
+    @Test
+    public void randomIds_matchAReferenceSet()
+    {
+        Random random = new Random(42);
+        IndexedIdSet ids = new IndexedIdSet();
+        TreeSet<Long> expected = new TreeSet<>();
+        for (int i = 0; i < 50_000; i++)
+        {
+            // Both sparse and dense chunks, and a few ids far away
+            long id = i % 100 == 0 ? random.nextLong() >>> 1 : random.nextInt(i % 2 == 0 ? 10_000 : 10_000_000);
+            if (i % 7 == 0)
+            {
+                ids.remove(id);
+                expected.remove(id);
+            }
+            else
+            {
+                ids.add(id);
+                expected.add(id);
+            }
+        }
+
+        assertEquals(expected.size(), ids.size());
+        for (long id = 0; id < 20_000; id++)
+        {
+            assertEquals(expected.contains(id), ids.contains(id));
+        }
+        for (long id : expected)
+        {
+            assertTrue(ids.contains(id));
+        }
+    }
+
+    @Test
+    public void fromDocValues_readsTheIdsOfLiveDocuments() throws Exception
+    {
+        try (Directory directory = new RAMDirectory())
+        {
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(null)))
+            {
+                addDocument(writer, "Tx", 1);
+                addDocument(writer, "Tx", 2);
+                addDocument(writer, "AclTx", 3);
+                writer.commit();
+                addDocument(writer, "Tx", 100_000);
+                addDocument(writer, "Node", 4);
+                writer.commit();
+                writer.deleteDocuments(new Term("id", "2"));
+            }
+
+            try (DirectoryReader reader = DirectoryReader.open(directory))
+            {
+                IndexedIdSet ids = IndexedIdSet.fromDocValues(reader, new Term("DOC_TYPE", "Tx"), "TXID");
+
+                assertEquals(2, ids.size());
+                assertTrue(ids.contains(1) && ids.contains(100_000));
+                assertFalse(ids.contains(2) || ids.contains(3) || ids.contains(4));
+            }
+        }
+    }
+
+    private void addDocument(IndexWriter writer, String docType, long id) throws Exception
+    {
+        Document document = new Document();
+        document.add(new StringField("id", Long.toString(id), Field.Store.NO));
+        document.add(new StringField("DOC_TYPE", docType, Field.Store.NO));
+        document.add(new NumericDocValuesField("TXID", id));
+        writer.addDocument(document);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link IndexedTermsProbe}.
+ */
+public class IndexedTermsProbeTest
+{
+    private static final String FIELD = "id";
+
+    private Directory directory;
+    private DirectoryReader reader;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        directory = new RAMDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(null)))
+        {
+            addDocument(writer, "a");
+            addDocument(writer, "b");
+            writer.commit();
+            addDocument(writer, "c");
+            addDocument(writer, "deleted");
+            writer.commit();
+            writer.deleteDocuments(new Term(FIELD, "deleted"));
+        }
+        reader = DirectoryReader.open(directory);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        reader.close();
+        directory.close();
+    }
+
+    @Test
+    public void existingTerms_areFoundInAnySegment() throws Exception
+    {
+        assertTrue(IndexedTermsProbe.anyExists(reader, FIELD, asList(new BytesRef("a"))));
+        assertTrue(IndexedTermsProbe.anyExists(reader, FIELD, asList(new BytesRef("z"), new BytesRef("c"))));
+    }
+
+    @Test
+    public void missingOrDeletedTerms_areNotFound() throws Exception
+    {
+        assertFalse(IndexedTermsProbe.anyExists(reader, FIELD, asList(new BytesRef("z"), new BytesRef("deleted"))));
+        assertFalse(IndexedTermsProbe.anyExists(reader, "NOT_THERE", asList(new BytesRef("a"))));
+        assertFalse(IndexedTermsProbe.anyExists(reader, FIELD, emptyList()));
+    }
+
+    private void addDocument(IndexWriter writer, String id) throws Exception
+    {
+        Document document = new Document();
+        document.add(new StringField(FIELD, id, Field.Store.NO));
+        writer.addDocument(document);
+    }
+}
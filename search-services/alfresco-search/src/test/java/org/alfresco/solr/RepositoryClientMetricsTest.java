@@ -0,0 +1,98 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Map;
+
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.Timer;
+import org.alfresco.solr.client.RepositoryCallListener;
+import org.alfresco.solr.client.SOLRAPIClient;
+import org.apache.solr.core.CloseHook;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.core.SolrInfoMBean;
+import org.apache.solr.metrics.SolrMetricManager;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * Unit tests for the {@link RepositoryClientMetrics}.
+ */
+public class RepositoryClientMetricsTest
+{
+    private final SolrMetricManager metricManager = new SolrMetricManager();
+
+    @Test
+    public void callsAreRecordedInTheNodeRegistry()
+    {
+        RepositoryCallListener metrics = new RepositoryClientMetrics(metricManager, SolrMetricManager.getRegistryName(SolrInfoMBean.Group.node));
+        metrics.onCall("api/solr/transactions", 1000000, 10, false);
+        metrics.onCall("api/solr/transactions", 3000000, 20, true);
+
+        Map<String, Metric> registry = metricManager.registry(SolrMetricManager.getRegistryName(SolrInfoMBean.Group.node)).getMetrics();
+        assertEquals(2, ((Timer) registry.get("ALFRESCO.repository.transactions.requestTimes")).getCount());
+    }
+
+    @Test
+    public void sharedClientListenerIsSetOnceAndRemovedWithTheLastCore()
+    {
+        SOLRAPIClient client = mock(SOLRAPIClient.class);
+        SolrCore firstCore = mock(SolrCore.class);
+        SolrCore secondCore = mock(SolrCore.class);
+
+        RepositoryClientMetrics.register(metricManager, client, firstCore);
+        RepositoryClientMetrics.register(metricManager, client, secondCore);
+        verify(client, times(1)).setCallListener(any(RepositoryClientMetrics.class));
+
+        closeHook(firstCore).postClose(firstCore);
+        verify(client, never()).setCallListener(isNull());
+
+        closeHook(secondCore).postClose(secondCore);
+        verify(client).setCallListener(isNull());
+
+        // A new core using the client sets it again
+        SolrCore thirdCore = mock(SolrCore.class);
+        RepositoryClientMetrics.register(metricManager, client, thirdCore);
+        verify(client, times(2)).setCallListener(any(RepositoryClientMetrics.class));
+        closeHook(thirdCore).postClose(thirdCore);
+    }
+
+    private CloseHook closeHook(SolrCore core)
+    {
+        ArgumentCaptor<CloseHook> closeHook = ArgumentCaptor.forClass(CloseHook.class);
+        verify(core).addCloseHook(closeHook.capture());
+        return closeHook.getValue();
+    }
+}
@@ -26,29 +26,83 @@
 
 package org.alfresco.solr;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
+import org.alfresco.model.ContentModel;
 import org.alfresco.service.cmr.dictionary.DataTypeDefinition;
 import org.alfresco.service.cmr.dictionary.PropertyDefinition;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.solr.client.Node;
+import org.alfresco.solr.client.Node.SolrApiNodeStatus;
+import org.alfresco.solr.client.NodeMetaData;
+import org.alfresco.solr.client.NodeMetaDataParameters;
 import org.alfresco.solr.client.SOLRAPIClient;
+import org.alfresco.solr.client.StringPropertyValue;
+import org.alfresco.solr.tracker.IndexHealthReport;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LegacyLongField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.LegacyNumericRangeQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.core.CloseHook;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.core.SolrResourceLoader;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.request.SolrRequestHandler;
 import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.schema.FieldType;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.update.AddUpdateCommand;
+import org.apache.solr.update.DeleteUpdateCommand;
+import org.apache.solr.update.processor.UpdateRequestProcessor;
+import org.apache.solr.update.processor.UpdateRequestProcessorChain;
+import org.apache.solr.util.RefCounted;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
 import static java.util.Optional.ofNullable;
+import static java.util.stream.Collectors.toList;
+import static org.alfresco.repo.search.adaptor.lucene.QueryConstants.FIELD_DBID;
+import static org.alfresco.repo.search.adaptor.lucene.QueryConstants.FIELD_SOLR4_ID;
+import static org.alfresco.repo.search.adaptor.lucene.QueryConstants.FIELD_TXID;
 import static org.alfresco.service.cmr.dictionary.DataTypeDefinition.ANY;
 import static org.alfresco.service.cmr.dictionary.DataTypeDefinition.ASSOC_REF;
 import static org.alfresco.service.cmr.dictionary.DataTypeDefinition.BOOLEAN;
@@ -67,6 +121,7 @@ import static org.alfresco.service.cmr.dictionary.DataTypeDefinition.PATH;
 import static org.alfresco.service.cmr.dictionary.DataTypeDefinition.PERIOD;
 import static org.alfresco.service.cmr.dictionary.DataTypeDefinition.QNAME;
 import static org.alfresco.service.cmr.dictionary.DataTypeDefinition.TEXT;
+import static org.alfresco.solr.SolrInformationServer.PREFIX_ERROR;
 import static org.alfresco.solr.SolrInformationServer.UNIT_OF_TIME_DAY_FIELD_SUFFIX;
 import static org.alfresco.solr.SolrInformationServer.UNIT_OF_TIME_HOUR_FIELD_SUFFIX;
 import static org.alfresco.solr.SolrInformationServer.UNIT_OF_TIME_MINUTE_FIELD_SUFFIX;
@@ -79,8 +134,20 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -112,6 +179,12 @@ public class SolrInformationServerTest
     @Mock
     private SolrQueryResponse response;
 
+    @Mock
+    private UpdateRequestProcessorChain updateProcessorChain;
+
+    @Mock
+    private UpdateRequestProcessor updateProcessor;
+
     private SolrQueryRequest request;
 
     @Before
@@ -131,6 +204,17 @@ public class SolrInformationServerTest
         request = infoServer.newSolrQueryRequest();
     }
 
+    /**
+     * Runs the close hooks of the servers created by the test, shutting down their pools.
+     */
+    @After
+    public void tearDown()
+    {
+        ArgumentCaptor<CloseHook> closeHooks = ArgumentCaptor.forClass(CloseHook.class);
+        verify(core, atLeastOnce()).addCloseHook(closeHooks.capture());
+        closeHooks.getAllValues().forEach(closeHook -> closeHook.preClose(core));
+    }
+
     @Test
     public void testGetStateOk()
     {
@@ -298,6 +382,80 @@ public class SolrInformationServerTest
                     .orElseThrow(() -> new IllegalArgumentException(fieldName + " hasn't been set."));
     }
 
+    /**
+     * The slices of an index check are reported concurrently in the same report: ids are compared with the db slice
+     * by slice, while the counts are summed up.
+     */
+    @Test
+    public void reportIndexTransactions_mergesTheSlicesInTheSameReport() throws Exception
+    {
+        Directory directory = new RAMDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(null)))
+        {
+            for (long txId : new long[] { 1, 2, 2, 5, 6 })
+            {
+                Document document = new Document();
+                document.add(new LegacyLongField(FIELD_TXID, txId, Field.Store.NO));
+                document.add(new NumericDocValuesField(FIELD_TXID, txId));
+                writer.addDocument(document);
+            }
+        }
+
+        try (DirectoryReader reader = DirectoryReader.open(directory))
+        {
+            SolrIndexSearcher searcher = mock(SolrIndexSearcher.class);
+            when(searcher.getIndexReader()).thenReturn(reader);
+            when(core.getSearcher()).thenAnswer(invocation -> new RefCounted<SolrIndexSearcher>(searcher)
+            {
+                @Override
+                protected void close()
+                {
+                }
+            });
+
+            IndexSchema schema = mock(IndexSchema.class);
+            SchemaField txIdField = mock(SchemaField.class);
+            FieldType txIdType = mock(FieldType.class);
+            when(core.getLatestSchema()).thenReturn(schema);
+            when(schema.getField(FIELD_TXID)).thenReturn(txIdField);
+            when(txIdField.getType()).thenReturn(txIdType);
+            when(txIdType.getRangeQuery(isNull(), eq(txIdField), anyString(), anyString(), eq(true), eq(true)))
+                    .thenAnswer(invocation -> LegacyNumericRangeQuery.newLongRange(FIELD_TXID,
+                            Long.valueOf(invocation.getArgument(2)), Long.valueOf(invocation.getArgument(3)), true, true));
+
+            IndexHealthReport report = new IndexHealthReport(infoServer);
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            try
+            {
+                Future<?> first = executor.submit(() -> {
+                    infoServer.reportIndexTransactions(report, 0, 3, null, null, asList(1L, 3L));
+                    return null;
+                });
+                Future<?> second = executor.submit(() -> {
+                    infoServer.reportIndexTransactions(report, 4, 7, null, null, asList(5L, 7L));
+                    return null;
+                });
+                first.get();
+                second.get();
+            }
+            finally
+            {
+                executor.shutdownNow();
+            }
+
+            assertEquals(4, report.getDbTransactionCount());
+            assertEquals(4, report.getUniqueTransactionDocsInIndex());
+            // 7 is after the last transaction in the index: it could simply not have been tracked yet
+            assertEquals(1, report.getMissingTxFromIndex().cardinality());
+            assertTrue(report.getMissingTxFromIndex().get(3));
+            assertEquals(2, report.getTxInIndexButNotInDb().cardinality());
+            assertTrue(report.getTxInIndexButNotInDb().get(2));
+            assertTrue(report.getTxInIndexButNotInDb().get(6));
+            assertEquals(1, report.getDuplicatedTxInIndex().cardinality());
+            assertTrue(report.getDuplicatedTxInIndex().get(2));
+        }
+    }
+
     /**
      * GetState returns null in case the given id doesn't correspond to an existing state document.
      */
@@ -320,4 +478,266 @@ public class SolrInformationServerTest
 
         assertNull(document);
     }
+
+    /**
+     * The children ids of a bulk cascade are fetched in batches of alfresco.cascade.tracker.bulk.nodeBatchSize.
+     */
+    @Test
+    public void fetchNodesMetaDataInBatches_splitsTheIdsInBatchesOfNodeBatchSize() throws Exception
+    {
+        SolrInformationServer bulkInfoServer = bulkCascadeInfoServer(3, 4);
+        Collection<List<Long>> requestedBatches = new ConcurrentLinkedQueue<>();
+        when(client.getNodesMetaData(any(NodeMetaDataParameters.class))).thenAnswer(invocation -> {
+            NodeMetaDataParameters parameters = invocation.getArgument(0);
+            requestedBatches.add(new ArrayList<>(parameters.getNodeIds()));
+            return nodesMetaData(parameters.getNodeIds(), 1);
+        });
+
+        bulkInfoServer.fetchNodesMetaDataInBatches(ids(1, 7), NodeMetaDataParameters::new, nodeMetaDatas -> {});
+
+        assertEquals(
+                new HashSet<>(asList(asList(1L, 2L, 3L), asList(4L, 5L, 6L), singletonList(7L))),
+                new HashSet<>(requestedBatches));
+        assertEquals(3, requestedBatches.size());
+    }
+
+    /**
+     * No more than alfresco.cascade.tracker.bulk.maxParallelism batches are fetched at the same time.
+     */
+    @Test
+    public void fetchNodesMetaDataInBatches_fetchesAtMostMaxParallelismBatchesAtATime() throws Exception
+    {
+        SolrInformationServer bulkInfoServer = bulkCascadeInfoServer(1, 2);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AtomicInteger calls = new AtomicInteger();
+        when(client.getNodesMetaData(any(NodeMetaDataParameters.class))).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            calls.incrementAndGet();
+            try
+            {
+                Thread.sleep(20);
+            }
+            finally
+            {
+                inFlight.decrementAndGet();
+            }
+            NodeMetaDataParameters parameters = invocation.getArgument(0);
+            return nodesMetaData(parameters.getNodeIds(), 1);
+        });
+
+        bulkInfoServer.fetchNodesMetaDataInBatches(ids(1, 8), NodeMetaDataParameters::new, nodeMetaDatas -> {});
+
+        assertEquals(8, calls.get());
+        assertTrue("Fetched " + maxInFlight.get() + " batches at the same time", maxInFlight.get() <= 2);
+    }
+
+    /**
+     * Every fetched batch is passed to the consumer, in the order of the ids.
+     */
+    @Test
+    public void fetchNodesMetaDataInBatches_passesEveryFetchedBatchToTheConsumer() throws Exception
+    {
+        SolrInformationServer bulkInfoServer = bulkCascadeInfoServer(3, 2);
+        when(client.getNodesMetaData(any(NodeMetaDataParameters.class))).thenAnswer(invocation -> {
+            NodeMetaDataParameters parameters = invocation.getArgument(0);
+            return nodesMetaData(parameters.getNodeIds(), 1);
+        });
+
+        List<List<Long>> consumedBatches = new ArrayList<>();
+        bulkInfoServer.fetchNodesMetaDataInBatches(ids(1, 10), NodeMetaDataParameters::new,
+                nodeMetaDatas -> consumedBatches.add(nodeMetaDatas.stream().map(NodeMetaData::getId).collect(toList())));
+
+        assertEquals(
+                asList(asList(1L, 2L, 3L), asList(4L, 5L, 6L), asList(7L, 8L, 9L), singletonList(10L)),
+                consumedBatches);
+    }
+
+    /**
+     * A failing batch fails the whole fetch: the batches that come after it don't reach the consumer.
+     */
+    @Test
+    public void fetchNodesMetaDataInBatches_failingBatch_shouldThrowAnIOException() throws Exception
+    {
+        SolrInformationServer bulkInfoServer = bulkCascadeInfoServer(1, 2);
+        when(client.getNodesMetaData(any(NodeMetaDataParameters.class))).thenAnswer(invocation -> {
+            NodeMetaDataParameters parameters = invocation.getArgument(0);
+            if (parameters.getNodeIds().contains(3L))
+            {
+                throw new IOException("Repository unavailable");
+            }
+            return nodesMetaData(parameters.getNodeIds(), 1);
+        });
+
+        List<Long> consumedIds = new ArrayList<>();
+        try
+        {
+            bulkInfoServer.fetchNodesMetaDataInBatches(ids(1, 6), NodeMetaDataParameters::new,
+                    nodeMetaDatas -> nodeMetaDatas.forEach(nodeMetaData -> consumedIds.add(nodeMetaData.getId())));
+            fail("A failing batch should fail the fetch.");
+        }
+        catch (IOException expected)
+        {
+            assertEquals(asList(1L, 2L), consumedIds);
+        }
+    }
+
+    /**
+     * Only the children that can't have changed after the parent (i.e. those with a previous transaction) are
+     * cascade updated.
+     */
+    @Test
+    public void cascadeUpdateChildrenInBatches_skipsTheChildrenInTheSameOrInALaterTransaction() throws Exception
+    {
+        SolrInformationServer bulkInfoServer = bulkCascadeInfoServer(2, 2);
+        NodeMetaData parent = nodeMetaData(1, 10);
+        Map<Long, Long> childTxnIds = new HashMap<>();
+        childTxnIds.put(2L, 5L);
+        childTxnIds.put(3L, 10L);
+        childTxnIds.put(4L, 11L);
+        when(client.getNodesMetaData(any(NodeMetaDataParameters.class))).thenAnswer(invocation -> {
+            NodeMetaDataParameters parameters = invocation.getArgument(0);
+            return parameters.getNodeIds().stream().map(id -> nodeMetaData(id, childTxnIds.get(id))).collect(toList());
+        });
+        UpdateRequestProcessor processor = mock(UpdateRequestProcessor.class);
+
+        bulkInfoServer.cascadeUpdateChildrenInBatches(parent, ids(2, 4), true, request, processor);
+
+        ArgumentCaptor<AddUpdateCommand> command = ArgumentCaptor.forClass(AddUpdateCommand.class);
+        verify(processor).processAdd(command.capture());
+        assertEquals(2L, command.getValue().solrDoc.getFieldValue(FIELD_DBID));
+    }
+
+    /**
+     * The error docs and the unindexed nodes of a batch are removed with a single delete, sent before the adds.
+     */
+    @Test
+    public void processUpdateBatch_sendsOneDeleteFollowedByTheAdds() throws Exception
+    {
+        SolrInformationServer spiedInfoServer = spy(new SolrInformationServer(adminHandler, core, client));
+        doReturn(true).when(spiedInfoServer).anyDocumentExists(eq(FIELD_SOLR4_ID), any());
+        List<AddUpdateCommand> addDocCmds = asList(new AddUpdateCommand(request), new AddUpdateCommand(request));
+
+        spiedInfoServer.processUpdateBatch(updateProcessor, request,
+                asList(PREFIX_ERROR + 1, PREFIX_ERROR + 2), singletonList(2L), addDocCmds);
+
+        ArgumentCaptor<DeleteUpdateCommand> delete = ArgumentCaptor.forClass(DeleteUpdateCommand.class);
+        InOrder inOrder = inOrder(updateProcessor);
+        inOrder.verify(updateProcessor).processDelete(delete.capture());
+        inOrder.verify(updateProcessor).processAdd(addDocCmds.get(0));
+        inOrder.verify(updateProcessor).processAdd(addDocCmds.get(1));
+        verifyNoMoreInteractions(updateProcessor);
+        assertEquals(
+                FIELD_SOLR4_ID + ":\"ERROR-1\" OR " + FIELD_SOLR4_ID + ":\"ERROR-2\" OR " + FIELD_DBID + ":\"2\"",
+                delete.getValue().getQuery());
+    }
+
+    /**
+     * There's nothing to delete if none of the error docs and unindexed nodes of the batch is in the index.
+     */
+    @Test
+    public void processUpdateBatch_noDocumentToDelete_shouldOnlySendTheAdds() throws Exception
+    {
+        SolrInformationServer spiedInfoServer = spy(new SolrInformationServer(adminHandler, core, client));
+        doReturn(false).when(spiedInfoServer).anyDocumentExists(anyString(), any());
+        AddUpdateCommand addDocCmd = new AddUpdateCommand(request);
+
+        spiedInfoServer.processUpdateBatch(updateProcessor, request,
+                singletonList(PREFIX_ERROR + 1), singletonList(1L), singletonList(addDocCmd));
+
+        verify(updateProcessor, never()).processDelete(any(DeleteUpdateCommand.class));
+        verify(updateProcessor).processAdd(addDocCmd);
+    }
+
+    /**
+     * With alfresco.recordUnindexedNodes=false the unindexed nodes are removed from the index and not added back.
+     */
+    @Test
+    public void indexNodes_unindexedNodesNotRecorded_shouldOnlyBeDeleted() throws Exception
+    {
+        Properties properties = new Properties();
+        properties.setProperty("alfresco.recordUnindexedNodes", "false");
+        when(resourceLoader.getCoreProperties()).thenReturn(properties);
+        SolrInformationServer spiedInfoServer = spy(new SolrInformationServer(adminHandler, core, client));
+        doReturn(true).when(spiedInfoServer).anyDocumentExists(anyString(), any());
+        givenAnUpdateProcessor();
+
+        Node node = new Node();
+        node.setId(7);
+        node.setTxnId(3);
+        node.setStatus(SolrApiNodeStatus.UPDATED);
+        NodeMetaData unindexedNode = nodeMetaData(7, 3);
+        unindexedNode.setProperties(singletonMap(ContentModel.PROP_IS_INDEXED, new StringPropertyValue("false")));
+        when(client.getNodesMetaData(any(NodeMetaDataParameters.class))).thenReturn(singletonList(unindexedNode));
+
+        spiedInfoServer.indexNodes(singletonList(node), true);
+
+        ArgumentCaptor<DeleteUpdateCommand> delete = ArgumentCaptor.forClass(DeleteUpdateCommand.class);
+        verify(updateProcessor).processDelete(delete.capture());
+        verify(updateProcessor, never()).processAdd(any(AddUpdateCommand.class));
+        assertEquals(FIELD_SOLR4_ID + ":\"ERROR-7\" OR " + FIELD_DBID + ":\"7\"", delete.getValue().getQuery());
+    }
+
+    /**
+     * The text content of a whole batch of nodes goes through a single update processor.
+     */
+    @Test
+    public void indexContent_sendsTheWholeBatchThroughOneProcessor() throws Exception
+    {
+        givenAnUpdateProcessor();
+        List<SolrInputDocument> docs = LongStream.rangeClosed(1, 3)
+                .mapToObj(dbId -> {
+                    SolrInputDocument doc = new SolrInputDocument();
+                    doc.setField(FIELD_DBID, dbId);
+                    return doc;
+                })
+                .collect(toList());
+
+        infoServer.indexContent(docs);
+
+        ArgumentCaptor<AddUpdateCommand> adds = ArgumentCaptor.forClass(AddUpdateCommand.class);
+        verify(updateProcessorChain).createProcessor(any(SolrQueryRequest.class), any(SolrQueryResponse.class));
+        verify(updateProcessor, times(3)).processAdd(adds.capture());
+        verify(updateProcessor).finish();
+        assertEquals(docs, adds.getAllValues().stream().map(addDocCmd -> addDocCmd.solrDoc).collect(toList()));
+    }
+
+    private SolrInformationServer bulkCascadeInfoServer(int nodeBatchSize, int maxParallelism)
+    {
+        Properties properties = new Properties();
+        properties.setProperty("alfresco.cascade.tracker.bulk.enabled", "true");
+        properties.setProperty("alfresco.cascade.tracker.bulk.nodeBatchSize", String.valueOf(nodeBatchSize));
+        properties.setProperty("alfresco.cascade.tracker.bulk.maxParallelism", String.valueOf(maxParallelism));
+        when(resourceLoader.getCoreProperties()).thenReturn(properties);
+        return new SolrInformationServer(adminHandler, core, client);
+    }
+
+    private List<Long> ids(long from, long to)
+    {
+        return LongStream.rangeClosed(from, to).boxed().collect(toList());
+    }
+
+    private List<NodeMetaData> nodesMetaData(List<Long> ids, long txnId)
+    {
+        return ids.stream().map(id -> nodeMetaData(id, txnId)).collect(toList());
+    }
+
+    private NodeMetaData nodeMetaData(long id, long txnId)
+    {
+        NodeMetaData nodeMetaData = new NodeMetaData();
+        nodeMetaData.setId(id);
+        nodeMetaData.setTxnId(txnId);
+        nodeMetaData.setNodeRef(new NodeRef(StoreRef.STORE_REF_WORKSPACE_SPACESSTORE, String.valueOf(id)));
+        nodeMetaData.setPaths(emptyList());
+        nodeMetaData.setNamePaths(emptyList());
+        nodeMetaData.setAncestors(emptySet());
+        return nodeMetaData;
+    }
+
+    private void givenAnUpdateProcessor()
+    {
+        when(core.getUpdateProcessingChain(isNull())).thenReturn(updateProcessorChain);
+        when(updateProcessorChain.createProcessor(any(SolrQueryRequest.class), any(SolrQueryResponse.class)))
+                .thenReturn(updateProcessor);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.cache;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.alfresco.solr.query.AclIdSetKey;
+import org.alfresco.solr.query.AclSegmentKey;
+import org.alfresco.solr.query.HybridBitSet;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.solr.search.SolrCache;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/**
+ * Unit tests for the {@link AclFilterCacheRegenerator}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class AclFilterCacheRegeneratorTest
+{
+    private static final AclIdSetKey AUTHORITIES = new AclIdSetKey("READER", new String[] { "GROUP_EVERYONE" });
+    private static final long ACL_SET = HybridBitSet.of(new long[] { 1, 2 }, 2).fingerprint();
+
+    @Mock
+    private SolrIndexSearcher newSearcher;
+
+    @Mock
+    private SolrCache<Object, Object> newCache;
+
+    @Mock
+    private SolrCache<Object, Object> oldCache;
+
+    private Directory directory;
+    private DirectoryReader reader;
+    private final AclFilterCacheRegenerator regenerator = new AclFilterCacheRegenerator();
+
+    @Before
+    public void setUp() throws Exception
+    {
+        directory = new RAMDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(null)))
+        {
+            Document document = new Document();
+            document.add(new NumericDocValuesField("ACLID", 1));
+            writer.addDocument(document);
+        }
+        reader = DirectoryReader.open(directory);
+        when(newSearcher.getTopReaderContext()).thenReturn(reader.getContext());
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        reader.close();
+        directory.close();
+    }
+
+    @Test
+    public void segmentStillInTheNewSearcher_filterIsCarriedOver() throws Exception
+    {
+        when(newSearcher.cacheLookup(CacheConstants.ALFRESCO_ACL_ID_CACHE, AUTHORITIES)).thenReturn(HybridBitSet.of(new long[] { 2, 1 }, 2));
+        AclSegmentKey key = new AclSegmentKey(AUTHORITIES, ACL_SET, reader.leaves().get(0).reader().getCoreCacheKey());
+        FixedBitSet bits = new FixedBitSet(1);
+
+        assertTrue(regenerator.regenerateItem(newSearcher, newCache, oldCache, key, bits));
+
+        verify(newCache).put(key, bits);
+    }
+
+    @Test
+    public void aclIdsChangedInTheNewSearcher_filterIsDropped() throws Exception
+    {
+        when(newSearcher.cacheLookup(CacheConstants.ALFRESCO_ACL_ID_CACHE, AUTHORITIES)).thenReturn(HybridBitSet.of(new long[] { 1 }, 1));
+        AclSegmentKey key = new AclSegmentKey(AUTHORITIES, ACL_SET, reader.leaves().get(0).reader().getCoreCacheKey());
+
+        assertTrue(regenerator.regenerateItem(newSearcher, newCache, oldCache, key, new FixedBitSet(1)));
+
+        verify(newCache, never()).put(any(), any());
+    }
+
+    @Test
+    public void segmentNotInTheNewSearcher_filterIsDropped() throws Exception
+    {
+        AclSegmentKey key = new AclSegmentKey(AUTHORITIES, ACL_SET, new Object());
+
+        assertTrue(regenerator.regenerateItem(newSearcher, newCache, oldCache, key, new FixedBitSet(1)));
+
+        verify(newCache, never()).put(any(), any());
+    }
+
+    @Test
+    public void severalItems_segmentKeysAreCollectedOncePerNewSearcher() throws Exception
+    {
+        when(newSearcher.cacheLookup(eq(CacheConstants.ALFRESCO_ACL_ID_CACHE), any())).thenReturn(HybridBitSet.of(new long[] { 1, 2 }, 2));
+        Object segmentKey = reader.leaves().get(0).reader().getCoreCacheKey();
+        AclSegmentKey first = new AclSegmentKey(AUTHORITIES, ACL_SET, segmentKey);
+        AclSegmentKey second = new AclSegmentKey(new AclIdSetKey("READER", new String[] { "GROUP_A" }), ACL_SET, segmentKey);
+
+        regenerator.regenerateItem(newSearcher, newCache, oldCache, first, new FixedBitSet(1));
+        regenerator.regenerateItem(newSearcher, newCache, oldCache, second, new FixedBitSet(1));
+
+        verify(newSearcher, times(1)).getTopReaderContext();
+        verify(newCache, times(2)).put(any(), any());
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.query;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.lucene.util.FixedBitSet;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link BitsFilter}.
+ */
+public class BitsFilterTest
+{
+    @Test
+    public void sharedFilter_bitSetsAreNotCopiedUntilModified()
+    {
+        FixedBitSet cached = bits(8, 1, 2);
+
+        BitsFilter filter = BitsFilter.shared(asList(cached));
+
+        assertSame(cached, filter.getBitSets().get(0));
+    }
+
+    @Test
+    public void sharedFilter_orCopiesTheSharedBitSets()
+    {
+        FixedBitSet cached = bits(8, 1, 2);
+        BitsFilter filter = BitsFilter.shared(asList(cached));
+
+        filter.or(new BitsFilter(asList(bits(8, 5))));
+
+        assertEquals(bits(8, 1, 2), cached);
+        assertEquals(bits(8, 1, 2, 5), filter.getBitSets().get(0));
+    }
+
+    @Test
+    public void sharedFilter_andCopiesTheSharedBitSets()
+    {
+        FixedBitSet cached = bits(8, 1, 2);
+        BitsFilter filter = BitsFilter.shared(asList(cached));
+
+        filter.and(new BitsFilter(asList(bits(8, 2, 5))));
+
+        assertEquals(bits(8, 1, 2), cached);
+        assertEquals(bits(8, 2), filter.getBitSets().get(0));
+    }
+
+    @Test
+    public void sharedFilter_orWithNothing_keepsTheSharedBitSets()
+    {
+        FixedBitSet cached = bits(8, 1, 2);
+        BitsFilter filter = BitsFilter.shared(asList(cached));
+
+        filter.or(new BitsFilter(asList(bits(8))));
+
+        assertSame(cached, filter.getBitSets().get(0));
+    }
+
+    @Test
+    public void ownedFilter_isModifiedInPlace()
+    {
+        FixedBitSet owned = bits(8, 1);
+        BitsFilter filter = new BitsFilter(asList(owned));
+
+        filter.or(BitsFilter.shared(asList(bits(8, 3))));
+
+        assertSame(owned, filter.getBitSets().get(0));
+        assertTrue(owned.get(3));
+    }
+
+    @Test
+    public void sharedFilter_isCopiedOnlyOnce()
+    {
+        BitsFilter filter = BitsFilter.shared(asList(bits(8, 1, 2)));
+
+        filter.or(new BitsFilter(asList(bits(8, 5))));
+        FixedBitSet copy = filter.getBitSets().get(0);
+        filter.and(new BitsFilter(asList(bits(8, 1, 5))));
+
+        assertSame(copy, filter.getBitSets().get(0));
+        assertEquals(bits(8, 1, 5), copy);
+    }
+
+    private static FixedBitSet bits(int length, int... docs)
+    {
+        FixedBitSet bits = new FixedBitSet(length);
+        for (int doc : docs)
+        {
+            bits.set(doc);
+        }
+        return bits;
+    }
+}
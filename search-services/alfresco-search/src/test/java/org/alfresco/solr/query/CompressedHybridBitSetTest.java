@@ -0,0 +1,125 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CompressedHybridBitSet} and {@link AclIdSetKey}.
+ */
+public class CompressedHybridBitSetTest
+{
+    @Test
+    public void emptySet_containsNothing()
+    {
+        CompressedHybridBitSet set = new CompressedHybridBitSet(new long[0], 0);
+
+        assertEquals(0, set.cardinality());
+        assertFalse(set.get(0));
+        assertFalse(set.get(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void sparseAndDenseChunks_containExactlyTheGivenIds()
+    {
+        Random random = new Random(1234);
+        Set<Long> expected = new HashSet<>();
+
+        // A dense chunk
+        for (long id = 0; id < 20000; id += 2)
+        {
+            expected.add(id);
+        }
+
+        // Sparse chunks, up to very large ids
+        for (int i = 0; i < 5000; i++)
+        {
+            expected.add(Math.abs(random.nextLong() % 100_000_000_000L));
+        }
+
+        long[] ids = expected.stream().mapToLong(Long::longValue).toArray();
+        // duplicates must be ignored
+        long[] withDuplicates = Arrays.copyOf(ids, ids.length * 2);
+        System.arraycopy(ids, 0, withDuplicates, ids.length, ids.length);
+
+        CompressedHybridBitSet set = new CompressedHybridBitSet(withDuplicates, withDuplicates.length);
+
+        assertEquals(expected.size(), set.cardinality());
+        for (long id : expected)
+        {
+            assertTrue("Missing " + id, set.get(id));
+        }
+        for (int i = 0; i < 10000; i++)
+        {
+            long id = Math.abs(random.nextLong() % 100_000_000_000L);
+            assertEquals(expected.contains(id), set.get(id));
+        }
+        assertFalse(set.get(1));
+        assertFalse(set.get(-1));
+        assertTrue(set.ramBytesUsed() > 0);
+    }
+
+    @Test
+    public void negativeIds_areSupported()
+    {
+        CompressedHybridBitSet set = new CompressedHybridBitSet(new long[] { -70000, -1, 5, 70000 }, 4);
+
+        assertTrue(set.get(-70000));
+        assertTrue(set.get(-1));
+        assertTrue(set.get(5));
+        assertTrue(set.get(70000));
+        assertFalse(set.get(1));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void set_isNotSupported()
+    {
+        new CompressedHybridBitSet(new long[] { 1 }, 1).set(2);
+    }
+
+    @Test
+    public void aclIdSetKey_isIndependentOfAuthoritiesOrderAndDuplicates()
+    {
+        AclIdSetKey key = new AclIdSetKey("READER", new String[] { "GROUP_EVERYONE", "joe", "GROUP_site" });
+        AclIdSetKey sameAuthorities = new AclIdSetKey("READER", new String[] { "joe", "GROUP_site", "GROUP_EVERYONE", "joe" });
+        AclIdSetKey anotherField = new AclIdSetKey("DENIED", new String[] { "GROUP_EVERYONE", "joe", "GROUP_site" });
+
+        assertEquals(key, sameAuthorities);
+        assertEquals(key.hashCode(), sameAuthorities.hashCode());
+        assertNotEquals(key, anotherField);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.solr.core.CloseHook;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * Unit tests for the {@link DocValuesCache}.
+ */
+public class DocValuesCacheTest
+{
+    private static final String FIELD = "ACLID";
+    private static final long[] VALUES = { 0, 1, -5, 1_000_000, Integer.MAX_VALUE + 10L, 42 };
+
+    private Directory directory;
+    private DirectoryReader reader;
+    private DocValuesCache cache;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        directory = new RAMDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(null)))
+        {
+            for (int segment = 0; segment < 3; segment++)
+            {
+                for (long value : VALUES)
+                {
+                    Document document = new Document();
+                    document.add(new NumericDocValuesField(FIELD, value + segment));
+                    writer.addDocument(document);
+                }
+                writer.commit();
+            }
+        }
+        reader = DirectoryReader.open(directory);
+        cache = new DocValuesCache();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        if (reader != null)
+        {
+            reader.close();
+        }
+        directory.close();
+    }
+
+    @Test
+    public void cachedValues_matchTheIndexedValues() throws Exception
+    {
+        for (LeafReaderContext context : reader.leaves())
+        {
+            LeafReader leafReader = context.reader();
+            NumericDocValues expected = leafReader.getNumericDocValues(FIELD);
+            NumericDocValues cached = cache.get(FIELD, leafReader);
+
+            for (int doc = 0; doc < leafReader.maxDoc(); doc++)
+            {
+                assertEquals(expected.get(doc), cached.get(doc));
+            }
+            assertSame(cached, cache.get(FIELD, leafReader));
+        }
+
+        assertEquals(reader.leaves().size(), cache.size());
+        assertTrue(cache.ramBytesUsed() > 0);
+    }
+
+    @Test
+    public void missingField_returnsNull() throws Exception
+    {
+        assertNull(cache.get("NOT_THERE", reader.leaves().get(0).reader()));
+    }
+
+    @Test
+    public void segmentsClosed_valuesAreReleased() throws Exception
+    {
+        for (LeafReaderContext context : reader.leaves())
+        {
+            cache.get(FIELD, context.reader());
+        }
+
+        reader.close();
+        reader = null;
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.ramBytesUsed());
+    }
+
+    @Test
+    public void eachCore_hasItsOwnCache_releasedWhenTheCoreIsClosed()
+    {
+        SolrCore core = mock(SolrCore.class);
+        SolrIndexSearcher searcher = mock(SolrIndexSearcher.class);
+        when(searcher.getCore()).thenReturn(core);
+        SolrIndexSearcher otherCoreSearcher = mock(SolrIndexSearcher.class);
+        when(otherCoreSearcher.getCore()).thenReturn(mock(SolrCore.class));
+
+        DocValuesCache coreCache = DocValuesCache.of(searcher);
+        assertSame(coreCache, DocValuesCache.of(searcher));
+        assertNotSame(coreCache, DocValuesCache.of(otherCoreSearcher));
+
+        ArgumentCaptor<CloseHook> closeHook = ArgumentCaptor.forClass(CloseHook.class);
+        verify(core).addCloseHook(closeHook.capture());
+        closeHook.getValue().postClose(core);
+
+        assertNotSame(coreCache, DocValuesCache.of(searcher));
+    }
+
+    @Test
+    public void concurrentAccess_loadsEachSegmentOnce() throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try
+        {
+            List<Future<NumericDocValues>> results = new ArrayList<>();
+            for (int i = 0; i < 64; i++)
+            {
+                LeafReader leafReader = reader.leaves().get(i % reader.leaves().size()).reader();
+                results.add(executor.submit(() -> cache.get(FIELD, leafReader)));
+            }
+
+            for (int i = 0; i < results.size(); i++)
+            {
+                LeafReader leafReader = reader.leaves().get(i % reader.leaves().size()).reader();
+                assertSame(cache.get(FIELD, leafReader), results.get(i).get());
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+}
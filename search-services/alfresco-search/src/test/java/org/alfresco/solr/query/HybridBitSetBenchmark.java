@@ -0,0 +1,135 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.query;
+
+import java.util.Random;
+
+/**
+ * Benchmark of the ACL id lookups done by the ACL post filters (see {@link PermissionCollector})
+ * with the different {@link HybridBitSet} representations.
+ *
+ * Every document of a simulated segment has an ACL id, and the collect loop checks it against the set of the ACL ids
+ * readable by the user. This is not a unit test: it is meant to be run manually (e.g. from the IDE) with
+ *
+ * <pre>
+ *     HybridBitSetBenchmark [documents] [iterations]
+ * </pre>
+ */
+public class HybridBitSetBenchmark
+{
+    private static final int WARMUP_ITERATIONS = 5;
+
+    public static void main(String[] args)
+    {
+        int documents = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        System.out.printf("%-45s %-24s %12s %14s%n", "scenario", "set", "avg ms", "ram bytes");
+
+        // Small repository: few ACLs, low ids
+        benchmark("50k ACLs, 10% readable", documents, iterations, 50_000, 0.1, 1);
+        // Large repository: many ACLs, low ids
+        benchmark("5M ACLs, 1% readable", documents, iterations, 5_000_000, 0.01, 1);
+        // Large repository with high ids (e.g. after many ACL changes)
+        benchmark("5M ACLs, ids up to 5G, 0.1% readable", documents, iterations, 5_000_000, 0.001, 1000);
+        benchmark("5M ACLs, ids up to 5G, 10% readable", documents, iterations, 5_000_000, 0.1, 1000);
+    }
+
+    private static void benchmark(String scenario, int documents, int iterations, int acls, double readable, long idStep)
+    {
+        Random random = new Random(42);
+
+        long[] docAclIds = new long[documents];
+        for (int i = 0; i < documents; i++)
+        {
+            docAclIds[i] = random.nextInt(acls) * idStep;
+        }
+
+        int readableCount = (int) (acls * readable);
+        long[] readableAclIds = new long[readableCount];
+        for (int i = 0; i < readableCount; i++)
+        {
+            readableAclIds[i] = random.nextInt(acls) * idStep;
+        }
+
+        HybridBitSet legacy = new HybridBitSet(60000000);
+        for (long aclId : readableAclIds)
+        {
+            legacy.set(aclId);
+        }
+
+        run(scenario, "HybridBitSet(60000000)", legacy, docAclIds, iterations);
+        run(scenario, "HybridBitSet.of", HybridBitSet.of(readableAclIds.clone(), readableCount), docAclIds, iterations);
+        run(scenario, "SparseHybridBitSet", sparse(readableAclIds), docAclIds, iterations);
+        run(scenario, "CompressedHybridBitSet", new CompressedHybridBitSet(readableAclIds.clone(), readableCount), docAclIds, iterations);
+    }
+
+    private static void run(String scenario, String name, HybridBitSet set, long[] docAclIds, int iterations)
+    {
+        int matches = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+        {
+            matches += collect(set, docAclIds);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++)
+        {
+            matches += collect(set, docAclIds);
+        }
+        double avgMs = (System.nanoTime() - start) / 1e6 / iterations;
+
+        String ram = set instanceof org.apache.lucene.util.Accountable
+                ? String.valueOf(((org.apache.lucene.util.Accountable) set).ramBytesUsed())
+                : "-";
+        // matches is printed so the JIT can't drop the loop
+        System.out.printf("%-45s %-24s %12.2f %14s (%d)%n", scenario, name + "[" + set.getClass().getSimpleName() + "]", avgMs, ram, matches);
+    }
+
+    private static int collect(HybridBitSet aclIds, long[] docAclIds)
+    {
+        int collected = 0;
+        for (long aclId : docAclIds)
+        {
+            if (aclIds.get(aclId))
+            {
+                collected++;
+            }
+        }
+        return collected;
+    }
+
+    private static SparseHybridBitSet sparse(long[] ids)
+    {
+        SparseHybridBitSet set = new SparseHybridBitSet(ids.length);
+        for (long id : ids)
+        {
+            set.set(id);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link HybridBitSet} and the representations chosen by {@link HybridBitSet#of(long[], int)}.
+ */
+public class HybridBitSetTest
+{
+    private final Random random = new Random(4321);
+
+    @Test
+    public void noIds_emptySet()
+    {
+        HybridBitSet set = HybridBitSet.of(new long[0], 0);
+
+        assertTrue(set instanceof EmptyHybridBitSet);
+        assertFalse(set.get(0));
+    }
+
+    @Test
+    public void idsInSmallRange_denseSet()
+    {
+        long[] ids = randomIds(1000, 1_000_000L, 1_050_000L);
+
+        HybridBitSet set = HybridBitSet.of(ids.clone(), ids.length);
+
+        assertTrue(set instanceof DenseHybridBitSet);
+        assertSameContent(ids, 1_000_000L, 1_050_000L, set);
+    }
+
+    @Test
+    public void denseIdsInLargeRange_denseSet()
+    {
+        long[] ids = randomIds(100_000, 0, 10_000_000L);
+
+        HybridBitSet set = HybridBitSet.of(ids.clone(), ids.length);
+
+        assertTrue(set instanceof DenseHybridBitSet);
+        assertSameContent(ids, 0, 10_000_000L, set);
+    }
+
+    @Test
+    public void fewIdsInLargeRange_sparseSet()
+    {
+        long[] ids = randomIds(1000, 0, 100_000_000_000L);
+
+        HybridBitSet set = HybridBitSet.of(ids.clone(), ids.length);
+
+        assertTrue(set instanceof SparseHybridBitSet);
+        assertSameContent(ids, 0, 100_000_000_000L, set);
+    }
+
+    @Test
+    public void manyIdsInLargeRange_compressedSet()
+    {
+        long[] ids = randomIds(100_000, 0, 100_000_000_000L);
+
+        HybridBitSet set = HybridBitSet.of(ids.clone(), ids.length);
+
+        assertTrue(set instanceof CompressedHybridBitSet);
+        assertSameContent(ids, 0, 100_000_000_000L, set);
+    }
+
+    @Test
+    public void sameIds_sameFingerprint()
+    {
+        HybridBitSet set = HybridBitSet.of(new long[] { 3, 1, 2 }, 3);
+
+        assertEquals(set.fingerprint(), HybridBitSet.of(new long[] { 1, 2, 3, 2 }, 4).fingerprint());
+        assertNotEquals(set.fingerprint(), HybridBitSet.of(new long[] { 1, 2 }, 2).fingerprint());
+        assertNotEquals(set.fingerprint(), HybridBitSet.of(new long[] { 1, 2, 4 }, 3).fingerprint());
+        assertNotEquals(set.fingerprint(), HybridBitSet.of(new long[0], 0).fingerprint());
+    }
+
+    @Test
+    public void sparseSet_growsAndHandlesZero()
+    {
+        SparseHybridBitSet set = new SparseHybridBitSet();
+        for (long id = 0; id < 10_000; id++)
+        {
+            set.set(id * 7919);
+        }
+        set.set(0);
+
+        assertEquals(10_000, set.cardinality());
+        for (long id = 0; id < 10_000; id++)
+        {
+            assertTrue(set.get(id * 7919));
+            assertFalse(set.get(id * 7919 + 1));
+        }
+    }
+
+    @Test
+    public void mutableSet_storesBitsBeyondTheBitmap()
+    {
+        HybridBitSet set = new HybridBitSet(100);
+        set.set(5);
+        set.set(500);
+        set.set(-5);
+
+        assertTrue(set.get(5));
+        assertTrue(set.get(500));
+        assertTrue(set.get(-5));
+        assertFalse(set.get(6));
+        assertFalse(set.get(501));
+    }
+
+    private long[] randomIds(int count, long min, long max)
+    {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++)
+        {
+            ids[i] = min + (long) (random.nextDouble() * (max - min));
+        }
+        return ids;
+    }
+
+    private void assertSameContent(long[] ids, long min, long max, HybridBitSet set)
+    {
+        Set<Long> expected = new HashSet<>();
+        for (long id : ids)
+        {
+            expected.add(id);
+            assertTrue("Missing " + id, set.get(id));
+        }
+
+        for (long id : randomIds(10_000, min - 10, max + 10))
+        {
+            assertEquals(expected.contains(id), set.get(id));
+        }
+        assertFalse(set.get(min - 1));
+        assertFalse(set.get(max + 1));
+    }
+}
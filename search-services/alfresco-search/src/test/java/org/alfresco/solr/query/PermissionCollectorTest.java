@@ -0,0 +1,173 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.alfresco.repo.search.adaptor.lucene.QueryConstants;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.solr.search.DelegatingCollector;
+import org.apache.solr.search.SortedIntDocSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link PermissionCollector}.
+ */
+public class PermissionCollectorTest
+{
+    /* ACL id of each document, the index has two segments of four documents */
+    private static final long[] ACL_IDS = { 1, 2, 3, 4, 1, 2, 3, 4 };
+
+    private Directory directory;
+    private DirectoryReader reader;
+    private final DocValuesCache docValuesCache = new DocValuesCache();
+
+    @Before
+    public void setUp() throws Exception
+    {
+        directory = new RAMDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(null)))
+        {
+            for (int i = 0; i < ACL_IDS.length; i++)
+            {
+                Document document = new Document();
+                document.add(new NumericDocValuesField(QueryConstants.FIELD_ACLID, ACL_IDS[i]));
+                writer.addDocument(document);
+                if (i == ACL_IDS.length / 2 - 1)
+                {
+                    writer.commit();
+                }
+            }
+        }
+        reader = DirectoryReader.open(directory);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        reader.close();
+        directory.close();
+    }
+
+    @Test
+    public void readers_collectsReadableAndOwnedDocuments() throws Exception
+    {
+        PermissionCollector collector = PermissionCollector.readers(docValuesCache, set(1), new SortedIntDocSet(new int[] { 2, 7 }), null);
+
+        assertEquals(Arrays.asList(0, 2, 4, 7), collect(collector));
+    }
+
+    @Test
+    public void readersWithoutOwnerRead_ownedDocumentsNeedOwnerAcl() throws Exception
+    {
+        PermissionCollector collector = PermissionCollector.readers(docValuesCache, set(1), new SortedIntDocSet(new int[] { 2, 7 }), set(4));
+
+        assertEquals(Arrays.asList(0, 4, 7), collect(collector));
+    }
+
+    @Test
+    public void denied_skipsDeniedDocuments() throws Exception
+    {
+        assertEquals(Arrays.asList(0, 2, 3, 4, 6, 7), collect(PermissionCollector.denied(docValuesCache, set(2))));
+    }
+
+    @Test
+    public void and_appliesReaderOwnerAndDenyRules() throws Exception
+    {
+        PermissionCollector readers = PermissionCollector.readers(docValuesCache, set(1, 2), new SortedIntDocSet(new int[] { 3, 6 }), null);
+        PermissionCollector denied = PermissionCollector.denied(docValuesCache, set(2, 4));
+
+        // Owned documents are still subject to the denied ACLs
+        List<Integer> expected = Arrays.asList(0, 4, 6);
+        assertEquals(expected, collect(denied.and(readers)));
+        assertEquals(expected, collect(readers.and(denied)));
+    }
+
+    @Test
+    public void and_sameKindOfRules_cannotBeFused() throws Exception
+    {
+        assertNull(PermissionCollector.denied(docValuesCache, set(1)).and(PermissionCollector.denied(docValuesCache, set(2))));
+        assertNull(PermissionCollector.readers(docValuesCache, set(1), null, null).and(PermissionCollector.readers(docValuesCache, set(2), null, null)));
+    }
+
+    private HybridBitSet set(long... ids)
+    {
+        return HybridBitSet.of(ids, ids.length);
+    }
+
+    private List<Integer> collect(DelegatingCollector collector) throws Exception
+    {
+        List<Integer> collected = new ArrayList<>();
+        collector.setDelegate(new SimpleCollector()
+        {
+            private int docBase;
+
+            @Override
+            protected void doSetNextReader(LeafReaderContext context)
+            {
+                docBase = context.docBase;
+            }
+
+            @Override
+            public void collect(int doc)
+            {
+                collected.add(docBase + doc);
+            }
+
+            @Override
+            public boolean needsScores()
+            {
+                return false;
+            }
+        });
+
+        for (LeafReaderContext context : reader.leaves())
+        {
+            collector.getLeafCollector(context);
+            for (int doc = 0; doc < context.reader().maxDoc(); doc++)
+            {
+                collector.collect(doc);
+            }
+        }
+        return collected;
+    }
+}
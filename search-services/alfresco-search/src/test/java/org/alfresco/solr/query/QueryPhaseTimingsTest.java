@@ -0,0 +1,231 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.query;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.codahale.metrics.Timer;
+import org.alfresco.solr.query.QueryPhaseTimings.Phase;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.metrics.SolrMetricManager;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrRequestInfo;
+import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.search.DelegatingCollector;
+import org.apache.solr.search.ExtendedQueryBase;
+import org.apache.solr.search.PostFilter;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class QueryPhaseTimingsTest
+{
+    @Mock
+    private SolrQueryRequest request;
+
+    @Before
+    public void setUp()
+    {
+        when(request.getContext()).thenReturn(new HashMap<>());
+    }
+
+    @Test
+    public void notEnabled_shouldNotCollectAnything()
+    {
+        QueryPhaseTimings timings = QueryPhaseTimings.of(request);
+        try (QueryPhaseTimings.Split split = timings.start(Phase.ACL_SET))
+        {
+            // Nothing to be done here
+        }
+
+        assertFalse(timings.isEnabled());
+        assertEquals(0, timings.asNamedList().size());
+        assertFalse(QueryPhaseTimings.current().isEnabled());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void enabled_shouldAccumulateEachPhase()
+    {
+        QueryPhaseTimings timings = QueryPhaseTimings.enable(request);
+        assertSame(timings, QueryPhaseTimings.of(request));
+
+        timings.add(Phase.ACL_SET, 1_000_000);
+        timings.add(Phase.ACL_SET, 2_000_000);
+        try (QueryPhaseTimings.Split split = timings.start(Phase.QUERY_PARSING))
+        {
+            // Nothing to be done here
+        }
+
+        NamedList<Object> report = timings.asNamedList();
+        assertEquals(2, report.size());
+        assertEquals(3.0d, ((NamedList<Object>) report.get("aclSet")).get("time"));
+        assertEquals(2, ((NamedList<Object>) report.get("aclSet")).get("count"));
+        assertEquals(1, ((NamedList<Object>) report.get("queryParsing")).get("count"));
+        assertNull(report.get("postFilter"));
+    }
+
+    @Test
+    public void updateTimers_shouldRecordTheExecutedPhasesOnly()
+    {
+        SolrMetricManager metricManager = new SolrMetricManager();
+        Map<Phase, Timer> timers = QueryPhaseTimings.registerTimers(metricManager, "solr.core.test", "QUERY", "/afts", "alfrescoPhases");
+
+        QueryPhaseTimings timings = QueryPhaseTimings.enable(request);
+        timings.add(Phase.POST_FILTER, 5_000_000);
+        timings.add(Phase.POST_FILTER, 5_000_000);
+        timings.updateTimers(timers);
+
+        Timer postFilter = metricManager.registry("solr.core.test").timer("QUERY./afts.alfrescoPhases.postFilter");
+        assertEquals(1, postFilter.getCount());
+        assertEquals(10_000_000, postFilter.getSnapshot().getMax());
+        assertTrue(timers.values().stream().filter(timer -> timer != postFilter).allMatch(timer -> timer.getCount() == 0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void postFilter_shouldTimeTheFilteringCollectors() throws IOException
+    {
+        Directory directory = new RAMDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(null)))
+        {
+            for (int i = 0; i < 10; i++)
+            {
+                writer.addDocument(new Document());
+            }
+        }
+
+        QueryPhaseTimings timings = QueryPhaseTimings.enable(request);
+        SolrRequestInfo.setRequestInfo(new SolrRequestInfo(request, new SolrQueryResponse()));
+        try (DirectoryReader reader = DirectoryReader.open(directory))
+        {
+            BooleanQuery filters = new BooleanQuery.Builder()
+                    .add(new MultipleOfFilter(2), BooleanClause.Occur.MUST)
+                    .add(new MultipleOfFilter(3), BooleanClause.Occur.MUST)
+                    .build();
+            DelegatingCollector collector = new PostFilterQuery(200, filters).getFilterCollector(new IndexSearcher(reader));
+            List<Integer> collected = new ArrayList<>();
+            collector.setLastDelegate(new DelegatingCollector()
+            {
+                @Override
+                public void collect(int doc)
+                {
+                    collected.add(docBase + doc);
+                }
+
+                @Override
+                protected void doSetNextReader(LeafReaderContext context)
+                {
+                    this.docBase = context.docBase;
+                }
+
+                @Override
+                public boolean needsScores()
+                {
+                    return false;
+                }
+            });
+
+            new IndexSearcher(reader).search(new MatchAllDocsQuery(), collector);
+            collector.finish();
+
+            assertEquals(asList(0, 6), collected);
+            assertEquals(1, ((NamedList<Object>) timings.asNamedList().get("postFilter")).get("count"));
+        }
+        finally
+        {
+            SolrRequestInfo.clearRequestInfo();
+        }
+    }
+
+    /** Lets through the documents whose id is a multiple of the given number. */
+    private static class MultipleOfFilter extends ExtendedQueryBase implements PostFilter
+    {
+        private final int divisor;
+
+        MultipleOfFilter(int divisor)
+        {
+            this.divisor = divisor;
+            setCache(false);
+            setCost(100 + divisor);
+        }
+
+        @Override
+        public DelegatingCollector getFilterCollector(IndexSearcher searcher)
+        {
+            return new DelegatingCollector()
+            {
+                @Override
+                public void collect(int doc) throws IOException
+                {
+                    if ((docBase + doc) % divisor == 0)
+                    {
+                        super.collect(doc);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            return other instanceof MultipleOfFilter && ((MultipleOfFilter) other).divisor == divisor;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return divisor;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.alfresco.repo.search.adaptor.lucene.QueryConstants;
+import org.alfresco.service.cmr.security.PermissionService;
+import org.alfresco.solr.cache.AclFilterCacheRegenerator;
+import org.alfresco.solr.cache.CacheConstants;
+import org.alfresco.solr.data.GlobalReaders;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.core.SolrResourceLoader;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.search.DelegatingCollector;
+import org.apache.solr.search.DocSet;
+import org.apache.solr.search.SolrCache;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.search.SortedIntDocSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/**
+ * Unit tests for the owner rules of the {@link SolrAuthoritySetQuery}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class SolrAuthoritySetQueryTest
+{
+    private static final AclIdSetKey OWNER_READERS =
+            new AclIdSetKey(QueryConstants.FIELD_READER, new String[] { PermissionService.OWNER_AUTHORITY });
+
+    @Mock
+    private SolrIndexSearcher searcher;
+
+    private Directory directory;
+    private DirectoryReader reader;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        // Two segments of four documents
+        directory = new RAMDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(null)))
+        {
+            for (int i = 0; i < 8; i++)
+            {
+                Document document = new Document();
+                document.add(new NumericDocValuesField(QueryConstants.FIELD_ACLID, 1));
+                writer.addDocument(document);
+                if (i == 3)
+                {
+                    writer.commit();
+                }
+            }
+        }
+        reader = DirectoryReader.open(directory);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        reader.close();
+        directory.close();
+    }
+
+    @Test
+    public void noUserAuthority_ownersAreNotQueried() throws Exception
+    {
+        SolrAuthoritySetQuery query = new SolrAuthoritySetQuery("|GROUP_EVERYONE|ROLE_ADMINISTRATOR");
+
+        assertNull(query.getOwnedDocs(new String[] { "GROUP_EVERYONE", "ROLE_ADMINISTRATOR" }, searcher));
+        verify(searcher, never()).getDocSet(any(Query.class));
+    }
+
+    @Test
+    public void nothingOwned_returnsNull() throws Exception
+    {
+        when(searcher.getDocSet(any(Query.class))).thenReturn(new SortedIntDocSet(new int[0]));
+        SolrAuthoritySetQuery query = new SolrAuthoritySetQuery("|bob|GROUP_EVERYONE");
+
+        assertNull(query.getOwnedDocs(new String[] { "bob", "GROUP_EVERYONE" }, searcher));
+    }
+
+    @Test
+    public void ownedDocuments_comeFromTheFilterCache() throws Exception
+    {
+        Query owners = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(QueryConstants.FIELD_OWNER, "bob")), BooleanClause.Occur.SHOULD)
+                .build();
+        DocSet owned = new SortedIntDocSet(new int[] { 1, 6 });
+        when(searcher.getDocSet(owners)).thenReturn(owned);
+        SolrAuthoritySetQuery query = new SolrAuthoritySetQuery("|bob|GROUP_EVERYONE");
+
+        assertSame(owned, query.getOwnedDocs(new String[] { "bob", "GROUP_EVERYONE" }, searcher));
+    }
+
+    @Test
+    public void ownerFilter_setsTheOwnedDocumentsOfEachSegment()
+    {
+        when(searcher.getTopReaderContext()).thenReturn(reader.getContext());
+        SolrAuthoritySetQuery query = new SolrAuthoritySetQuery("|bob");
+
+        BitsFilter filter = query.getOwnerFilter(new SortedIntDocSet(new int[] { 1, 4, 7 }), searcher);
+
+        assertEquals(Arrays.asList(bits(4, 1), bits(4, 0, 3)), filter.getBitSets());
+    }
+
+    @Test
+    public void nothingOwned_ownerAclSetIsNotResolved() throws Exception
+    {
+        when(searcher.getDocSet(any(Query.class))).thenReturn(new SortedIntDocSet(new int[0]));
+
+        assertOwnerAclSetResolution(false);
+    }
+
+    @Test
+    public void documentsOwned_ownerAclSetIsResolved() throws Exception
+    {
+        when(searcher.getDocSet(any(Query.class))).thenReturn(new SortedIntDocSet(new int[] { 2 }));
+
+        assertOwnerAclSetResolution(true);
+    }
+
+    @Test
+    public void aclReadersRemovedByACommit_cachedReaderFilterIsNotReused() throws Exception
+    {
+        Map<Object, Object> oldFilterCache = new HashMap<>();
+        SolrIndexSearcher oldSearcher = searcher(oldFilterCache, HybridBitSet.of(new long[] { 1 }, 1));
+        BitsFilter before = new SolrAuthoritySetQuery("|GROUP_A").getACLFilter(new String[] { "GROUP_A" }, QueryConstants.FIELD_READER, oldSearcher);
+        assertEquals(Arrays.asList(bits(4, 0, 1, 2, 3), bits(4, 0, 1, 2, 3)), before.getBitSets());
+
+        // The commit only updates the ACL documents: GROUP_A no longer reads ACL 1, the node segments are unchanged
+        Map<Object, Object> newFilterCache = new HashMap<>();
+        SolrIndexSearcher newSearcher = searcher(newFilterCache, HybridBitSet.of(new long[] { 2 }, 1));
+        regenerate(oldFilterCache, newSearcher, newFilterCache);
+        BitsFilter after = new SolrAuthoritySetQuery("|GROUP_A").getACLFilter(new String[] { "GROUP_A" }, QueryConstants.FIELD_READER, newSearcher);
+
+        assertEquals(Arrays.asList(bits(4), bits(4)), after.getBitSets());
+    }
+
+    @Test
+    public void aclReadersUnchangedByACommit_cachedReaderFilterIsReused() throws Exception
+    {
+        Map<Object, Object> oldFilterCache = new HashMap<>();
+        SolrIndexSearcher oldSearcher = searcher(oldFilterCache, HybridBitSet.of(new long[] { 1, 2 }, 2));
+        BitsFilter before = new SolrAuthoritySetQuery("|GROUP_A").getACLFilter(new String[] { "GROUP_A" }, QueryConstants.FIELD_READER, oldSearcher);
+
+        // The ACL ids are resolved again by the new searcher, in another order
+        Map<Object, Object> newFilterCache = new HashMap<>();
+        SolrIndexSearcher newSearcher = searcher(newFilterCache, HybridBitSet.of(new long[] { 2, 1 }, 2));
+        regenerate(oldFilterCache, newSearcher, newFilterCache);
+        BitsFilter after = new SolrAuthoritySetQuery("|GROUP_A").getACLFilter(new String[] { "GROUP_A" }, QueryConstants.FIELD_READER, newSearcher);
+
+        assertSame(before.getBitSets().get(0), after.getBitSets().get(0));
+        assertSame(before.getBitSets().get(1), after.getBitSets().get(1));
+    }
+
+    /*
+     * A searcher over the test segments, with an ACL filter cache backed by the given map and where the authorities
+     * resolve to the given ACL ids.
+     */
+    private SolrIndexSearcher searcher(Map<Object, Object> filterCache, HybridBitSet aclSet)
+    {
+        SolrIndexSearcher searcher = mock(SolrIndexSearcher.class, withSettings().lenient());
+        when(searcher.getTopReaderContext()).thenReturn(reader.getContext());
+        when(searcher.getCore()).thenReturn(mock(SolrCore.class));
+        when(searcher.cacheLookup(eq(CacheConstants.ALFRESCO_ACL_ID_CACHE), any())).thenReturn(aclSet);
+        when(searcher.cacheLookup(eq(CacheConstants.ALFRESCO_ACL_FILTER_CACHE), any()))
+                .thenAnswer(invocation -> filterCache.get(invocation.getArgument(1)));
+        doAnswer(invocation -> filterCache.put(invocation.getArgument(1), invocation.getArgument(2)))
+                .when(searcher).cacheInsert(eq(CacheConstants.ALFRESCO_ACL_FILTER_CACHE), any(), any());
+        return searcher;
+    }
+
+    /*
+     * Warms the ACL filter cache of the new searcher as Solr does on commit.
+     */
+    @SuppressWarnings("unchecked")
+    private static void regenerate(Map<Object, Object> oldFilterCache, SolrIndexSearcher newSearcher, Map<Object, Object> newFilterCache) throws Exception
+    {
+        SolrCache<Object, Object> newCache = mock(SolrCache.class);
+        doAnswer(invocation -> newFilterCache.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(newCache).put(any(), any());
+        AclFilterCacheRegenerator regenerator = new AclFilterCacheRegenerator();
+        for (Map.Entry<Object, Object> entry : oldFilterCache.entrySet())
+        {
+            regenerator.regenerateItem(newSearcher, newCache, mock(SolrCache.class), entry.getKey(), entry.getValue());
+        }
+    }
+
+    /*
+     * Runs the post filter with OWNER not being a global reader, and checks whether the ACLs readable by the owners
+     * have been looked up.
+     */
+    private void assertOwnerAclSetResolution(boolean expected) throws Exception
+    {
+        IndexSchema schema = mock(IndexSchema.class);
+        SolrResourceLoader resourceLoader = mock(SolrResourceLoader.class);
+        SolrCore core = mock(SolrCore.class);
+        when(searcher.getSchema()).thenReturn(schema);
+        when(schema.getResourceLoader()).thenReturn(resourceLoader);
+        when(resourceLoader.getCoreProperties()).thenReturn(new Properties());
+        when(searcher.getCore()).thenReturn(core);
+        when(searcher.cacheLookup(eq(CacheConstants.ALFRESCO_ACL_ID_CACHE), any())).thenReturn(HybridBitSet.of(new long[] { 1 }, 1));
+
+        Set<String> globalReaders = GlobalReaders.getReaders();
+        boolean ownerIsGlobalReader = globalReaders.remove(PermissionService.OWNER_AUTHORITY);
+        try
+        {
+            DelegatingCollector collector = new SolrAuthoritySetQuery("|bob|GROUP_EVERYONE").getFilterCollector(searcher);
+
+            assertEquals(PermissionCollector.class, collector.getClass());
+            verify(searcher, expected ? times(1) : never()).cacheLookup(CacheConstants.ALFRESCO_ACL_ID_CACHE, OWNER_READERS);
+        }
+        finally
+        {
+            if (ownerIsGlobalReader)
+            {
+                globalReaders.add(PermissionService.OWNER_AUTHORITY);
+            }
+        }
+    }
+
+    private static FixedBitSet bits(int length, int... docs)
+    {
+        FixedBitSet bits = new FixedBitSet(length);
+        for (int doc : docs)
+        {
+            bits.set(doc);
+        }
+        return bits;
+    }
+}
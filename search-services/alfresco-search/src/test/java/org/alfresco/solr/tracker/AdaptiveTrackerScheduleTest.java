@@ -0,0 +1,204 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.tracker;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/**
+ * Tests for the {@link AdaptiveTrackerSchedule} class.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class AdaptiveTrackerScheduleTest
+{
+    private static final long TICK = 10_000;
+    private static final long MAX_BACKOFF = 60_000;
+
+    private AdaptiveTrackerSchedule schedule; // Class under test
+    private @Mock Tracker tracker;
+
+    @Before
+    public void setUp()
+    {
+        schedule = new AdaptiveTrackerSchedule(TICK, MAX_BACKOFF);
+    }
+
+    @Test
+    public void trackerIsRerunWhileItReportsRemainingWork()
+    {
+        when(tracker.hasFoundWork()).thenReturn(true);
+        when(tracker.hasRemainingWork()).thenReturn(true, true, false);
+
+        schedule.run(tracker, 0);
+
+        verify(tracker, times(3)).track();
+        assertEquals(2, schedule.getReruns());
+        assertEquals(0, schedule.getBackoff());
+    }
+
+    @Test
+    public void trackerWhichFoundWorkIsNotRerunButDoesNotBackOff()
+    {
+        when(tracker.hasFoundWork()).thenReturn(true);
+
+        schedule.run(tracker, 0);
+
+        verify(tracker).track();
+        assertEquals(0, schedule.getReruns());
+        assertEquals(0, schedule.getBackoff());
+    }
+
+    @Test
+    public void rerunsAreBoundedPerTick()
+    {
+        when(tracker.hasRemainingWork()).thenReturn(true);
+
+        schedule.run(tracker, 0);
+
+        verify(tracker, times(1 + AdaptiveTrackerSchedule.MAX_RERUNS_PER_TICK)).track();
+        assertEquals(AdaptiveTrackerSchedule.MAX_RERUNS_PER_TICK, schedule.getReruns());
+
+        // The work left behind is picked up on the next tick
+        assertEquals(0, schedule.getBackoff());
+        schedule.run(tracker, TICK);
+        verify(tracker, times(2 * (1 + AdaptiveTrackerSchedule.MAX_RERUNS_PER_TICK))).track();
+    }
+
+    @Test
+    public void rerunsStopAfterOneTickInterval()
+    {
+        AtomicLong clock = new AtomicLong();
+        schedule = new AdaptiveTrackerSchedule(TICK, MAX_BACKOFF, clock::get);
+        when(tracker.hasRemainingWork()).thenReturn(true);
+        doAnswer(invocation -> clock.addAndGet(TICK * 2 / 5)).when(tracker).track();
+
+        schedule.run(tracker, 0);
+
+        verify(tracker, times(3)).track();
+        assertEquals(2, schedule.getReruns());
+    }
+
+    @Test
+    public void idleTrackerBacksOffExponentiallyUpToTheMaximum()
+    {
+        long[] expectedBackoffs = { TICK, 2 * TICK, 4 * TICK, MAX_BACKOFF, MAX_BACKOFF };
+        long fireTime = 0;
+        for (long expectedBackoff : expectedBackoffs)
+        {
+            schedule.run(tracker, fireTime);
+            assertEquals(expectedBackoff, schedule.getBackoff());
+
+            // The ticks in the backoff period are skipped
+            for (long skipped = fireTime + TICK; skipped < fireTime + expectedBackoff; skipped += TICK)
+            {
+                schedule.run(tracker, skipped);
+            }
+            fireTime += expectedBackoff;
+        }
+
+        verify(tracker, times(expectedBackoffs.length)).track();
+        assertEquals((0 + 1 + 3 + 5 + 5), schedule.getSkippedRuns());
+        assertEquals(0, schedule.getReruns());
+    }
+
+    @Test
+    public void backoffIsResetWhenTheTrackerFindsWork()
+    {
+        schedule.run(tracker, 0);
+        schedule.run(tracker, TICK);
+        assertEquals(2 * TICK, schedule.getBackoff());
+
+        when(tracker.hasFoundWork()).thenReturn(true, false);
+        schedule.run(tracker, 3 * TICK);
+        assertEquals(0, schedule.getBackoff());
+
+        schedule.run(tracker, 4 * TICK);
+        verify(tracker, times(4)).track();
+        assertEquals(TICK, schedule.getBackoff());
+    }
+
+    @Test
+    public void followersStopBackingOffWhenTheTrackerFindsWork()
+    {
+        AdaptiveTrackerSchedule follower = new AdaptiveTrackerSchedule(TICK, MAX_BACKOFF);
+        schedule.setFollowers(Collections.singletonList(follower));
+        follower.run(tracker, 0);
+        follower.run(tracker, TICK);
+        assertEquals(2 * TICK, follower.getBackoff());
+
+        // Idle: the follower keeps backing off
+        schedule.run(tracker, TICK);
+        assertEquals(2 * TICK, follower.getBackoff());
+
+        when(tracker.hasFoundWork()).thenReturn(true);
+        schedule.run(tracker, 2 * TICK);
+        assertEquals(0, follower.getBackoff());
+
+        // The follower runs on the next tick, which falls in its previous backoff period
+        follower.run(tracker, 2 * TICK);
+        assertEquals(0, follower.getSkippedRuns());
+    }
+
+    @Test
+    public void trackerWaitingForRollbackIsNotRerun()
+    {
+        schedule.run(tracker, 0);
+        assertEquals(TICK, schedule.getBackoff());
+
+        when(tracker.hasRemainingWork()).thenReturn(true);
+        when(tracker.getRollback()).thenReturn(true);
+        schedule.run(tracker, TICK);
+
+        verify(tracker, times(2)).track();
+        assertEquals(0, schedule.getReruns());
+        assertEquals(0, schedule.getBackoff());
+    }
+
+    @Test
+    public void trackerInShutdownModeIsNotRerun()
+    {
+        when(tracker.hasRemainingWork()).thenReturn(true);
+        when(tracker.isAlreadyInShutDownMode()).thenReturn(true);
+
+        schedule.run(tracker, 0);
+
+        verify(tracker).track();
+        assertEquals(0, schedule.getReruns());
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.tracker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.alfresco.solr.AlfrescoSolrDataModel.TenantDbId;
+import org.alfresco.solr.InformationServer;
+import org.alfresco.solr.client.SOLRAPIClient;
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/**
+ * Unit tests for the asynchronous content fetching mode of the {@link ContentTracker}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ContentTrackerTest
+{
+    private static final int MAX_CONCURRENT_FETCHES = 2;
+
+    @Mock
+    private SOLRAPIClient repositoryClient;
+
+    @Mock
+    private InformationServer srv;
+
+    private ContentTracker contentTracker;
+
+    /* Documents passed to InformationServer.indexContent */
+    private final List<SolrInputDocument> indexed = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp()
+    {
+        contentTracker = contentTracker(String.valueOf(MAX_CONCURRENT_FETCHES));
+    }
+
+    @After
+    public void tearDown()
+    {
+        contentTracker.shutdown();
+    }
+
+    @Test
+    public void asyncMode_fetchesAndIndexesEveryDocument() throws Exception
+    {
+        recordIndexedDocuments();
+        when(srv.fetchContent(any(TenantDbId.class))).thenAnswer(invocation -> {
+            TenantDbId doc = invocation.getArgument(0);
+            // The content of the third document can't be fetched
+            return doc.dbId == 3 ? null : document(doc);
+        });
+
+        assertEquals(5, contentTracker.updateContentAsync(docs(5)));
+
+        List<Long> indexedIds = indexed.stream()
+                .map(doc -> (Long) doc.getFieldValue("id"))
+                .sorted()
+                .collect(Collectors.toList());
+        assertEquals(List.of(1L, 2L, 4L, 5L), indexedIds);
+    }
+
+    @Test
+    public void asyncMode_inFlightFetchesAreBounded() throws Exception
+    {
+        recordIndexedDocuments();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(srv.fetchContent(any(TenantDbId.class))).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return document(invocation.getArgument(0));
+        });
+
+        assertEquals(10, contentTracker.updateContentAsync(docs(10)));
+
+        assertEquals(10, indexed.size());
+        assertTrue(maxInFlight.get() <= MAX_CONCURRENT_FETCHES);
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void asyncMode_fetchFailureIsPropagated() throws Exception
+    {
+        when(srv.fetchContent(any(TenantDbId.class))).thenThrow(new IllegalStateException("Repository unavailable"));
+
+        contentTracker.updateContentAsync(docs(3));
+    }
+
+    @Test
+    public void nonPositiveMaxConcurrentFetches_isClampedToOne()
+    {
+        ContentTracker zero = contentTracker("0");
+        ContentTracker negative = contentTracker("-5");
+        try
+        {
+            assertEquals(1, zero.getMaxConcurrentFetches());
+            assertEquals(1, negative.getMaxConcurrentFetches());
+            assertEquals(MAX_CONCURRENT_FETCHES, contentTracker.getMaxConcurrentFetches());
+        }
+        finally
+        {
+            zero.shutdown();
+            negative.shutdown();
+        }
+    }
+
+    private void recordIndexedDocuments() throws Exception
+    {
+        doAnswer(invocation -> indexed.addAll(invocation.getArgument(0))).when(srv).indexContent(anyList());
+    }
+
+    private ContentTracker contentTracker(String maxConcurrentFetches)
+    {
+        Properties props = new Properties();
+        props.setProperty("alfresco.content.tracker.async.enabled", "true");
+        props.setProperty("alfresco.content.tracker.async.maxConcurrentFetches", maxConcurrentFetches);
+        return new ContentTracker(props, repositoryClient, "theCoreName", srv);
+    }
+
+    private static List<TenantDbId> docs(int count)
+    {
+        return LongStream.rangeClosed(1, count)
+                .mapToObj(dbId -> {
+                    TenantDbId doc = new TenantDbId();
+                    doc.dbId = dbId;
+                    return doc;
+                })
+                .collect(Collectors.toList());
+    }
+
+    private static SolrInputDocument document(TenantDbId doc)
+    {
+        SolrInputDocument document = new SolrInputDocument();
+        document.addField("id", doc.dbId);
+        return document;
+    }
+}
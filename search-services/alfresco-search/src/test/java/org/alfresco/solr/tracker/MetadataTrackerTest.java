@@ -31,8 +31,18 @@ import static org.mockito.Mockito.*;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.Timer;
 
 import org.alfresco.httpclient.AuthenticationException;
 import org.alfresco.repo.index.shard.ShardState;
@@ -46,6 +56,7 @@ import org.alfresco.solr.client.SOLRAPIClient;
 import org.alfresco.solr.client.Transaction;
 import org.alfresco.solr.client.Transactions;
 import org.apache.commons.codec.EncoderException;
+import org.apache.solr.metrics.SolrMetricManager;
 import org.json.JSONException;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -188,6 +199,143 @@ public class MetadataTrackerTest
         assertEquals(TX_ID, nodeReport.getDbTx());
     }
 
+    @Test
+    public void initializeMetrics_shouldRegisterQueueDepthsAndLag()
+    {
+        SolrMetricManager metricManager = new SolrMetricManager();
+        this.metadataTracker.initializeMetrics(metricManager, "solr.core.theCoreName", "metadata");
+
+        this.metadataTracker.addTransactionToIndex(1L);
+        this.metadataTracker.addTransactionToIndex(2L);
+        this.metadataTracker.addNodeToIndex(3L);
+
+        TrackerState state = new TrackerState();
+        state.setLastTxCommitTimeOnServer(5000L);
+        state.setLastIndexedTxCommitTime(3000L);
+        this.metadataTracker.state = state;
+
+        Map<String, Metric> metrics = metricManager.registry("solr.core.theCoreName").getMetrics();
+        assertEquals(2, ((Gauge<?>) metrics.get("ALFRESCO.tracker.metadata.transactionsToIndex")).getValue());
+        assertEquals(1, ((Gauge<?>) metrics.get("ALFRESCO.tracker.metadata.nodesToIndex")).getValue());
+        assertEquals(0, ((Gauge<?>) metrics.get("ALFRESCO.tracker.metadata.nodesToReindex")).getValue());
+        assertEquals(2000L, ((Gauge<?>) metrics.get("ALFRESCO.tracker.metadata.lag")).getValue());
+        assertTrue(metrics.get("ALFRESCO.tracker.metadata.cycleTimes") instanceof Timer);
+    }
+
+    @Test
+    public void trackTransactions_shouldIndexNodesThenTransactionsInCommitTimeOrder() throws Exception
+    {
+        checkTransactionsAreTrackedInOrder(new MetadataTracker(props, repositoryClient, "sequentialCore", srv));
+    }
+
+    @Test
+    public void pipelinedTrackTransactions_shouldIndexNodesThenTransactionsInCommitTimeOrder() throws Exception
+    {
+        doReturn("true").when(props).getProperty("alfresco.metadata.tracker.pipeline.enabled");
+        checkTransactionsAreTrackedInOrder(new MetadataTracker(props, repositoryClient, "pipelinedCore", srv));
+    }
+
+    /**
+     * Tracks a page with two transactions (followed by an empty page) and checks the nodes are indexed before the
+     * transactions and the tracker state points to the last one.
+     */
+    private void checkTransactionsAreTrackedInOrder(MetadataTracker tracker) throws Exception
+    {
+        TrackerState state = new TrackerState();
+        state.setTimeToStopIndexing(5000L);
+        when(srv.getTrackerInitialState()).thenReturn(state);
+
+        Transaction first = getTransaction(1L, 1000L);
+        Transaction second = getTransaction(2L, 2000L);
+        when(repositoryClient.getTransactions(anyLong(), isNull(), anyLong(), isNull(), anyInt()))
+                .thenReturn(new Transactions(Arrays.asList(first, second), 2000L, 2L))
+                .thenReturn(new Transactions(new ArrayList<>(), 2000L, 2L));
+
+        Node firstNode = getNode();
+        firstNode.setTxnId(1L);
+        Node secondNode = getNode();
+        secondNode.setTxnId(2L);
+        List<Node> nodes = Arrays.asList(firstNode, secondNode);
+        when(repositoryClient.getNodes(any(GetNodesParameters.class), anyInt())).thenReturn(nodes);
+
+        tracker.trackTransactions();
+
+        InOrder inOrder = inOrder(srv);
+        inOrder.verify(srv).indexNodes(nodes, true);
+        inOrder.verify(srv).indexTransaction(first, true);
+        inOrder.verify(srv).indexTransaction(second, true);
+        assertEquals(2L, state.getLastIndexedTxId());
+        assertEquals(2000L, state.getLastIndexedTxCommitTime());
+        assertEquals(2000L, state.getLastTxCommitTimeOnServer());
+        assertFalse(tracker.getRollback());
+    }
+
+    @Test
+    public void checkIndexInSlices_shouldCheckEachSliceOfTheRangeOnce() throws Exception
+    {
+        List<String> slices = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            this.metadataTracker.checkIndexInSlices(0, 10, 4, executor, 2, (fromId, toId) -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                slices.add(fromId + "-" + toId);
+                Thread.sleep(10);
+                running.decrementAndGet();
+            });
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        Collections.sort(slices);
+        assertEquals(Arrays.asList("0-3", "4-7", "8-10"), slices);
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    public void checkIndexInSlices_shouldDoNothingOnAnEmptyRange() throws Exception
+    {
+        this.metadataTracker.checkIndexInSlices(5, 4, 4, mock(ExecutorService.class), 2, (fromId, toId) -> fail());
+    }
+
+    @Test
+    public void checkIndexInSlices_shouldPropagateTheFailureOfASlice()
+    {
+        IOException failure = new IOException("Repository unavailable");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            this.metadataTracker.checkIndexInSlices(0, 10, 4, executor, 2, (fromId, toId) -> {
+                if (fromId == 4)
+                {
+                    throw failure;
+                }
+            });
+            fail("The failure of a slice should fail the whole check");
+        }
+        catch (IOException exception)
+        {
+            assertSame(failure, exception);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private Transaction getTransaction(long id, long commitTime)
+    {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setCommitTimeMs(commitTime);
+        transaction.setUpdates(1);
+        return transaction;
+    }
+
     private Node getNode()
     {
         Node node = new Node();
@@ -0,0 +1,171 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.tracker;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.alfresco.solr.client.Acl;
+import org.alfresco.solr.client.AclChangeSet;
+import org.alfresco.solr.client.AclReaders;
+import org.alfresco.solr.client.SOLRAPIClient;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/**
+ * Unit tests for the {@link SharedAclFeed}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class SharedAclFeedTest
+{
+    private static final AclChangeSet CHANGE_SET_1 = new AclChangeSet(1, 1000, 2);
+    private static final AclChangeSet CHANGE_SET_2 = new AclChangeSet(2, 2000, 1);
+    private static final Acl ACL_10 = new Acl(1, 10);
+    private static final Acl ACL_11 = new Acl(1, 11);
+    private static final Acl ACL_20 = new Acl(2, 20);
+
+    @Mock
+    private SOLRAPIClient client;
+
+    private SharedAclFeed feed;
+
+    @Before
+    public void setUp()
+    {
+        feed = new SharedAclFeed(client);
+        feed.subscribe();
+        feed.subscribe();
+    }
+
+    @Test
+    public void acls_areFetchedOnceForAllSubscribers() throws Exception
+    {
+        when(client.getAcls(anyList(), isNull(), eq(Integer.MAX_VALUE))).thenReturn(asList(ACL_10, ACL_11, ACL_20));
+
+        List<AclChangeSet> changeSets = asList(CHANGE_SET_1, CHANGE_SET_2);
+        assertEquals(asList(ACL_10, ACL_11, ACL_20), feed.getAcls(changeSets));
+        assertEquals(asList(ACL_10, ACL_11, ACL_20), feed.getAcls(changeSets));
+        verify(client).getAcls(changeSets, null, Integer.MAX_VALUE);
+
+        // Every subscriber has read them: the ACLs are fetched again
+        feed.getAcls(changeSets);
+        verify(client, times(2)).getAcls(changeSets, null, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void onlyMissingReaders_areFetched() throws Exception
+    {
+        AclReaders readers10 = readers(ACL_10);
+        AclReaders readers20 = readers(ACL_20);
+        when(client.getAclReaders(singletonList(ACL_10))).thenReturn(singletonList(readers10));
+        when(client.getAclReaders(singletonList(ACL_20))).thenReturn(singletonList(readers20));
+
+        assertEquals(singletonList(readers10), feed.getAclReaders(singletonList(ACL_10)));
+        assertEquals(asList(readers10, readers20), feed.getAclReaders(asList(ACL_10, ACL_20)));
+
+        verify(client).getAclReaders(singletonList(ACL_10));
+        verify(client).getAclReaders(singletonList(ACL_20));
+    }
+
+    @Test
+    public void readers_areKeptPerChangeSet() throws Exception
+    {
+        Acl acl10InChangeSet2 = new Acl(2, 10);
+        AclReaders readersBefore = readers(ACL_10);
+        AclReaders readersAfter = new AclReaders(10, singletonList("GROUP_ADMIN"), emptyList(), 2, "");
+        when(client.getAclReaders(singletonList(ACL_10))).thenReturn(singletonList(readersBefore));
+        when(client.getAclReaders(singletonList(acl10InChangeSet2))).thenReturn(singletonList(readersAfter));
+
+        assertSame(readersBefore, feed.getAclReaders(singletonList(ACL_10)).get(0));
+        assertSame(readersAfter, feed.getAclReaders(singletonList(acl10InChangeSet2)).get(0));
+
+        verify(client).getAclReaders(singletonList(ACL_10));
+        verify(client).getAclReaders(singletonList(acl10InChangeSet2));
+    }
+
+    @Test
+    public void failedFetch_isRetried() throws Exception
+    {
+        when(client.getAclReaders(any()))
+                .thenThrow(new IOException("Repository unavailable"))
+                .thenReturn(singletonList(readers(ACL_10)));
+
+        try
+        {
+            feed.getAclReaders(singletonList(ACL_10));
+            fail("The fetch failure should have been reported");
+        }
+        catch (IOException expected)
+        {
+            // Expected
+        }
+
+        assertEquals(singletonList(readers(ACL_10)), feed.getAclReaders(singletonList(ACL_10)));
+    }
+
+    @Test
+    public void fetchFailingWithAnError_isRetried() throws Exception
+    {
+        when(client.getAclReaders(any()))
+                .thenThrow(new LinkageError("Incompatible client"))
+                .thenReturn(singletonList(readers(ACL_10)));
+
+        try
+        {
+            feed.getAclReaders(singletonList(ACL_10));
+            fail("The fetch failure should have been reported");
+        }
+        catch (LinkageError expected)
+        {
+            // Expected
+        }
+
+        assertEquals(singletonList(readers(ACL_10)), feed.getAclReaders(singletonList(ACL_10)));
+    }
+
+    private AclReaders readers(Acl acl)
+    {
+        return new AclReaders(acl.getId(), singletonList("GROUP_EVERYONE"), singletonList("jdoe"), acl.getAclChangeSetId(), "");
+    }
+}
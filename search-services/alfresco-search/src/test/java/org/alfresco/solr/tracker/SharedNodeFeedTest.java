@@ -0,0 +1,176 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.tracker;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.solr.client.GetNodesParameters;
+import org.alfresco.solr.client.Node;
+import org.alfresco.solr.client.SOLRAPIClient;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/**
+ * Unit tests for the {@link SharedNodeFeed}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class SharedNodeFeedTest
+{
+    private static final Node NODE_1 = node(1, 100);
+    private static final Node NODE_2 = node(2, 100);
+    private static final Node NODE_3 = node(3, 101);
+    private static final StoreRef WORKSPACE = new StoreRef("workspace", "workspace");
+    private static final QName SHARD_PROPERTY = QName.createQName("http://www.alfresco.org/model/content/1.0", "author");
+
+    @Mock
+    private SOLRAPIClient client;
+
+    private SharedNodeFeed feed;
+
+    @Before
+    public void setUp()
+    {
+        feed = new SharedNodeFeed(client);
+        feed.subscribe(WORKSPACE, null);
+        feed.subscribe(WORKSPACE, null);
+    }
+
+    @Test
+    public void nodes_areFetchedOnceForAllSubscribers() throws Exception
+    {
+        when(client.getNodes(any(), eq(Integer.MAX_VALUE))).thenReturn(asList(NODE_1, NODE_2, NODE_3));
+
+        assertEquals(asList(NODE_1, NODE_2, NODE_3), feed.getNodes(parameters("workspace", 100L, 101L)));
+        assertEquals(asList(NODE_3), feed.getNodes(parameters("workspace", 101L)));
+        assertEquals(asList(NODE_1, NODE_2), feed.getNodes(parameters("workspace", 100L)));
+
+        verify(client).getNodes(any(), eq(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void differentStores_areNotShared() throws Exception
+    {
+        when(client.getNodes(any(), eq(Integer.MAX_VALUE))).thenReturn(asList(NODE_1, NODE_2));
+
+        feed.getNodes(parameters("workspace", 100L));
+        feed.getNodes(parameters("archive", 100L));
+
+        verify(client, times(2)).getNodes(any(), eq(Integer.MAX_VALUE));
+        verify(client).getNodes(argThat(parameters -> "archive".equals(parameters.getStoreIdentifier())), eq(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void subscribers_areCountedPerShardProperty() throws Exception
+    {
+        feed.subscribe(WORKSPACE, SHARD_PROPERTY);
+        when(client.getNodes(any(), eq(Integer.MAX_VALUE))).thenReturn(asList(NODE_3));
+
+        GetNodesParameters parameters = parameters("workspace", 101L);
+        parameters.setShardProperty(SHARD_PROPERTY);
+        assertEquals(asList(NODE_3), feed.getNodes(parameters));
+
+        // The only tracker sharing these nodes has read them: they are fetched again
+        assertEquals(asList(NODE_3), feed.getNodes(parameters));
+        verify(client, times(2)).getNodes(any(), eq(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void unsubscribedTrackers_areNotWaitedFor() throws Exception
+    {
+        feed.unsubscribe(WORKSPACE, null);
+        when(client.getNodes(any(), eq(Integer.MAX_VALUE))).thenReturn(asList(NODE_3));
+
+        feed.getNodes(parameters("workspace", 101L));
+        feed.getNodes(parameters("workspace", 101L));
+
+        verify(client, times(2)).getNodes(any(), eq(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void concurrentTrackers_waitForTheSameFetch() throws Exception
+    {
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(client.getNodes(any(), eq(Integer.MAX_VALUE))).thenAnswer(invocation -> {
+            fetching.countDown();
+            release.await();
+            return asList(NODE_3);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            Future<List<Node>> first = executor.submit(() -> feed.getNodes(parameters("workspace", 101L)));
+            fetching.await();
+            Future<List<Node>> second = executor.submit(() -> feed.getNodes(parameters("workspace", 101L)));
+            release.countDown();
+
+            assertEquals(asList(NODE_3), first.get());
+            assertEquals(asList(NODE_3), second.get());
+            verify(client).getNodes(any(), eq(Integer.MAX_VALUE));
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private static GetNodesParameters parameters(String store, Long... txIds)
+    {
+        GetNodesParameters parameters = new GetNodesParameters();
+        parameters.setStoreProtocol("workspace");
+        parameters.setStoreIdentifier(store);
+        parameters.setTransactionIds(asList(txIds));
+        return parameters;
+    }
+
+    private static Node node(long id, long txId)
+    {
+        Node node = new Node();
+        node.setId(id);
+        node.setTxnId(txId);
+        return node;
+    }
+}
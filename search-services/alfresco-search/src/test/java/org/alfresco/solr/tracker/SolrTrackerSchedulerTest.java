@@ -26,13 +26,16 @@
 
 package org.alfresco.solr.tracker;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
 import java.util.List;
@@ -191,6 +194,77 @@ public class SolrTrackerSchedulerTest
 
     }
 
+    @Test
+    public void adaptiveSchedulingIsOptIn()
+    {
+        AclTracker aclTracker = new AclTracker(props, client, coreName, informationServer);
+        this.trackerScheduler.schedule(aclTracker, CORE_NAME, props);
+        assertFalse(trackerScheduler.getAdaptiveSchedule(CORE_NAME, aclTracker).isPresent());
+    }
+
+    @Test
+    public void adaptiveSchedulingDoesNotApplyToCommitTracker()
+    {
+        props.put(SolrTrackerScheduler.ADAPTIVE_SCHEDULING, "true");
+        MetadataTracker metadataTracker = new MetadataTracker(props, client, coreName, informationServer);
+        CommitTracker commitTracker = new CommitTracker(props, client, coreName, informationServer, Arrays.asList(metadataTracker));
+        this.trackerScheduler.schedule(metadataTracker, CORE_NAME, props);
+        this.trackerScheduler.schedule(commitTracker, CORE_NAME, props);
+
+        assertTrue(trackerScheduler.getAdaptiveSchedule(CORE_NAME, metadataTracker).isPresent());
+        assertFalse(trackerScheduler.getAdaptiveSchedule(CORE_NAME, commitTracker).isPresent());
+    }
+
+    @Test
+    public void contentAndCascadeSchedulesFollowTheMetadataSchedule()
+    {
+        props.put(SolrTrackerScheduler.ADAPTIVE_SCHEDULING, "true");
+        ContentTracker contentTracker = new ContentTracker(props, client, coreName, informationServer);
+        MetadataTracker metadataTracker = new MetadataTracker(props, client, coreName, informationServer);
+        CascadeTracker cascadeTracker = new CascadeTracker(props, client, coreName, informationServer);
+        this.trackerScheduler.schedule(contentTracker, CORE_NAME, props);
+        this.trackerScheduler.schedule(metadataTracker, CORE_NAME, props);
+        this.trackerScheduler.schedule(cascadeTracker, CORE_NAME, props);
+
+        AdaptiveTrackerSchedule contentSchedule = trackerScheduler.getAdaptiveSchedule(CORE_NAME, contentTracker).get();
+        AdaptiveTrackerSchedule cascadeSchedule = trackerScheduler.getAdaptiveSchedule(CORE_NAME, cascadeTracker).get();
+        Tracker idleTracker = mock(Tracker.class);
+        contentSchedule.run(idleTracker, 0);
+        cascadeSchedule.run(idleTracker, 0);
+        assertTrue(contentSchedule.getBackoff() > 0);
+        assertTrue(cascadeSchedule.getBackoff() > 0);
+
+        Tracker busyTracker = mock(Tracker.class);
+        when(busyTracker.hasFoundWork()).thenReturn(true);
+        trackerScheduler.getAdaptiveSchedule(CORE_NAME, metadataTracker).get().run(busyTracker, 0);
+
+        assertEquals(0, contentSchedule.getBackoff());
+        assertEquals(0, cascadeSchedule.getBackoff());
+    }
+
+    @Test
+    public void adaptiveSchedulingSkipsIdleTicksWithTheTemplateValues()
+    {
+        // The values of the core templates: every 10 seconds, committing every 2 seconds
+        props.put("alfresco.cron", "0/10 * * * * ? *");
+        props.put("alfresco.commitInterval", "2000");
+        props.put(SolrTrackerScheduler.ADAPTIVE_SCHEDULING, "true");
+        AclTracker aclTracker = new AclTracker(props, client, coreName, informationServer);
+        this.trackerScheduler.schedule(aclTracker, CORE_NAME, props);
+
+        AdaptiveTrackerSchedule schedule = trackerScheduler.getAdaptiveSchedule(CORE_NAME, aclTracker).get();
+        assertEquals(60_000, schedule.getMaxBackoff());
+
+        // An idle tracker backs off 10, 20, 40 and then 60 seconds: it runs on 4 of the first 12 ticks
+        Tracker idleTracker = mock(Tracker.class);
+        for (long tick = 0; tick < 120_000; tick += 10_000)
+        {
+            schedule.run(idleTracker, tick);
+        }
+        verify(idleTracker, times(4)).track();
+        assertEquals(8, schedule.getSkippedRuns());
+    }
+
     @Test
     public void newSchedulerIsNotShutdown() throws SchedulerException
     {
@@ -26,9 +26,12 @@
 
 package org.alfresco.solr.tracker;
 
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Date;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -76,4 +79,16 @@ public class TrackerJobTest
         verify(tracker).track();
     }
 
+    @Test
+    public void adaptiveScheduleRerunsTrackerWithRemainingWork() throws JobExecutionException
+    {
+        jobDataMap.put(TrackerJob.JOBDATA_SCHEDULE_KEY, new AdaptiveTrackerSchedule(10_000, 60_000));
+        when(jec.getScheduledFireTime()).thenReturn(new Date());
+        when(tracker.hasRemainingWork()).thenReturn(true, true, false);
+
+        trackerJob.execute(jec);
+
+        verify(tracker, times(2)).track();
+    }
+
 }
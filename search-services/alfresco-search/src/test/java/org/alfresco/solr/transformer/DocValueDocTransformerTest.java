@@ -0,0 +1,200 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.transformer;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.index.SlowCompositeReaderWrapper;
+import org.apache.solr.response.ResultContext;
+import org.apache.solr.schema.FieldType;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.schema.StrField;
+import org.apache.solr.schema.TrieLongField;
+import org.apache.solr.search.ReturnFields;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link DocValueDocTransformer}.
+ */
+public class DocValueDocTransformerTest
+{
+    private static final String SORTED = "sorted";
+    private static final String SORTED_SET = "sortedSet";
+    private static final String NUMERIC = "numeric";
+    private static final String SORTED_NUMERIC = "sortedNumeric";
+
+    private Directory directory;
+    private DirectoryReader reader;
+    private ResultContext context;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        // First segment: a document with all the fields and a document without values, second segment: a document
+        // with the single valued sorted field only (the other fields are not in the segment at all)
+        directory = new RAMDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(null)))
+        {
+            Document all = new Document();
+            all.add(new SortedDocValuesField(SORTED, new BytesRef("a")));
+            all.add(new SortedSetDocValuesField(SORTED_SET, new BytesRef("y")));
+            all.add(new SortedSetDocValuesField(SORTED_SET, new BytesRef("x")));
+            all.add(new NumericDocValuesField(NUMERIC, 5));
+            all.add(new SortedNumericDocValuesField(SORTED_NUMERIC, 3));
+            all.add(new SortedNumericDocValuesField(SORTED_NUMERIC, 1));
+            writer.addDocument(all);
+            writer.addDocument(new Document());
+            writer.commit();
+
+            Document sortedOnly = new Document();
+            sortedOnly.add(new SortedDocValuesField(SORTED, new BytesRef("b")));
+            writer.addDocument(sortedOnly);
+        }
+        reader = DirectoryReader.open(directory);
+
+        IndexSchema schema = mock(IndexSchema.class);
+        schemaField(schema, SORTED, new StrField());
+        schemaField(schema, SORTED_SET, new StrField());
+        schemaField(schema, NUMERIC, new TrieLongField());
+        schemaField(schema, SORTED_NUMERIC, new TrieLongField());
+
+        SolrIndexSearcher searcher = mock(SolrIndexSearcher.class);
+        when(searcher.getSchema()).thenReturn(schema);
+        when(searcher.getSlowAtomicReader()).thenReturn(SlowCompositeReaderWrapper.wrap(reader));
+        when(searcher.getTopReaderContext()).thenReturn(reader.getContext());
+
+        context = mock(ResultContext.class);
+        when(context.getSearcher()).thenReturn(searcher);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        reader.close();
+        directory.close();
+    }
+
+    @Test
+    public void documentWithValues_allTheDocValuesAreAdded() throws Exception
+    {
+        SolrDocument doc = transform(0);
+
+        assertEquals("a", doc.getFieldValue(SORTED));
+        assertEquals(asList("x", "y"), doc.getFieldValues(SORTED_SET));
+        assertEquals(5L, doc.getFieldValue(NUMERIC));
+        assertEquals(asList(1L, 3L), doc.getFieldValues(SORTED_NUMERIC));
+    }
+
+    @Test
+    public void documentWithoutValues_multiValuedFieldsAreEmptyLists() throws Exception
+    {
+        SolrDocument doc = transform(1);
+
+        assertFalse(doc.containsKey(SORTED));
+        assertEquals(emptyList(), doc.getFieldValues(SORTED_SET));
+        assertEquals(0L, doc.getFieldValue(NUMERIC));
+        assertEquals(emptyList(), doc.getFieldValues(SORTED_NUMERIC));
+    }
+
+    @Test
+    public void segmentWithoutTheFields_sameOutputAsTheMergedReader() throws Exception
+    {
+        SolrDocument doc = transform(2);
+
+        assertEquals("b", doc.getFieldValue(SORTED));
+        assertEquals(emptyList(), doc.getFieldValues(SORTED_SET));
+        assertEquals(0L, doc.getFieldValue(NUMERIC));
+        assertEquals(emptyList(), doc.getFieldValues(SORTED_NUMERIC));
+    }
+
+    @Test
+    public void flSubset_allTheDocValuesAreStillAdded() throws Exception
+    {
+        ReturnFields returnFields = mock(ReturnFields.class);
+        when(returnFields.wantsAllFields()).thenReturn(false);
+        when(returnFields.wantsField(SORTED)).thenReturn(true);
+        when(context.getReturnFields()).thenReturn(returnFields);
+
+        SolrDocument doc = transform(0);
+
+        assertEquals("a", doc.getFieldValue(SORTED));
+        assertEquals(asList("x", "y"), doc.getFieldValues(SORTED_SET));
+        assertEquals(5L, doc.getFieldValue(NUMERIC));
+        assertEquals(asList(1L, 3L), doc.getFieldValues(SORTED_NUMERIC));
+    }
+
+    @Test
+    public void storedValues_areReplacedByTheDocValues() throws Exception
+    {
+        SolrDocument doc = new SolrDocument();
+        doc.addField(SORTED_SET, "stored");
+
+        DocValueDocTransformer transformer = new DocValueDocTransformer();
+        transformer.setContext(context);
+        transformer.transform(doc, 0, 0);
+
+        assertEquals(asList("x", "y"), doc.getFieldValues(SORTED_SET));
+    }
+
+    private SolrDocument transform(int docId) throws Exception
+    {
+        DocValueDocTransformer transformer = new DocValueDocTransformer();
+        transformer.setContext(context);
+        SolrDocument doc = new SolrDocument();
+        transformer.transform(doc, docId, 0);
+        return doc;
+    }
+
+    private static void schemaField(IndexSchema schema, String name, FieldType type)
+    {
+        SchemaField field = mock(SchemaField.class);
+        when(field.hasDocValues()).thenReturn(true);
+        when(field.getType()).thenReturn(type);
+        when(schema.getFieldOrNull(name)).thenReturn(field);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link TextContentBuffer}.
+ */
+public class TextContentBufferTest
+{
+    @Test
+    public void appendPrefixAndContent_bothAreInTheBuffer() throws Exception
+    {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 5000; i++)
+        {
+            content.append("Some text ").append(i).append(' ');
+        }
+
+        TextContentBuffer buffer = TextContentBuffer.forCurrentThread().append("\u0000en\u0000");
+        int start = buffer.length();
+        buffer.append(new StringReader(content.toString()));
+
+        assertEquals("\u0000en\u0000" + content, buffer.toString());
+        assertFalse(buffer.isBlank(start));
+        try (Reader reader = buffer.reader(start))
+        {
+            assertEquals(content.toString(), IOUtils.toString(reader));
+        }
+    }
+
+    @Test
+    public void emptyOrWhitespaceContent_isBlank() throws Exception
+    {
+        TextContentBuffer buffer = TextContentBuffer.forCurrentThread().append("\u0000en\u0000");
+        int start = buffer.length();
+
+        assertTrue(buffer.isBlank(start));
+
+        buffer.append(new StringReader(" \n\t "));
+        assertTrue(buffer.isBlank(start));
+    }
+
+    @Test
+    public void forCurrentThread_returnsTheSameEmptiedBuffer()
+    {
+        TextContentBuffer buffer = TextContentBuffer.forCurrentThread().append("first document");
+        TextContentBuffer reused = TextContentBuffer.forCurrentThread();
+
+        assertSame(buffer, reused);
+        assertEquals(0, reused.length());
+        assertEquals("", reused.toString());
+    }
+
+    @Test
+    public void release_keepsAnOrdinaryBuffer()
+    {
+        TextContentBuffer buffer = TextContentBuffer.forCurrentThread().append(text(100_000));
+        int capacity = buffer.capacity();
+
+        buffer.release();
+
+        assertEquals(0, buffer.length());
+        assertEquals(capacity, buffer.capacity());
+    }
+
+    @Test
+    public void release_dropsABufferGrownAboveTheRetainedCapacity() throws Exception
+    {
+        TextContentBuffer buffer = TextContentBuffer.forCurrentThread().append("\u0000en\u0000");
+        buffer.append(new StringReader(text(TextContentBuffer.MAX_RETAINED_CAPACITY + 1)));
+        assertTrue(buffer.capacity() > TextContentBuffer.MAX_RETAINED_CAPACITY);
+
+        buffer.release();
+
+        assertEquals(0, buffer.length());
+        assertTrue(buffer.capacity() <= TextContentBuffer.MAX_RETAINED_CAPACITY);
+        assertEquals("next document", buffer.append("next document").toString());
+    }
+
+    private static String text(int length)
+    {
+        char[] chars = new char[length];
+        Arrays.fill(chars, 'a');
+        return new String(chars);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.client;
+
+/**
+ * Receives the outcome of each call the {@link SOLRAPIClient} makes to the repository.
+ * Listeners are invoked by the tracker threads, so implementations must be thread safe and cheap.
+ *
+ * @see SOLRAPIClient#setCallListener(RepositoryCallListener)
+ */
+@FunctionalInterface
+public interface RepositoryCallListener
+{
+    /** A listener which ignores all the calls. */
+    RepositoryCallListener NONE = (endpoint, elapsedNanos, bytes, failed) -> {};
+
+    /**
+     * Called once per repository call, when the response has been released.
+     *
+     * @param endpoint the repository endpoint (e.g. api/solr/transactions).
+     * @param elapsedNanos the time between sending the request and releasing the response, in nanoseconds.
+     * @param bytes the number of bytes of the response body read by the client.
+     * @param failed true if the request couldn't be sent or the repository answered with an error status.
+     */
+    void onCall(String endpoint, long elapsedNanos, long bytes, boolean failed);
+}
@@ -28,6 +28,7 @@ package org.alfresco.solr.client;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.JsonToken;
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.httpclient.AlfrescoHttpClient;
@@ -71,6 +72,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.extensions.surf.util.URLEncoder;
 
 import java.io.Closeable;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -79,7 +81,6 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -126,6 +127,8 @@ public class SOLRAPIClient
      */
     private boolean compression;
 
+    private volatile RepositoryCallListener callListener = RepositoryCallListener.NONE;
+
     public SOLRAPIClient(AlfrescoHttpClient repositoryHttpClient,
             DictionaryService dictionaryService,
             NamespaceDAO namespaceDAO)
@@ -182,34 +185,56 @@ public class SOLRAPIClient
         url.append(args);
         
         GetRequest req = new GetRequest(url.toString());
-        JSONObject json = callRepository(GET_ACL_CHANGESETS_URL, req);
-        
-        JSONArray aclChangeSetsJSON = json.getJSONArray("aclChangeSets");
-        List<AclChangeSet> aclChangeSets = new ArrayList<AclChangeSet>(aclChangeSetsJSON.length());
-        for (int i = 0; i < aclChangeSetsJSON.length(); i++)
-        {
-            JSONObject aclChangeSetJSON = aclChangeSetsJSON.getJSONObject(i);
-            long aclChangeSetId = aclChangeSetJSON.getLong("id");
-            long commitTimeMs = aclChangeSetJSON.getLong("commitTimeMs");
-            int aclCount = aclChangeSetJSON.getInt("aclCount");
-            AclChangeSet aclChangeSet = new AclChangeSet(aclChangeSetId, commitTimeMs, aclCount);
-            aclChangeSets.add(aclChangeSet);
-        }
+        return callRepository(GET_ACL_CHANGESETS_URL, req, this::readAclChangeSets);
+    }
 
-        Long maxChangeSetCommitTime = null;
-        if(json.has("maxChangeSetCommitTime"))
-        {
-            maxChangeSetCommitTime = json.getLong("maxChangeSetCommitTime");
-        }
+    private AclChangeSets readAclChangeSets(JsonParser parser) throws IOException, JSONException
+    {
+        List<AclChangeSet> aclChangeSets = new ArrayList<>();
+        Long[] maxChangeSet = new Long[2];
+        boolean[] found = new boolean[1];
+        readObject(parser, (field, token) -> {
+            switch (field)
+            {
+                case "aclChangeSets":
+                    found[0] = true;
+                    requireArray(parser, field);
+                    readArray(parser, element -> {
+                        requireObject(parser);
+                        long[] aclChangeSet = new long[3];
+                        readObject(parser, (aclChangeSetField, aclChangeSetToken) -> {
+                            switch (aclChangeSetField)
+                            {
+                                case "id":
+                                    aclChangeSet[0] = parser.getValueAsLong();
+                                    break;
+                                case "commitTimeMs":
+                                    aclChangeSet[1] = parser.getValueAsLong();
+                                    break;
+                                case "aclCount":
+                                    aclChangeSet[2] = parser.getValueAsLong();
+                                    break;
+                                default:
+                                    parser.skipChildren();
+                            }
+                        });
+                        aclChangeSets.add(new AclChangeSet(aclChangeSet[0], aclChangeSet[1], (int) aclChangeSet[2]));
+                    });
+                    break;
+                case "maxChangeSetCommitTime":
+                    maxChangeSet[0] = readLong(parser);
+                    break;
+                case "maxChangeSetId":
+                    maxChangeSet[1] = readLong(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        });
+        requireField(found[0], "aclChangeSets");
 
-        Long maxChangeSetIdOnServer = null;
-        if(json.has("maxChangeSetId"))
-        {
-            maxChangeSetIdOnServer = json.getLong("maxChangeSetId");
-        }
-        
         // Done
-        return new AclChangeSets(aclChangeSets, maxChangeSetCommitTime, maxChangeSetIdOnServer);
+        return new AclChangeSets(aclChangeSets, maxChangeSet[0], maxChangeSet[1]);
     }
     
     /**
@@ -250,18 +275,44 @@ public class SOLRAPIClient
         jsonReq.put("aclChangeSetIds", aclChangeSetIdsJSON);
 
         PostRequest req = new PostRequest(url.toString(), jsonReq.toString(), "application/json");
-        JSONObject json = callRepository(GET_ACL_CHANGESETS_URL, req);
+        return callRepository(GET_ACLS, req, this::readAcls);
+    }
+
+    private List<Acl> readAcls(JsonParser parser) throws IOException, JSONException
+    {
+        List<Acl> acls = new ArrayList<>();
+        boolean[] found = new boolean[1];
+        readObject(parser, (field, token) -> {
+            if ("acls".equals(field))
+            {
+                found[0] = true;
+                requireArray(parser, field);
+                readArray(parser, element -> {
+                    requireObject(parser);
+                    long[] acl = new long[2];
+                    readObject(parser, (aclField, aclToken) -> {
+                        switch (aclField)
+                        {
+                            case "aclChangeSetId":
+                                acl[0] = parser.getValueAsLong();
+                                break;
+                            case "id":
+                                acl[1] = parser.getValueAsLong();
+                                break;
+                            default:
+                                parser.skipChildren();
+                        }
+                    });
+                    acls.add(new Acl(acl[0], acl[1]));
+                });
+            }
+            else
+            {
+                parser.skipChildren();
+            }
+        });
+        requireField(found[0], "acls");
 
-        JSONArray aclsJSON = json.getJSONArray("acls");
-        List<Acl> acls = new ArrayList<Acl>(aclsJSON.length());
-        for (int i = 0; i < aclsJSON.length(); i++)
-        {
-            JSONObject aclJSON = aclsJSON.getJSONObject(i);
-            long aclChangeSetId = aclJSON.getLong("aclChangeSetId");
-            long aclId = aclJSON.getLong("id");
-            Acl acl = new Acl(aclChangeSetId, aclId);
-            acls.add(acl);
-        }
         // Done
         return acls;
     }
@@ -288,49 +339,65 @@ public class SOLRAPIClient
         jsonReq.put("aclIds", aclIdsJSON);
 
         PostRequest req = new PostRequest(url.toString(), jsonReq.toString(), "application/json");
-        JSONObject json = callRepository(GET_ACLS_READERS, req);
-
-        JSONArray aclsReadersJSON = json.getJSONArray("aclsReaders");
-        List<AclReaders> aclsReaders = new ArrayList<AclReaders>(aclsReadersJSON.length());
-        for (int i = 0; i < aclsReadersJSON.length(); i++)
-        {
-            JSONObject aclReadersJSON = aclsReadersJSON.getJSONObject(i);
-            long aclId = aclReadersJSON.getLong("aclId");
-            JSONArray readersJSON = aclReadersJSON.getJSONArray("readers");
-            List<String> readers = authorityListFromJSON(readersJSON);
-            JSONArray deniedJSON = aclReadersJSON.getJSONArray("denied");
-            List<String> denied = authorityListFromJSON(deniedJSON);
-            long aclChangeSetId = aclReadersJSON.getLong("aclChangeSetId");
-            
-            String tenantDomain = aclReadersJSON.getString("tenantDomain");
-            if (tenantDomain == null)
+        return callRepository(GET_ACLS_READERS, req, this::readAclsReaders);
+    }
+
+    private List<AclReaders> readAclsReaders(JsonParser parser) throws IOException, JSONException
+    {
+        List<AclReaders> aclsReaders = new ArrayList<>();
+        boolean[] found = new boolean[1];
+        readObject(parser, (field, token) -> {
+            if ("aclsReaders".equals(field))
+            {
+                found[0] = true;
+                requireArray(parser, field);
+                readArray(parser, element -> {
+                    requireObject(parser);
+                    aclsReaders.add(readAclReaders(parser));
+                });
+            }
+            else
             {
-                tenantDomain = TenantService.DEFAULT_DOMAIN;
+                parser.skipChildren();
             }
-            
-            AclReaders aclReaders = new AclReaders(aclId, readers, denied, aclChangeSetId, tenantDomain);
-            aclsReaders.add(aclReaders);
-        }
+        });
+        requireField(found[0], "aclsReaders");
+
         // Done
         return aclsReaders;
     }
-    
-    /**
-     * Convert a JSON array of authorities to a simple Java List&lt;String&gt;
-     * 
-     * @param jsonArray JSONArray
-     * @return List&lt;String&gt;
-     * @throws JSONException
-     */
-    private List<String> authorityListFromJSON(JSONArray jsonArray) throws JSONException
+
+    private AclReaders readAclReaders(JsonParser parser) throws IOException, JSONException
     {
-        List<String> authorities = new ArrayList<String>(jsonArray.length());
-        for (int j = 0; j < jsonArray.length(); j++)
-        {
-            String authority = jsonArray.getString(j);
-            authorities.add(authority);
-        }
-        return authorities;
+        long[] ids = new long[2];
+        List<String> readers = new ArrayList<>();
+        List<String> denied = new ArrayList<>();
+        String[] tenantDomain = new String[1];
+        readObject(parser, (field, token) -> {
+            switch (field)
+            {
+                case "aclId":
+                    ids[0] = parser.getValueAsLong();
+                    break;
+                case "aclChangeSetId":
+                    ids[1] = parser.getValueAsLong();
+                    break;
+                case "readers":
+                    readers.addAll(readStringList(parser));
+                    break;
+                case "denied":
+                    denied.addAll(readStringList(parser));
+                    break;
+                case "tenantDomain":
+                    tenantDomain[0] = parser.getValueAsString();
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        });
+
+        return new AclReaders(ids[0], readers, denied, ids[1],
+                ofNullable(tenantDomain[0]).orElse(TenantService.DEFAULT_DOMAIN));
     }
     
     public Transactions getTransactions(Long fromCommitTime, Long minTxnId, Long toCommitTime, Long maxTxnId, int maxResults) throws AuthenticationException, IOException, JSONException
@@ -435,7 +502,7 @@ public class SOLRAPIClient
         LookAheadBufferedReader reader = null;
         try
         {
-            response = repositoryHttpClient.sendRequest(req);
+            response = sendRequest(GET_TRANSACTIONS_URL, req);
             if(response.getStatus() != HttpStatus.SC_OK)
             {
                 throw new AlfrescoRuntimeException("GetTransactions return status is " + response.getStatus());
@@ -575,163 +642,184 @@ public class SOLRAPIClient
 
         
         PostRequest req = new PostRequest(url.toString(), body.toString(), "application/json");
-        JSONObject json = callRepository(GET_NODES_URL, req);
-
-        JSONArray jsonNodes = json.getJSONArray("nodes");
-        List<Node> nodes = new ArrayList<>(jsonNodes.length());
-        for(int i = 0; i < jsonNodes.length(); i++)
-        {
-            JSONObject jsonNodeInfo = jsonNodes.getJSONObject(i);
-            Node nodeInfo = new Node();
-            if(jsonNodeInfo.has("id"))
-            {
-                nodeInfo.setId(jsonNodeInfo.getLong("id"));
-            }
+        return callRepository(GET_NODES_URL, req, this::readNodes);
+    }
 
-            if(jsonNodeInfo.has("nodeRef"))
-            {
-                nodeInfo.setNodeRef(jsonNodeInfo.getString("nodeRef"));
-            }
-            
-            if(jsonNodeInfo.has("txnId"))
-            {
-                nodeInfo.setTxnId(jsonNodeInfo.getLong("txnId"));
-            }
-            
-            if(jsonNodeInfo.has("aclId"))
-            {
-                nodeInfo.setAclId(jsonNodeInfo.getLong("aclId"));
+    private List<Node> readNodes(JsonParser parser) throws IOException, JSONException
+    {
+        List<Node> nodes = new ArrayList<>();
+        boolean[] found = new boolean[1];
+        readObject(parser, (field, token) -> {
+            if ("nodes".equals(field))
+            {
+                found[0] = true;
+                requireArray(parser, field);
+                readArray(parser, element -> {
+                    requireObject(parser);
+                    nodes.add(readNode(parser));
+                });
             }
-            
-            if(jsonNodeInfo.has("shardPropertyValue"))
+            else
             {
-                nodeInfo.setShardPropertyValue(jsonNodeInfo.getString("shardPropertyValue"));
+                parser.skipChildren();
             }
+        });
+        requireField(found[0], "nodes");
+        return nodes;
+    }
 
-            if(jsonNodeInfo.has("explicitShardId"))
-            {
-                nodeInfo.setExplicitShardId(jsonNodeInfo.getInt("explicitShardId"));
-            }
-            
-            if(jsonNodeInfo.has("tenant"))
+    private Node readNode(JsonParser parser) throws IOException, JSONException
+    {
+        Node nodeInfo = new Node();
+        readObject(parser, (field, token) -> {
+            if (token == JsonToken.VALUE_NULL)
             {
-                nodeInfo.setTenant(jsonNodeInfo.getString("tenant"));
+                return;
             }
 
-            if(jsonNodeInfo.has("status"))
-            {
-                Node.SolrApiNodeStatus status;
-                String statusStr = jsonNodeInfo.getString("status");
-                if(statusStr.equals("u"))
-                {
-                    status = Node.SolrApiNodeStatus.UPDATED;
-                }
-                else if(statusStr.equals("d"))
-                {
-                    status = Node.SolrApiNodeStatus.DELETED;
-                }
-                else
-                {
-                    status = Node.SolrApiNodeStatus.UNKNOWN;
-                }
-                nodeInfo.setStatus(status);
+            switch (field)
+            {
+                case "id":
+                    nodeInfo.setId(parser.getValueAsLong());
+                    break;
+                case "nodeRef":
+                    nodeInfo.setNodeRef(parser.getValueAsString());
+                    break;
+                case "txnId":
+                    nodeInfo.setTxnId(parser.getValueAsLong());
+                    break;
+                case "aclId":
+                    nodeInfo.setAclId(parser.getValueAsLong());
+                    break;
+                case "shardPropertyValue":
+                    nodeInfo.setShardPropertyValue(parser.getValueAsString());
+                    break;
+                case "explicitShardId":
+                    nodeInfo.setExplicitShardId(parser.getValueAsInt());
+                    break;
+                case "tenant":
+                    nodeInfo.setTenant(parser.getValueAsString());
+                    break;
+                case "status":
+                    String statusStr = parser.getValueAsString();
+                    if ("u".equals(statusStr))
+                    {
+                        nodeInfo.setStatus(Node.SolrApiNodeStatus.UPDATED);
+                    }
+                    else if ("d".equals(statusStr))
+                    {
+                        nodeInfo.setStatus(Node.SolrApiNodeStatus.DELETED);
+                    }
+                    else
+                    {
+                        nodeInfo.setStatus(Node.SolrApiNodeStatus.UNKNOWN);
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
             }
-            
-            nodes.add(nodeInfo);
-        }
-
-        return nodes;
+        });
+        return nodeInfo;
     }
     
-    private PropertyValue getSinglePropertyValue(DataTypeDefinition dataType, Object value) throws JSONException
+    private PropertyValue readSinglePropertyValue(JsonParser parser, DataTypeDefinition dataType) throws IOException, JSONException
     {
-        PropertyValue ret = null;
         QName dataTypeName = dataType.getName();
 
-        if(value == null || value == JSONObject.NULL)
+        if (parser.currentToken() == JsonToken.VALUE_NULL)
         {
-            ret = null;
+            return null;
         }
-        else if(dataTypeName.equals(DataTypeDefinition.MLTEXT))
+        else if (dataTypeName.equals(DataTypeDefinition.MLTEXT))
         {
-            JSONArray a = (JSONArray)value;
-            Map<Locale, String> mlValues = new HashMap<Locale, String>(a.length());
-
-            for(int k = 0; k < a.length(); k++)
-            {
-                JSONObject pair = a.getJSONObject(k);
-                Locale locale = deserializer.deserializeValue(Locale.class, pair.getString("locale"));
-                String mlValue = pair.has("value") && !pair.isNull("value") ? pair.getString("value") : null;
-                mlValues.put(locale, mlValue);
-            }
+            Map<Locale, String> mlValues = new HashMap<>();
+            readArray(parser, element -> {
+                String[] pair = new String[2];
+                readObject(parser, (field, token) -> {
+                    switch (field)
+                    {
+                        case "locale":
+                            pair[0] = parser.getValueAsString();
+                            break;
+                        case "value":
+                            pair[1] = parser.getValueAsString();
+                            break;
+                        default:
+                            parser.skipChildren();
+                    }
+                });
+                mlValues.put(deserializer.deserializeValue(Locale.class, pair[0]), pair[1]);
+            });
 
-            ret = new MLTextPropertyValue(mlValues);
+            return new MLTextPropertyValue(mlValues);
         }
-        else if(dataTypeName.equals(DataTypeDefinition.CONTENT))
+        else if (dataTypeName.equals(DataTypeDefinition.CONTENT))
         {
-            JSONObject o = (JSONObject)value;
-            
-            String localeStr = o.has("locale") && !o.isNull("locale") ? o.getString("locale") : null;
-            Locale locale = (o.has("locale") && !o.isNull("locale") ? deserializer.deserializeValue(Locale.class, localeStr) : null);
-
-            long size = o.has("size") && !o.isNull("size") ? o.getLong("size") : 0;
-
-            String encoding = o.has("encoding") && !o.isNull("encoding") ? o.getString("encoding") : null;
-            String mimetype = o.has("mimetype") && !o.isNull("mimetype") ? o.getString("mimetype") : null;
+            String[] strings = new String[3];
+            Long[] longs = new Long[2];
+            readObject(parser, (field, token) -> {
+                switch (field)
+                {
+                    case "locale":
+                        strings[0] = parser.getValueAsString();
+                        break;
+                    case "encoding":
+                        strings[1] = parser.getValueAsString();
+                        break;
+                    case "mimetype":
+                        strings[2] = parser.getValueAsString();
+                        break;
+                    case "size":
+                        longs[0] = readLong(parser);
+                        break;
+                    case "contentId":
+                        longs[1] = readLong(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            });
 
-            Long id = o.has("contentId") && !o.isNull("contentId") ? o.getLong("contentId") : null;
-            
-            ret = new ContentPropertyValue(locale, size, encoding, mimetype, id);
+            Locale locale = strings[0] != null ? deserializer.deserializeValue(Locale.class, strings[0]) : null;
+            long size = ofNullable(longs[0]).orElse(0L);
+            return new ContentPropertyValue(locale, size, strings[1], strings[2], longs[1]);
         }
         else
         {
-            ret = new StringPropertyValue((String)value);
+            return new StringPropertyValue(readString(parser));
         }
-        
-        return ret;
     }
 
-    private PropertyValue getPropertyValue(PropertyDefinition propertyDef, Object value) throws JSONException
+    private PropertyValue readPropertyValue(JsonParser parser, PropertyDefinition propertyDef) throws IOException, JSONException
     {
-        PropertyValue ret = null;
-
-        if(value == null || value == JSONObject.NULL)
+        if (parser.currentToken() == JsonToken.VALUE_NULL)
         {
-            ret = null;
+            return null;
         }
-        else if(propertyDef == null)
+        else if (propertyDef == null)
         {
             // assume a string
-            ret = new StringPropertyValue((String)value);
+            return new StringPropertyValue(readString(parser));
         }
         else
         {
             DataTypeDefinition dataType = propertyDef.getDataType();
-            
-            boolean isMulti = propertyDef.isMultiValued();
-            if(isMulti)
+            if (propertyDef.isMultiValued())
             {
-                if(!(value instanceof JSONArray))
+                if (parser.currentToken() != JsonToken.START_ARRAY)
                 {
-                    throw new IllegalArgumentException("Expected json array, got " + value.getClass().getName());
+                    throw new IllegalArgumentException("Expected json array, got " + parser.currentToken());
                 }
 
                 MultiPropertyValue multi = new MultiPropertyValue();
-                JSONArray array = (JSONArray)value;
-                for(int j = 0; j < array.length(); j++)
-                {
-                    multi.addValue(getSinglePropertyValue(dataType, array.get(j)));
-                }
-    
-                ret = multi;
+                readArray(parser, element -> multi.addValue(readSinglePropertyValue(parser, dataType)));
+                return multi;
             }
             else
             {
-                ret = getSinglePropertyValue(dataType, value);
+                return readSinglePropertyValue(parser, dataType);
             }
         }
-        
-        return ret;
     }
     
     public List<NodeMetaData> getNodesMetaData(NodeMetaDataParameters params) throws AuthenticationException, IOException, JSONException
@@ -809,187 +897,157 @@ public class SOLRAPIClient
         }
 
         PostRequest req = new PostRequest(url.toString(), body.toString(), "application/json");
-        JSONObject json = callRepository(GET_METADATA_URL, req);
-
-        JSONArray jsonNodes = json.getJSONArray("nodes");
-        List<NodeMetaData> nodes = new ArrayList<>(jsonNodes.length());
-        for(int i = 0; i < jsonNodes.length(); i++)
-        {
-            JSONObject jsonNodeInfo = jsonNodes.getJSONObject(i);
-            NodeMetaData metaData = new NodeMetaData();
-            
-            if(jsonNodeInfo.has("id"))
-            {
-                metaData.setId(jsonNodeInfo.getLong("id"));
-            }
-            
-            if(jsonNodeInfo.has("tenantDomain"))
-            {
-                metaData.setTenantDomain(jsonNodeInfo.getString("tenantDomain"));
-            }
-            
-            if(jsonNodeInfo.has("txnId"))
-            {
-                metaData.setTxnId(jsonNodeInfo.getLong("txnId"));
-            }
-            
-            if(jsonNodeInfo.has("aclId"))
-            {
-                metaData.setAclId(jsonNodeInfo.getLong("aclId"));
-            }
+        return callRepository(GET_METADATA_URL, req, this::readNodesMetaData);
+    }
 
-            if(jsonNodeInfo.has("nodeRef"))
-            {
-                metaData.setNodeRef(new NodeRef(jsonNodeInfo.getString("nodeRef")));
-            }
-            
-            if(jsonNodeInfo.has("type"))
-            {
-                metaData.setType(deserializer.deserializeValue(QName.class, jsonNodeInfo.getString("type")));
+    private List<NodeMetaData> readNodesMetaData(JsonParser parser) throws IOException, JSONException
+    {
+        List<NodeMetaData> nodes = new ArrayList<>();
+        boolean[] found = new boolean[1];
+        readObject(parser, (field, token) -> {
+            if ("nodes".equals(field))
+            {
+                found[0] = true;
+                requireArray(parser, field);
+                readArray(parser, element -> {
+                    requireObject(parser);
+                    nodes.add(readNodeMetaData(parser));
+                });
             }
-            
-            if(jsonNodeInfo.has("aspects"))
+            else
             {
-                JSONArray jsonAspects = jsonNodeInfo.getJSONArray("aspects");
-                Set<QName> aspects = new HashSet<QName>(jsonAspects.length());
-                for(int j = 0; j < jsonAspects.length(); j++)
-                {
-                    String jsonAspect = (String)jsonAspects.get(j);
-                    aspects.add(deserializer.deserializeValue(QName.class, jsonAspect));
-                }
-                metaData.setAspects(aspects);
+                parser.skipChildren();
             }
+        });
+        requireField(found[0], "nodes");
+        return nodes;
+    }
 
-            if(jsonNodeInfo.has("paths"))
-            {
-                JSONArray jsonPaths = jsonNodeInfo.getJSONArray("paths");
-                List<Pair<String, QName>> paths = new ArrayList<Pair<String, QName>>(jsonPaths.length());
-                List<String> ancestorPaths = new ArrayList<String>();
-                for(int j = 0; j < jsonPaths.length(); j++)
-                {
-                    JSONObject path = jsonPaths.getJSONObject(j);
-                    String pathValue = path.getString("path");
-                    QName qname = path.has("qname") ? deserializer.deserializeValue(QName.class, path.getString("qname")) : null;
-                    paths.add(new Pair<String, QName>(pathValue, qname));
-                    if(path.has("apath"))
-                    {
-                    	String ancestorPath = path.getString("apath");
-                    	ancestorPaths.add(ancestorPath);
-                    }
-                }
-                metaData.setPaths(paths);
-                metaData.setAncestorPaths(ancestorPaths);
-            }
-            
-            if(jsonNodeInfo.has("namePaths"))
-            {
-                JSONArray jsonNamePaths = jsonNodeInfo.getJSONArray("namePaths");
-                List<List<String>> namePaths = new ArrayList<List<String>>(jsonNamePaths.length());
-                for(int j = 0; j < jsonNamePaths.length(); j++)
-                {
-                    JSONObject jsonNamePath = jsonNamePaths.getJSONObject(j);
-                    JSONArray jsonNameElements = jsonNamePath.getJSONArray("namePath");
-                    List<String> namePath = new ArrayList<String>(jsonNameElements.length());
-                    for(int k = 0; k < jsonNameElements.length(); k++)
-                    {
-                        String namePathElement =  jsonNameElements.getString(k);
-                        namePath.add(namePathElement);
-                    }
-                    namePaths.add(namePath);
-                }
-                metaData.setNamePaths(namePaths);
-            }
-            
-            if(jsonNodeInfo.has("ancestors"))
+    private NodeMetaData readNodeMetaData(JsonParser parser) throws IOException, JSONException
+    {
+        NodeMetaData metaData = new NodeMetaData();
+        readObject(parser, (field, token) -> {
+            if (token == JsonToken.VALUE_NULL)
             {
-                JSONArray jsonAncestors = jsonNodeInfo.getJSONArray("ancestors");
-                HashSet<NodeRef> ancestors = new HashSet<NodeRef>(jsonAncestors.length());
-                for(int j = 0; j < jsonAncestors.length(); j++)
-                {
-                    String ancestorNodeRefString = jsonAncestors.getString(j);
-                    NodeRef ancestorNodeRef = new NodeRef(ancestorNodeRefString);
-                    ancestors.add(ancestorNodeRef);
-                }
-                metaData.setAncestors(ancestors);
+                return;
             }
 
-            if(jsonNodeInfo.has("properties"))
-            {
-                JSONObject jsonProperties = jsonNodeInfo.getJSONObject("properties");
-                Map<QName, PropertyValue> properties = new HashMap<QName, PropertyValue>(jsonProperties.length());
-                @SuppressWarnings("rawtypes")
-                Iterator propKeysIterator = jsonProperties.keys();
-                while(propKeysIterator.hasNext())
-                {
-                    String propName = (String)propKeysIterator.next();
-                    QName propQName = deserializer.deserializeValue(QName.class, propName);
-                    Object propValueObj = jsonProperties.opt(propName);
-
-                    // check the expected property type to determine how to process the value
-                    PropertyDefinition propertyDef = dictionaryService.getProperty(propQName);
-//                    if(propertyDef == null)
-//                    {
-//                        // TODO which exception here?
-//                        throw new IllegalArgumentException("Could not find property definition for property " + propName);
-//                    }
-                    
-                    properties.put(propQName, getPropertyValue(propertyDef, propValueObj));
-                }
-                metaData.setProperties(properties);
-            }
-            
-            if(jsonNodeInfo.has("parentAssocsCrc"))
-            {
-                metaData.setParentAssocsCrc(jsonNodeInfo.getLong("parentAssocsCrc"));
-            }
-            
-            if(jsonNodeInfo.has("parentAssocs"))
-            {
-                JSONArray jsonParentAssocs = jsonNodeInfo.getJSONArray("parentAssocs");
-                List<ChildAssociationRef> assocs = new ArrayList<ChildAssociationRef>(jsonParentAssocs.length());
-                for(int j = 0; j < jsonParentAssocs.length(); j++)
-                {
-                    String childAssocRefStr = jsonParentAssocs.getString(j);
-                    ChildAssociationRef childAssociationRef = new ChildAssociationRef(childAssocRefStr);
-                    assocs.add(childAssociationRef);
-                }
-                metaData.setParentAssocs(assocs);
-            }
-            
-            if(jsonNodeInfo.has("childAssocs"))
-            {
-                JSONArray jsonParentAssocs = jsonNodeInfo.getJSONArray("childAssocs");
-                List<ChildAssociationRef> assocs = new ArrayList<ChildAssociationRef>(jsonParentAssocs.length());
-                for(int j = 0; j < jsonParentAssocs.length(); j++)
-                {
-                    String childAssocRefStr = jsonParentAssocs.getString(j);
-                    ChildAssociationRef childAssociationRef = new ChildAssociationRef(childAssocRefStr);
-                    assocs.add(childAssociationRef);
-                }
-                metaData.setChildAssocs(assocs);
-            }
-            
-            if(jsonNodeInfo.has("childIds"))
-            {
-                JSONArray jsonChildIds = jsonNodeInfo.getJSONArray("childIds");
-                List<Long> childIds = new ArrayList<Long>(jsonChildIds.length());
-                for(int j = 0; j < jsonChildIds.length(); j++)
-                {
-                    Long childId = jsonChildIds.getLong(j);
-                    childIds.add(childId);
-                }
-                metaData.setChildIds(childIds);
-            }
-            
-            if(jsonNodeInfo.has("owner"))
-            {
-                metaData.setOwner(jsonNodeInfo.getString("owner"));
+            switch (field)
+            {
+                case "id":
+                    metaData.setId(parser.getValueAsLong());
+                    break;
+                case "tenantDomain":
+                    metaData.setTenantDomain(parser.getValueAsString());
+                    break;
+                case "txnId":
+                    metaData.setTxnId(parser.getValueAsLong());
+                    break;
+                case "aclId":
+                    metaData.setAclId(parser.getValueAsLong());
+                    break;
+                case "nodeRef":
+                    metaData.setNodeRef(new NodeRef(parser.getValueAsString()));
+                    break;
+                case "type":
+                    metaData.setType(deserializer.deserializeValue(QName.class, parser.getValueAsString()));
+                    break;
+                case "aspects":
+                    Set<QName> aspects = new HashSet<>();
+                    readArray(parser, element -> aspects.add(deserializer.deserializeValue(QName.class, parser.getValueAsString())));
+                    metaData.setAspects(aspects);
+                    break;
+                case "paths":
+                    List<Pair<String, QName>> paths = new ArrayList<>();
+                    List<String> ancestorPaths = new ArrayList<>();
+                    readArray(parser, element -> {
+                        String[] path = new String[3];
+                        readObject(parser, (pathField, pathToken) -> {
+                            switch (pathField)
+                            {
+                                case "path":
+                                    path[0] = parser.getValueAsString();
+                                    break;
+                                case "qname":
+                                    path[1] = parser.getValueAsString();
+                                    break;
+                                case "apath":
+                                    path[2] = parser.getValueAsString();
+                                    break;
+                                default:
+                                    parser.skipChildren();
+                            }
+                        });
+                        QName qname = path[1] != null ? deserializer.deserializeValue(QName.class, path[1]) : null;
+                        paths.add(new Pair<>(path[0], qname));
+                        if (path[2] != null)
+                        {
+                            ancestorPaths.add(path[2]);
+                        }
+                    });
+                    metaData.setPaths(paths);
+                    metaData.setAncestorPaths(ancestorPaths);
+                    break;
+                case "namePaths":
+                    List<List<String>> namePaths = new ArrayList<>();
+                    readArray(parser, element ->
+                        readObject(parser, (namePathField, namePathToken) -> {
+                            if ("namePath".equals(namePathField))
+                            {
+                                namePaths.add(readStringList(parser));
+                            }
+                            else
+                            {
+                                parser.skipChildren();
+                            }
+                        }));
+                    metaData.setNamePaths(namePaths);
+                    break;
+                case "ancestors":
+                    Set<NodeRef> ancestors = new HashSet<>();
+                    readArray(parser, element -> ancestors.add(new NodeRef(parser.getValueAsString())));
+                    metaData.setAncestors(ancestors);
+                    break;
+                case "properties":
+                    Map<QName, PropertyValue> properties = new HashMap<>();
+                    readObject(parser, (propName, propToken) -> {
+                        QName propQName = deserializer.deserializeValue(QName.class, propName);
+
+                        // check the expected property type to determine how to process the value
+                        PropertyDefinition propertyDef = dictionaryService.getProperty(propQName);
+                        properties.put(propQName, readPropertyValue(parser, propertyDef));
+                    });
+                    metaData.setProperties(properties);
+                    break;
+                case "parentAssocsCrc":
+                    metaData.setParentAssocsCrc(parser.getValueAsLong());
+                    break;
+                case "parentAssocs":
+                    metaData.setParentAssocs(readChildAssociationRefs(parser));
+                    break;
+                case "childAssocs":
+                    metaData.setChildAssocs(readChildAssociationRefs(parser));
+                    break;
+                case "childIds":
+                    List<Long> childIds = new ArrayList<>();
+                    readArray(parser, element -> childIds.add(parser.getValueAsLong()));
+                    metaData.setChildIds(childIds);
+                    break;
+                case "owner":
+                    metaData.setOwner(parser.getValueAsString());
+                    break;
+                default:
+                    parser.skipChildren();
             }
-            
-            nodes.add(metaData);
-        }
+        });
+        return metaData;
+    }
 
-        return nodes;
+    private List<ChildAssociationRef> readChildAssociationRefs(JsonParser parser) throws IOException, JSONException
+    {
+        List<ChildAssociationRef> assocs = new ArrayList<>();
+        readArray(parser, element -> assocs.add(new ChildAssociationRef(parser.getValueAsString())));
+        return assocs;
     }
     
     public GetTextContentResponse getTextContent(Long nodeId, QName propertyQName, Long modifiedSince) throws AuthenticationException, IOException {
@@ -1038,7 +1096,7 @@ public class SOLRAPIClient
         }
         req.setHeaders(headers);
         
-        Response response = repositoryHttpClient.sendRequest(req);
+        Response response = sendRequest(GET_CONTENT, req);
         
         if(response.getStatus() != Status.STATUS_NOT_MODIFIED && response.getStatus() != Status.STATUS_NO_CONTENT && response.getStatus() != Status.STATUS_OK)
         {
@@ -1065,7 +1123,7 @@ public class SOLRAPIClient
         Response response = null;
         try
         {
-            response = repositoryHttpClient.sendRequest(req);
+            response = sendRequest(GET_MODEL, req);
             if(response.getStatus() != HttpStatus.SC_OK)
             {
                 throw new AlfrescoRuntimeException(coreName + " GetModel return status is " + response.getStatus());
@@ -1142,7 +1200,7 @@ public class SOLRAPIClient
         LookAheadBufferedReader reader = null;
         try
         {
-            response = repositoryHttpClient.sendRequest(get);
+            response = sendRequest(GET_NEXT_TX_COMMIT_TIME, get);
             if (response.getStatus() != HttpStatus.SC_OK)
             {
                 throw new NoSuchMethodException(coreName + " - GetNextTxCommitTime return status is "
@@ -1200,7 +1258,7 @@ public class SOLRAPIClient
         LookAheadBufferedReader reader = null;
         try
         {
-            response = repositoryHttpClient.sendRequest(get);
+            response = sendRequest(GET_TX_INTERVAL_COMMIT_TIME, get);
             if (response.getStatus() != HttpStatus.SC_OK)
             {
                 throw new NoSuchMethodException(coreName + " - GetTxIntervalCommitTime return status is "
@@ -1578,11 +1636,50 @@ public class SOLRAPIClient
         }
     }
 
+    /**
+     * Sets the listener which is notified of the latency, size and outcome of each call made to the repository.
+     *
+     * @param callListener the listener, null to stop notifying the calls.
+     */
+    public void setCallListener(RepositoryCallListener callListener)
+    {
+        this.callListener = ofNullable(callListener).orElse(RepositoryCallListener.NONE);
+    }
+
     public void close()
     {
        repositoryHttpClient.close();
     }
 
+    /**
+     * Sends the request to the given repository endpoint.
+     * Unless no listener has been set, the call is reported to the {@link RepositoryCallListener} when the
+     * returned response is released (or immediately if the request can't be sent).
+     *
+     * @param endpoint the repository endpoint, used as the call identifier.
+     * @param req the request.
+     * @return the repository response, which must be released by the caller.
+     */
+    private Response sendRequest(String endpoint, Request req) throws AuthenticationException, IOException
+    {
+        RepositoryCallListener listener = callListener;
+        if (listener == RepositoryCallListener.NONE)
+        {
+            return repositoryHttpClient.sendRequest(req);
+        }
+
+        long start = System.nanoTime();
+        try
+        {
+            return new MeteredResponse(repositoryHttpClient.sendRequest(req), endpoint, start, listener);
+        }
+        catch (Exception exception)
+        {
+            listener.onCall(endpoint, System.nanoTime() - start, 0, true);
+            throw exception;
+        }
+    }
+
     private JSONObject callRepository(String msgId, Request req) throws IOException, AuthenticationException
     {
         Response response = null;
@@ -1590,7 +1687,7 @@ public class SOLRAPIClient
         JSONObject json;
         try
         {
-            response = repositoryHttpClient.sendRequest(req);
+            response = sendRequest(msgId, req);
             if (response.getStatus() != HttpStatus.SC_OK)
             {
                 throw new AlfrescoRuntimeException(msgId + " return status:" + response.getStatus());
@@ -1623,6 +1720,258 @@ public class SOLRAPIClient
         }
     }
 
+    /**
+     * Sends the request to the repository and streams the JSON response through the given reader, so the domain
+     * objects are built directly from the parser tokens without materialising the whole payload.
+     *
+     * @param msgId the endpoint identifier, used for error reporting
+     * @param req the request
+     * @param responseReader reads the response body, the parser is positioned on the root token.
+     * @return the domain object created by the responseReader
+     */
+    private <T> T callRepository(String msgId, Request req, JsonResponseReader<T> responseReader)
+            throws IOException, AuthenticationException
+    {
+        Response response = null;
+        LookAheadBufferedReader reader = null;
+        try
+        {
+            response = sendRequest(msgId, req);
+            if (response.getStatus() != HttpStatus.SC_OK)
+            {
+                throw new AlfrescoRuntimeException(msgId + " return status:" + response.getStatus());
+            }
+
+            reader = new LookAheadBufferedReader(new InputStreamReader(response.getContentAsStream(), StandardCharsets.UTF_8), LOGGER);
+            try (JsonParser parser = jsonFactory.createParser(reader))
+            {
+                if (parser.nextToken() != JsonToken.START_OBJECT)
+                {
+                    throw new JSONException(msgId + " response is not a JSON object");
+                }
+                return responseReader.read(parser);
+            }
+        }
+        catch (JSONException | JsonProcessingException exception)
+        {
+            String message = "Received a malformed JSON payload. Request was \"" +
+                    req.getFullUri() +
+                    "Data: "
+                    + ofNullable(reader)
+                    .map(LookAheadBufferedReader::lookAheadAndGetBufferedContent)
+                    .orElse("Not available");
+            LOGGER.error(message);
+            throw exception instanceof IOException ? (IOException) exception : new IOException(message, exception);
+        }
+        finally
+        {
+            ofNullable(response).ifPresent(Response::release);
+            ofNullable(reader).ifPresent(this::silentlyClose);
+        }
+    }
+
+    /**
+     * Reads the fields of the JSON object the parser is positioned on.
+     * The fieldReader is called once for each field with the parser positioned on its value,
+     * which must be entirely consumed (e.g. {@link JsonParser#skipChildren()} for unknown fields).
+     */
+    private static void readObject(JsonParser parser, JsonFieldReader fieldReader) throws IOException, JSONException
+    {
+        if (parser.currentToken() != JsonToken.START_OBJECT)
+        {
+            parser.skipChildren();
+            return;
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME)
+        {
+            String field = parser.getCurrentName();
+            fieldReader.read(field, parser.nextToken());
+        }
+    }
+
+    /**
+     * Reads the elements of the JSON array the parser is positioned on.
+     * The elementReader is called once for each element with the parser positioned on it.
+     */
+    private static void readArray(JsonParser parser, JsonElementReader elementReader) throws IOException, JSONException
+    {
+        if (parser.currentToken() != JsonToken.START_ARRAY)
+        {
+            parser.skipChildren();
+            return;
+        }
+
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null)
+        {
+            elementReader.read(token);
+        }
+    }
+
+    /*
+     * The checks below fail as the JSONObject / JSONArray getters did: the payload is malformed, rather than empty,
+     * when a required array is missing or when an element isn't an object.
+     */
+
+    private static void requireField(boolean found, String field) throws JSONException
+    {
+        if (!found)
+        {
+            throw new JSONException("JSONObject[\"" + field + "\"] not found.");
+        }
+    }
+
+    private static void requireArray(JsonParser parser, String field) throws JSONException
+    {
+        if (parser.currentToken() != JsonToken.START_ARRAY)
+        {
+            throw new JSONException("JSONObject[\"" + field + "\"] is not a JSONArray: " + parser.currentToken());
+        }
+    }
+
+    private static void requireObject(JsonParser parser) throws JSONException
+    {
+        if (parser.currentToken() != JsonToken.START_OBJECT)
+        {
+            throw new JSONException("JSONArray element is not a JSONObject: " + parser.currentToken());
+        }
+    }
+
+    private static List<String> readStringList(JsonParser parser) throws IOException, JSONException
+    {
+        List<String> values = new ArrayList<>();
+        readArray(parser, element -> values.add(parser.getValueAsString()));
+        return values;
+    }
+
+    private static Long readLong(JsonParser parser) throws IOException
+    {
+        return parser.currentToken() == JsonToken.VALUE_NULL ? null : parser.getValueAsLong();
+    }
+
+    private static String readString(JsonParser parser) throws IOException
+    {
+        if (parser.currentToken().isStructStart())
+        {
+            throw new IllegalArgumentException("Expected json string, got " + parser.currentToken());
+        }
+        return parser.getValueAsString();
+    }
+
+    @FunctionalInterface
+    private interface JsonResponseReader<T>
+    {
+        T read(JsonParser parser) throws IOException, JSONException;
+    }
+
+    @FunctionalInterface
+    private interface JsonFieldReader
+    {
+        void read(String field, JsonToken token) throws IOException, JSONException;
+    }
+
+    @FunctionalInterface
+    private interface JsonElementReader
+    {
+        void read(JsonToken token) throws IOException, JSONException;
+    }
+
+    /**
+     * A {@link Response} which counts the bytes read from its body and reports the call when released.
+     */
+    private static final class MeteredResponse implements Response
+    {
+        private final Response response;
+        private final String endpoint;
+        private final long start;
+        private final RepositoryCallListener listener;
+        private long bytes;
+        private boolean released;
+
+        private MeteredResponse(Response response, String endpoint, long start, RepositoryCallListener listener)
+        {
+            this.response = response;
+            this.endpoint = endpoint;
+            this.start = start;
+            this.listener = listener;
+        }
+
+        @Override
+        public InputStream getContentAsStream() throws IOException
+        {
+            InputStream content = response.getContentAsStream();
+            return content == null ? null : new FilterInputStream(content)
+            {
+                @Override
+                public int read() throws IOException
+                {
+                    int read = super.read();
+                    if (read != -1)
+                    {
+                        bytes++;
+                    }
+                    return read;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException
+                {
+                    int read = super.read(buffer, offset, length);
+                    if (read > 0)
+                    {
+                        bytes += read;
+                    }
+                    return read;
+                }
+
+                @Override
+                public long skip(long n) throws IOException
+                {
+                    long skipped = super.skip(n);
+                    bytes += skipped;
+                    return skipped;
+                }
+            };
+        }
+
+        @Override
+        public String getHeader(String key)
+        {
+            return response.getHeader(key);
+        }
+
+        @Override
+        public String getContentType()
+        {
+            return response.getContentType();
+        }
+
+        @Override
+        public int getStatus()
+        {
+            return response.getStatus();
+        }
+
+        @Override
+        public void release()
+        {
+            boolean failed = response.getStatus() >= HttpStatus.SC_BAD_REQUEST;
+            try
+            {
+                response.release();
+            }
+            finally
+            {
+                if (!released)
+                {
+                    released = true;
+                    listener.onCall(endpoint, System.nanoTime() - start, bytes, failed);
+                }
+            }
+        }
+    }
+
     private void silentlyClose(Closeable closeable)
     {
         try
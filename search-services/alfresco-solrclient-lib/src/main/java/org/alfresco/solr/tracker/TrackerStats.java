@@ -26,15 +26,19 @@
 
 package org.alfresco.solr.tracker;
 
+import java.lang.invoke.VarHandle;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
-import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
 
 import org.alfresco.solr.InformationServerCollectionProvider;
 import org.alfresco.solr.adapters.ISimpleOrderedMap;
@@ -65,6 +69,10 @@ public class TrackerStats
     
     ConcurrentHashMap<String, IncrementalStats> elapsedContentTimes = new ConcurrentHashMap<String, IncrementalStats>();
 
+    ConcurrentHashMap<String, IncrementalStats> batchUpdateTimes = new ConcurrentHashMap<String, IncrementalStats>();
+
+    ConcurrentHashMap<String, IncrementalStats> batchUpdateDocs = new ConcurrentHashMap<String, IncrementalStats>();
+
     private InformationServerCollectionProvider infoSrv;
     
     public TrackerStats(InformationServerCollectionProvider server)
@@ -91,17 +99,18 @@ public class TrackerStats
         for (String key : all.keySet())
         {
             IncrementalStats next = all.get(key);
-            IncrementalStats stats = next.copy();
+            IncrementalStats copy = next.copy();
+            Stripe stats = copy.snapshot();
             if (answer == null)
             {
-                answer = new SimpleStats(stats.scale, this.infoSrv);
-                answer .start  = stats.start;
+                answer = new SimpleStats(copy.scale, this.infoSrv);
+                answer .start  = copy.start;
                 answer.moments[0] = stats.moments[0];
                 answer.moments[1] = stats.moments[1];
                 answer.moments[2] = stats.moments[2];
                 answer.max = stats.max;
                 answer.min = stats.min;
-                answer.copies.put(key, stats);
+                answer.copies.put(key, copy);
             }
             else
             {
@@ -121,10 +130,10 @@ public class TrackerStats
                 newAnswer.min = (stats.min < answer.min) ? stats.min : answer.min;
                 newAnswer.max = (stats.max > answer.max) ? stats.max : answer.max;
                 
-                newAnswer.start = (stats.start.compareTo(answer.start) < 1) ? stats.start : answer.start;
+                newAnswer.start = (copy.start.compareTo(answer.start) < 1) ? copy.start : answer.start;
 
                 newAnswer.copies.putAll(answer.copies);
-                newAnswer.copies.put(key, stats);
+                newAnswer.copies.put(key, copy);
 
                 answer = newAnswer;
             }
@@ -173,6 +182,22 @@ public class TrackerStats
         return aggregateResults(docTransformationTimes);
     }
 
+    /**
+     * @return the time spent sending each batch of updates through the update processor chain
+     */
+    public SimpleStats getBatchUpdateTimes()
+    {
+        return aggregateResults(batchUpdateTimes);
+    }
+
+    /**
+     * @return the number of documents in each batch of updates
+     */
+    public SimpleStats getBatchUpdateDocs()
+    {
+        return aggregateResults(batchUpdateDocs);
+    }
+
     public double getMeanModelSyncTime()
     {
         return aggregateResults(modelTimes).getMean();
@@ -213,6 +238,11 @@ public class TrackerStats
         return aggregateResults(txDocs).getMean();
     }
 
+    public double getMeanBatchUpdateTime()
+    {
+        return aggregateResults(batchUpdateTimes).getMean();
+    }
+
     public double getMeanAclsPerChangeSet()
     {
         return aggregateResults(changeSetAcls).getMean();
@@ -385,33 +415,37 @@ public class TrackerStats
 
     }
 
-    @NotThreadSafe
+    /**
+     * Incremental statistics (moments and an adaptive histogram) of a stream of values.
+     *
+     * Values are accumulated in per-thread stripes, so that {@link #add(double)} never blocks: each stripe has a
+     * single writer, and readers take a consistent copy of it (retrying if it has been modified in the meantime).
+     * Stripes are merged on read. The stripes of the threads which are dead, or haven't added anything since the
+     * previous read, are folded into a base stripe, so the number of stripes doesn't grow with the number of threads
+     * which have ever used the stats.
+     */
+    @ThreadSafe
     public static class IncrementalStats
     {
-        Date start = new Date();
+        volatile Date start = new Date();
         
         int scale;
 
         int buckets;
 
-        double[] moments = new double[5];
+        InformationServerCollectionProvider server;
 
-        double min = 0D;
+        private final ThreadLocal<Stripe> localStripe = new ThreadLocal<>();
 
-        double max = 0D;
+        final Set<Stripe> stripes = ConcurrentHashMap.newKeySet();
 
-        List<Double> values;
-
-        List<Bucket> hist;
-        
-        InformationServerCollectionProvider server;
+        /* The values of the retired stripes (guarded by this) */
+        private Stripe base = new Stripe(this, null);
 
         public IncrementalStats(int scale, int buckets, InformationServerCollectionProvider infoSrv)
         {
             this.scale = scale;
             this.buckets = buckets;
-            values = new ArrayList<Double>(buckets);
-            hist = new ArrayList<Bucket>(buckets + 1);
             this.server = infoSrv;
         }
 
@@ -420,37 +454,30 @@ public class TrackerStats
          */
         public ISimpleOrderedMap<Object> getNamedList(boolean includeHist, boolean includeValues)
         {
+            Stripe merged = snapshot();
+
             ISimpleOrderedMap<Object> map = this.server.getSimpleOrderedMapInstance();
             map.add("Start", start);
-            map.add("N", getN());
-            map.add("Min", getMin());
-            map.add("Max", getMax());
-            map.add("Mean", getMean());
-            map.add("Varience", getVarience());
-            map.add("StdDev", getStandardDeviation());
-            map.add("Skew", getSkew());
-            map.add("Kurtosis", getKurtosis());
+            map.add("N", merged.getN());
+            map.add("Min", merged.min);
+            map.add("Max", merged.max);
+            map.add("Mean", merged.moments[1]);
+            map.add("Varience", merged.getVarience());
+            map.add("StdDev", Math.sqrt(merged.getVarience()));
+            map.add("Skew", merged.getSkew());
+            map.add("Kurtosis", merged.getKurtosis());
 
             if (includeHist)
             {
                 int i = 0;
                 ISimpleOrderedMap<Object> buckets = this.server.getSimpleOrderedMapInstance();
-                for (Bucket b : hist)
+                for (Bucket b : merged.hist)
                 {
                     double mark = (b.leftBoundary + b.rightBoundary) / 2.0D;
                     double width = b.rightBoundary - b.leftBoundary;
 
-                    // SimpleOrderedMap<Object> bucket = new SimpleOrderedMap<Object>();
-                    // bucket.add("Lower", b.leftBoundary);
-                    // bucket.add("Upper", mark);
-                    // bucket.add("ProbabilityDensity", b.countLeft/b.incrementalStats.getN()/width);
-                    buckets.add("" + i++, (b.leftBoundary + mark) / 2.0D + "," + b.countLeft / b.incrementalStats.getN() / width);
-
-                    // bucket = new SimpleOrderedMap<Object>();
-                    // bucket.add("Lower", mark);
-                    // bucket.add("Upper", b.rightBoundary);
-                    // bucket.add("ProbabilityDensity", b.countRight/b.incrementalStats.getN()/width);
-                    buckets.add("" + i++, (mark + b.rightBoundary) / 2.0D + "," + b.countRight / b.incrementalStats.getN() / width);
+                    buckets.add("" + i++, (b.leftBoundary + mark) / 2.0D + "," + b.countLeft / merged.getN() / width);
+                    buckets.add("" + i++, (mark + b.rightBoundary) / 2.0D + "," + b.countRight / merged.getN() / width);
                 }
                 map.add("Buckets", buckets);
             }
@@ -459,7 +486,7 @@ public class TrackerStats
             {
                 int i = 0;
                 ISimpleOrderedMap<Object> valuesMap = this.server.getSimpleOrderedMapInstance();
-                for (Double value : values)
+                for (Double value : merged.values)
                 {
                     valuesMap.add("" + i++, value);
                 }
@@ -471,22 +498,368 @@ public class TrackerStats
 
         public synchronized void reset()
         {
-            moments = new double[5];
+            stripes.forEach(Stripe::discard);
+            stripes.clear();
+            base = new Stripe(this, null);
+            start = new Date();
+        }
 
-            min = 0D;
+        public void add(double xUnscaled)
+        {
+            Stripe stripe = localStripe.get();
+            if (stripe == null || !stripe.beginWrite())
+            {
+                stripe = new Stripe(this, Thread.currentThread());
+                stripes.add(stripe);
+                localStripe.set(stripe);
+                stripe.beginWrite();
+            }
 
-            max = 0D;
+            try
+            {
+                stripe.add(xUnscaled / scale);
+            }
+            finally
+            {
+                stripe.endWrite();
+            }
+        }
 
-            values = new ArrayList<Double>(buckets);
+        /**
+         * @return a consistent copy of all the stripes merged together.
+         */
+        synchronized Stripe snapshot()
+        {
+            for (Stripe stripe : stripes)
+            {
+                if (stripe.isInactive())
+                {
+                    retire(stripe);
+                }
+            }
 
-            hist = new ArrayList<Bucket>(buckets + 1);
-            
-            start = new Date();
+            Stripe merged = base.copyValues(this);
+            for (Stripe stripe : stripes)
+            {
+                Stripe copy = stripe.copy(this);
+                if (copy == null)
+                {
+                    // Too busy to be copied while it is written: retire it, so that it can't change anymore
+                    copy = retire(stripe);
+                }
+                merged = merged.merge(copy);
+            }
+            return merged;
+        }
+
+        /**
+         * Folds the given stripe into the base one: its owner will add the next values into a new stripe.
+         *
+         * @return a copy of the values of the retired stripe.
+         */
+        private Stripe retire(Stripe stripe)
+        {
+            stripe.retire();
+            stripes.remove(stripe);
+            base = base.merge(stripe.copyValues(this));
+            return stripe.copyValues(this);
+        }
+
+        public long getN()
+        {
+            return snapshot().getN();
+        }
+
+        public double getMin()
+        {
+            return snapshot().min;
         }
 
-        public synchronized void add(double xUnscaled)
+        public double getMax()
+        {
+            return snapshot().max;
+        }
+
+        public double getMean()
+        {
+            return snapshot().moments[1];
+        }
+
+        public double getVarience()
+        {
+            return snapshot().getVarience();
+        }
+
+        public double getStandardDeviation()
+        {
+            return Math.sqrt(getVarience());
+        }
+
+        public double getSkew()
+        {
+            return snapshot().getSkew();
+        }
+
+        public double getKurtosis()
+        {
+            return snapshot().getKurtosis();
+        }
+        
+        public List<Bucket> getHistogram()
+        {
+            Stripe merged = snapshot();
+            if(merged.hist.size() == 0)
+            {
+                merged.buildInitialBuckets();
+            }
+            return merged.hist;
+        }
+
+        IncrementalStats copy()
+        {
+            IncrementalStats copy = new IncrementalStats(this.scale, this.buckets, this.server);
+            copy.start = this.start;
+            copy.base = snapshot().copyValues(copy);
+            return copy;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString()
+        {
+            Stripe merged = snapshot();
+            return "IncrementalStats [getN()="
+                    + merged.getN() + ", getMin()=" + merged.min + ", getMax()=" + merged.max + ", getMean()=" + merged.moments[1] + ", getVarience()=" + merged.getVarience() + ", getStandardDeviation()="
+                    + Math.sqrt(merged.getVarience()) + ", getSkew()=" + merged.getSkew() + ", getKurtosis()=" + merged.getKurtosis() + ", values=" + merged.values + ", hist=" + merged.hist + "]";
+        }
+
+    }
+
+    /**
+     * The values added by a single thread to an {@link IncrementalStats}.
+     *
+     * The writer bumps the version before and after each update (odd while updating), so that readers can detect
+     * (and retry) a copy taken while the stripe was being modified. Once retired the stripe doesn't accept any more
+     * update, and the writer moves to a new stripe.
+     */
+    static final class Stripe
+    {
+        private static final int MAX_COPY_ATTEMPTS = 16;
+
+        final IncrementalStats stats;
+
+        final WeakReference<Thread> owner;
+
+        private volatile long version;
+
+        private volatile boolean retired;
+
+        /* The version seen by the previous read of the stats (guarded by the stats) */
+        private long lastReadVersion = -1;
+
+        double[] moments = new double[5];
+
+        double min = 0D;
+
+        double max = 0D;
+
+        List<Double> values;
+
+        List<Bucket> hist;
+
+        Stripe(IncrementalStats stats, Thread owner)
+        {
+            this.stats = stats;
+            this.owner = owner == null ? null : new WeakReference<>(owner);
+            values = new ArrayList<Double>(stats.buckets);
+            hist = new ArrayList<Bucket>(stats.buckets + 1);
+        }
+
+        /**
+         * @return false if the stripe has been retired: nothing can be added to it anymore.
+         */
+        boolean beginWrite()
+        {
+            version = version + 1;
+            // The volatile write only orders the accesses before it: keep the updates from being seen before the
+            // odd version, which is what the reader checks (after its acquire fence) to discard a torn copy.
+            VarHandle.storeStoreFence();
+            if (retired)
+            {
+                version = version + 1;
+                return false;
+            }
+            return true;
+        }
+
+        void endWrite()
+        {
+            version = version + 1;
+        }
+
+        /**
+         * @return true if the owner is dead, or hasn't added anything since the previous call.
+         */
+        boolean isInactive()
+        {
+            Thread thread = owner.get();
+            long current = version;
+            boolean inactive = thread == null || !thread.isAlive() || current == lastReadVersion;
+            lastReadVersion = current;
+            return inactive;
+        }
+
+        /**
+         * Stops the updates of this stripe, waiting for the one in progress (if any) to complete.
+         */
+        void retire()
+        {
+            retired = true;
+            while ((version & 1) != 0)
+            {
+                Thread.onSpinWait();
+            }
+        }
+
+        /**
+         * Stops the updates of this stripe, without waiting for the one in progress.
+         */
+        void discard()
+        {
+            retired = true;
+        }
+
+        /**
+         * @return a copy of this stripe consistent with what the writer has added so far, null if the stripe has been
+         * modified during each of the copy attempts.
+         */
+        Stripe copy(IncrementalStats owner)
+        {
+            for (int attempt = 0; attempt < MAX_COPY_ATTEMPTS; attempt++)
+            {
+                long before = version;
+                if ((before & 1) == 0)
+                {
+                    Stripe copy = copyValues(owner);
+                    VarHandle.acquireFence();
+                    if (version == before)
+                    {
+                        return copy;
+                    }
+                }
+                Thread.onSpinWait();
+            }
+            return null;
+        }
+
+        /**
+         * Copies the values of the stripe, without checking whether it is being modified: the lists are read through
+         * their arrays (no iterator), so a concurrent update can only tear the copy, which {@link #copy} discards.
+         */
+        Stripe copyValues(IncrementalStats owner)
+        {
+            Stripe copy = new Stripe(owner, null);
+            copy.min = this.min;
+            copy.max = this.max;
+            System.arraycopy(this.moments, 0, copy.moments, 0, copy.moments.length);
+            for (Object value : this.values.toArray())
+            {
+                copy.values.add((Double) value);
+            }
+            for (Object bucket : this.hist.toArray())
+            {
+                Bucket b = (Bucket) bucket;
+                if (b != null)
+                {
+                    copy.hist.add(new Bucket(owner, b.leftBoundary, b.rightBoundary, b.countLeft, b.countRight));
+                }
+            }
+            return copy;
+        }
+
+        /**
+         * Merges another (copied) stripe into this (copied) one: moments are combined exactly, histograms by
+         * merging their closest buckets.
+         *
+         * @return this stripe.
+         */
+        Stripe merge(Stripe other)
+        {
+            double na = this.moments[0];
+            double nb = other.moments[0];
+            if (nb == 0)
+            {
+                return this;
+            }
+            if (na == 0)
+            {
+                other.values.addAll(0, this.values);
+                other.trimValues();
+                return other;
+            }
+
+            double n = na + nb;
+            double delta = other.moments[1] - this.moments[1];
+            double delta2 = delta * delta;
+            double m2a = this.moments[2] * na;
+            double m2b = other.moments[2] * nb;
+            double m3a = this.moments[3] * na;
+            double m3b = other.moments[3] * nb;
+            double m4a = this.moments[4] * na;
+            double m4b = other.moments[4] * nb;
+
+            double m2 = m2a + m2b + delta2 * na * nb / n;
+            double m3 = m3a + m3b + delta2 * delta * na * nb * (na - nb) / (n * n)
+                    + 3 * delta * (na * m2b - nb * m2a) / n;
+            double m4 = m4a + m4b + delta2 * delta2 * na * nb * (na * na - na * nb + nb * nb) / (n * n * n)
+                    + 6 * delta2 * (na * na * m2b + nb * nb * m2a) / (n * n)
+                    + 4 * delta * (na * m3b - nb * m3a) / n;
+
+            this.moments[0] = n;
+            this.moments[1] += delta * nb / n;
+            this.moments[2] = m2 / n;
+            this.moments[3] = m3 / n;
+            this.moments[4] = m4 / n;
+            this.min = Math.min(this.min, other.min);
+            this.max = Math.max(this.max, other.max);
+            this.values.addAll(other.values);
+            trimValues();
+
+            if (this.hist.isEmpty())
+            {
+                buildInitialBuckets();
+            }
+            if (other.hist.isEmpty())
+            {
+                other.buildInitialBuckets();
+            }
+            this.hist.addAll(other.hist);
+            this.hist.sort(Comparator.comparingDouble(b -> b.leftBoundary));
+            while (this.hist.size() > stats.buckets)
+            {
+                merge(findBestToMerge().getFirst());
+            }
+            return this;
+        }
+
+        /*
+         * Keeps the last values only, as a stripe does when adding them: merged stripes otherwise accumulate the
+         * values of all the retired stripes.
+         */
+        private void trimValues()
+        {
+            int excess = values.size() - stats.buckets;
+            if (excess > 0)
+            {
+                values.subList(0, excess).clear();
+            }
+        }
+
+        void add(double x)
         {
-            double x = xUnscaled / scale;
             if ((moments[0] == 0) || (x > max))
             {
                 max = x;
@@ -516,6 +889,7 @@ public class TrackerStats
 
             moments[0] = nPlus1;
 
+            int buckets = stats.buckets;
             if (buckets > 1)
             {
                 if (moments[0] < buckets)
@@ -533,7 +907,7 @@ public class TrackerStats
                     if (x < hist.get(0).leftBoundary)
                     {
                         double delta = (hist.get(0).leftBoundary - x) / 3.0;
-                        Bucket b = new Bucket(this, x - delta, hist.get(0).leftBoundary);
+                        Bucket b = new Bucket(stats, x - delta, hist.get(0).leftBoundary);
                         hist.add(0, b);
                         b.add(x);
                         Pair<Integer, Double> bestToMerge = findBestToMerge();
@@ -545,7 +919,7 @@ public class TrackerStats
                     else if (x >= hist.get(hist.size() - 1).rightBoundary)
                     {
                         double delta = (x - hist.get(hist.size() - 1).rightBoundary) / 3.0;
-                        Bucket b = new Bucket(this, hist.get(hist.size() - 1).rightBoundary, x + delta);
+                        Bucket b = new Bucket(stats, hist.get(hist.size() - 1).rightBoundary, x + delta);
                         hist.add(b);
                         b.add(x);
                         Pair<Integer, Double> bestToMerge = findBestToMerge();
@@ -589,7 +963,7 @@ public class TrackerStats
         /**
          * 
          */
-        private void buildInitialBuckets()
+        void buildInitialBuckets()
         {
             // generate initial bucket list
             Collections.sort(values);
@@ -618,7 +992,7 @@ public class TrackerStats
                         }
                     }
 
-                    Bucket b = new Bucket(this, start, end);
+                    Bucket b = new Bucket(stats, start, end);
                     b.add(values.get(i));
                     hist.add(b);
                 }
@@ -631,7 +1005,7 @@ public class TrackerStats
                     {
                         width = (last - first) / (values.size() - 1);
                     }
-                    Bucket b = new Bucket(this, last, last + width);
+                    Bucket b = new Bucket(stats, last, last + width);
                     b.add(values.get(i));
                     hist.add(b);
                 }
@@ -642,7 +1016,7 @@ public class TrackerStats
         {
             Bucket lower = hist.get(position);
             Bucket upper = hist.get(position + 1);
-            Bucket merged = new Bucket(this, lower.leftBoundary, upper.rightBoundary, lower.countLeft + lower.countRight, upper.countLeft + upper.countRight);
+            Bucket merged = new Bucket(stats, lower.leftBoundary, Math.max(lower.rightBoundary, upper.rightBoundary), lower.countLeft + lower.countRight, upper.countLeft + upper.countRight);
             hist.remove(position);
             hist.set(position, merged);
 
@@ -652,8 +1026,8 @@ public class TrackerStats
         {
             Bucket toSplit = hist.get(position);
             double mark = (toSplit.leftBoundary + toSplit.rightBoundary) / 2.0D;
-            Bucket lower = new Bucket(this, toSplit.leftBoundary, mark, toSplit.countLeft / 2.0D, toSplit.countLeft / 2.0D);
-            Bucket upper = new Bucket(this, mark, toSplit.rightBoundary, toSplit.countRight / 2.0D, toSplit.countRight / 2.0D);
+            Bucket lower = new Bucket(stats, toSplit.leftBoundary, mark, toSplit.countLeft / 2.0D, toSplit.countLeft / 2.0D);
+            Bucket upper = new Bucket(stats, mark, toSplit.rightBoundary, toSplit.countRight / 2.0D, toSplit.countRight / 2.0D);
             hist.set(position, upper);
             hist.add(position, lower);
         }
@@ -690,27 +1064,12 @@ public class TrackerStats
             return new Pair<Integer, Double>(bucket, maxError);
         }
 
-        public synchronized long getN()
+        long getN()
         {
             return (long) moments[0];
         }
 
-        public synchronized double getMin()
-        {
-            return min;
-        }
-
-        public synchronized double getMax()
-        {
-            return max;
-        }
-
-        public synchronized double getMean()
-        {
-            return moments[1];
-        }
-
-        public synchronized double getVarience()
+        double getVarience()
         {
             if (moments[0] > 1)
             {
@@ -722,12 +1081,7 @@ public class TrackerStats
             }
         }
 
-        public synchronized double getStandardDeviation()
-        {
-            return Math.sqrt(getVarience());
-        }
-
-        public synchronized double getSkew()
+        double getSkew()
         {
             if (moments[0] > 2)
             {
@@ -740,7 +1094,7 @@ public class TrackerStats
             }
         }
 
-        public synchronized double getKurtosis()
+        double getKurtosis()
         {
             if (moments[0] > 3)
             {
@@ -757,52 +1111,6 @@ public class TrackerStats
                 return Double.NaN;
             }
         }
-        
-        public synchronized List<Bucket> getHistogram()
-        {
-            if(hist.size() == 0)
-            {
-                buildInitialBuckets();
-            }
-            return hist;
-        }
-        
-     
-
-        synchronized IncrementalStats copy()
-        {
-            IncrementalStats copy = new IncrementalStats(this.scale, this.buckets, this.server);
-            copy.start = this.start;
-            copy.max = this.getMax();
-            copy.min = this.min;
-            copy.moments[0] = this.moments[0];
-            copy.moments[1] = this.moments[1];
-            copy.moments[2] = this.moments[2];
-            copy.moments[3] = this.moments[3];
-            copy.moments[4] = this.moments[4];
-            for (Double x : this.values)
-            {
-                copy.values.add(x);
-            }
-            for (Bucket b : this.hist)
-            {
-                copy.hist.add(new Bucket(copy, b.leftBoundary, b.rightBoundary, b.countLeft, b.countRight));
-            }
-            return copy;
-        }
-
-        /*
-         * (non-Javadoc)
-         * @see java.lang.Object#toString()
-         */
-        @Override
-        public String toString()
-        {
-            return "IncrementalStats [getN()="
-                    + getN() + ", getMin()=" + getMin() + ", getMax()=" + getMax() + ", getMean()=" + getMean() + ", getVarience()=" + getVarience() + ", getStandardDeviation()="
-                    + getStandardDeviation() + ", getSkew()=" + getSkew() + ", getKurtosis()=" + getKurtosis() + ", values=" + values + ", hist=" + hist + "]";
-        }
-
     }
 
     /**
@@ -961,6 +1269,33 @@ public class TrackerStats
         stats.add(time);
     }
 
+    /**
+     * @param docCount int
+     * @param time long
+     */
+    public void addBatchUpdate(int docCount, long time)
+    {
+        if(docCount < 1)
+        {
+            return;
+        }
+        IncrementalStats times = batchUpdateTimes.get(Thread.currentThread().getName());
+        if (times == null)
+        {
+            times = new IncrementalStats(TIME_SCALE, 50, this.infoSrv);
+            batchUpdateTimes.put(Thread.currentThread().getName(), times);
+        }
+        times.add(time);
+
+        IncrementalStats docs = batchUpdateDocs.get(Thread.currentThread().getName());
+        if (docs == null)
+        {
+            docs = new IncrementalStats(1, 50, this.infoSrv);
+            batchUpdateDocs.put(Thread.currentThread().getName(), docs);
+        }
+        docs.add(docCount);
+    }
+
     /*
      * (non-Javadoc)
      * @see java.lang.Object#toString()
@@ -970,7 +1305,7 @@ public class TrackerStats
     {
         return "TrackerStats [modelTimes="
                 + modelTimes + ", aclTimes=" + aclTimes + ", changeSetAcls=" + changeSetAcls + ", txDocs=" + txDocs + ", docTransformationTimes=" + docTransformationTimes
-                + ", nodeTimes=" + nodeTimes + "]";
+                + ", nodeTimes=" + nodeTimes + ", batchUpdateTimes=" + batchUpdateTimes + ", batchUpdateDocs=" + batchUpdateDocs + "]";
     }
 
     /**
@@ -984,6 +1319,8 @@ public class TrackerStats
         txDocs.clear();
         docTransformationTimes.clear();
         nodeTimes.clear();
+        batchUpdateTimes.clear();
+        batchUpdateDocs.clear();
     }
 
  
@@ -0,0 +1,221 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.client;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.alfresco.httpclient.AlfrescoHttpClient;
+import org.alfresco.httpclient.Request;
+import org.alfresco.httpclient.Response;
+import org.alfresco.repo.dictionary.NamespaceDAO;
+import org.alfresco.service.cmr.dictionary.DictionaryService;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Per-endpoint latency and allocation benchmark of the {@link SOLRAPIClient} response deserialization.
+ *
+ * For each endpoint a synthetic payload is parsed both with the streaming deserializers used by the client and with
+ * an org.json DOM (the approach used before the streaming deserializers, the DOM figure doesn't include the conversion
+ * to the domain objects, so it is a lower bound).
+ * This is not a unit test: it is meant to be run manually (e.g. from the IDE) with
+ *
+ * <pre>
+ *     SOLRAPIClientParsingBenchmark [numberOfElements] [iterations]
+ * </pre>
+ *
+ * Allocated bytes are measured through the HotSpot {@link com.sun.management.ThreadMXBean}.
+ */
+public class SOLRAPIClientParsingBenchmark
+{
+    private static final int WARMUP_ITERATIONS = 5;
+
+    @FunctionalInterface
+    private interface Call
+    {
+        void run(SOLRAPIClient client) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface Task
+    {
+        void run() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        int elements = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        System.out.printf("%-20s %-10s %12s %16s%n", "endpoint", "parser", "avg ms", "avg bytes");
+
+        benchmark("getNodes", nodesPayload(elements), iterations,
+                client -> client.getNodes(new GetNodesParameters(), Integer.MAX_VALUE));
+        benchmark("getNodesMetaData", nodesMetaDataPayload(elements), iterations,
+                client -> client.getNodesMetaData(new NodeMetaDataParameters()));
+        benchmark("getAclChangeSets", aclChangeSetsPayload(elements), iterations,
+                client -> client.getAclChangeSets(null, null, null, null, Integer.MAX_VALUE));
+        benchmark("getAcls", aclsPayload(elements), iterations,
+                client -> client.getAcls(Collections.emptyList(), null, Integer.MAX_VALUE));
+        benchmark("getAclReaders", aclReadersPayload(elements), iterations,
+                client -> client.getAclReaders(Collections.emptyList()));
+    }
+
+    private static void benchmark(String endpoint, byte[] payload, int iterations, Call call) throws Exception
+    {
+        SOLRAPIClient client = client(payload);
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+        {
+            call.run(client);
+            dom(payload);
+        }
+
+        long[] streaming = new long[2];
+        long[] dom = new long[2];
+        for (int i = 0; i < iterations; i++)
+        {
+            measure(streaming, () -> call.run(client));
+            measure(dom, () -> dom(payload));
+        }
+
+        print(endpoint, "streaming", streaming, iterations);
+        print(endpoint, "dom", dom, iterations);
+    }
+
+    private static void measure(long[] totals, Task task) throws Exception
+    {
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        task.run();
+        totals[0] += System.nanoTime() - start;
+        totals[1] += allocatedBytes() - allocatedBefore;
+    }
+
+    private static void print(String endpoint, String parser, long[] totals, int iterations)
+    {
+        System.out.printf("%-20s %-10s %12.2f %16d%n", endpoint, parser, totals[0] / 1e6 / iterations, totals[1] / iterations);
+    }
+
+    private static void dom(byte[] payload)
+    {
+        new JSONObject(new JSONTokener(new InputStreamReader(new ByteArrayInputStream(payload), StandardCharsets.UTF_8)));
+    }
+
+    private static long allocatedBytes()
+    {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static SOLRAPIClient client(byte[] payload) throws Exception
+    {
+        Response response = mock(Response.class);
+        when(response.getStatus()).thenReturn(200);
+        when(response.getContentAsStream()).thenAnswer(invocation -> new ByteArrayInputStream(payload));
+
+        AlfrescoHttpClient repositoryHttpClient = mock(AlfrescoHttpClient.class);
+        when(repositoryHttpClient.sendRequest(any(Request.class))).thenReturn(response);
+
+        return new SOLRAPIClient(repositoryHttpClient, mock(DictionaryService.class), mock(NamespaceDAO.class));
+    }
+
+    private static byte[] nodesPayload(int elements)
+    {
+        List<String> nodes = new ArrayList<>(elements);
+        for (int i = 0; i < elements; i++)
+        {
+            nodes.add("{\"id\":" + i + ",\"nodeRef\":\"workspace://SpacesStore/" + i + "\",\"txnId\":" + (i / 10)
+                    + ",\"aclId\":" + (i % 100) + ",\"status\":\"u\",\"tenant\":\"\"}");
+        }
+        return ("{\"nodes\":[" + String.join(",", nodes) + "]}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] nodesMetaDataPayload(int elements)
+    {
+        List<String> nodes = new ArrayList<>(elements);
+        for (int i = 0; i < elements; i++)
+        {
+            nodes.add("{\"id\":" + i + ",\"tenantDomain\":\"\",\"aclId\":" + (i % 100) + ",\"txnId\":" + (i / 10)
+                    + ",\"nodeRef\":\"workspace://SpacesStore/" + i + "\""
+                    + ",\"type\":\"{http://www.alfresco.org/model/content/1.0}content\""
+                    + ",\"aspects\":[\"{http://www.alfresco.org/model/content/1.0}titled\",\"{http://www.alfresco.org/model/content/1.0}auditable\"]"
+                    + ",\"properties\":{\"{http://www.alfresco.org/model/content/1.0}name\":\"document-" + i + ".txt\""
+                    + ",\"{http://www.alfresco.org/model/content/1.0}creator\":\"admin\""
+                    + ",\"{http://www.alfresco.org/model/content/1.0}description\":\"A description of the document " + i + "\"}"
+                    + ",\"paths\":[{\"path\":\"/{http://www.alfresco.org/model/application/1.0}company_home/{http://www.alfresco.org/model/content/1.0}document-" + i
+                    + "\",\"qname\":\"{http://www.alfresco.org/model/content/1.0}document-" + i + "\",\"apath\":\"/1/2/3\"}]"
+                    + ",\"namePaths\":[{\"namePath\":[\"Company Home\",\"document-" + i + ".txt\"]}]"
+                    + ",\"ancestors\":[\"workspace://SpacesStore/parent\",\"workspace://SpacesStore/root\"]"
+                    + ",\"parentAssocsCrc\":" + i
+                    + ",\"owner\":\"admin\"}");
+        }
+        return ("{\"nodes\":[" + String.join(",", nodes) + "]}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] aclChangeSetsPayload(int elements)
+    {
+        List<String> aclChangeSets = new ArrayList<>(elements);
+        for (int i = 0; i < elements; i++)
+        {
+            aclChangeSets.add("{\"id\":" + i + ",\"commitTimeMs\":" + (1000L + i) + ",\"aclCount\":3}");
+        }
+        return ("{\"aclChangeSets\":[" + String.join(",", aclChangeSets) + "],\"maxChangeSetCommitTime\":"
+                + (1000L + elements) + ",\"maxChangeSetId\":" + elements + "}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] aclsPayload(int elements)
+    {
+        List<String> acls = new ArrayList<>(elements);
+        for (int i = 0; i < elements; i++)
+        {
+            acls.add("{\"aclChangeSetId\":" + (i / 3) + ",\"id\":" + i + "}");
+        }
+        return ("{\"acls\":[" + String.join(",", acls) + "]}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] aclReadersPayload(int elements)
+    {
+        List<String> aclReaders = new ArrayList<>(elements);
+        for (int i = 0; i < elements; i++)
+        {
+            aclReaders.add("{\"aclId\":" + i + ",\"readers\":[\"GROUP_EVERYONE\",\"GROUP_site_" + i + "\",\"user" + i + "\"]"
+                    + ",\"denied\":[\"guest\"],\"aclChangeSetId\":" + (i / 3) + ",\"tenantDomain\":\"\"}");
+        }
+        return ("{\"aclsReaders\":[" + String.join(",", aclReaders) + "]}").getBytes(StandardCharsets.UTF_8);
+    }
+}
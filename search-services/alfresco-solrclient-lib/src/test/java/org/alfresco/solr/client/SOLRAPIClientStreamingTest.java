@@ -0,0 +1,324 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.client;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.alfresco.error.AlfrescoRuntimeException;
+import org.alfresco.httpclient.AlfrescoHttpClient;
+import org.alfresco.httpclient.Request;
+import org.alfresco.httpclient.Response;
+import org.alfresco.repo.dictionary.NamespaceDAO;
+import org.alfresco.repo.tenant.TenantService;
+import org.alfresco.service.cmr.dictionary.DataTypeDefinition;
+import org.alfresco.service.cmr.dictionary.DictionaryService;
+import org.alfresco.service.cmr.dictionary.PropertyDefinition;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.namespace.QName;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/**
+ * Tests the streaming deserialization of the {@link SOLRAPIClient} responses.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class SOLRAPIClientStreamingTest
+{
+    @Mock
+    private AlfrescoHttpClient repositoryHttpClient;
+
+    @Mock
+    private DictionaryService dictionaryService;
+
+    @Mock
+    private NamespaceDAO namespaceDAO;
+
+    @Mock
+    private Response response;
+
+    private SOLRAPIClient client;
+
+    @Before
+    public void setUp()
+    {
+        client = new SOLRAPIClient(repositoryHttpClient, dictionaryService, namespaceDAO);
+    }
+
+    @Test
+    public void getNodes_shouldBuildNodesAndIgnoreUnknownFields() throws Exception
+    {
+        respondWith("{\"nodes\":[" +
+                "{\"id\":1,\"nodeRef\":\"workspace://SpacesStore/a\",\"txnId\":10,\"aclId\":5,\"status\":\"u\",\"tenant\":\"\"," +
+                        "\"unknown\":{\"nested\":[1,2,3]}}," +
+                "{\"status\":\"d\",\"id\":2,\"txnId\":10,\"shardPropertyValue\":null,\"explicitShardId\":3}," +
+                "{\"id\":3,\"status\":\"x\"}]}");
+
+        List<Node> nodes = client.getNodes(new GetNodesParameters(), 10);
+
+        assertEquals(3, nodes.size());
+        assertEquals(1, nodes.get(0).getId());
+        assertEquals("workspace://SpacesStore/a", nodes.get(0).getNodeRef());
+        assertEquals(10, nodes.get(0).getTxnId());
+        assertEquals(5, nodes.get(0).getAclId());
+        assertEquals(Node.SolrApiNodeStatus.UPDATED, nodes.get(0).getStatus());
+
+        assertEquals(2, nodes.get(1).getId());
+        assertEquals(Node.SolrApiNodeStatus.DELETED, nodes.get(1).getStatus());
+        assertNull(nodes.get(1).getShardPropertyValue());
+        assertEquals(Integer.valueOf(3), nodes.get(1).getExplicitShardId());
+
+        assertEquals(Node.SolrApiNodeStatus.UNKNOWN, nodes.get(2).getStatus());
+    }
+
+    @Test
+    public void getAclChangeSets_shouldBuildChangeSetsAndMaxValues() throws Exception
+    {
+        respondWith("{\"aclChangeSets\":[{\"id\":1,\"commitTimeMs\":1000,\"aclCount\":2}," +
+                "{\"id\":2,\"commitTimeMs\":2000,\"aclCount\":4}]," +
+                "\"maxChangeSetCommitTime\":2000,\"maxChangeSetId\":2}");
+
+        AclChangeSets aclChangeSets = client.getAclChangeSets(null, null, null, null, 10);
+
+        assertEquals(2, aclChangeSets.getAclChangeSets().size());
+        assertEquals(2, aclChangeSets.getAclChangeSets().get(1).getId());
+        assertEquals(2000, aclChangeSets.getAclChangeSets().get(1).getCommitTimeMs());
+        assertEquals(4, aclChangeSets.getAclChangeSets().get(1).getAclCount());
+        assertEquals(Long.valueOf(2000), aclChangeSets.getMaxChangeSetCommitTime());
+        assertEquals(Long.valueOf(2), aclChangeSets.getMaxChangeSetId());
+    }
+
+    @Test
+    public void getAclChangeSets_noMaxValues_shouldReturnNullMaxValues() throws Exception
+    {
+        respondWith("{\"aclChangeSets\":[]}");
+
+        AclChangeSets aclChangeSets = client.getAclChangeSets(null, null, null, null, 10);
+
+        assertTrue(aclChangeSets.getAclChangeSets().isEmpty());
+        assertNull(aclChangeSets.getMaxChangeSetCommitTime());
+        assertNull(aclChangeSets.getMaxChangeSetId());
+    }
+
+    @Test
+    public void getAcls_shouldBuildAcls() throws Exception
+    {
+        respondWith("{\"acls\":[{\"aclChangeSetId\":1,\"id\":11},{\"id\":12,\"aclChangeSetId\":1}]}");
+
+        List<Acl> acls = client.getAcls(Collections.singletonList(new AclChangeSet(1, 1000, 2)), null, 10);
+
+        assertEquals(2, acls.size());
+        assertEquals(11, acls.get(0).getId());
+        assertEquals(1, acls.get(0).getAclChangeSetId());
+        assertEquals(12, acls.get(1).getId());
+    }
+
+    @Test
+    public void getAclReaders_shouldBuildReadersAndDefaultTenant() throws Exception
+    {
+        respondWith("{\"aclsReaders\":[" +
+                "{\"aclId\":11,\"readers\":[\"GROUP_EVERYONE\",\"admin\"],\"denied\":[\"guest\"],\"aclChangeSetId\":1,\"tenantDomain\":\"acme\"}," +
+                "{\"aclId\":12,\"readers\":[],\"denied\":[],\"aclChangeSetId\":1,\"tenantDomain\":null}]}");
+
+        List<AclReaders> aclReaders = client.getAclReaders(asList(new Acl(1, 11), new Acl(1, 12)));
+
+        assertEquals(2, aclReaders.size());
+        assertEquals(11, aclReaders.get(0).getId());
+        assertEquals(asList("GROUP_EVERYONE", "admin"), aclReaders.get(0).getReaders());
+        assertEquals(asList("guest"), aclReaders.get(0).getDenied());
+        assertEquals("acme", aclReaders.get(0).getTenantDomain());
+        assertEquals(TenantService.DEFAULT_DOMAIN, aclReaders.get(1).getTenantDomain());
+        assertTrue(aclReaders.get(1).getReaders().isEmpty());
+    }
+
+    @Test
+    public void getNodesMetaData_shouldBuildNodeMetaData() throws Exception
+    {
+        QName title = QName.createQName("{http://www.alfresco.org/model/content/1.0}title");
+        QName name = QName.createQName("{http://www.alfresco.org/model/content/1.0}name");
+
+        DataTypeDefinition mlText = mock(DataTypeDefinition.class);
+        when(mlText.getName()).thenReturn(DataTypeDefinition.MLTEXT);
+        PropertyDefinition titleDefinition = mock(PropertyDefinition.class);
+        when(titleDefinition.getDataType()).thenReturn(mlText);
+        when(dictionaryService.getProperty(title)).thenReturn(titleDefinition);
+
+        respondWith("{\"nodes\":[{" +
+                "\"id\":1,\"tenantDomain\":\"\",\"aclId\":5,\"txnId\":10," +
+                "\"nodeRef\":\"workspace://SpacesStore/a\"," +
+                "\"type\":\"{http://www.alfresco.org/model/content/1.0}content\"," +
+                "\"aspects\":[\"{http://www.alfresco.org/model/content/1.0}titled\"]," +
+                "\"properties\":{" +
+                    "\"{http://www.alfresco.org/model/content/1.0}name\":\"a.txt\"," +
+                    "\"{http://www.alfresco.org/model/content/1.0}title\":[{\"locale\":\"en\",\"value\":\"A title\"}]}," +
+                "\"paths\":[{\"path\":\"/app:company_home/cm:a.txt\",\"qname\":\"{http://www.alfresco.org/model/content/1.0}a.txt\",\"apath\":\"/1/2\"}]," +
+                "\"namePaths\":[{\"namePath\":[\"Company Home\",\"a.txt\"]}]," +
+                "\"ancestors\":[\"workspace://SpacesStore/b\"]," +
+                "\"parentAssocsCrc\":123," +
+                "\"childIds\":[7,8]," +
+                "\"owner\":\"admin\"}]}");
+
+        List<NodeMetaData> nodes = client.getNodesMetaData(new NodeMetaDataParameters());
+
+        assertEquals(1, nodes.size());
+        NodeMetaData node = nodes.get(0);
+        assertEquals(1, node.getId());
+        assertEquals(5, node.getAclId());
+        assertEquals(10, node.getTxnId());
+        assertEquals(new NodeRef("workspace://SpacesStore/a"), node.getNodeRef());
+        assertEquals(QName.createQName("{http://www.alfresco.org/model/content/1.0}content"), node.getType());
+        assertEquals(1, node.getAspects().size());
+
+        assertEquals("a.txt", ((StringPropertyValue) node.getProperties().get(name)).getValue());
+        assertEquals("A title", ((MLTextPropertyValue) node.getProperties().get(title)).getValue(Locale.ENGLISH));
+
+        assertEquals("/app:company_home/cm:a.txt", node.getPaths().get(0).getFirst());
+        assertEquals(asList("/1/2"), node.getAncestorPaths());
+        assertEquals(asList("Company Home", "a.txt"), node.getNamePaths().get(0));
+        assertTrue(node.getAncestors().contains(new NodeRef("workspace://SpacesStore/b")));
+        assertEquals(123, node.getParentAssocsCrc());
+        assertEquals(asList(7L, 8L), node.getChildIds());
+        assertEquals("admin", node.getOwner());
+    }
+
+    @Test(expected = IOException.class)
+    public void malformedPayload_shouldThrowAnException() throws Exception
+    {
+        respondWith("{\"nodes\":[{\"id\":1,");
+
+        client.getNodes(new GetNodesParameters(), 10);
+    }
+
+    @Test(expected = IOException.class)
+    public void nonObjectPayload_shouldThrowAnIOException() throws Exception
+    {
+        respondWith("[]");
+
+        client.getNodes(new GetNodesParameters(), 10);
+    }
+
+    @Test(expected = IOException.class)
+    public void missingNodes_shouldThrowAnIOException() throws Exception
+    {
+        respondWith("{}");
+
+        client.getNodes(new GetNodesParameters(), 10);
+    }
+
+    @Test(expected = IOException.class)
+    public void nullNodes_shouldThrowAnIOException() throws Exception
+    {
+        respondWith("{\"nodes\":null}");
+
+        client.getNodes(new GetNodesParameters(), 10);
+    }
+
+    @Test(expected = IOException.class)
+    public void nonObjectNode_shouldThrowAnIOException() throws Exception
+    {
+        respondWith("{\"nodes\":[1]}");
+
+        client.getNodes(new GetNodesParameters(), 10);
+    }
+
+    @Test(expected = IOException.class)
+    public void nonObjectAclReaders_shouldThrowAnIOException() throws Exception
+    {
+        respondWith("{\"aclsReaders\":[\"GROUP_EVERYONE\"]}");
+
+        client.getAclReaders(asList(new Acl(1, 11)));
+    }
+
+    @Test(expected = IOException.class)
+    public void missingAclChangeSets_shouldThrowAnIOException() throws Exception
+    {
+        respondWith("{\"maxChangeSetId\":2}");
+
+        client.getAclChangeSets(null, null, null, null, 10);
+    }
+
+    @Test
+    public void callListener_shouldReceiveEndpointAndResponseSize() throws Exception
+    {
+        String json = "{\"acls\":[]}";
+        respondWith(json);
+        List<Object[]> calls = new ArrayList<>();
+        client.setCallListener((endpoint, elapsedNanos, bytes, failed) -> calls.add(new Object[] { endpoint, elapsedNanos, bytes, failed }));
+
+        client.getAcls(Collections.emptyList(), null, 10);
+
+        assertEquals(1, calls.size());
+        assertEquals("api/solr/acls", calls.get(0)[0]);
+        assertTrue((Long) calls.get(0)[1] >= 0);
+        assertEquals((long) json.length(), calls.get(0)[2]);
+        assertFalse((Boolean) calls.get(0)[3]);
+    }
+
+    @Test
+    public void callListener_errorStatus_shouldReportAFailedCall() throws Exception
+    {
+        when(response.getStatus()).thenReturn(500);
+        when(repositoryHttpClient.sendRequest(any(Request.class))).thenReturn(response);
+        List<Boolean> outcomes = new ArrayList<>();
+        client.setCallListener((endpoint, elapsedNanos, bytes, failed) -> outcomes.add(failed));
+
+        try
+        {
+            client.getAcls(Collections.emptyList(), null, 10);
+            fail("An error status should raise an exception");
+        }
+        catch (AlfrescoRuntimeException expected)
+        {
+            assertEquals(Collections.singletonList(true), outcomes);
+        }
+    }
+
+    private void respondWith(String json) throws Exception
+    {
+        when(response.getStatus()).thenReturn(200);
+        when(response.getContentAsStream()).thenReturn(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        when(repositoryHttpClient.sendRequest(any(Request.class))).thenReturn(response);
+    }
+}
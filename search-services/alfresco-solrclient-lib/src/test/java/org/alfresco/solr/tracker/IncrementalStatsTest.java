@@ -0,0 +1,219 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.tracker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.alfresco.solr.tracker.TrackerStats.Bucket;
+import org.alfresco.solr.tracker.TrackerStats.IncrementalStats;
+import org.junit.Test;
+
+/** Unit tests for the {@link IncrementalStats}. */
+public class IncrementalStatsTest
+{
+    private static final double DELTA = 1E-6;
+
+    /** Check that values added by several threads are merged as if they were added by a single one. */
+    @Test
+    public void testConcurrentAddsAreMerged() throws InterruptedException
+    {
+        Random random = new Random(42);
+        double[][] valuesByThread = new double[8][1000];
+        IncrementalStats expected = new IncrementalStats(1, 50, null);
+        for (double[] values : valuesByThread)
+        {
+            for (int i = 0; i < values.length; i++)
+            {
+                values[i] = random.nextInt(1000) + random.nextDouble();
+                expected.add(values[i]);
+            }
+        }
+
+        IncrementalStats actual = new IncrementalStats(1, 50, null);
+        List<Thread> threads = new ArrayList<>();
+        for (double[] values : valuesByThread)
+        {
+            Thread thread = new Thread(() -> {
+                for (double value : values)
+                {
+                    actual.add(value);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        assertEquals(expected.getN(), actual.getN());
+        assertEquals(expected.getMin(), actual.getMin(), DELTA);
+        assertEquals(expected.getMax(), actual.getMax(), DELTA);
+        assertEquals(expected.getMean(), actual.getMean(), DELTA);
+        assertEquals(expected.getVarience(), actual.getVarience(), DELTA);
+        assertEquals(expected.getSkew(), actual.getSkew(), DELTA);
+        assertEquals(expected.getKurtosis(), actual.getKurtosis(), DELTA);
+
+        List<Bucket> histogram = actual.getHistogram();
+        assertEquals(50, histogram.size());
+        assertEquals(8000, histogram.stream().mapToDouble(bucket -> bucket.countLeft + bucket.countRight).sum(), DELTA);
+    }
+
+    /** Check the histogram of a few values, added by a single thread. */
+    @Test
+    public void testHistogramOfFewValues()
+    {
+        IncrementalStats stats = new IncrementalStats(10, 5, null);
+        stats.add(10);
+        stats.add(20);
+        stats.add(20);
+        stats.add(40);
+
+        assertEquals(4, stats.getN());
+        assertEquals(1, stats.getMin(), DELTA);
+        assertEquals(4, stats.getMax(), DELTA);
+        assertEquals(2.25, stats.getMean(), DELTA);
+
+        List<Bucket> histogram = stats.getHistogram();
+        assertEquals(3, histogram.size());
+        assertEquals(2, histogram.get(1).countLeft + histogram.get(1).countRight, DELTA);
+    }
+
+    /** Check that reset drops the values added so far. */
+    @Test
+    public void testReset()
+    {
+        IncrementalStats stats = new IncrementalStats(1, 50, null);
+        stats.add(1);
+        stats.reset();
+        stats.add(3);
+
+        assertEquals(1, stats.getN());
+        assertEquals(3, stats.getMean(), DELTA);
+    }
+
+    /** Check that the stripes of dead threads are folded, without losing their values. */
+    @Test
+    public void testStripesOfDeadThreadsAreFolded() throws InterruptedException
+    {
+        IncrementalStats stats = new IncrementalStats(1, 50, null);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++)
+        {
+            Thread thread = new Thread(() -> {
+                for (int i = 1; i <= 100; i++)
+                {
+                    stats.add(i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        assertEquals(400, stats.getN());
+        assertTrue(stats.stripes.isEmpty());
+
+        stats.add(1000);
+        assertEquals(401, stats.getN());
+        assertEquals(1000, stats.getMax(), DELTA);
+        assertEquals(1, stats.getMin(), DELTA);
+    }
+
+    /** Check that an idle stripe is folded, and that its thread goes on adding values into a new one. */
+    @Test
+    public void testIdleStripesAreFolded()
+    {
+        IncrementalStats stats = new IncrementalStats(1, 50, null);
+        stats.add(1);
+        stats.add(3);
+
+        assertEquals(2, stats.getN());
+        assertEquals(1, stats.stripes.size());
+        assertEquals(2, stats.getN());
+        assertTrue(stats.stripes.isEmpty());
+
+        stats.add(5);
+        assertEquals(1, stats.stripes.size());
+        assertEquals(3, stats.getN());
+        assertEquals(3, stats.getMean(), DELTA);
+    }
+
+    /** Check that folding stripes keeps the last values only, as a single stripe does. */
+    @Test
+    public void testFoldedStripesKeepTheLastValues()
+    {
+        IncrementalStats stats = new IncrementalStats(1, 5, null);
+        for (int i = 0; i < 20; i++)
+        {
+            stats.add(i);
+            stats.add(i);
+            stats.getN();
+            stats.getN();
+        }
+
+        assertTrue(stats.stripes.isEmpty());
+        assertEquals(40, stats.getN());
+        assertEquals(Arrays.asList(17.0, 18.0, 18.0, 19.0, 19.0), stats.snapshot().values);
+    }
+
+    /** Check that reads don't block, nor lose values, while the stats are being written. */
+    @Test
+    public void testReadsDuringConcurrentAdds() throws InterruptedException
+    {
+        IncrementalStats stats = new IncrementalStats(1, 50, null);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 100000; i++)
+            {
+                stats.add(i % 100);
+            }
+        });
+        writer.start();
+
+        long previous = 0;
+        while (writer.isAlive())
+        {
+            long n = stats.getN();
+            assertTrue(n >= previous);
+            previous = n;
+        }
+        writer.join();
+
+        assertEquals(100000, stats.getN());
+        assertEquals(49.5, stats.getMean(), DELTA);
+    }
+}
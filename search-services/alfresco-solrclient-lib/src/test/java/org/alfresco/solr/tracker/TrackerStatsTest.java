@@ -0,0 +1,86 @@
+/*
+ * #%L
+ * Alfresco Search Services
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package org.alfresco.solr.tracker;
+
+import static org.junit.Assert.assertEquals;
+
+import org.alfresco.solr.tracker.TrackerStats.SimpleStats;
+import org.junit.Test;
+
+/** Unit tests for the batch update statistics of the {@link TrackerStats}. */
+public class TrackerStatsTest
+{
+    private static final double DELTA = 1E-6;
+
+    /** Check that the time (in ms) and the number of documents of each batch are recorded. */
+    @Test
+    public void testBatchUpdatesAreRecorded()
+    {
+        TrackerStats trackerStats = new TrackerStats(null);
+        trackerStats.addBatchUpdate(10, 2 * TrackerStats.TIME_SCALE);
+        trackerStats.addBatchUpdate(30, 4 * TrackerStats.TIME_SCALE);
+
+        SimpleStats times = trackerStats.getBatchUpdateTimes();
+        assertEquals(2, times.getN());
+        assertEquals(3, times.getMean(), DELTA);
+        assertEquals(3, trackerStats.getMeanBatchUpdateTime(), DELTA);
+
+        SimpleStats docs = trackerStats.getBatchUpdateDocs();
+        assertEquals(2, docs.getN());
+        assertEquals(20, docs.getMean(), DELTA);
+        assertEquals(10, docs.getMin(), DELTA);
+        assertEquals(30, docs.getMax(), DELTA);
+    }
+
+    /** Check that empty batches are not recorded. */
+    @Test
+    public void testEmptyBatchesAreIgnored()
+    {
+        TrackerStats trackerStats = new TrackerStats(null);
+        trackerStats.addBatchUpdate(0, TrackerStats.TIME_SCALE);
+
+        assertEquals(0, trackerStats.getBatchUpdateTimes().getN());
+        assertEquals(0, trackerStats.getBatchUpdateDocs().getN());
+    }
+
+    /** Check that the batches recorded by several threads are aggregated. */
+    @Test
+    public void testBatchUpdatesOfSeveralThreadsAreAggregated() throws InterruptedException
+    {
+        TrackerStats trackerStats = new TrackerStats(null);
+        Thread first = new Thread(() -> trackerStats.addBatchUpdate(10, TrackerStats.TIME_SCALE));
+        Thread second = new Thread(() -> trackerStats.addBatchUpdate(20, 3 * TrackerStats.TIME_SCALE));
+        first.start();
+        second.start();
+        first.join();
+        second.join();
+
+        assertEquals(2, trackerStats.getBatchUpdateTimes().getN());
+        assertEquals(2, trackerStats.getBatchUpdateTimes().getMean(), DELTA);
+        assertEquals(15, trackerStats.getBatchUpdateDocs().getMean(), DELTA);
+    }
+}